@@ -122,3 +122,162 @@ ALTER TABLE user
     ADD COLUMN vipExpireTime datetime NULL COMMENT '会员过期时间',
     ADD COLUMN vipCode varchar(128) NULL COMMENT '会员兑换码',
     ADD COLUMN vipNumber bigint NULL COMMENT '会员编号';
+
+-- 图片内容去重：按内容哈希复用已上传的对象
+ALTER TABLE picture
+    ADD COLUMN contentHash char(64) NULL COMMENT '图片内容哈希（SHA-256）';
+
+CREATE INDEX idx_contentHash ON picture (contentHash);
+
+-- 游标分页：按 (排序字段, id) 定位，二级索引隐含主键 id
+CREATE INDEX idx_spaceId_reviewStatus_createTime ON picture (spaceId, reviewStatus, createTime);
+CREATE INDEX idx_spaceId_createTime ON picture (spaceId, createTime);
+CREATE INDEX idx_spaceId_reviewStatus_editTime ON picture (spaceId, reviewStatus, editTime);
+CREATE INDEX idx_spaceId_editTime ON picture (spaceId, editTime);
+
+-- 图片标签关联表（标签倒排索引）
+create table if not exists picture_tag
+(
+    id         bigint auto_increment comment 'id' primary key,
+    pictureId  bigint                             not null comment '图片 id',
+    spaceId    bigint                             null comment '空间 id（为空表示公共空间）',
+    tag        varchar(128)                       not null comment '标签',
+    createTime datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    -- 索引设计
+    UNIQUE KEY uk_pictureId_tag (pictureId, tag), -- 唯一索引，同一图片的标签不重复
+    INDEX idx_tag_pictureId (tag, pictureId),     -- 按标签过滤图片
+    INDEX idx_spaceId_tag (spaceId, tag)          -- 按空间统计标签
+) comment '图片标签关联' collate = utf8mb4_unicode_ci;
+
+-- 从 picture.tags 回填标签关联（MySQL 8.0+）
+INSERT IGNORE INTO picture_tag (pictureId, spaceId, tag)
+SELECT p.id, p.spaceId, TRIM(jt.tag)
+FROM picture p,
+     JSON_TABLE(p.tags, '$[*]' COLUMNS (tag varchar(128) PATH '$')) jt
+WHERE p.isDelete = 0
+  AND p.tags IS NOT NULL
+  AND JSON_VALID(p.tags)
+  AND jt.tag IS NOT NULL
+  AND TRIM(jt.tag) != '';
+
+-- 图片分类日统计表（空间分析汇总）
+create table if not exists picture_category_stat
+(
+    id           bigint auto_increment comment 'id' primary key,
+    spaceId      bigint      default 0                 not null comment '空间 id（0 表示公共图库）',
+    statDate     date                                  not null comment '统计日期（图片创建日期）',
+    category     varchar(64) default ''                not null comment '分类（空字符串表示未分类）',
+    pictureCount bigint      default 0                 not null comment '图片数量',
+    totalSize    bigint      default 0                 not null comment '图片总大小',
+    updateTime   datetime    default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    UNIQUE KEY uk_spaceId_statDate_category (spaceId, statDate, category) -- 增量更新定位与按空间汇总
+) comment '图片分类日统计' collate = utf8mb4_unicode_ci;
+
+-- 图片用户日统计表（空间分析汇总）
+create table if not exists picture_user_stat
+(
+    id           bigint auto_increment comment 'id' primary key,
+    spaceId      bigint   default 0                 not null comment '空间 id（0 表示公共图库）',
+    statDate     date                               not null comment '统计日期（图片创建日期）',
+    userId       bigint                             not null comment '用户 id',
+    pictureCount bigint   default 0                 not null comment '图片数量',
+    updateTime   datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    UNIQUE KEY uk_spaceId_statDate_userId (spaceId, statDate, userId), -- 增量更新定位与按空间汇总
+    INDEX idx_spaceId_userId_statDate (spaceId, userId, statDate)      -- 按用户汇总
+) comment '图片用户日统计' collate = utf8mb4_unicode_ci;
+
+-- 初始化统计数据
+INSERT INTO picture_category_stat (spaceId, statDate, category, pictureCount, totalSize)
+SELECT IFNULL(spaceId, 0), DATE(createTime), IFNULL(category, ''), COUNT(*), IFNULL(SUM(picSize), 0)
+FROM picture
+WHERE isDelete = 0
+GROUP BY IFNULL(spaceId, 0), DATE(createTime), IFNULL(category, '');
+
+INSERT INTO picture_user_stat (spaceId, statDate, userId, pictureCount)
+SELECT IFNULL(spaceId, 0), DATE(createTime), userId, COUNT(*)
+FROM picture
+WHERE isDelete = 0
+GROUP BY IFNULL(spaceId, 0), DATE(createTime), userId;
+
+-- 图片主色调调色板（颜色搜索）
+ALTER TABLE picture
+    ADD COLUMN picPalette varchar(64) NULL COMMENT '图片主色调调色板';
+
+-- 图片感知哈希（以图搜图）
+ALTER TABLE picture
+    ADD COLUMN picHash bigint NULL COMMENT '图片感知哈希（pHash）';
+
+-- 图片导入任务表
+create table if not exists picture_import_job
+(
+    id           bigint                                 not null comment 'id' primary key,
+    userId       bigint                                 not null comment '创建用户 id',
+    searchText   varchar(256)                           not null comment '搜索词',
+    prefixName   varchar(128)                           null comment '名称前缀',
+    fetchCount   int                                    not null comment '抓取数量',
+    status       tinyint      default 0                 not null comment '任务状态：0-等待中; 1-执行中; 2-已完成; 3-失败; 4-已取消',
+    successCount int          default 0                 not null comment '成功数量',
+    failCount    int          default 0                 not null comment '失败数量',
+    errorMessage varchar(512)                           null comment '失败原因',
+    startTime    datetime                               null comment '开始时间',
+    finishTime   datetime                               null comment '结束时间',
+    createTime   datetime     default CURRENT_TIMESTAMP not null comment '创建时间',
+    updateTime   datetime     default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    INDEX idx_status_updateTime (status, updateTime), -- 恢复未完成的任务
+    INDEX idx_userId (userId)                         -- 按用户查询任务
+) comment '图片导入任务' collate = utf8mb4_unicode_ci;
+
+-- 图片导入明细表
+create table if not exists picture_import_item
+(
+    id           bigint auto_increment comment 'id' primary key,
+    jobId        bigint                             not null comment '任务 id',
+    fileUrl      varchar(2048)                      not null comment '图片地址',
+    success      tinyint                            not null comment '是否成功：0-失败; 1-成功',
+    pictureId    bigint                             null comment '图片 id',
+    picName      varchar(128)                       null comment '图片名称',
+    errorMessage varchar(512)                       null comment '失败原因',
+    costMillis   bigint                             null comment '耗时（毫秒）',
+    createTime   datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    INDEX idx_jobId (jobId) -- 按任务查询明细与断点续传
+) comment '图片导入明细' collate = utf8mb4_unicode_ci;
+
+-- 对象删除任务表（与图片记录变更在同一事务中写入，提交后由后台批量删除对象）
+create table if not exists object_delete_task
+(
+    id            bigint auto_increment comment 'id' primary key,
+    pictureId     bigint                             null comment '图片 id，仅删除对象时为空',
+    contentHash   varchar(64)                        null comment '图片内容哈希，删除前按哈希检查对象是否仍被引用',
+    pictureUrl    varchar(512)                       null comment '图片地址，没有内容哈希时按地址检查引用',
+    objectKeys    varchar(2048)                      not null comment '待删除的对象键，逗号分隔',
+    retryCount    int      default 0                 not null comment '已重试次数',
+    nextRetryTime datetime default CURRENT_TIMESTAMP not null comment '下次执行时间',
+    errorMessage  varchar(512)                       null comment '最近一次失败原因',
+    createTime    datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    updateTime    datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    INDEX idx_retryCount_nextRetryTime (retryCount, nextRetryTime) -- 拉取到期任务
+) comment '对象删除任务' collate = utf8mb4_unicode_ci;
+
+-- 图片导入任务执行令牌：抢占任务时生成，进度与结果只允许持有当前令牌的执行者写入
+ALTER TABLE picture_import_job
+    ADD COLUMN runToken varchar(64) NULL COMMENT '执行令牌' AFTER status;
+
+-- 本地处理生成的其余对象键（其余尺寸缩略图），删除图片时按记录删除，不依赖当前配置
+ALTER TABLE picture
+    ADD COLUMN extraKeys varchar(1024) NULL COMMENT '其余对象键，逗号分隔';
+
+-- 文件下载接口按压缩图地址前缀查找图片内容哈希作为 ETag
+CREATE INDEX idx_url ON picture (url);
+
+-- 对象删除任务按图片地址检查引用：内容相同的图片只在同一空间内复用对象，不同空间各自持有对象
+ALTER TABLE object_delete_task
+    MODIFY contentHash varchar(64) null comment '图片内容哈希',
+    MODIFY pictureUrl varchar(512) null comment '图片地址，删除前按地址检查对象是否仍被其他图片引用';
+
+-- 分布式锁令牌：锁内事务开始时按令牌条件更新，持有更小令牌的过期持有者写入被拒绝
+create table if not exists lock_fence
+(
+    name         varchar(128)                       not null comment '锁名称' primary key,
+    fencingToken bigint                             not null comment '已写入的最大令牌',
+    updateTime   datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间'
+) comment '分布式锁令牌' collate = utf8mb4_unicode_ci;
@@ -0,0 +1,189 @@
+package com.lcs.lcspicture.api.imagesearch.so;
+
+import cn.hutool.core.lang.TypeReference;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.lcs.lcspicture.api.imagesearch.so.model.SoImageSearchResult;
+import com.lcs.lcspicture.api.imagesearch.so.sub.GetSoImageListApi;
+import com.lcs.lcspicture.api.imagesearch.so.sub.GetSoImageUrlApi;
+import com.lcs.lcspicture.config.ImageSearchConfig;
+import com.lcs.lcspicture.exception.BusinessException;
+import com.lcs.lcspicture.exception.ErrorCode;
+import com.lcs.lcspicture.manager.cache.MultiLevelCache;
+import com.lcs.lcspicture.manager.cache.MultiLevelCacheManager;
+import com.lcs.lcspicture.manager.guard.CircuitBreaker;
+import com.lcs.lcspicture.manager.guard.TokenBucketRateLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * 360 搜图网关
+ * <p>
+ * 按图片 id、图片地址与起始下标缓存搜索结果，同一 key 的并发请求只调用一次上游（由多级缓存的 single-flight 保证）；
+ * 上游调用在独立的有界线程池中执行，单次请求与整个翻页过程都限制等待时间，同时经过令牌桶限流与熔断保护
+ */
+@Slf4j
+@Component
+public class SoImageSearchGateway {
+
+    private static final String SO_IMAGE_URL_CACHE = "soImageUrl";
+
+    private static final String SO_IMAGE_LIST_CACHE = "soImageList";
+
+    @Resource
+    private ImageSearchConfig imageSearchConfig;
+
+    @Resource
+    private MultiLevelCacheManager multiLevelCacheManager;
+
+    /**
+     * 图片在 360 库中的地址
+     */
+    private MultiLevelCache<String> soImageUrlCache;
+
+    /**
+     * 搜索结果
+     */
+    private MultiLevelCache<List<SoImageSearchResult>> soImageListCache;
+
+    private TokenBucketRateLimiter rateLimiter;
+
+    private CircuitBreaker circuitBreaker;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        soImageUrlCache = multiLevelCacheManager.getCache(SO_IMAGE_URL_CACHE, new TypeReference<String>() {
+        });
+        soImageListCache = multiLevelCacheManager.getCache(SO_IMAGE_LIST_CACHE, new TypeReference<List<SoImageSearchResult>>() {
+        });
+        rateLimiter = new TokenBucketRateLimiter(imageSearchConfig.getPermitsPerSecond(), imageSearchConfig.getBurst());
+        circuitBreaker = new CircuitBreaker("soImageSearch", imageSearchConfig.getFailureThreshold(),
+                TimeUnit.SECONDS.toMillis(imageSearchConfig.getOpenSeconds()));
+        AtomicInteger threadIndex = new AtomicInteger();
+        int maxConcurrency = Math.max(1, imageSearchConfig.getMaxConcurrency());
+        executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, imageSearchConfig.getQueueCapacity())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "so-image-search-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 以图搜图，翻页直到结果超过指定条数、没有更多结果或用完总时间预算
+     *
+     * @param pictureId 图片 id，与图片地址一起作为缓存 key
+     * @param imageUrl  图片地址
+     * @param maxCount  结果条数，超过后不再翻页
+     * @return 图片搜索结果列表，已获取部分结果时后续页失败直接返回已有结果
+     */
+    public List<SoImageSearchResult> searchImage(Long pictureId, String imageUrl, int maxCount) {
+        long deadline = System.currentTimeMillis() + imageSearchConfig.getTotalTimeout();
+        // 图片地址变化（如重新上传）后不再命中旧的搜索结果
+        String cacheKey = pictureId + ":" + DigestUtil.md5Hex(imageUrl);
+        List<SoImageSearchResult> resultList = new ArrayList<>();
+        try {
+            String soImageUrl = soImageUrlCache.get(cacheKey, () -> callUpstream(deadline, timeout -> {
+                String url = GetSoImageUrlApi.getSoImageUrl(imageUrl, timeout);
+                if (StrUtil.isBlank(url)) {
+                    throw new BusinessException(ErrorCode.OPERATION_ERROR, "搜图失败");
+                }
+                return url;
+            }));
+            int start = 0;
+            while (resultList.size() <= maxCount) {
+                int startIndex = start;
+                List<SoImageSearchResult> pageList = soImageListCache.get(cacheKey + ":" + startIndex,
+                        () -> callUpstream(deadline, timeout -> GetSoImageListApi.getImageList(soImageUrl, startIndex, timeout)));
+                if (pageList == null || pageList.isEmpty()) {
+                    break;
+                }
+                resultList.addAll(pageList);
+                start += pageList.size();
+            }
+        } catch (BusinessException e) {
+            if (resultList.isEmpty()) {
+                throw e;
+            }
+        }
+        return resultList;
+    }
+
+    /**
+     * 在限流、熔断与超时保护下调用上游
+     * <p>
+     * 先取令牌与线程池再占用熔断放行，放行后没有实际调用上游时归还，半开状态的试探请求不会丢失；
+     * 单次等待时间取单次超时与剩余总预算的较小值，并作为上游 HTTP 请求的超时时间
+     *
+     * @param deadline 总时间预算的截止时间
+     * @param caller   上游调用，参数为本次请求的超时时间（毫秒）
+     */
+    private <T> T callUpstream(long deadline, IntFunction<T> caller) {
+        long timeout = Math.min(imageSearchConfig.getTimeout(), deadline - System.currentTimeMillis());
+        if (timeout <= 0) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "搜图超时，请稍后再试");
+        }
+        if (!rateLimiter.tryAcquire()) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "搜图请求过于频繁，请稍后再试");
+        }
+        if (!circuitBreaker.allowRequest()) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "搜图服务暂不可用，请稍后再试");
+        }
+        int requestTimeout = (int) timeout;
+        Future<T> future;
+        try {
+            // submit 返回的 FutureTask 取消时会中断执行线程
+            future = executor.submit(() -> caller.apply(requestTimeout));
+        } catch (RejectedExecutionException e) {
+            circuitBreaker.release();
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "搜图服务繁忙，请稍后再试");
+        }
+        try {
+            T result = future.get(timeout, TimeUnit.MILLISECONDS);
+            circuitBreaker.onSuccess();
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            circuitBreaker.onFailure();
+            log.warn("搜图上游请求超时, timeout={} ms", timeout);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "搜图超时，请稍后再试");
+        } catch (ExecutionException e) {
+            circuitBreaker.onFailure();
+            if (e.getCause() instanceof BusinessException) {
+                throw (BusinessException) e.getCause();
+            }
+            log.error("搜图上游请求失败", e.getCause());
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "搜图失败");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            circuitBreaker.release();
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "搜图失败");
+        }
+    }
+}
@@ -32,13 +32,25 @@ public class GetSoImageListApi {
      * @return 图片列表对象
      */
     public static List<SoImageSearchResult> getImageList(String imageUrl, Integer start) {
+        return getImageList(imageUrl, start, 5000);
+    }
+
+    /**
+     * 获取图片列表
+     *
+     * @param imageUrl 图片地址, 在 360 库中的地址
+     * @param start    开始下标
+     * @param timeout  请求超时时间（毫秒）
+     * @return 图片列表对象
+     */
+    public static List<SoImageSearchResult> getImageList(String imageUrl, Integer start, int timeout) {
         String url = "https://st.so.com/stu?a=mrecomm&start=" + start;
 
         Map<String, Object> formData = new HashMap<>();
         formData.put("img_url", imageUrl);
         HttpResponse response = HttpRequest.post(url)
                 .form(formData)
-                .timeout(5000)
+                .timeout(timeout)
                 .execute();
         // 判断响应状态
         if (HttpStatus.HTTP_OK != response.getStatus()) {
@@ -17,9 +17,20 @@ import org.jsoup.nodes.Element;
 @Slf4j
 public class GetSoImageUrlApi {
     public static String getSoImageUrl(String imageUrl) {
+        return getSoImageUrl(imageUrl, 5000);
+    }
+
+    /**
+     * 获取图片在 360 库中的地址
+     *
+     * @param imageUrl 图片地址
+     * @param timeout  请求超时时间（毫秒）
+     * @return 360 库中的地址
+     */
+    public static String getSoImageUrl(String imageUrl, int timeout) {
         String url = "https://st.so.com/r?src=st&srcsp=home&img_url=" + imageUrl + "&submittype=imgurl";
         try {
-            Document document = Jsoup.connect(url).timeout(5000).get();
+            Document document = Jsoup.connect(url).timeout(timeout).get();
             Element imgElement = document.selectFirst(".img_img");
             if (imgElement != null) {
                 String soImageUrl = "";
@@ -0,0 +1,29 @@
+package com.lcs.lcspicture.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 分布式锁配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "lock")
+@Data
+public class DistributedLockConfig {
+
+    /**
+     * 锁实现：redis（多节点共享）或 local（单节点部署、本地开发时使用的进程内实现）
+     */
+    private String type = "redis";
+
+    /**
+     * 默认最长等待时间（毫秒）
+     */
+    private long waitMillis = 3000;
+
+    /**
+     * 默认租约时间（毫秒），持有者宕机或超时未释放时锁自动失效
+     */
+    private long leaseMillis = 30000;
+}
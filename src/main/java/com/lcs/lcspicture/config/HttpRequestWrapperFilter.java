@@ -1,38 +1,84 @@
 package com.lcs.lcspicture.config;
 
+import cn.hutool.core.util.StrUtil;
 import cn.hutool.http.ContentType;
 import cn.hutool.http.Header;
+import com.lcs.lcspicture.manager.auth.annotation.SaSpaceCheckPermission;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
 
+import javax.annotation.Resource;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.servlet.Filter;
 
 /**
  * 请求包装过滤器
+ * <p>
+ * 只有标注了 {@link SaSpaceCheckPermission} 的接口才需要在鉴权时读取请求体，仅对这些接口的 JSON 请求包一层
  *
  * @author pine
  */
+@Slf4j
 @Order(1)
 @Component
 public class HttpRequestWrapperFilter implements Filter {
 
+    /**
+     * 接口方法是否需要空间权限校验，接口方法数量有限，直接缓存
+     */
+    private final Map<Method, Boolean> spaceCheckMap = new ConcurrentHashMap<>();
+
+    @Resource
+    @Lazy
+    private RequestMappingHandlerMapping requestMappingHandlerMapping;
+
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws ServletException, IOException {
         if (request instanceof HttpServletRequest) {
             HttpServletRequest servletRequest = (HttpServletRequest) request;
             String contentType = servletRequest.getHeader(Header.CONTENT_TYPE.getValue());
-            if (ContentType.JSON.getValue().equals(contentType)) {
-                // 可以再细粒度一些，只有需要进行空间权限校验的接口才需要包一层
+            if (StrUtil.startWithIgnoreCase(contentType, ContentType.JSON.getValue()) && needSpaceCheck(servletRequest)) {
                 chain.doFilter(new RequestWrapper(servletRequest), response);
             } else {
                 chain.doFilter(request, response);
             }
         }
     }
+
+    /**
+     * 判断请求对应的接口是否标注了空间权限校验注解
+     *
+     * @param request 请求
+     * @return 是否需要空间权限校验
+     */
+    private boolean needSpaceCheck(HttpServletRequest request) {
+        HandlerExecutionChain handlerChain;
+        try {
+            handlerChain = requestMappingHandlerMapping.getHandler(request);
+        } catch (Exception e) {
+            log.warn("获取请求处理器失败, uri={}", request.getRequestURI(), e);
+            return true;
+        }
+        if (handlerChain == null || !(handlerChain.getHandler() instanceof HandlerMethod)) {
+            return false;
+        }
+        HandlerMethod handlerMethod = (HandlerMethod) handlerChain.getHandler();
+        return spaceCheckMap.computeIfAbsent(handlerMethod.getMethod(),
+                method -> AnnotatedElementUtils.hasAnnotation(method, SaSpaceCheckPermission.class)
+                        || AnnotatedElementUtils.hasAnnotation(handlerMethod.getBeanType(), SaSpaceCheckPermission.class));
+    }
 }
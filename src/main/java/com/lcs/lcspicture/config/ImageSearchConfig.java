@@ -0,0 +1,54 @@
+package com.lcs.lcspicture.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 外部以图搜图（360 搜图）配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "image-search")
+@Data
+public class ImageSearchConfig {
+
+    /**
+     * 每秒允许的上游请求数
+     */
+    private double permitsPerSecond = 2;
+
+    /**
+     * 令牌桶容量，允许的瞬时突发请求数
+     */
+    private int burst = 5;
+
+    /**
+     * 单次上游请求的超时时间（毫秒），同时作为上游 HTTP 请求的超时时间，等待超时后取消请求
+     */
+    private long timeout = 4000;
+
+    /**
+     * 一次以图搜图（包括翻页）的总时间预算（毫秒），用完后返回已获取的结果
+     */
+    private long totalTimeout = 10000;
+
+    /**
+     * 上游请求线程数
+     */
+    private int maxConcurrency = 4;
+
+    /**
+     * 上游请求等待队列长度，队列满时直接拒绝
+     */
+    private int queueCapacity = 16;
+
+    /**
+     * 连续失败多少次后熔断
+     */
+    private int failureThreshold = 5;
+
+    /**
+     * 熔断持续时间（秒），之后放行一次试探请求
+     */
+    private long openSeconds = 30;
+}
@@ -0,0 +1,64 @@
+package com.lcs.lcspicture.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 多级缓存配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "cache")
+@Data
+public class MultiLevelCacheConfig {
+
+    /**
+     * 默认缓存策略
+     */
+    private CacheSpec defaultSpec = new CacheSpec();
+
+    /**
+     * 按缓存名称配置的缓存策略，未配置的缓存使用默认策略
+     */
+    private Map<String, CacheSpec> specs = new HashMap<>();
+
+    /**
+     * 获取缓存策略
+     *
+     * @param cacheName 缓存名称
+     * @return 缓存策略
+     */
+    public CacheSpec getSpec(String cacheName) {
+        return specs.getOrDefault(cacheName, defaultSpec);
+    }
+
+    /**
+     * 缓存策略
+     */
+    @Data
+    public static class CacheSpec {
+
+        /**
+         * 本地缓存最大条数
+         */
+        private long localMaxSize = 10_000;
+
+        /**
+         * 本地缓存过期时间（秒）
+         */
+        private long localExpireSeconds = 300;
+
+        /**
+         * Redis 缓存过期时间（秒）
+         */
+        private long remoteExpireSeconds = 300;
+
+        /**
+         * Redis 缓存过期时间的随机增量上限（秒），防止缓存雪崩
+         */
+        private long remoteExpireJitterSeconds = 300;
+    }
+}
@@ -0,0 +1,39 @@
+package com.lcs.lcspicture.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 对象删除队列配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "storage.delete")
+@Data
+public class ObjectDeleteConfig {
+
+    /**
+     * 每批拉取的任务数，同一批任务的对象合并为一次批量删除
+     */
+    private int batchSize = 500;
+
+    /**
+     * 定时拉取到期任务的间隔（毫秒），事务提交后也会立即唤醒一次
+     */
+    private long pollInterval = 5000;
+
+    /**
+     * 首次重试的等待时间（秒），之后每次翻倍
+     */
+    private long retryBaseSeconds = 10;
+
+    /**
+     * 重试等待时间上限（秒）
+     */
+    private long retryMaxSeconds = 3600;
+
+    /**
+     * 最大重试次数，超过后任务保留在表中等待人工处理
+     */
+    private int maxRetryCount = 10;
+}
@@ -0,0 +1,44 @@
+package com.lcs.lcspicture.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 分块上传配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "picture.chunk")
+@Data
+public class PictureChunkUploadConfig {
+
+    /**
+     * 分块大小（字节），除最后一块外每块大小必须相同；对象存储要求分块不小于 1M
+     */
+    private long chunkSize = 5 * 1024 * 1024;
+
+    /**
+     * 分块上传允许的最大文件大小（字节）
+     */
+    private long maxFileSize = 200 * 1024 * 1024;
+
+    /**
+     * 上传会话过期时间（秒），每上传一块都会续期
+     */
+    private long expireSeconds = 24 * 60 * 60;
+
+    /**
+     * 清理过期上传的间隔（毫秒），过期上传在存储中已上传的分块会被取消
+     */
+    private long sweepInterval = 10 * 60 * 1000;
+
+    /**
+     * 分块存储：cos-对象存储分块上传; local-本地目录（开发测试用）；未配置时与 storage.type 一致
+     */
+    private String storage;
+
+    /**
+     * 本地分块存储的根目录
+     */
+    private String localDir = System.getProperty("java.io.tmpdir") + "/lcs-picture-chunk";
+}
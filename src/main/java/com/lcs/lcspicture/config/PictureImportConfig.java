@@ -0,0 +1,39 @@
+package com.lcs.lcspicture.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 图片导入任务配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "picture.import")
+@Data
+public class PictureImportConfig {
+
+    /**
+     * 单个任务最多导入的数量
+     */
+    private int maxFetchCount = 5000;
+
+    /**
+     * 同时执行的任务数
+     */
+    private int workerThreads = 2;
+
+    /**
+     * 等待执行的任务队列长度，队列满时任务保持等待状态，由恢复任务稍后重新分发
+     */
+    private int queueCapacity = 100;
+
+    /**
+     * 执行中的任务超过该时间（秒）没有进度时视为已中断，会被重新执行
+     */
+    private long staleSeconds = 300;
+
+    /**
+     * 检查任务是否被取消的间隔（毫秒）
+     */
+    private long cancelCheckInterval = 1000;
+}
@@ -0,0 +1,63 @@
+package com.lcs.lcspicture.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 图片处理配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "picture.process")
+@Data
+public class PictureProcessConfig {
+
+    /**
+     * 图片处理引擎：cos-对象存储数据万象处理; local-本地处理
+     */
+    private String engine = "cos";
+
+    /**
+     * 本地处理时压缩图的格式，当前环境不支持编码该格式时使用 jpg
+     */
+    private String compressFormat = "webp";
+
+    /**
+     * 本地处理时的压缩质量，0 到 1
+     */
+    private float quality = 0.8f;
+
+    /**
+     * 本地处理时生成的缩略图最长边，第一个尺寸作为图片的缩略图地址
+     */
+    private List<Integer> thumbnailSizes = new ArrayList<>(Arrays.asList(128, 512));
+
+    /**
+     * 本地处理时允许的最大像素数（宽 × 高），超过时拒绝上传，避免解码超大图片占满内存
+     */
+    private long maxPixels = 40_000_000L;
+
+    /**
+     * 是否为没有感知哈希的存量图片回填感知哈希
+     */
+    private boolean hashBackfillEnabled = true;
+
+    /**
+     * 感知哈希回填每批处理的图片数
+     */
+    private int hashBackfillBatchSize = 100;
+
+    /**
+     * 本地图片处理线程池线程数
+     */
+    private int executorThreads = 4;
+
+    /**
+     * 本地图片处理线程池等待队列长度，队列满时由提交线程执行
+     */
+    private int executorQueueCapacity = 32;
+}
@@ -0,0 +1,79 @@
+package com.lcs.lcspicture.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 图片上传配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "picture.upload")
+@Data
+public class PictureUploadConfig {
+
+    /**
+     * 单个池化缓冲区大小（字节），长度未知且超过该值的输入会降级为临时文件
+     */
+    private int bufferSize = 1024 * 1024;
+
+    /**
+     * 缓冲池中最多保留的缓冲区数量
+     */
+    private int bufferCount = 16;
+
+    /**
+     * 缓冲池中最多保留的大缓冲区数量，大缓冲区按最大文件大小分配，用于长度已知且超过单个池化缓冲区大小的输入
+     */
+    private int largeBufferCount = 4;
+
+    /**
+     * 获取缓冲区的最长等待时间（毫秒），超时后降级为临时文件
+     */
+    private long acquireTimeout = 200;
+
+    /**
+     * 允许上传的最大文件大小（字节）
+     */
+    private long maxFileSize = 2 * 1024 * 1024;
+
+    /**
+     * 批量抓取上传的最大数量
+     */
+    private int batchMaxFetchCount = 20;
+
+    /**
+     * 批量抓取上传时，单个批次同时下载、上传的图片数
+     */
+    private int batchConcurrency = 8;
+
+    /**
+     * 批量抓取上传时，每次批量入库的图片数
+     */
+    private int batchInsertSize = 10;
+
+    /**
+     * 抓取图片地址时最多翻页数，避免搜索结果不断翻页时长时间抓取
+     */
+    private int crawlMaxPages = 300;
+
+    /**
+     * 多文件上传单次最多文件数
+     */
+    private int bulkMaxCount = 200;
+
+    /**
+     * 图片上传线程池线程数
+     */
+    private int executorThreads = 8;
+
+    /**
+     * 图片上传线程池等待队列长度，队列满时由提交线程执行，形成背压
+     */
+    private int executorQueueCapacity = 64;
+
+    /**
+     * 空间额度预留的有效期（秒），节点宕机等原因未释放的预留到期后自动失效
+     */
+    private long quotaReserveSeconds = 600;
+}
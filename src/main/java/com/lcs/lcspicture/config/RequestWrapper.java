@@ -7,43 +7,44 @@ import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 /**
  * 包装请求，使 InputStream 可以重复读取
+ * <p>
+ * 请求体按原始字节缓存一次，每次读取都基于同一个字节数组，不再做字符解码与重新编码
  *
  * @author pine
  */
 @Slf4j
 public class RequestWrapper extends HttpServletRequestWrapper {
 
-    private final String body;
+    private final byte[] body;
 
     public RequestWrapper(HttpServletRequest request) {
         super(request);
-        StringBuilder stringBuilder = new StringBuilder();
-        try (InputStream inputStream = request.getInputStream(); BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream))) {
-            char[] charBuffer = new char[128];
-            int bytesRead = -1;
-            while ((bytesRead = bufferedReader.read(charBuffer)) > 0) {
-                stringBuilder.append(charBuffer, 0, bytesRead);
-            }
-        } catch (IOException ignored) {
+        byte[] bytes = new byte[0];
+        try (InputStream inputStream = request.getInputStream()) {
+            bytes = inputStream.readAllBytes();
+        } catch (IOException e) {
+            log.warn("读取请求体失败, uri={}", request.getRequestURI(), e);
         }
-        body = stringBuilder.toString();
+        body = bytes;
     }
 
     @Override
     public ServletInputStream getInputStream() throws IOException {
-        final ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(body.getBytes());
+        final ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(body);
         return new ServletInputStream() {
             @Override
             public boolean isFinished() {
-                return false;
+                return byteArrayInputStream.available() == 0;
             }
 
             @Override
             public boolean isReady() {
-                return false;
+                return true;
             }
 
             @Override
@@ -54,17 +55,44 @@ public class RequestWrapper extends HttpServletRequestWrapper {
             public int read() throws IOException {
                 return byteArrayInputStream.read();
             }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return byteArrayInputStream.read(b, off, len);
+            }
         };
 
     }
 
     @Override
     public BufferedReader getReader() throws IOException {
-        return new BufferedReader(new InputStreamReader(this.getInputStream()));
+        return new BufferedReader(new InputStreamReader(this.getInputStream(), getBodyCharset()));
     }
 
-    public String getBody() {
+    @Override
+    public int getContentLength() {
+        return body.length;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return body.length;
+    }
+
+    /**
+     * 获取缓存的请求体字节，调用方不要修改返回的数组
+     */
+    public byte[] getBodyBytes() {
         return this.body;
     }
 
+    public String getBody() {
+        return new String(this.body, getBodyCharset());
+    }
+
+    private Charset getBodyCharset() {
+        String encoding = getCharacterEncoding();
+        return encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+    }
+
 }
@@ -0,0 +1,21 @@
+package com.lcs.lcspicture.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 空间分析配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "analyze")
+@Data
+public class SpaceAnalyzeConfig {
+
+    /**
+     * 标签统计数据来源：index-标签关联表聚合，scan-流式扫描图片表的 tags 字段
+     * <p>
+     * 标签关联表未回填完成时可切换为 scan
+     */
+    private String tagSource = "index";
+}
@@ -0,0 +1,49 @@
+package com.lcs.lcspicture.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 对象存储配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "storage")
+@Data
+public class StorageConfig {
+
+    /**
+     * 存储类型：cos-腾讯云对象存储; local-本地磁盘
+     */
+    private String type = "cos";
+
+    /**
+     * 本地磁盘存储的根目录
+     */
+    private String localRoot = System.getProperty("user.dir") + "/storage";
+
+    /**
+     * 本地磁盘存储的访问地址前缀，对象地址为 {localHost}/{key}
+     */
+    private String localHost = "http://localhost:8123/api/file";
+
+    /**
+     * 是否开启文件下载接口 /file/**，由本服务直接提供对象内容；默认关闭，本地磁盘存储时始终开启
+     */
+    private boolean serveEnabled = false;
+
+    /**
+     * 下载接口的浏览器与 CDN 缓存时间（秒），对象键带随机串且内容不会修改，默认缓存一年
+     */
+    private long serveMaxAge = 365 * 24 * 60 * 60;
+
+    /**
+     * 热点小文件内存缓存的总大小上限（字节）
+     */
+    private long serveCacheMaxBytes = 64 * 1024 * 1024;
+
+    /**
+     * 进入内存缓存的单个文件大小上限（字节），主要是缩略图
+     */
+    private long serveCacheMaxObjectSize = 256 * 1024;
+}
@@ -0,0 +1,88 @@
+package com.lcs.lcspicture.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.Resource;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 线程池配置
+ */
+@Configuration
+public class ThreadPoolConfig {
+
+    @Resource
+    private PictureUploadConfig pictureUploadConfig;
+
+    @Resource
+    private PictureImportConfig pictureImportConfig;
+
+    @Resource
+    private PictureProcessConfig pictureProcessConfig;
+
+    /**
+     * 图片上传线程池，用于批量下载、上传图片到对象存储
+     * <p>
+     * 队列满时由提交线程自己执行，避免无限堆积
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor pictureUploadExecutor() {
+        int threads = Math.max(1, pictureUploadConfig.getExecutorThreads());
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, pictureUploadConfig.getExecutorQueueCapacity())),
+                runnable -> new Thread(runnable, "picture-upload-" + threadIndex.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 图片导入任务线程池
+     * <p>
+     * 队列满时拒绝提交，任务保持等待状态，由恢复任务稍后重新分发
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor pictureImportExecutor() {
+        int threads = Math.max(1, pictureImportConfig.getWorkerThreads());
+        AtomicInteger threadIndex = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, pictureImportConfig.getQueueCapacity())),
+                runnable -> new Thread(runnable, "picture-import-" + threadIndex.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 本地图片处理线程池，用于并行编码、上传同一张图片的多个衍生图
+     * <p>
+     * 队列满时由提交线程自己执行，避免无限堆积
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor pictureProcessExecutor() {
+        int threads = Math.max(1, pictureProcessConfig.getExecutorThreads());
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, pictureProcessConfig.getExecutorQueueCapacity())),
+                runnable -> new Thread(runnable, "picture-process-" + threadIndex.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 对象删除线程池，事务提交后唤醒删除队列
+     * <p>
+     * 单线程且只保留一个待执行的唤醒，多余的唤醒直接丢弃，任务本身保存在数据库中不会丢失
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor objectDeleteExecutor() {
+        return new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(1),
+                runnable -> new Thread(runnable, "object-delete"),
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+}
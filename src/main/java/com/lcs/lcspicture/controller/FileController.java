@@ -0,0 +1,168 @@
+package com.lcs.lcspicture.controller;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.URLUtil;
+import com.lcs.lcspicture.config.StorageConfig;
+import com.lcs.lcspicture.manager.storage.ObjectStorage;
+import com.lcs.lcspicture.manager.storage.StorageObject;
+import com.lcs.lcspicture.manager.storage.StorageObjectCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 文件下载：直接由本服务提供对象内容，可作为自建 CDN 的回源地址
+ * <p>
+ * 支持单段 Range、If-None-Match / If-Range 与长期缓存；小文件走内存缓存，大文件由存储零拷贝写入响应。
+ * 默认关闭，本地磁盘存储的访问地址指向本接口，使用本地磁盘存储时始终开启
+ */
+@Slf4j
+@RestController
+@RequestMapping("/file")
+@ConditionalOnExpression("${storage.serve-enabled:false} or '${storage.type:cos}' == 'local'")
+public class FileController {
+
+    private static final String PATH_PREFIX = "/file/";
+
+    @Resource
+    private ObjectStorage objectStorage;
+
+    @Resource
+    private StorageObjectCache storageObjectCache;
+
+    @Resource
+    private StorageConfig storageConfig;
+
+    /**
+     * 下载文件
+     *
+     * @param request  请求
+     * @param response 响应
+     */
+    @GetMapping("/**")
+    public void getFile(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String key = URLUtil.decode(StrUtil.removePrefix(path, PATH_PREFIX), StandardCharsets.UTF_8);
+        StorageObject storageObject = StrUtil.isBlank(key) ? null : storageObjectCache.head(key);
+        if (storageObject == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        long size = storageObject.getSize();
+        String eTag = "\"" + storageObject.getETag() + "\"";
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=" + storageConfig.getServeMaxAge() + ", immutable");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (storageObject.getLastModified() != null) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, storageObject.getLastModified().getTime());
+        }
+        if (StrUtil.isNotBlank(storageObject.getContentType())) {
+            response.setContentType(storageObject.getContentType());
+        }
+        // 内容未变化
+        if (matchETag(request.getHeader(HttpHeaders.IF_NONE_MATCH), eTag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        // 解析范围，If-Range 与当前内容不一致时返回完整内容
+        long start = 0;
+        long end = size - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(eTag))) {
+            long[] bounds = parseRange(range, size);
+            if (bounds == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+        long length = end - start + 1;
+        response.setContentLengthLong(length);
+        if ("HEAD".equals(request.getMethod()) || length <= 0) {
+            return;
+        }
+        ServletOutputStream outputStream = response.getOutputStream();
+        byte[] data = storageObjectCache.getData(storageObject);
+        if (data != null) {
+            outputStream.write(data, (int) start, (int) length);
+            return;
+        }
+        objectStorage.transferTo(storageObject.getKey(), start, length, Channels.newChannel(outputStream));
+    }
+
+    /**
+     * If-None-Match 是否命中当前 ETag
+     */
+    private boolean matchETag(String ifNoneMatch, String eTag) {
+        if (StrUtil.isBlank(ifNoneMatch)) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = StrUtil.removePrefix(candidate.trim(), "W/");
+            if ("*".equals(value) || eTag.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解析单段 Range 请求头
+     *
+     * @param range Range 请求头
+     * @param size  文件大小
+     * @return 闭区间 [start, end]；多段或无法识别时返回空数组表示返回完整内容；范围无法满足时返回 null
+     */
+    static long[] parseRange(String range, long size) {
+        if (!range.startsWith("bytes=") || range.contains(",")) {
+            return new long[0];
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            String startText = spec.substring(0, dash).trim();
+            String endText = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (startText.isEmpty()) {
+                // bytes=-N，最后 N 个字节
+                long suffixLength = Long.parseLong(endText);
+                if (suffixLength <= 0) {
+                    return null;
+                }
+                start = Math.max(0, size - suffixLength);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(startText);
+                end = endText.isEmpty() ? size - 1 : Math.min(Long.parseLong(endText), size - 1);
+            }
+            if (start >= size || start > end) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+}
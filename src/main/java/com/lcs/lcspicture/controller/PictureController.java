@@ -1,52 +1,49 @@
 package com.lcs.lcspicture.controller;
 
-import cn.hutool.core.bean.BeanUtil;
-import cn.hutool.core.util.RandomUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
 import com.lcs.lcspicture.annotation.AutoCheck;
 import com.lcs.lcspicture.api.aliyunai.AliYunAiApi;
 import com.lcs.lcspicture.api.aliyunai.model.CreateOutPaintingTaskResponse;
 import com.lcs.lcspicture.api.aliyunai.model.GetOutPaintingTaskResponse;
-import com.lcs.lcspicture.api.imagesearch.so.SoImageSearchApiFacade;
+import com.lcs.lcspicture.api.imagesearch.so.SoImageSearchGateway;
 import com.lcs.lcspicture.api.imagesearch.so.model.SoImageSearchResult;
 import com.lcs.lcspicture.common.BaseResponse;
+import com.lcs.lcspicture.common.CursorPage;
 import com.lcs.lcspicture.common.DeleteRequest;
 import com.lcs.lcspicture.common.ResultUtils;
 import com.lcs.lcspicture.constant.UserConstant;
 import com.lcs.lcspicture.exception.BusinessException;
 import com.lcs.lcspicture.exception.ErrorCode;
 import com.lcs.lcspicture.exception.ThrowUtils;
+import com.lcs.lcspicture.manager.auth.SpaceUserAuthContext;
 import com.lcs.lcspicture.manager.auth.SpaceUserAuthManager;
 import com.lcs.lcspicture.manager.auth.StpKit;
 import com.lcs.lcspicture.manager.auth.annotation.SaSpaceCheckPermission;
 import com.lcs.lcspicture.manager.auth.model.SpaceUserPermissionConstant;
+import com.lcs.lcspicture.manager.upload.PictureChunkUploadManager;
 import com.lcs.lcspicture.model.dto.picture.*;
 import com.lcs.lcspicture.model.entity.Picture;
 import com.lcs.lcspicture.model.entity.Space;
 import com.lcs.lcspicture.model.entity.User;
 import com.lcs.lcspicture.model.enums.PictureReviewStatusEnum;
+import com.lcs.lcspicture.model.vo.ObjectDeleteQueueVO;
+import com.lcs.lcspicture.model.vo.PictureChunkUploadVO;
 import com.lcs.lcspicture.model.vo.PictureTagCategory;
+import com.lcs.lcspicture.model.vo.PictureUploadBatchVO;
 import com.lcs.lcspicture.model.vo.PictureVO;
+import com.lcs.lcspicture.service.ObjectDeleteTaskService;
 import com.lcs.lcspicture.service.PictureService;
 import com.lcs.lcspicture.service.SpaceService;
 import com.lcs.lcspicture.service.UserService;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
-import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @RestController
@@ -57,20 +54,17 @@ public class PictureController {
     @Resource
     private PictureService pictureService;
     @Resource
-    private StringRedisTemplate stringRedisTemplate;
-    @Resource
     private SpaceService spaceService;
     @Resource
     private SpaceUserAuthManager spaceUserAuthManager;
     @Resource
     private AliYunAiApi aliYunAiApi;
-    private final Cache<String, String> LOCAL_CACHE = Caffeine.newBuilder()
-            // 初始容量
-            .initialCapacity(1024)
-            // 最大存储数量
-            .maximumSize(10_000)
-            // 设置缓存失效时间5分钟
-            .expireAfterWrite(5L, TimeUnit.MINUTES).build();
+    @Resource
+    private SoImageSearchGateway soImageSearchGateway;
+    @Resource
+    private PictureChunkUploadManager pictureChunkUploadManager;
+    @Resource
+    private ObjectDeleteTaskService objectDeleteTaskService;
 
     /**
      * 文件上传图片
@@ -89,6 +83,122 @@ public class PictureController {
         return ResultUtils.success(pictureVO);
     }
 
+    /**
+     * 多文件上传图片，全部成功或全部失败
+     *
+     * @param multipartFileList        图片文件
+     * @param pictureUploadBulkRequest 多文件上传请求参数
+     * @param request                  请求
+     */
+    @PostMapping("/upload/bulk")
+    @SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_UPLOAD)
+    public BaseResponse<List<PictureVO>> uploadPictureByBulk(@RequestPart("files") List<MultipartFile> multipartFileList,
+                                                             PictureUploadBulkRequest pictureUploadBulkRequest,
+                                                             HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        List<PictureVO> pictureVOList = pictureService.uploadPictureByBulk(multipartFileList, pictureUploadBulkRequest, loginUser);
+        return ResultUtils.success(pictureVOList);
+    }
+
+    /**
+     * 初始化分块上传
+     *
+     * @param pictureChunkInitRequest 初始化分块上传请求
+     * @param request                 请求
+     */
+    @PostMapping("/upload/chunk/init")
+    @SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_UPLOAD)
+    public BaseResponse<PictureChunkUploadVO> initChunkUpload(@RequestBody PictureChunkInitRequest pictureChunkInitRequest,
+                                                              HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.initChunkUpload(pictureChunkInitRequest, loginUser));
+    }
+
+    /**
+     * 上传分块，同一上传的分块可以并发上传
+     *
+     * @param multipartFile           分块内容
+     * @param pictureChunkPartRequest 上传分块请求
+     * @param request                 请求
+     */
+    @PostMapping("/upload/chunk/part")
+    @SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_UPLOAD)
+    public BaseResponse<Boolean> uploadChunkPart(@RequestPart("file") MultipartFile multipartFile,
+                                                 PictureChunkPartRequest pictureChunkPartRequest,
+                                                 HttpServletRequest request) {
+        ThrowUtils.throwIf(pictureChunkPartRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        checkChunkUploadPermission(pictureChunkPartRequest.getUploadId(), loginUser, request);
+        pictureChunkUploadManager.uploadPart(pictureChunkPartRequest.getUploadId(), pictureChunkPartRequest.getPartNumber(),
+                multipartFile, loginUser.getId());
+        return ResultUtils.success(true);
+    }
+
+    /**
+     * 查询分块上传进度，断点续传时只需补传缺失的分块
+     *
+     * @param uploadId 上传 id
+     * @param request  请求
+     */
+    @GetMapping("/upload/chunk/get")
+    public BaseResponse<PictureChunkUploadVO> getChunkUpload(String uploadId, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureChunkUploadManager.getProgress(uploadId, loginUser.getId()));
+    }
+
+    /**
+     * 完成分块上传
+     *
+     * @param pictureChunkCompleteRequest 完成分块上传请求
+     * @param request                     请求
+     */
+    @PostMapping("/upload/chunk/complete")
+    @SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_UPLOAD)
+    public BaseResponse<PictureVO> completeChunkUpload(@RequestBody PictureChunkCompleteRequest pictureChunkCompleteRequest,
+                                                       HttpServletRequest request) {
+        ThrowUtils.throwIf(pictureChunkCompleteRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        //初始化后可能已被移出空间或降为只读，合并入库前按会话的空间重新校验
+        checkChunkUploadPermission(pictureChunkCompleteRequest.getUploadId(), loginUser, request);
+        return ResultUtils.success(pictureService.completeChunkUpload(pictureChunkCompleteRequest, loginUser));
+    }
+
+    /**
+     * 取消分块上传
+     *
+     * @param pictureChunkAbortRequest 取消分块上传请求
+     * @param request                  请求
+     */
+    @PostMapping("/upload/chunk/abort")
+    @SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_UPLOAD)
+    public BaseResponse<Boolean> abortChunkUpload(@RequestBody PictureChunkAbortRequest pictureChunkAbortRequest,
+                                                  HttpServletRequest request) {
+        ThrowUtils.throwIf(pictureChunkAbortRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        checkChunkUploadPermission(pictureChunkAbortRequest.getUploadId(), loginUser, request);
+        pictureChunkUploadManager.abort(pictureChunkAbortRequest.getUploadId(), loginUser.getId());
+        return ResultUtils.success(true);
+    }
+
+    /**
+     * 校验当前用户在分块上传会话所属空间的上传权限，请求中只有上传 id，注解鉴权时无法得到空间
+     *
+     * @param uploadId  上传 id
+     * @param loginUser 登录用户
+     * @param request   请求
+     */
+    private void checkChunkUploadPermission(String uploadId, User loginUser, HttpServletRequest request) {
+        Long spaceId = pictureChunkUploadManager.getSession(uploadId, loginUser.getId()).getSpaceId();
+        if (spaceId == null) {
+            return;
+        }
+        SpaceUserAuthContext authContext = new SpaceUserAuthContext();
+        authContext.setSpaceId(spaceId);
+        request.setAttribute(SpaceUserAuthContext.REQUEST_ATTRIBUTE, authContext);
+        boolean result = StpKit.SPACE.hasPermission(SpaceUserPermissionConstant.PICTURE_UPLOAD);
+        ThrowUtils.throwIf(!result, ErrorCode.NO_AUTH_ERROR, "无图片上传权限");
+    }
+
     /**
      * Url上传图片
      *
@@ -113,8 +223,21 @@ public class PictureController {
     public BaseResponse<Long> uploadPictureByBatch(@RequestBody PictureUploadByBachRequest pictureUploadByBachRequest, HttpServletRequest request) {
         ThrowUtils.throwIf(pictureUploadByBachRequest == null, ErrorCode.PARAMS_ERROR);
         User loginUser = userService.getLoginUser(request);
-        long count = pictureService.uploadPictureByBatch(pictureUploadByBachRequest, loginUser);
-        return ResultUtils.success(count);
+        PictureUploadBatchVO pictureUploadBatchVO = pictureService.uploadPictureByBatch(pictureUploadByBachRequest, loginUser);
+        return ResultUtils.success(pictureUploadBatchVO.getSuccessCount().longValue());
+    }
+
+    /**
+     * 图片批量上传，返回每张图片的处理结果与耗时统计
+     */
+    @PostMapping("/upload/batch/vo")
+    @AutoCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<PictureUploadBatchVO> uploadPictureByBatchVO(@RequestBody PictureUploadByBachRequest pictureUploadByBachRequest,
+                                                                     HttpServletRequest request) {
+        ThrowUtils.throwIf(pictureUploadByBachRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        PictureUploadBatchVO pictureUploadBatchVO = pictureService.uploadPictureByBatch(pictureUploadByBachRequest, loginUser);
+        return ResultUtils.success(pictureUploadBatchVO);
     }
 
     /**
@@ -146,22 +269,8 @@ public class PictureController {
     public BaseResponse<Boolean> updatePicture(@RequestBody PictureUpdateRequest pictureUpdateRequest, HttpServletRequest request) {
         //校验参数
         ThrowUtils.throwIf(pictureUpdateRequest == null || pictureUpdateRequest.getId() < 0, ErrorCode.PARAMS_ERROR);
-        Picture picture = new Picture();
-        BeanUtil.copyProperties(pictureUpdateRequest, picture);
-        //将tags转为json
-        picture.setTags(JSONUtil.toJsonStr(pictureUpdateRequest.getTags()));
-        //校验图片
-        pictureService.validPicture(picture);
-        //判断图片是否存在
-        Long id = pictureUpdateRequest.getId();
-        Picture oldPicture = pictureService.getById(id);
-        ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR);
-        //填充审核参数
         User loginUser = userService.getLoginUser(request);
-        pictureService.fillReviewParams(picture, loginUser);
-        //操作数据库
-        boolean result = pictureService.updateById(picture);
-        ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        boolean result = pictureService.updatePicture(pictureUpdateRequest, loginUser);
         return ResultUtils.success(result);
     }
 
@@ -194,6 +303,10 @@ public class PictureController {
             pictureQueryRequest.setReviewStatus(PictureReviewStatusEnum.PASS.getValue());
             pictureQueryRequest.setNullSpaceId(true);
         } else {
+            //请求体已被读取，直接提供鉴权上下文
+            SpaceUserAuthContext authContext = new SpaceUserAuthContext();
+            authContext.setSpaceId(spaceId);
+            request.setAttribute(SpaceUserAuthContext.REQUEST_ATTRIBUTE, authContext);
             boolean result = StpKit.SPACE.hasPermission(SpaceUserPermissionConstant.PICTURE_VIEW);
             ThrowUtils.throwIf(!result, ErrorCode.NO_AUTH_ERROR, "无图片查看权限");
             //已改为使用注解鉴权
@@ -211,51 +324,43 @@ public class PictureController {
         return ResultUtils.success(pictureService.getPictureVOList(page, request));
     }
 
+    /*
+     * 游标分页获取图片列表(封装类)
+     */
+    @PostMapping("/list/cursor/vo")
+    public BaseResponse<CursorPage<PictureVO>> listPictureVOByCursor(@RequestBody PictureCursorQueryRequest pictureCursorQueryRequest, HttpServletRequest request) {
+        ThrowUtils.throwIf(pictureCursorQueryRequest == null, ErrorCode.PARAMS_ERROR);
+        //限制爬虫
+        ThrowUtils.throwIf(pictureCursorQueryRequest.getPageSize() > 20, ErrorCode.PARAMS_ERROR);
+        //校验空间权限
+        Long spaceId = pictureCursorQueryRequest.getSpaceId();
+        if (spaceId == null) {
+            //公共图库
+            //普通用户默认显示审核通过的图片
+            pictureCursorQueryRequest.setReviewStatus(PictureReviewStatusEnum.PASS.getValue());
+            pictureCursorQueryRequest.setNullSpaceId(true);
+        } else {
+            //请求体已被读取，直接提供鉴权上下文
+            SpaceUserAuthContext authContext = new SpaceUserAuthContext();
+            authContext.setSpaceId(spaceId);
+            request.setAttribute(SpaceUserAuthContext.REQUEST_ATTRIBUTE, authContext);
+            boolean result = StpKit.SPACE.hasPermission(SpaceUserPermissionConstant.PICTURE_VIEW);
+            ThrowUtils.throwIf(!result, ErrorCode.NO_AUTH_ERROR, "无图片查看权限");
+        }
+        return ResultUtils.success(pictureService.listPictureVOByCursor(pictureCursorQueryRequest, request));
+    }
+
     /*
      * 获取图片列表(封装类)
      */
     @Deprecated
     @PostMapping("/list/page/vo/cache")
     public BaseResponse<Page<PictureVO>> listPictureVOByPageWithCache(@RequestBody PictureQueryRequest pictureQueryRequest, HttpServletRequest request) {
-        int current = pictureQueryRequest.getCurrent();
         int pageSize = pictureQueryRequest.getPageSize();
         //限制爬虫
         ThrowUtils.throwIf(pageSize > 20, ErrorCode.PARAMS_ERROR);
-        //普通用户默认显示审核通过的图片
-        pictureQueryRequest.setReviewStatus(PictureReviewStatusEnum.PASS.getValue());
-        //构建缓存key
-        String questionCondition = JSONUtil.toJsonStr(pictureQueryRequest);
-        String hashKey = DigestUtils.md5DigestAsHex(questionCondition.getBytes());
-        String cacheKey = String.format("lcs:listPictureVOByPage:%s", hashKey);
-        //先查询本地缓存
-        String cachedValue = LOCAL_CACHE.getIfPresent(cacheKey);
-        if (cachedValue != null) {
-            //本地缓存命中则返回
-            Page<PictureVO> pictureVOPage = JSONUtil.toBean(cachedValue, Page.class);
-            return ResultUtils.success(pictureVOPage);
-        }
-        //本地缓存未命中则查询Redis分布式缓存
-        ValueOperations<String, String> operations = stringRedisTemplate.opsForValue();
-        cachedValue = operations.get(cacheKey);
-        if (cachedValue != null) {
-            //分布式缓存命中把值先写入本地缓存然后返回
-            LOCAL_CACHE.put(cacheKey, cachedValue);
-            Page<PictureVO> pictureVOPage = JSONUtil.toBean(cachedValue, Page.class);
-            return ResultUtils.success(pictureVOPage);
-        }
-        //本地缓存和分布式缓存未命中查询数据库
-        Page<Picture> page = pictureService.page(new Page<>(current, pageSize), pictureService.getQueryWrapper(pictureQueryRequest));
-        //获取封装类
-        Page<PictureVO> pictureVOList = pictureService.getPictureVOList(page, request);
-        String cacheValue = JSONUtil.toJsonStr(pictureVOList);
-        //写入本地缓存
-        LOCAL_CACHE.put(cacheKey, cacheValue);
-        //构建RedisKey过期时间5-10分钟，防止缓存雪崩
-        int expireTime = 300 + RandomUtil.randomInt(0, 300);
-        //写入Redis
-        operations.set(cacheKey, cacheValue, expireTime, TimeUnit.SECONDS);
-        //返回结果
-        return ResultUtils.success(pictureVOList);
+        //本地缓存 -> Redis -> 数据库
+        return ResultUtils.success(pictureService.listPictureVOByPageWithCache(pictureQueryRequest, request));
     }
 
     /*
@@ -350,6 +455,24 @@ public class PictureController {
         return ResultUtils.success(true);
     }
 
+    /**
+     * 以图搜图，在图片所在空间或公共图库中查找相似图片
+     *
+     * @param searchPictureByPictureRequest 以图搜图参数
+     * @param request                       请求
+     * @return 相似图片列表
+     */
+    @PostMapping("/search/picture")
+    @SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_VIEW)
+    public BaseResponse<List<PictureVO>> searchPictureByPicture(@RequestBody SearchPictureByPictureRequest searchPictureByPictureRequest,
+                                                                HttpServletRequest request) {
+        ThrowUtils.throwIf(searchPictureByPictureRequest == null || searchPictureByPictureRequest.getPictureId() == null
+                || searchPictureByPictureRequest.getPictureId() < 0, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        List<PictureVO> pictureVOS = pictureService.searchPictureByPicture(searchPictureByPictureRequest, loginUser);
+        return ResultUtils.success(pictureVOS);
+    }
+
     @PostMapping("/search/picture/so")
     public BaseResponse<List<SoImageSearchResult>> searchPictureByPictureIsSo(@RequestBody SearchPictureByPictureRequest
                                                                                       searchPictureByPictureRequest) {
@@ -357,17 +480,9 @@ public class PictureController {
         Long pictureId = searchPictureByPictureRequest.getPictureId();
         Picture picture = pictureService.getById(pictureId);
         ThrowUtils.throwIf(picture == null, ErrorCode.NOT_FOUND_ERROR);
-        List<SoImageSearchResult> resultList = new ArrayList<>();
-        int start = 0;
-        while (resultList.size() <= 50) {
-            List<SoImageSearchResult> soImageSearchResults = SoImageSearchApiFacade.searchImage(
-                    StrUtil.isNotBlank(picture.getUrl()) ? picture.getUrl() : picture.getThumbnailUrl(), start);
-            if (soImageSearchResults == null || soImageSearchResults.isEmpty()) {
-                break;
-            }
-            resultList.addAll(soImageSearchResults);
-            start += soImageSearchResults.size();
-        }
+        //翻页直到满 50 条或用完时间预算，已经拿到部分结果时（如后续页被限流）直接返回已有结果
+        List<SoImageSearchResult> resultList = soImageSearchGateway.searchImage(pictureId,
+                StrUtil.isNotBlank(picture.getUrl()) ? picture.getUrl() : picture.getThumbnailUrl(), 50);
         return ResultUtils.success(resultList);
     }
 
@@ -429,4 +544,13 @@ public class PictureController {
         GetOutPaintingTaskResponse outPaintingTask = aliYunAiApi.getOutPaintingTask(taskId);
         return ResultUtils.success(outPaintingTask);
     }
+
+    /**
+     * 获取对象删除队列状态（仅管理员可用）
+     */
+    @GetMapping("/delete/queue/status")
+    @AutoCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<ObjectDeleteQueueVO> getObjectDeleteQueueStatus() {
+        return ResultUtils.success(objectDeleteTaskService.getQueueStatus());
+    }
 }
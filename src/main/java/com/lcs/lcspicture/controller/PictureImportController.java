@@ -0,0 +1,100 @@
+package com.lcs.lcspicture.controller;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.lcs.lcspicture.annotation.AutoCheck;
+import com.lcs.lcspicture.common.BaseResponse;
+import com.lcs.lcspicture.common.ResultUtils;
+import com.lcs.lcspicture.constant.UserConstant;
+import com.lcs.lcspicture.exception.ErrorCode;
+import com.lcs.lcspicture.exception.ThrowUtils;
+import com.lcs.lcspicture.model.dto.pictureimport.PictureImportItemQueryRequest;
+import com.lcs.lcspicture.model.dto.pictureimport.PictureImportJobAddRequest;
+import com.lcs.lcspicture.model.dto.pictureimport.PictureImportJobCancelRequest;
+import com.lcs.lcspicture.model.dto.pictureimport.PictureImportJobQueryRequest;
+import com.lcs.lcspicture.model.entity.PictureImportItem;
+import com.lcs.lcspicture.model.entity.PictureImportJob;
+import com.lcs.lcspicture.model.entity.User;
+import com.lcs.lcspicture.service.PictureImportJobService;
+import com.lcs.lcspicture.service.UserService;
+import org.springframework.web.bind.annotation.*;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * 图片导入任务（仅管理员可用）
+ */
+@RestController
+@RequestMapping("/picture/import")
+public class PictureImportController {
+    @Resource
+    private PictureImportJobService pictureImportJobService;
+    @Resource
+    private UserService userService;
+
+    /**
+     * 创建导入任务，立即返回任务 id
+     *
+     * @param pictureImportJobAddRequest 创建导入任务请求
+     * @param request                    请求
+     * @return 任务 id
+     */
+    @PostMapping("/add")
+    @AutoCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<Long> addImportJob(@RequestBody PictureImportJobAddRequest pictureImportJobAddRequest,
+                                           HttpServletRequest request) {
+        ThrowUtils.throwIf(pictureImportJobAddRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        Long jobId = pictureImportJobService.addImportJob(pictureImportJobAddRequest, loginUser);
+        return ResultUtils.success(jobId);
+    }
+
+    /**
+     * 查询导入任务及进度
+     */
+    @GetMapping("/get")
+    @AutoCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<PictureImportJob> getImportJobById(Long id) {
+        ThrowUtils.throwIf(id == null || id <= 0, ErrorCode.PARAMS_ERROR);
+        PictureImportJob pictureImportJob = pictureImportJobService.getById(id);
+        ThrowUtils.throwIf(pictureImportJob == null, ErrorCode.NOT_FOUND_ERROR);
+        return ResultUtils.success(pictureImportJob);
+    }
+
+    /**
+     * 分页查询导入任务
+     */
+    @PostMapping("/list/page")
+    @AutoCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<Page<PictureImportJob>> listImportJobByPage(@RequestBody PictureImportJobQueryRequest pictureImportJobQueryRequest) {
+        ThrowUtils.throwIf(pictureImportJobQueryRequest == null, ErrorCode.PARAMS_ERROR);
+        int current = pictureImportJobQueryRequest.getCurrent();
+        int pageSize = pictureImportJobQueryRequest.getPageSize();
+        Page<PictureImportJob> page = pictureImportJobService.page(new Page<>(current, pageSize),
+                pictureImportJobService.getQueryWrapper(pictureImportJobQueryRequest));
+        return ResultUtils.success(page);
+    }
+
+    /**
+     * 分页查询导入明细
+     */
+    @PostMapping("/item/list/page")
+    @AutoCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<Page<PictureImportItem>> listImportItemByPage(@RequestBody PictureImportItemQueryRequest pictureImportItemQueryRequest) {
+        ThrowUtils.throwIf(pictureImportItemQueryRequest == null, ErrorCode.PARAMS_ERROR);
+        return ResultUtils.success(pictureImportJobService.listImportItemByPage(pictureImportItemQueryRequest));
+    }
+
+    /**
+     * 取消导入任务
+     */
+    @PostMapping("/cancel")
+    @AutoCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<Boolean> cancelImportJob(@RequestBody PictureImportJobCancelRequest pictureImportJobCancelRequest,
+                                                 HttpServletRequest request) {
+        ThrowUtils.throwIf(pictureImportJobCancelRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        boolean result = pictureImportJobService.cancelImportJob(pictureImportJobCancelRequest.getId(), loginUser);
+        return ResultUtils.success(result);
+    }
+}
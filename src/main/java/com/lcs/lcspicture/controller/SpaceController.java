@@ -10,11 +10,14 @@ import com.lcs.lcspicture.constant.UserConstant;
 import com.lcs.lcspicture.exception.BusinessException;
 import com.lcs.lcspicture.exception.ErrorCode;
 import com.lcs.lcspicture.exception.ThrowUtils;
+import com.lcs.lcspicture.manager.auth.SpacePermissionCache;
 import com.lcs.lcspicture.manager.auth.SpaceUserAuthManager;
+import com.lcs.lcspicture.manager.lock.DistributedLockService;
 import com.lcs.lcspicture.model.dto.space.*;
 import com.lcs.lcspicture.model.entity.Space;
 import com.lcs.lcspicture.model.entity.User;
 import com.lcs.lcspicture.model.enums.SpaceLeveEnum;
+import com.lcs.lcspicture.model.vo.DistributedLockMetricsVO;
 import com.lcs.lcspicture.model.vo.SpaceVO;
 import com.lcs.lcspicture.service.SpaceService;
 import com.lcs.lcspicture.service.UserService;
@@ -36,6 +39,10 @@ public class SpaceController {
     private UserService userService;
     @Resource
     private SpaceUserAuthManager spaceUserAuthManager;
+    @Resource
+    private DistributedLockService distributedLockService;
+    @Resource
+    private SpacePermissionCache spacePermissionCache;
 
     /**
      * 创建空间
@@ -73,6 +80,8 @@ public class SpaceController {
         }
         boolean result = spaceService.removeById(deleteRequestId);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        //清理该空间所有成员的权限缓存
+        spacePermissionCache.evictSpace(deleteRequestId);
         return ResultUtils.success(result);
     }
 
@@ -212,4 +221,13 @@ public class SpaceController {
                 .collect(Collectors.toList());
         return ResultUtils.success(collect);
     }
+
+    /**
+     * 获取分布式锁统计信息（仅管理员可用）
+     */
+    @GetMapping("/lock/metrics")
+    @AutoCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<DistributedLockMetricsVO> getLockMetrics() {
+        return ResultUtils.success(distributedLockService.getMetrics());
+    }
 }
@@ -60,10 +60,7 @@ public class SpaceUserController {
             throw new BusinessException(ErrorCode.PARAMS_ERROR);
         }
         Long deleteRequestId = deleteRequest.getId();
-        // 判断空间是否存在
-        SpaceUser oldSpaceUser = spaceUserService.getById(deleteRequestId);
-        ThrowUtils.throwIf(oldSpaceUser == null, ErrorCode.NOT_FOUND_ERROR);
-        boolean result = spaceUserService.removeById(deleteRequestId);
+        boolean result = spaceUserService.deleteSpaceUser(deleteRequestId);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
         return ResultUtils.success(result);
     }
@@ -115,12 +112,8 @@ public class SpaceUserController {
         BeanUtil.copyProperties(spaceUserEditRequest, spaceUser);
         //校验空间
         spaceUserService.validSpaceUser(spaceUser, false);
-        //判断空间是否存在
-        Long id = spaceUserEditRequest.getId();
-        SpaceUser oldSpaceUser = spaceUserService.getById(id);
-        ThrowUtils.throwIf(oldSpaceUser == null, ErrorCode.NOT_FOUND_ERROR);
-        //操作数据库
-        boolean result = spaceUserService.updateById(spaceUser);
+        //操作数据库，同时清理该成员的权限缓存
+        boolean result = spaceUserService.editSpaceUser(spaceUser);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
         return ResultUtils.success(result);
     }
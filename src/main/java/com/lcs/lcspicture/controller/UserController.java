@@ -7,7 +7,6 @@ import com.lcs.lcspicture.annotation.AutoCheck;
 import com.lcs.lcspicture.common.BaseResponse;
 import com.lcs.lcspicture.common.DeleteRequest;
 import com.lcs.lcspicture.common.ResultUtils;
-import com.lcs.lcspicture.config.CosClientConfig;
 import com.lcs.lcspicture.constant.UserConstant;
 import com.lcs.lcspicture.exception.ErrorCode;
 import com.lcs.lcspicture.exception.ThrowUtils;
@@ -20,7 +19,7 @@ import com.lcs.lcspicture.model.entity.User;
 import com.lcs.lcspicture.model.vo.LoginUserVO;
 import com.lcs.lcspicture.model.vo.UserVO;
 import com.lcs.lcspicture.service.UserService;
-import com.lcs.lcspicture.manager.CosManager;
+import com.lcs.lcspicture.manager.storage.ObjectStorage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -29,6 +28,8 @@ import cn.hutool.core.util.RandomUtil;
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -39,9 +40,7 @@ public class UserController {
     private UserService userService;
 
     @Resource
-    private CosManager cosManager;
-    @Resource
-    private CosClientConfig cosClientConfig;
+    private ObjectStorage objectStorage;
 
     /*
      * 用户注册
@@ -193,14 +192,16 @@ public class UserController {
             // 将上传的文件保存到临时文件中
             multipartFile.transferTo(file);
             // 上传到对象存储
-            cosManager.putObject(filePath, file);
+            try (InputStream inputStream = new FileInputStream(file)) {
+                objectStorage.putObject(filePath, inputStream, file.length());
+            }
 
             // 获取可访问的图片URL (假设这里只是返回路径，具体URL拼接需要根据你的COS配置，可能是直接的filePath或者完整的http链接)
             // 这里为了通用，很多时候COS配置直接配置域名映射，或者通过特定的Host组装，比如
             // "https://你的桶名.cos.ap-guangzhou.myqcloud.com/" + filePath
             // 因为不知道你具体的COS配置拼接方式，这里先拼接一个通用的存入数据库的路径 (如果你的前端或者其他地方会自动补全前缀，直接存filePath即可)
             // 简单处理，假如数据库存 COS 的相对路径
-            String avatarUrl = cosClientConfig.getHost() + "/" + filePath; // 你可以根据自己的实际情况加上 "http://xxx/" 头
+            String avatarUrl = objectStorage.getUrl(filePath); // 你可以根据自己的实际情况加上 "http://xxx/" 头
 
             // 更新数据库
             User userUpdate = new User();
@@ -3,15 +3,23 @@ package com.lcs.lcspicture.manager;
 import cn.hutool.core.io.FileUtil;
 import com.lcs.lcspicture.config.CosClientConfig;
 import com.qcloud.cos.COSClient;
+import com.qcloud.cos.model.AbortMultipartUploadRequest;
 import com.qcloud.cos.model.COSObject;
+import com.qcloud.cos.model.CompleteMultipartUploadRequest;
+import com.qcloud.cos.model.CompleteMultipartUploadResult;
 import com.qcloud.cos.model.GetObjectRequest;
+import com.qcloud.cos.model.InitiateMultipartUploadRequest;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.model.PartETag;
 import com.qcloud.cos.model.PutObjectRequest;
 import com.qcloud.cos.model.PutObjectResult;
+import com.qcloud.cos.model.UploadPartRequest;
 import com.qcloud.cos.model.ciModel.persistence.PicOperations;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
 import java.io.File;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -33,6 +41,20 @@ public class CosManager {
         return cosClient.putObject(putObjectRequest);
     }
 
+    /**
+     * 上传对象，直接从输入流上传，无需落盘
+     *
+     * @param key         唯一键
+     * @param inputStream 输入流
+     * @param size        内容长度
+     */
+    public PutObjectResult putObject(String key, InputStream inputStream, long size) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(size);
+        PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key, inputStream, objectMetadata);
+        return cosClient.putObject(putObjectRequest);
+    }
+
     /**
      * 获取对象
      *
@@ -52,6 +74,94 @@ public class CosManager {
     public PutObjectResult putPictureObject(String key, File file) {
         // 创建PutObject请求
         PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key, file);
+        // 设置图片处理参数
+        putObjectRequest.setPicOperations(buildPicOperations(key, file.length()));
+        return cosClient.putObject(putObjectRequest);
+    }
+
+    /**
+     * 上传对象（附带图片信息），直接从输入流上传，无需落盘
+     *
+     * @param key         唯一键
+     * @param inputStream 输入流
+     * @param size        内容长度
+     */
+    public PutObjectResult putPictureObject(String key, InputStream inputStream, long size) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(size);
+        // 创建PutObject请求
+        PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key, inputStream, objectMetadata);
+        // 设置图片处理参数
+        putObjectRequest.setPicOperations(buildPicOperations(key, size));
+        return cosClient.putObject(putObjectRequest);
+    }
+
+    /**
+     * 初始化分块上传
+     *
+     * @param key 唯一键
+     * @return 对象存储的分块上传 id
+     */
+    public String initiateMultipartUpload(String key) {
+        InitiateMultipartUploadRequest request = new InitiateMultipartUploadRequest(cosClientConfig.getBucket(), key);
+        return cosClient.initiateMultipartUpload(request).getUploadId();
+    }
+
+    /**
+     * 上传分块，直接从输入流上传，无需落盘
+     *
+     * @param key         唯一键
+     * @param uploadId    分块上传 id
+     * @param partNumber  分块编号，从 1 开始
+     * @param inputStream 输入流
+     * @param size        分块大小
+     * @return 分块的 ETag
+     */
+    public String uploadPart(String key, String uploadId, int partNumber, InputStream inputStream, long size) {
+        UploadPartRequest request = new UploadPartRequest();
+        request.setBucketName(cosClientConfig.getBucket());
+        request.setKey(key);
+        request.setUploadId(uploadId);
+        request.setPartNumber(partNumber);
+        request.setInputStream(inputStream);
+        request.setPartSize(size);
+        return cosClient.uploadPart(request).getETag();
+    }
+
+    /**
+     * 完成分块上传（附带图片信息），由对象存储在服务端合并分块并处理图片
+     *
+     * @param key       唯一键
+     * @param uploadId  分块上传 id
+     * @param partETags 所有分块的 ETag
+     * @param size      合并后的原图大小
+     */
+    public CompleteMultipartUploadResult completePictureMultipartUpload(String key, String uploadId,
+                                                                        List<PartETag> partETags, long size) {
+        CompleteMultipartUploadRequest request = new CompleteMultipartUploadRequest(cosClientConfig.getBucket(),
+                key, uploadId, partETags);
+        // 设置图片处理参数
+        request.setPicOperations(buildPicOperations(key, size));
+        return cosClient.completeMultipartUpload(request);
+    }
+
+    /**
+     * 取消分块上传，清理已上传的分块
+     *
+     * @param key      唯一键
+     * @param uploadId 分块上传 id
+     */
+    public void abortMultipartUpload(String key, String uploadId) {
+        cosClient.abortMultipartUpload(new AbortMultipartUploadRequest(cosClientConfig.getBucket(), key, uploadId));
+    }
+
+    /**
+     * 构建图片处理参数
+     *
+     * @param key  唯一键
+     * @param size 原图大小
+     */
+    private PicOperations buildPicOperations(String key, long size) {
         // 创建图片处理请求
         PicOperations picOperations = new PicOperations();
         picOperations.setIsPicInfo(1);
@@ -69,7 +179,7 @@ public class CosManager {
 
         //图片缩略图
         //仅对图片大小超过 50KB 的图片生效
-        if (file.length() > 50 * 1024) {
+        if (size > 50 * 1024) {
             PicOperations.Rule thumbnail = new PicOperations.Rule();
             //拼接缩略图的路径
             String thumbnailKey = FileUtil.mainName(key) + "_thumbnail." + FileUtil.getSuffix(key);
@@ -82,9 +192,7 @@ public class CosManager {
 
         // 添加图片处理规则
         picOperations.setRules(picOperationsRules);
-        // 设置图片处理参数
-        putObjectRequest.setPicOperations(picOperations);
-        return cosClient.putObject(putObjectRequest);
+        return picOperations;
     }
 
     /**
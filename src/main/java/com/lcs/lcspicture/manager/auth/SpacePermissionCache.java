@@ -0,0 +1,155 @@
+package com.lcs.lcspicture.manager.auth;
+
+import cn.hutool.core.util.StrUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lcs.lcspicture.config.MultiLevelCacheConfig;
+import com.lcs.lcspicture.config.MultiLevelCacheConfig.CacheSpec;
+import com.lcs.lcspicture.manager.cache.MultiLevelCacheManager;
+import com.lcs.lcspicture.model.entity.Picture;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 空间权限决策缓存
+ * <p>
+ * 缓存用户在空间内的权限列表（key 为 空间id:用户id:用户角色），以及图片、空间成员到所属空间的映射，
+ * 避免每次空间鉴权都查询图片、空间与空间成员。私有空间的权限取决于用户是否为管理员，用户角色作为 key 的一部分，
+ * 角色变更后自然使用新的决策；成员或空间角色变更、空间删除时清理本节点缓存，
+ * 并通过缓存失效广播通知其他节点。图片与空间成员所属的空间不会变更，映射只依赖过期淘汰
+ */
+@Component
+public class SpacePermissionCache {
+
+    private static final String CACHE_NAME = "spacePermission";
+
+    private static final String KEY_SEPARATOR = ":";
+
+    /**
+     * 权限决策，key 为 空间id:用户id:用户角色
+     */
+    private Cache<String, List<String>> permissionCache;
+
+    /**
+     * 图片 id 到图片的映射，仅包含 id、spaceId、userId
+     */
+    private Cache<Long, Picture> pictureCache;
+
+    /**
+     * 空间成员 id 到空间 id 的映射
+     */
+    private Cache<Long, Long> spaceUserSpaceIdCache;
+
+    @Resource
+    private MultiLevelCacheConfig multiLevelCacheConfig;
+
+    @Resource
+    private MultiLevelCacheManager multiLevelCacheManager;
+
+    @PostConstruct
+    public void init() {
+        CacheSpec spec = multiLevelCacheConfig.getSpec(CACHE_NAME);
+        permissionCache = buildCache(spec);
+        pictureCache = buildCache(spec);
+        spaceUserSpaceIdCache = buildCache(spec);
+        multiLevelCacheManager.registerInvalidateListener(CACHE_NAME, this::evictLocal);
+    }
+
+    /**
+     * 获取用户在空间内的权限列表，未命中时调用 loader 计算并缓存
+     *
+     * @param spaceId  空间 id
+     * @param userId   用户 id
+     * @param userRole 用户角色
+     * @param loader   权限计算方法
+     * @return 权限列表
+     */
+    public List<String> getPermissions(Long spaceId, Long userId, String userRole, Supplier<List<String>> loader) {
+        return permissionCache.get(spaceId + KEY_SEPARATOR + userId + KEY_SEPARATOR + StrUtil.nullToEmpty(userRole),
+                key -> loader.get());
+    }
+
+    /**
+     * 获取图片，未命中时调用 loader 查询，loader 返回 null 时不缓存
+     *
+     * @param pictureId 图片 id
+     * @param loader    查询方法
+     * @return 图片，仅包含 id、spaceId、userId
+     */
+    public Picture getPicture(Long pictureId, Function<Long, Picture> loader) {
+        return pictureCache.get(pictureId, loader);
+    }
+
+    /**
+     * 获取空间成员所属的空间 id，未命中时调用 loader 查询，loader 返回 null 时不缓存
+     *
+     * @param spaceUserId 空间成员 id
+     * @param loader      查询方法
+     * @return 空间 id
+     */
+    public Long getSpaceIdBySpaceUserId(Long spaceUserId, Function<Long, Long> loader) {
+        return spaceUserSpaceIdCache.get(spaceUserId, loader);
+    }
+
+    /**
+     * 成员或角色变更后清理该成员的权限缓存，并通知其他节点
+     *
+     * @param spaceId 空间 id
+     * @param userId  用户 id
+     */
+    public void evictSpaceUser(Long spaceId, Long userId) {
+        String key = spaceId + KEY_SEPARATOR + userId;
+        evictLocal(key);
+        multiLevelCacheManager.publish(CACHE_NAME, key);
+    }
+
+    /**
+     * 成员被移除后清理该成员的权限缓存与成员映射，并通知其他节点
+     *
+     * @param spaceUserId 空间成员 id
+     * @param spaceId     空间 id
+     * @param userId      用户 id
+     */
+    public void evictSpaceUser(Long spaceUserId, Long spaceId, Long userId) {
+        spaceUserSpaceIdCache.invalidate(spaceUserId);
+        evictSpaceUser(spaceId, userId);
+    }
+
+    /**
+     * 空间删除后清理该空间所有成员的权限缓存，并通知其他节点
+     *
+     * @param spaceId 空间 id
+     */
+    public void evictSpace(Long spaceId) {
+        String key = String.valueOf(spaceId);
+        evictLocal(key);
+        multiLevelCacheManager.publish(CACHE_NAME, key);
+    }
+
+    /**
+     * 清理本节点的权限缓存
+     *
+     * @param key 空间id:用户id（该用户所有角色的决策）或 空间id，为空时全部清理
+     */
+    private void evictLocal(String key) {
+        if (key == null) {
+            permissionCache.invalidateAll();
+            return;
+        }
+        String prefix = key + KEY_SEPARATOR;
+        permissionCache.asMap().keySet().removeIf(cacheKey -> cacheKey.startsWith(prefix));
+    }
+
+    private <K, V> Cache<K, V> buildCache(CacheSpec spec) {
+        return Caffeine.newBuilder()
+                .maximumSize(spec.getLocalMaxSize())
+                .expireAfterWrite(spec.getLocalExpireSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+}
@@ -12,6 +12,12 @@ import lombok.Data;
 @Data
 public class SpaceUserAuthContext {
 
+    /**
+     * 请求属性名，解析得到的上下文保存在请求中，同一请求内多次鉴权不再重复解析；
+     * 请求体已被 @RequestBody 读取的接口在编程式鉴权前可直接设置该属性
+     */
+    public static final String REQUEST_ATTRIBUTE = "spaceUserAuthContext";
+
     /**
      * 临时参数，不同请求对应的 id 可能不同
      */
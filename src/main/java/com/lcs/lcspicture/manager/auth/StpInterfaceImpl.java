@@ -3,13 +3,14 @@ package com.lcs.lcspicture.manager.auth;
 import cn.dev33.satoken.stp.StpInterface;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.ObjUtil;
-import cn.hutool.core.util.ObjectUtil;
-import cn.hutool.core.util.ReflectUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.extra.servlet.ServletUtil;
 import cn.hutool.http.ContentType;
 import cn.hutool.http.Header;
-import cn.hutool.json.JSONUtil;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.lcs.lcspicture.config.RequestWrapper;
 import com.lcs.lcspicture.constant.UserConstant;
 import com.lcs.lcspicture.exception.BusinessException;
 import com.lcs.lcspicture.exception.ErrorCode;
@@ -28,9 +29,11 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.util.WebUtils;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -38,6 +41,9 @@ import java.util.*;
  */
 @Component    // 保证此类被 SpringBoot 扫描，完成 Sa-Token 的自定义权限验证扩展
 public class StpInterfaceImpl implements StpInterface {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
     @Resource
     private SpaceUserAuthManager spaceUserAuthManager;
     @Resource
@@ -48,6 +54,8 @@ public class StpInterfaceImpl implements StpInterface {
     private UserService userService;
     @Resource
     private SpaceService spaceService;
+    @Resource
+    private SpacePermissionCache spacePermissionCache;
     //默认是/api
     @Value("${server.servlet.context-path}")
     private String contextPath;
@@ -80,34 +88,31 @@ public class StpInterfaceImpl implements StpInterface {
         if (spaceUser != null) {
             return spaceUserAuthManager.getPermissionsByRole(spaceUser.getSpaceRole());
         }
-        //通过spaceUserId获取空间用户信息
+        //通过spaceUserId获取空间用户所属的空间，再按当前登录用户在该空间的角色鉴权
+        Long spaceId = authContext.getSpaceId();
         Long spaceUserId = authContext.getSpaceUserId();
         if (spaceUserId != null) {
-            spaceUser = spaceUserService.getById(spaceUserId);
-            if (spaceUser == null) {
+            spaceId = spacePermissionCache.getSpaceIdBySpaceUserId(spaceUserId, id -> {
+                SpaceUser one = spaceUserService.lambdaQuery()
+                        .eq(SpaceUser::getId, id)
+                        .select(SpaceUser::getId, SpaceUser::getSpaceId)
+                        .one();
+                return one == null ? null : one.getSpaceId();
+            });
+            if (spaceId == null) {
                 throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "空间用户不存在");
             }
-            //取出当前登录用户性对应的SpaceUser
-            SpaceUser loginSpaceUser = spaceUserService.lambdaQuery()
-                    .eq(SpaceUser::getId, spaceUser.getSpaceId())
-                    .eq(SpaceUser::getUserId, userId)
-                    .one();
-            if (loginSpaceUser == null) {
-                return new ArrayList<>();
-            }
-            return spaceUserAuthManager.getPermissionsByRole(loginSpaceUser.getSpaceRole());
         }
         //通过spaceId或pictureId获取空间或图片信息
-        Long spaceId = authContext.getSpaceId();
         if (spaceId == null) {
             Long pictureId = authContext.getPictureId();
             if (pictureId == null) {
                 return ADMIN_PERMISSIONS;
             }
-            Picture picture = pictureService.lambdaQuery()
-                    .eq(Picture::getId, pictureId)
+            Picture picture = spacePermissionCache.getPicture(pictureId, id -> pictureService.lambdaQuery()
+                    .eq(Picture::getId, id)
                     .select(Picture::getId, Picture::getSpaceId, Picture::getUserId)
-                    .one();
+                    .one());
             if (picture == null) {
                 throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "图片不存在");
             }
@@ -122,6 +127,22 @@ public class StpInterfaceImpl implements StpInterface {
                 }
             }
         }
+        //按 (空间, 用户, 用户角色) 缓存权限决策，成员或空间角色变更时失效
+        Long finalSpaceId = spaceId;
+        return spacePermissionCache.getPermissions(spaceId, userId, loginUser.getUserRole(),
+                () -> loadSpacePermissions(finalSpaceId, loginUser, ADMIN_PERMISSIONS));
+    }
+
+    /**
+     * 查询空间与空间成员，计算用户在空间内的权限列表
+     *
+     * @param spaceId          空间 id
+     * @param loginUser        登录用户
+     * @param adminPermissions 管理员权限列表
+     * @return 权限列表
+     */
+    private List<String> loadSpacePermissions(Long spaceId, User loginUser, List<String> adminPermissions) {
+        Long userId = loginUser.getId();
         Space space = spaceService.getById(spaceId);
         if (space == null) {
             throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "空间不存在");
@@ -130,13 +151,13 @@ public class StpInterfaceImpl implements StpInterface {
         if (space.getSpaceType() == SpaceTypeEnum.PRIVATE.getValue()) {
             //私有空间，仅本人和管理员才可以操作
             if (space.getUserId().equals(userId) && userService.isAdmin(loginUser)) {
-                return ADMIN_PERMISSIONS;
+                return adminPermissions;
             } else {
                 return Collections.singletonList(SpaceUserPermissionConstant.PICTURE_VIEW);
             }
         }
         //团队空间
-        spaceUser = spaceUserService.lambdaQuery()
+        SpaceUser spaceUser = spaceUserService.lambdaQuery()
                 .eq(SpaceUser::getSpaceId, spaceId)
                 .eq(SpaceUser::getUserId, userId)
                 .one();
@@ -146,15 +167,15 @@ public class StpInterfaceImpl implements StpInterface {
         return spaceUserAuthManager.getPermissionsByRole(spaceUser.getSpaceRole());
     }
 
-    private boolean isAllFiledsNull(Object obj) {
-        if (obj == null) {
+    /**
+     * 判断鉴权上下文中的字段是否全部为空
+     */
+    private boolean isAllFiledsNull(SpaceUserAuthContext authContext) {
+        if (authContext == null) {
             return true;//对象为null
         }
-        return Arrays.stream(ReflectUtil.getFields(obj.getClass()))
-                //获取字段值
-                .map(filed -> ReflectUtil.getFieldValue(obj, filed))
-                //判断所有字段是否为空
-                .allMatch(ObjectUtil::isEmpty);
+        return ObjUtil.isAllEmpty(authContext.getId(), authContext.getPictureId(), authContext.getSpaceId(),
+                authContext.getSpaceUserId(), authContext.getPicture(), authContext.getSpace(), authContext.getSpaceUser());
     }
 
     /**
@@ -173,11 +194,17 @@ public class StpInterfaceImpl implements StpInterface {
      */
     private SpaceUserAuthContext getAuthContextByRequest() {
         HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+        //同一请求内已解析过或由接口直接提供时不再解析
+        Object attribute = request.getAttribute(SpaceUserAuthContext.REQUEST_ATTRIBUTE);
+        if (attribute instanceof SpaceUserAuthContext) {
+            return (SpaceUserAuthContext) attribute;
+        }
         String contentType = request.getHeader(Header.CONTENT_TYPE.getValue());
         SpaceUserAuthContext bean;
-        if (ContentType.JSON.getValue().equals(contentType)) {
-            String body = ServletUtil.getBody(request);
-            bean = JSONUtil.toBean(body, SpaceUserAuthContext.class);
+        if (StrUtil.startWithIgnoreCase(contentType, ContentType.JSON.getValue())) {
+            RequestWrapper requestWrapper = WebUtils.getNativeRequest(request, RequestWrapper.class);
+            byte[] body = requestWrapper != null ? requestWrapper.getBodyBytes() : ServletUtil.getBodyBytes(request);
+            bean = parseAuthContext(body);
         } else {
             Map<String, String> paramMap = ServletUtil.getParamMap(request);
             bean = BeanUtil.toBean(paramMap, SpaceUserAuthContext.class);
@@ -206,7 +233,69 @@ public class StpInterfaceImpl implements StpInterface {
                     break;
             }
         }
+        request.setAttribute(SpaceUserAuthContext.REQUEST_ATTRIBUTE, bean);
         return bean;
     }
 
+    /**
+     * 使用流式解析从 JSON 请求体中只读取顶层的 id 字段，其他字段直接跳过
+     *
+     * @param body 请求体
+     * @return 鉴权上下文
+     */
+    static SpaceUserAuthContext parseAuthContext(byte[] body) {
+        SpaceUserAuthContext authContext = new SpaceUserAuthContext();
+        if (body == null || body.length == 0) {
+            return authContext;
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return authContext;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken valueToken = parser.nextToken();
+                switch (fieldName) {
+                    case "id":
+                        authContext.setId(readLong(parser, valueToken));
+                        break;
+                    case "pictureId":
+                        authContext.setPictureId(readLong(parser, valueToken));
+                        break;
+                    case "spaceId":
+                        authContext.setSpaceId(readLong(parser, valueToken));
+                        break;
+                    case "spaceUserId":
+                        authContext.setSpaceUserId(readLong(parser, valueToken));
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "请求参数格式错误");
+        }
+        return authContext;
+    }
+
+    /**
+     * 读取 id 字段的值，兼容前端为避免精度丢失以字符串传递的 id
+     */
+    private static Long readLong(JsonParser parser, JsonToken valueToken) throws IOException {
+        if (valueToken == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        if (valueToken == JsonToken.VALUE_STRING) {
+            String text = parser.getText();
+            try {
+                return StrUtil.isBlank(text) ? null : Long.valueOf(text.trim());
+            } catch (NumberFormatException e) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "请求参数格式错误");
+            }
+        }
+        parser.skipChildren();
+        return null;
+    }
+
 }
@@ -0,0 +1,29 @@
+package com.lcs.lcspicture.manager.cache;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 缓存失效广播消息
+ */
+@Data
+public class CacheInvalidateMessage implements Serializable {
+
+    /**
+     * 发送消息的节点 id
+     */
+    private String nodeId;
+
+    /**
+     * 缓存名称
+     */
+    private String cacheName;
+
+    /**
+     * 失效的缓存 key，为空表示整个缓存失效
+     */
+    private String key;
+
+    private static final long serialVersionUID = 1L;
+}
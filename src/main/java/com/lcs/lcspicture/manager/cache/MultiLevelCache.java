@@ -0,0 +1,252 @@
+package com.lcs.lcspicture.manager.cache;
+
+import cn.hutool.core.util.RandomUtil;
+import cn.hutool.json.JSONUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lcs.lcspicture.config.MultiLevelCacheConfig.CacheSpec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 多级缓存：本地 Caffeine 缓存 + Redis 分布式缓存
+ * <p>
+ * 读取顺序为本地缓存、Redis、数据源；同一节点上同一 key 的并发未命中只会加载一次（single-flight）。
+ * 失效时同时清理本地缓存与 Redis，并通过 Redis 发布订阅通知其他节点清理本地缓存；加载期间该 key 失效时放弃回填，
+ * 其他 key 的失效不影响正在进行的加载。
+ * 整个缓存失效通过递增 Redis 中的版本号实现，旧版本的 key 随过期时间自然淘汰。
+ *
+ * @param <V> 缓存值类型
+ */
+@Slf4j
+public class MultiLevelCache<V> {
+
+    private static final String KEY_PREFIX = "lcs:cache:";
+
+    private final String name;
+
+    private final Type valueType;
+
+    private final CacheSpec spec;
+
+    private final Cache<String, V> localCache;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final MultiLevelCacheManager cacheManager;
+
+    /**
+     * 正在加载中的 key
+     */
+    private final ConcurrentHashMap<String, Loading<V>> loadingMap = new ConcurrentHashMap<>();
+
+    /**
+     * Redis 中的缓存版本号，为 null 时从 Redis 重新读取
+     */
+    private volatile String version;
+
+    MultiLevelCache(String name, Type valueType, CacheSpec spec,
+                    StringRedisTemplate stringRedisTemplate, MultiLevelCacheManager cacheManager) {
+        this.name = name;
+        this.valueType = valueType;
+        this.spec = spec;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.cacheManager = cacheManager;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(spec.getLocalMaxSize())
+                .expireAfterWrite(spec.getLocalExpireSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 获取缓存，未命中时调用 loader 加载并回填，loader 返回 null 时不缓存
+     *
+     * @param key    缓存 key
+     * @param loader 数据加载方法
+     * @return 缓存值
+     */
+    public V get(String key, Supplier<V> loader) {
+        V value = localCache.getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        Loading<V> loading = new Loading<>();
+        Loading<V> existing = loadingMap.putIfAbsent(key, loading);
+        if (existing != null) {
+            // 已有线程在加载，等待其结果
+            return join(existing.future);
+        }
+        try {
+            value = load(key, loader, loading);
+            loading.future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            loading.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadingMap.remove(key, loading);
+        }
+    }
+
+    /**
+     * 使指定 key 失效，并通知其他节点
+     *
+     * @param key 缓存 key
+     */
+    public void evict(String key) {
+        markStale(key);
+        localCache.invalidate(key);
+        try {
+            stringRedisTemplate.delete(getRemoteKey(key));
+        } catch (Exception e) {
+            log.error("缓存失效失败, cache={}, key={}", name, key, e);
+        }
+        cacheManager.publish(name, key);
+    }
+
+    /**
+     * 使整个缓存失效，并通知其他节点
+     */
+    public void evictAll() {
+        markStale(null);
+        localCache.invalidateAll();
+        try {
+            Long newVersion = stringRedisTemplate.opsForValue().increment(getVersionKey());
+            version = String.valueOf(newVersion);
+        } catch (Exception e) {
+            version = null;
+            log.error("缓存失效失败, cache={}", name, e);
+        }
+        cacheManager.publish(name, null);
+    }
+
+    /**
+     * 处理其他节点的失效通知，仅清理本地缓存
+     *
+     * @param key 缓存 key，为空表示整个缓存失效
+     */
+    void onRemoteEvict(String key) {
+        markStale(key);
+        if (key == null) {
+            version = null;
+            localCache.invalidateAll();
+        } else {
+            localCache.invalidate(key);
+        }
+    }
+
+    /**
+     * 标记正在进行的加载已失效，加载完成后不再回填
+     *
+     * @param key 缓存 key，为空表示所有 key
+     */
+    private void markStale(String key) {
+        if (key == null) {
+            loadingMap.values().forEach(loading -> loading.stale = true);
+            return;
+        }
+        Loading<V> loading = loadingMap.get(key);
+        if (loading != null) {
+            loading.stale = true;
+        }
+    }
+
+    private V load(String key, Supplier<V> loader, Loading<V> loading) {
+        String remoteKey = null;
+        try {
+            remoteKey = getRemoteKey(key);
+            String cachedValue = stringRedisTemplate.opsForValue().get(remoteKey);
+            if (cachedValue != null) {
+                V value = JSONUtil.toBean(cachedValue, valueType, false);
+                putLocal(key, value, loading);
+                return value;
+            }
+        } catch (Exception e) {
+            // Redis 不可用时直接回源
+            log.warn("读取分布式缓存失败, cache={}, key={}", name, key, e);
+        }
+        V value = loader.get();
+        if (value == null || !putLocal(key, value, loading)) {
+            return value;
+        }
+        if (remoteKey != null) {
+            try {
+                long expireSeconds = spec.getRemoteExpireSeconds();
+                if (spec.getRemoteExpireJitterSeconds() > 0) {
+                    expireSeconds += RandomUtil.randomLong(spec.getRemoteExpireJitterSeconds());
+                }
+                stringRedisTemplate.opsForValue().set(remoteKey, JSONUtil.toJsonStr(value), expireSeconds, TimeUnit.SECONDS);
+                // 写入期间该 key 失效，删除可能已经过期的值
+                if (loading.stale) {
+                    stringRedisTemplate.delete(remoteKey);
+                }
+            } catch (Exception e) {
+                log.warn("写入分布式缓存失败, cache={}, key={}", name, key, e);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 回填本地缓存；回填前后任一时刻已失效则不保留，失效与回填交错时也不会留下旧值
+     *
+     * @return 是否回填成功
+     */
+    private boolean putLocal(String key, V value, Loading<V> loading) {
+        if (loading.stale) {
+            return false;
+        }
+        localCache.put(key, value);
+        if (loading.stale) {
+            localCache.invalidate(key);
+            return false;
+        }
+        return true;
+    }
+
+    private V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private String getRemoteKey(String key) {
+        String currentVersion = version;
+        if (currentVersion == null) {
+            String storedVersion = stringRedisTemplate.opsForValue().get(getVersionKey());
+            currentVersion = storedVersion == null ? "0" : storedVersion;
+            version = currentVersion;
+        }
+        return KEY_PREFIX + name + ":" + currentVersion + ":" + key;
+    }
+
+    private String getVersionKey() {
+        return KEY_PREFIX + name + ":version";
+    }
+
+    /**
+     * 一次加载：等待中的线程共享加载结果，加载期间该 key 失效时标记为 stale
+     */
+    private static class Loading<V> {
+
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+
+        private volatile boolean stale;
+    }
+}
@@ -0,0 +1,125 @@
+package com.lcs.lcspicture.manager.cache;
+
+import cn.hutool.core.lang.TypeReference;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.json.JSONUtil;
+import com.lcs.lcspicture.config.MultiLevelCacheConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 多级缓存管理器
+ * <p>
+ * 负责创建多级缓存，并通过 Redis 发布订阅在节点间广播缓存失效；
+ * 其他本地缓存结构（如内存索引）也可以注册失效监听，复用同一广播频道
+ */
+@Slf4j
+@Component
+public class MultiLevelCacheManager implements MessageListener {
+
+    /**
+     * 缓存失效广播频道
+     */
+    private static final String INVALIDATE_CHANNEL = "lcs:cache:invalidate";
+
+    /**
+     * 当前节点 id，用于忽略自己发出的广播
+     */
+    private final String nodeId = IdUtil.fastSimpleUUID();
+
+    private final Map<String, MultiLevelCache<?>> cacheMap = new ConcurrentHashMap<>();
+
+    /**
+     * 自定义失效监听，key 为缓存名称
+     */
+    private final Map<String, Consumer<String>> listenerMap = new ConcurrentHashMap<>();
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Resource
+    private MultiLevelCacheConfig multiLevelCacheConfig;
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 获取缓存，不存在时按配置的缓存策略创建
+     *
+     * @param cacheName     缓存名称
+     * @param typeReference 缓存值类型
+     * @return 缓存
+     */
+    @SuppressWarnings("unchecked")
+    public <V> MultiLevelCache<V> getCache(String cacheName, TypeReference<V> typeReference) {
+        return (MultiLevelCache<V>) cacheMap.computeIfAbsent(cacheName, name -> new MultiLevelCache<V>(name,
+                typeReference.getType(), multiLevelCacheConfig.getSpec(name), stringRedisTemplate, this));
+    }
+
+    /**
+     * 注册失效监听，收到其他节点对该名称的失效广播时回调
+     *
+     * @param cacheName 缓存名称
+     * @param listener  失效回调，参数为失效的 key，为空表示整体失效
+     */
+    public void registerInvalidateListener(String cacheName, Consumer<String> listener) {
+        listenerMap.put(cacheName, listener);
+    }
+
+    /**
+     * 广播缓存失效
+     *
+     * @param cacheName 缓存名称
+     * @param key       缓存 key，为空表示整个缓存失效
+     */
+    public void publish(String cacheName, String key) {
+        CacheInvalidateMessage message = new CacheInvalidateMessage();
+        message.setNodeId(nodeId);
+        message.setCacheName(cacheName);
+        message.setKey(key);
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, JSONUtil.toJsonStr(message));
+        } catch (Exception e) {
+            log.error("缓存失效广播失败, cache={}, key={}", cacheName, key, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        CacheInvalidateMessage invalidateMessage;
+        try {
+            invalidateMessage = JSONUtil.toBean(new String(message.getBody(), StandardCharsets.UTF_8), CacheInvalidateMessage.class);
+        } catch (Exception e) {
+            log.warn("无法解析缓存失效消息", e);
+            return;
+        }
+        if (nodeId.equals(invalidateMessage.getNodeId())) {
+            return;
+        }
+        MultiLevelCache<?> cache = cacheMap.get(invalidateMessage.getCacheName());
+        if (cache != null) {
+            cache.onRemoteEvict(invalidateMessage.getKey());
+        }
+        Consumer<String> listener = listenerMap.get(invalidateMessage.getCacheName());
+        if (listener != null) {
+            listener.accept(invalidateMessage.getKey());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.lcs.lcspicture.manager.guard;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 熔断器（单节点）
+ * <p>
+ * 连续失败达到阈值后进入打开状态，直接拒绝请求；打开一段时间后进入半开状态，只放行一次试探请求，
+ * 试探成功则关闭熔断，失败则重新打开；试探请求没有实际执行时须调用 {@link #release()} 归还
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+
+    private final int failureThreshold;
+
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+
+    private int failureCount;
+
+    private long openTime;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * 是否允许请求通过
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN && System.currentTimeMillis() - openTime >= openMillis) {
+            // 放行一次试探请求
+            state = State.HALF_OPEN;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 请求成功
+     */
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            log.info("熔断恢复, name={}", name);
+        }
+        state = State.CLOSED;
+        failureCount = 0;
+    }
+
+    /**
+     * 放行的请求没有实际调用上游（如线程池已满、调用方被中断）时归还放行：
+     * 半开状态下恢复为打开状态，下一个请求可以立即重新试探，避免一直停留在半开状态拒绝所有请求
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+        }
+    }
+
+    /**
+     * 请求失败
+     */
+    public synchronized void onFailure() {
+        failureCount++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failureCount >= failureThreshold)) {
+            log.warn("熔断打开, name={}, failureCount={}", name, failureCount);
+            state = State.OPEN;
+            openTime = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.lcs.lcspicture.manager.guard;
+
+/**
+ * 令牌桶限流器（单节点）
+ * <p>
+ * 按固定速率补充令牌，桶满后不再补充；每次请求消耗一个令牌，没有令牌时直接拒绝
+ */
+public class TokenBucketRateLimiter {
+
+    /**
+     * 每纳秒补充的令牌数
+     */
+    private final double permitsPerNano;
+
+    private final double capacity;
+
+    private double tokens;
+
+    private long lastRefillTime;
+
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst) {
+        this.permitsPerNano = permitsPerSecond / 1_000_000_000L;
+        this.capacity = Math.max(1, burst);
+        this.tokens = this.capacity;
+        this.lastRefillTime = System.nanoTime();
+    }
+
+    /**
+     * 尝试获取一个令牌
+     *
+     * @return 是否获取成功
+     */
+    public synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillTime) * permitsPerNano);
+        lastRefillTime = now;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+}
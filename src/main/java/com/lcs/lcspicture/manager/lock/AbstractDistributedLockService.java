@@ -0,0 +1,171 @@
+package com.lcs.lcspicture.manager.lock;
+
+import cn.hutool.core.util.IdUtil;
+import com.lcs.lcspicture.config.DistributedLockConfig;
+import com.lcs.lcspicture.exception.BusinessException;
+import com.lcs.lcspicture.exception.ErrorCode;
+import com.lcs.lcspicture.mapper.LockFenceMapper;
+import com.lcs.lcspicture.model.vo.DistributedLockMetricsVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.Resource;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * 分布式锁公共逻辑：等待重试、统计等待耗时、锁内事务的令牌检查，具体的获取与释放由子类实现
+ */
+@Slf4j
+public abstract class AbstractDistributedLockService implements DistributedLockService {
+
+    /**
+     * 重试间隔下限与上限（毫秒），按次数翻倍
+     */
+    private static final long MIN_RETRY_INTERVAL_MILLIS = 10;
+
+    private static final long MAX_RETRY_INTERVAL_MILLIS = 100;
+
+    @Resource
+    private DistributedLockConfig distributedLockConfig;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    @Resource
+    private LockFenceMapper lockFenceMapper;
+
+    private final LongAdder acquiredCount = new LongAdder();
+
+    private final LongAdder timeoutCount = new LongAdder();
+
+    private final LongAdder totalWaitNanos = new LongAdder();
+
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    private final LongAdder expiredReleaseCount = new LongAdder();
+
+    @Override
+    public DistributedLock tryLock(String name, long waitMillis, long leaseMillis) {
+        String owner = IdUtil.fastSimpleUUID();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(Math.max(0, waitMillis));
+        long retryInterval = MIN_RETRY_INTERVAL_MILLIS;
+        while (true) {
+            long fencingToken = acquire(name, owner, leaseMillis);
+            long now = System.nanoTime();
+            if (fencingToken > 0) {
+                long waitNanos = now - start;
+                acquiredCount.increment();
+                totalWaitNanos.add(waitNanos);
+                maxWaitNanos.accumulate(waitNanos);
+                return new DistributedLock(name, owner, System.currentTimeMillis() + leaseMillis, fencingToken, this);
+            }
+            if (now >= deadline || Thread.currentThread().isInterrupted()) {
+                timeoutCount.increment();
+                return null;
+            }
+            LockSupport.parkNanos(Math.min(TimeUnit.MILLISECONDS.toNanos(retryInterval), deadline - now));
+            retryInterval = Math.min(retryInterval * 2, MAX_RETRY_INTERVAL_MILLIS);
+        }
+    }
+
+    @Override
+    public void unlock(DistributedLock lock) {
+        if (lock == null) {
+            return;
+        }
+        boolean released;
+        try {
+            released = release(lock.getName(), lock.getOwner());
+        } catch (Exception e) {
+            // 释放失败时锁会在租约到期后自动失效
+            log.error("释放锁失败, name={}", lock.getName(), e);
+            return;
+        }
+        if (!released) {
+            expiredReleaseCount.increment();
+            log.warn("释放锁时租约已过期, name={}, owner={}", lock.getName(), lock.getOwner());
+        }
+    }
+
+    @Override
+    public <T> T executeWithLock(String name, Supplier<T> action) {
+        try (DistributedLock ignored = lockOrThrow(name)) {
+            return action.get();
+        }
+    }
+
+    @Override
+    public <T> T executeInTransactionWithLock(String name, Supplier<T> action) {
+        try (DistributedLock lock = lockOrThrow(name)) {
+            return transactionTemplate.execute(transactionStatus -> {
+                // 先推进令牌再执行操作：令牌记录的行锁持有到事务结束，后获取锁的持有者在此等待，
+                // 租约过期的持有者在新持有者推进令牌后无法再推进，事务回滚
+                fence(lock);
+                return action.get();
+            });
+        }
+    }
+
+    @Override
+    public DistributedLockMetricsVO getMetrics() {
+        long acquired = acquiredCount.sum();
+        DistributedLockMetricsVO distributedLockMetricsVO = new DistributedLockMetricsVO();
+        distributedLockMetricsVO.setType(getType());
+        distributedLockMetricsVO.setAcquiredCount(acquired);
+        distributedLockMetricsVO.setTimeoutCount(timeoutCount.sum());
+        distributedLockMetricsVO.setAvgWaitMillis(acquired == 0 ? 0 : totalWaitNanos.sum() / 1_000_000.0 / acquired);
+        distributedLockMetricsVO.setMaxWaitMillis(TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+        distributedLockMetricsVO.setExpiredReleaseCount(expiredReleaseCount.sum());
+        return distributedLockMetricsVO;
+    }
+
+    private DistributedLock lockOrThrow(String name) {
+        DistributedLock lock = tryLock(name, distributedLockConfig.getWaitMillis(), distributedLockConfig.getLeaseMillis());
+        if (lock == null) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "操作太频繁，请稍后重试");
+        }
+        return lock;
+    }
+
+    /**
+     * 在当前事务中将锁的令牌推进到持有者的令牌，已记录更大或相同的令牌时说明锁已被其他持有者获取，抛出业务异常
+     */
+    private void fence(DistributedLock lock) {
+        String name = lock.getName();
+        long fencingToken = lock.getFencingToken();
+        if (lockFenceMapper.advance(name, fencingToken) > 0 || lockFenceMapper.insertIgnore(name, fencingToken) > 0) {
+            return;
+        }
+        log.warn("锁已被其他持有者获取，回滚, name={}, fencingToken={}", name, fencingToken);
+        throw new BusinessException(ErrorCode.OPERATION_ERROR, "操作超时，请稍后重试");
+    }
+
+    /**
+     * 尝试获取一次锁
+     *
+     * @param name        锁名称
+     * @param owner       持有者标识
+     * @param leaseMillis 租约时间（毫秒）
+     * @return 获取成功时为本次的令牌（正数），同名锁的令牌单调递增；获取失败时为 0
+     */
+    protected abstract long acquire(String name, String owner, long leaseMillis);
+
+    /**
+     * 释放锁
+     *
+     * @param name  锁名称
+     * @param owner 持有者标识
+     * @return 是否仍由该持有者持有并已释放
+     */
+    protected abstract boolean release(String name, String owner);
+
+    /**
+     * 锁实现名称
+     */
+    protected abstract String getType();
+}
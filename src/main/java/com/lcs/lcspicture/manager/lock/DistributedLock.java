@@ -0,0 +1,52 @@
+package com.lcs.lcspicture.manager.lock;
+
+import lombok.Getter;
+
+/**
+ * 已获取的分布式锁，使用完后关闭以释放
+ */
+@Getter
+public class DistributedLock implements AutoCloseable {
+
+    /**
+     * 锁名称
+     */
+    private final String name;
+
+    /**
+     * 持有者标识，只有持有者才能释放
+     */
+    private final String owner;
+
+    /**
+     * 租约到期时间（毫秒时间戳）
+     */
+    private final long expireTime;
+
+    /**
+     * 令牌，同名锁每次获取时单调递增，后获取的持有者令牌更大
+     */
+    private final long fencingToken;
+
+    private final DistributedLockService lockService;
+
+    DistributedLock(String name, String owner, long expireTime, long fencingToken, DistributedLockService lockService) {
+        this.name = name;
+        this.owner = owner;
+        this.expireTime = expireTime;
+        this.fencingToken = fencingToken;
+        this.lockService = lockService;
+    }
+
+    /**
+     * 租约是否仍在有效期内，按本节点获取时的时间计算，比 Redis 中的实际过期时间略早
+     */
+    public boolean isLeaseValid() {
+        return System.currentTimeMillis() < expireTime;
+    }
+
+    @Override
+    public void close() {
+        lockService.unlock(this);
+    }
+}
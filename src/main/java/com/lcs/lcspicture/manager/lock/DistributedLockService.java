@@ -0,0 +1,58 @@
+package com.lcs.lcspicture.manager.lock;
+
+import com.lcs.lcspicture.model.vo.DistributedLockMetricsVO;
+
+import java.util.function.Supplier;
+
+/**
+ * 分布式锁服务
+ * <p>
+ * 基于租约的互斥锁：获取时指定租约时间，到期未释放自动失效；
+ * 每次获取时生成单调递增的令牌，锁内的写入需要排斥租约过期的旧持有者时使用 {@link #executeInTransactionWithLock}，
+ * 在事务中按令牌条件更新令牌记录，令牌已落后时回滚
+ */
+public interface DistributedLockService {
+
+    /**
+     * 尝试获取锁
+     *
+     * @param name        锁名称
+     * @param waitMillis  最长等待时间（毫秒），0 表示不等待
+     * @param leaseMillis 租约时间（毫秒）
+     * @return 获取到的锁，超时未获取到时为 null
+     */
+    DistributedLock tryLock(String name, long waitMillis, long leaseMillis);
+
+    /**
+     * 释放锁，锁已过期或已被其他持有者获取时忽略
+     *
+     * @param lock 锁
+     */
+    void unlock(DistributedLock lock);
+
+    /**
+     * 在锁内执行操作，使用默认的等待时间与租约时间，获取锁失败时抛出业务异常
+     *
+     * @param name   锁名称
+     * @param action 操作
+     * @return 操作结果
+     */
+    <T> T executeWithLock(String name, Supplier<T> action);
+
+    /**
+     * 在锁内开启事务执行操作，事务开始时将令牌记录推进到本次的令牌并持有行锁到事务结束，
+     * 锁已被令牌更大的持有者获取时回滚并抛出业务异常，避免租约过期后仍提交基于旧判断的写入；获取锁失败时抛出业务异常
+     *
+     * @param name   锁名称
+     * @param action 操作
+     * @return 操作结果
+     */
+    <T> T executeInTransactionWithLock(String name, Supplier<T> action);
+
+    /**
+     * 获取锁的等待耗时等统计信息
+     *
+     * @return 统计信息
+     */
+    DistributedLockMetricsVO getMetrics();
+}
@@ -0,0 +1,68 @@
+package com.lcs.lcspicture.manager.lock;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内的分布式锁实现，用于单节点部署与本地开发，语义与 Redis 实现一致
+ * <p>
+ * 锁释放时从表中移除，过期的锁在下次获取同名锁时被覆盖，不会无限增长；
+ * 令牌在所有锁之间共用一个序列，取上一次令牌加一与当前毫秒时间戳中的较大值，重启后仍大于之前发出的令牌
+ */
+@Component
+@ConditionalOnProperty(prefix = "lock", name = "type", havingValue = "local")
+public class LocalDistributedLockService extends AbstractDistributedLockService {
+
+    private final Map<String, LockEntry> lockMap = new ConcurrentHashMap<>();
+
+    private final AtomicLong fencingSequence = new AtomicLong();
+
+    @Override
+    protected long acquire(String name, String owner, long leaseMillis) {
+        long now = System.currentTimeMillis();
+        LockEntry lockEntry = lockMap.compute(name, (key, entry) -> {
+            if (entry != null && entry.expireTime > now) {
+                return entry;
+            }
+            return new LockEntry(owner, now + leaseMillis);
+        });
+        if (!owner.equals(lockEntry.owner)) {
+            return 0;
+        }
+        return fencingSequence.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
+    }
+
+    @Override
+    protected boolean release(String name, String owner) {
+        boolean[] released = new boolean[1];
+        lockMap.computeIfPresent(name, (key, entry) -> {
+            if (!entry.owner.equals(owner)) {
+                return entry;
+            }
+            released[0] = entry.expireTime > System.currentTimeMillis();
+            return null;
+        });
+        return released[0];
+    }
+
+    @Override
+    protected String getType() {
+        return "local";
+    }
+
+    private static class LockEntry {
+
+        private final String owner;
+
+        private final long expireTime;
+
+        private LockEntry(String owner, long expireTime) {
+            this.owner = owner;
+            this.expireTime = expireTime;
+        }
+    }
+}
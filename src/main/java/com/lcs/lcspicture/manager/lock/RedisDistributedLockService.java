@@ -0,0 +1,91 @@
+package com.lcs.lcspicture.manager.lock;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 Redis 的分布式锁
+ * <p>
+ * 锁 key 的值为持有者标识并设置过期时间，释放时只删除自己持有的锁；
+ * 令牌 key 记录同名锁最近一次发出的令牌，与锁 key 使用相同的哈希标签，长时间未获取的锁的令牌 key 过期后
+ * 从当前时间（毫秒）重新开始，仍大于之前发出的令牌
+ */
+@Component
+@ConditionalOnProperty(prefix = "lock", name = "type", havingValue = "redis", matchIfMissing = true)
+public class RedisDistributedLockService extends AbstractDistributedLockService {
+
+    /**
+     * 锁 key 前缀，锁名称作为哈希标签
+     */
+    private static final String LOCK_KEY_PREFIX = "lock:";
+
+    private static final String FENCE_KEY_SUFFIX = ":fence";
+
+    /**
+     * 令牌 key 过期时间（毫秒），每次获取锁时刷新
+     */
+    private static final long FENCE_EXPIRE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    /**
+     * KEYS: 锁、令牌；ARGV: 持有者标识、租约时间、令牌过期时间、当前毫秒时间戳
+     * 返回：获取成功时为令牌，令牌 key 自增后不小于当前时间戳；获取失败时为 0
+     */
+    private static final RedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "if not redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then\n" +
+                    "  return 0\n" +
+                    "end\n" +
+                    "local token = redis.call('INCR', KEYS[2])\n" +
+                    "local now = tonumber(ARGV[4])\n" +
+                    "if token < now then\n" +
+                    "  token = now\n" +
+                    "  redis.call('SET', KEYS[2], ARGV[4])\n" +
+                    "end\n" +
+                    "redis.call('PEXPIRE', KEYS[2], ARGV[3])\n" +
+                    "return token",
+            Long.class);
+
+    /**
+     * KEYS: 锁；ARGV: 持有者标识
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then\n" +
+                    "  return redis.call('DEL', KEYS[1])\n" +
+                    "end\n" +
+                    "return 0",
+            Long.class);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Override
+    protected long acquire(String name, String owner, long leaseMillis) {
+        String lockKey = getLockKey(name);
+        Long fencingToken = stringRedisTemplate.execute(ACQUIRE_SCRIPT, Arrays.asList(lockKey, lockKey + FENCE_KEY_SUFFIX),
+                owner, String.valueOf(leaseMillis), String.valueOf(FENCE_EXPIRE_MILLIS),
+                String.valueOf(System.currentTimeMillis()));
+        return fencingToken == null ? 0 : fencingToken;
+    }
+
+    @Override
+    protected boolean release(String name, String owner) {
+        Long result = stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(getLockKey(name)), owner);
+        return result != null && result > 0;
+    }
+
+    @Override
+    protected String getType() {
+        return "redis";
+    }
+
+    private String getLockKey(String name) {
+        return LOCK_KEY_PREFIX + "{" + name + "}";
+    }
+}
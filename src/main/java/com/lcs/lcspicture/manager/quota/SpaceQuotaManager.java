@@ -0,0 +1,397 @@
+package com.lcs.lcspicture.manager.quota;
+
+import cn.hutool.core.util.IdUtil;
+import com.lcs.lcspicture.config.PictureUploadConfig;
+import com.lcs.lcspicture.exception.BusinessException;
+import com.lcs.lcspicture.exception.ErrorCode;
+import com.lcs.lcspicture.exception.ThrowUtils;
+import com.lcs.lcspicture.mapper.SpaceMapper;
+import com.lcs.lcspicture.model.entity.Space;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 空间额度预留
+ * <p>
+ * 上传前在 Redis 中用 Lua 脚本原子地检查并预留（条数、容量），检查时计入其他进行中的预留，并发上传不会超出额度；
+ * 入库事务提交后预留转为已用额度，同一脚本中同时累加待写回数据库的变化量，事务回滚或上传失败时释放预留，
+ * 未释放的预留到期后在下次预留时自动清理；结算失败时放入重试队列，由定时任务重试。
+ * 已用额度在 Redis 中不存在时，在写回锁内以数据库中的空间记录加上尚未写回的变化量为准初始化，长时间无人使用后自动过期；
+ * 每天对账时按图片表统计的实际值重置，不再叠加数据库的差异
+ */
+@Slf4j
+@Component
+public class SpaceQuotaManager {
+
+    /**
+     * 额度哈希 key 前缀：usedCount、usedSize、reservedCount、reservedSize 以及每个预留的 r:{id} 字段
+     */
+    private static final String QUOTA_KEY_PREFIX = "space:quota:";
+
+    /**
+     * 预留到期时间有序集合 key 后缀
+     */
+    private static final String EXPIRE_KEY_SUFFIX = ":expire";
+
+    /**
+     * 额度 key 的过期时间，空间长时间没有上传、删除时过期，下次从数据库重新初始化
+     */
+    private static final long QUOTA_KEY_EXPIRE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    /**
+     * 预留脚本返回值：成功、条数不足、容量不足、额度未初始化
+     */
+    private static final long RESERVE_OK = 0;
+
+    private static final long RESERVE_COUNT_EXCEEDED = 1;
+
+    private static final long RESERVE_SIZE_EXCEEDED = 2;
+
+    private static final long RESERVE_NOT_SEEDED = 3;
+
+    /**
+     * 预留额度
+     * <p>
+     * KEYS: 额度哈希、预留到期集合；ARGV: 预留 id、条数、大小、条数上限、容量上限、当前时间、预留到期时间、key 过期时间；
+     * 额度 key 不存在时返回 3，由调用方初始化后重试
+     */
+    private static final RedisScript<Long> RESERVE_SCRIPT = new DefaultRedisScript<>(
+            "local quotaKey, expireKey = KEYS[1], KEYS[2]\n" +
+                    "if redis.call('EXISTS', quotaKey) == 0 then\n" +
+                    "  return 3\n" +
+                    "end\n" +
+                    "local expired = redis.call('ZRANGEBYSCORE', expireKey, '-inf', ARGV[6])\n" +
+                    "for _, id in ipairs(expired) do\n" +
+                    "  local amount = redis.call('HGET', quotaKey, 'r:' .. id)\n" +
+                    "  if amount then\n" +
+                    "    local sep = string.find(amount, ',')\n" +
+                    "    redis.call('HINCRBY', quotaKey, 'reservedCount', -tonumber(string.sub(amount, 1, sep - 1)))\n" +
+                    "    redis.call('HINCRBY', quotaKey, 'reservedSize', -tonumber(string.sub(amount, sep + 1)))\n" +
+                    "    redis.call('HDEL', quotaKey, 'r:' .. id)\n" +
+                    "  end\n" +
+                    "  redis.call('ZREM', expireKey, id)\n" +
+                    "end\n" +
+                    "local count, size = tonumber(ARGV[2]), tonumber(ARGV[3])\n" +
+                    "local values = redis.call('HMGET', quotaKey, 'usedCount', 'usedSize', 'reservedCount', 'reservedSize')\n" +
+                    "if count > 0 and tonumber(values[1]) + tonumber(values[3]) + count > tonumber(ARGV[4]) then\n" +
+                    "  return 1\n" +
+                    "end\n" +
+                    "if size > 0 and tonumber(values[2]) + tonumber(values[4]) + size > tonumber(ARGV[5]) then\n" +
+                    "  return 2\n" +
+                    "end\n" +
+                    "redis.call('HINCRBY', quotaKey, 'reservedCount', count)\n" +
+                    "redis.call('HINCRBY', quotaKey, 'reservedSize', size)\n" +
+                    "redis.call('HSET', quotaKey, 'r:' .. ARGV[1], count .. ',' .. size)\n" +
+                    "redis.call('ZADD', expireKey, ARGV[7], ARGV[1])\n" +
+                    "redis.call('PEXPIRE', quotaKey, ARGV[8])\n" +
+                    "redis.call('PEXPIRE', expireKey, ARGV[8])\n" +
+                    "return 0",
+            Long.class);
+
+    /**
+     * 初始化已用额度，额度 key 已存在时不修改
+     * <p>
+     * KEYS: 额度哈希；ARGV: 已用条数、已用大小、key 过期时间
+     */
+    private static final RedisScript<Long> SEED_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then\n" +
+                    "  return 0\n" +
+                    "end\n" +
+                    "redis.call('HSET', KEYS[1], 'usedCount', ARGV[1], 'usedSize', ARGV[2], 'reservedCount', 0, 'reservedSize', 0)\n" +
+                    "redis.call('PEXPIRE', KEYS[1], ARGV[3])\n" +
+                    "return 1",
+            Long.class);
+
+    /**
+     * 结算额度：释放预留（已释放或已过期时忽略），把实际变化累加到待写回的变化量，并计入已用额度；额度 key 已过期时不再初始化
+     * <p>
+     * KEYS: 额度哈希、预留到期集合、待写回变化量；ARGV: 预留 id（没有预留时为空串）、已用条数变化、已用大小变化
+     */
+    private static final RedisScript<Long> SETTLE_SCRIPT = new DefaultRedisScript<>(
+            "local quotaKey, expireKey = KEYS[1], KEYS[2]\n" +
+                    "if ARGV[1] ~= '' then\n" +
+                    "  local amount = redis.call('HGET', quotaKey, 'r:' .. ARGV[1])\n" +
+                    "  if amount then\n" +
+                    "    local sep = string.find(amount, ',')\n" +
+                    "    redis.call('HINCRBY', quotaKey, 'reservedCount', -tonumber(string.sub(amount, 1, sep - 1)))\n" +
+                    "    redis.call('HINCRBY', quotaKey, 'reservedSize', -tonumber(string.sub(amount, sep + 1)))\n" +
+                    "    redis.call('HDEL', quotaKey, 'r:' .. ARGV[1])\n" +
+                    "  end\n" +
+                    "  redis.call('ZREM', expireKey, ARGV[1])\n" +
+                    "end\n" +
+                    "if ARGV[2] == '0' and ARGV[3] == '0' then\n" +
+                    "  return 0\n" +
+                    "end\n" +
+                    "redis.call('HINCRBY', KEYS[3], 'count', ARGV[2])\n" +
+                    "redis.call('HINCRBY', KEYS[3], 'size', ARGV[3])\n" +
+                    "if redis.call('EXISTS', quotaKey) == 1 then\n" +
+                    "  redis.call('HINCRBY', quotaKey, 'usedCount', ARGV[2])\n" +
+                    "  redis.call('HINCRBY', quotaKey, 'usedSize', ARGV[3])\n" +
+                    "  return 1\n" +
+                    "end\n" +
+                    "return 0",
+            Long.class);
+
+    /**
+     * 重置已用额度：只有已用额度仍为对账时读取的值才重置，期间有结算时不覆盖，留到下次对账；额度 key 不存在时不初始化
+     * <p>
+     * KEYS: 额度哈希；ARGV: 读取的已用条数、已用大小，实际的已用条数、已用大小
+     */
+    private static final RedisScript<Long> RESEED_SCRIPT = new DefaultRedisScript<>(
+            "local values = redis.call('HMGET', KEYS[1], 'usedCount', 'usedSize')\n" +
+                    "if values[1] == ARGV[1] and values[2] == ARGV[2] then\n" +
+                    "  redis.call('HSET', KEYS[1], 'usedCount', ARGV[3], 'usedSize', ARGV[4])\n" +
+                    "  return 1\n" +
+                    "end\n" +
+                    "return 0",
+            Long.class);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private PictureUploadConfig pictureUploadConfig;
+
+    @Resource
+    private SpaceUsageAccumulator spaceUsageAccumulator;
+
+    @Resource
+    private SpaceMapper spaceMapper;
+
+    /**
+     * 结算失败待重试的队列
+     */
+    private final Queue<SettleTask> failedSettleQueue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 预留空间额度，额度不足时抛出异常
+     *
+     * @param space 空间，公共图库为 null
+     * @param count 新增图片数，更新图片时为 0
+     * @param size  新增图片大小
+     * @return 预留，公共图库不预留返回 null
+     */
+    public SpaceQuotaReservation reserve(Space space, long count, long size) {
+        if (space == null) {
+            return null;
+        }
+        String reservationId = IdUtil.fastSimpleUUID();
+        long result = executeReserve(space, reservationId, count, size);
+        if (result == RESERVE_NOT_SEEDED) {
+            seed(space.getId());
+            result = executeReserve(space, reservationId, count, size);
+        }
+        ThrowUtils.throwIf(result == RESERVE_COUNT_EXCEEDED, ErrorCode.OPERATION_ERROR, "空间条数不足");
+        ThrowUtils.throwIf(result == RESERVE_SIZE_EXCEEDED, ErrorCode.OPERATION_ERROR, "空间容量不足");
+        ThrowUtils.throwIf(result != RESERVE_OK, ErrorCode.SYSTEM_ERROR, "空间额度预留失败");
+        return new SpaceQuotaReservation(reservationId, space.getId(), count, size);
+    }
+
+    /**
+     * 在当前事务中登记额度结算：提交后预留转为实际使用的额度，回滚后释放预留
+     *
+     * @param reservation 预留，为 null 时忽略
+     * @param countDelta  实际新增的图片数
+     * @param sizeDelta   实际新增的图片大小
+     */
+    public void commitWithTransaction(SpaceQuotaReservation reservation, long countDelta, long sizeDelta) {
+        if (reservation == null) {
+            return;
+        }
+        afterCompletion(committed -> {
+            if (committed) {
+                settle(reservation.getSpaceId(), reservation.getId(), countDelta, sizeDelta);
+            } else {
+                release(reservation);
+            }
+        });
+    }
+
+    /**
+     * 释放预留，可重复调用
+     *
+     * @param reservation 预留，为 null 时忽略
+     */
+    public void release(SpaceQuotaReservation reservation) {
+        if (reservation == null) {
+            return;
+        }
+        settle(reservation.getSpaceId(), reservation.getId(), 0, 0);
+    }
+
+    /**
+     * 在当前事务中登记图片删除，提交后归还已用额度
+     *
+     * @param spaceId 空间 id，公共图库为 null
+     * @param count   删除的图片数
+     * @param size    删除的图片大小
+     */
+    public void releaseUsedWithTransaction(Long spaceId, long count, long size) {
+        if (spaceId == null) {
+            return;
+        }
+        afterCompletion(committed -> {
+            if (committed) {
+                settle(spaceId, "", -count, -size);
+            }
+        });
+    }
+
+    /**
+     * 读取 Redis 中的已用额度，对账时作为重置的比较值
+     *
+     * @param spaceId 空间 id
+     * @return 已用条数与已用大小，额度 key 不存在时返回 null
+     */
+    public long[] getUsed(Long spaceId) {
+        List<Object> values = stringRedisTemplate.opsForHash().multiGet(getKeys(spaceId).get(0), List.of("usedCount", "usedSize"));
+        if (values.get(0) == null || values.get(1) == null) {
+            return null;
+        }
+        return new long[]{Long.parseLong(values.get(0).toString()), Long.parseLong(values.get(1).toString())};
+    }
+
+    /**
+     * 对账后按图片表统计的实际值重置 Redis 中的已用额度；结算不持有写回锁，读取后已用额度有变化时不重置
+     *
+     * @param spaceId     空间 id
+     * @param used        对账时读取的已用条数与已用大小
+     * @param actualCount 图片数量
+     * @param actualSize  图片总大小
+     * @return 是否已重置
+     */
+    public boolean reseedUsed(Long spaceId, long[] used, long actualCount, long actualSize) {
+        Long result = stringRedisTemplate.execute(RESEED_SCRIPT, getKeys(spaceId).subList(0, 1),
+                String.valueOf(used[0]), String.valueOf(used[1]), String.valueOf(actualCount), String.valueOf(actualSize));
+        return result != null && result == 1;
+    }
+
+    /**
+     * 重试结算失败的额度，重试仍失败时放回队列等待下次重试
+     */
+    @Scheduled(initialDelayString = "${space.usage.settle-retry-interval:5000}",
+            fixedDelayString = "${space.usage.settle-retry-interval:5000}")
+    @PreDestroy
+    public void retryFailedSettles() {
+        int size = failedSettleQueue.size();
+        for (int i = 0; i < size; i++) {
+            SettleTask task = failedSettleQueue.poll();
+            if (task == null) {
+                return;
+            }
+            if (!trySettle(task)) {
+                failedSettleQueue.offer(task);
+                return;
+            }
+        }
+    }
+
+    private long executeReserve(Space space, String reservationId, long count, long size) {
+        long now = System.currentTimeMillis();
+        long expireTime = now + TimeUnit.SECONDS.toMillis(pictureUploadConfig.getQuotaReserveSeconds());
+        Long result = stringRedisTemplate.execute(RESERVE_SCRIPT, getKeys(space.getId()).subList(0, 2),
+                reservationId, String.valueOf(count), String.valueOf(size),
+                String.valueOf(space.getMaxCount()), String.valueOf(space.getMaxSize()),
+                String.valueOf(now), String.valueOf(expireTime), String.valueOf(QUOTA_KEY_EXPIRE_MILLIS));
+        if (result == null) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "空间额度预留失败");
+        }
+        return result;
+    }
+
+    /**
+     * 在写回锁内初始化已用额度：期间没有写回，数据库中的空间记录与待写回的变化量不会有重复或遗漏
+     */
+    private void seed(Long spaceId) {
+        spaceUsageAccumulator.executeWithFlushLock(() -> {
+            Space space = spaceMapper.selectById(spaceId);
+            ThrowUtils.throwIf(space == null, ErrorCode.NOT_FOUND_ERROR, "空间不存在");
+            long[] pending = spaceUsageAccumulator.getPending(spaceId);
+            long usedCount = (space.getTotalCount() == null ? 0 : space.getTotalCount()) + pending[0];
+            long usedSize = (space.getTotalSize() == null ? 0 : space.getTotalSize()) + pending[1];
+            return stringRedisTemplate.execute(SEED_SCRIPT, getKeys(spaceId).subList(0, 1),
+                    String.valueOf(usedCount), String.valueOf(usedSize), String.valueOf(QUOTA_KEY_EXPIRE_MILLIS));
+        });
+    }
+
+    private void settle(Long spaceId, String reservationId, long countDelta, long sizeDelta) {
+        SettleTask task = new SettleTask(spaceId, reservationId, countDelta, sizeDelta);
+        if (!trySettle(task)) {
+            // 重试时可能重复计入（首次调用超时但已执行），由每天的对账按实际值重置
+            failedSettleQueue.offer(task);
+        }
+    }
+
+    private boolean trySettle(SettleTask task) {
+        try {
+            if (!task.settled) {
+                stringRedisTemplate.execute(SETTLE_SCRIPT, getKeys(task.spaceId), task.reservationId,
+                        String.valueOf(task.countDelta), String.valueOf(task.sizeDelta));
+                task.settled = true;
+            }
+            // 变化量累加后再登记空间：先登记时写回可能在累加前取出空间，之后累加的变化量没有空间登记，不会写回
+            if (task.countDelta != 0 || task.sizeDelta != 0) {
+                spaceUsageAccumulator.markDirty(task.spaceId);
+            }
+            return true;
+        } catch (Exception e) {
+            log.error("空间额度结算失败，稍后重试, spaceId={}, reservationId={}", task.spaceId, task.reservationId, e);
+            return false;
+        }
+    }
+
+    private List<String> getKeys(Long spaceId) {
+        // 同一空间的 key 使用相同的哈希标签，集群模式下落在同一节点
+        String quotaKey = QUOTA_KEY_PREFIX + "{" + spaceId + "}";
+        return Arrays.asList(quotaKey, quotaKey + EXPIRE_KEY_SUFFIX, SpaceUsageAccumulator.getPendingKey(spaceId));
+    }
+
+    private void afterCompletion(Consumer<Boolean> callback) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    callback.accept(status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            callback.accept(true);
+        }
+    }
+
+    /**
+     * 待重试的结算
+     */
+    @RequiredArgsConstructor
+    private static class SettleTask {
+
+        private final Long spaceId;
+
+        private final String reservationId;
+
+        private final long countDelta;
+
+        private final long sizeDelta;
+
+        /**
+         * 结算脚本是否已执行，已执行时重试只登记空间，不重复累加
+         */
+        private boolean settled;
+    }
+}
@@ -0,0 +1,32 @@
+package com.lcs.lcspicture.manager.quota;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 空间额度预留
+ */
+@Data
+@AllArgsConstructor
+public class SpaceQuotaReservation {
+
+    /**
+     * 预留 id
+     */
+    private String id;
+
+    /**
+     * 空间 id
+     */
+    private Long spaceId;
+
+    /**
+     * 预留的图片数
+     */
+    private long count;
+
+    /**
+     * 预留的图片大小
+     */
+    private long size;
+}
@@ -0,0 +1,269 @@
+package com.lcs.lcspicture.manager.quota;
+
+import cn.hutool.core.collection.CollUtil;
+import com.lcs.lcspicture.manager.lock.DistributedLock;
+import com.lcs.lcspicture.manager.lock.DistributedLockService;
+import com.lcs.lcspicture.mapper.SpaceMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 空间已用额度写后聚合
+ * <p>
+ * 图片新增、删除的事务提交后，额度结算脚本在 Redis 中累加每个空间的变化量（所有节点共享），由任意一个节点的定时任务
+ * 按空间 id 顺序在一个事务中批量写回，图片事务不再更新同一行空间记录，热点空间的写入不会互相等待。
+ * 变化量累加后才登记待写回的空间，写回取出空间后再累加的变化量会重新登记，不会遗漏。
+ * 写回、对账与额度初始化都在同一把分布式写回锁内进行，读取数据库已用额度与待写回变化量时不会有写回穿插；
+ * 写回数据库失败且放回 Redis 也失败时，变化量暂存在本节点内存中，下次写回前重新累加到 Redis
+ */
+@Slf4j
+@Component
+public class SpaceUsageAccumulator {
+
+    /**
+     * 待写回变化量哈希 key 前缀：count、size 两个字段，使用与额度 key 相同的哈希标签
+     */
+    private static final String PENDING_KEY_PREFIX = "space:usage:pending:";
+
+    /**
+     * 有待写回变化量的空间集合
+     */
+    private static final String DIRTY_KEY = "space:usage:dirty";
+
+    /**
+     * 写回锁名称
+     */
+    private static final String FLUSH_LOCK_NAME = "space:usage:flush";
+
+    /**
+     * 写回锁租约时间
+     */
+    private static final long FLUSH_LEASE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * 每次从待写回集合中取出的空间数
+     */
+    private static final int FLUSH_BATCH_SIZE = 500;
+
+    /**
+     * 累加变化量
+     * <p>
+     * KEYS: 待写回变化量；ARGV: 图片数量变化、图片大小变化
+     */
+    private static final RedisScript<Long> ADD_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('HINCRBY', KEYS[1], 'count', ARGV[1])\n" +
+                    "redis.call('HINCRBY', KEYS[1], 'size', ARGV[2])\n" +
+                    "return 1",
+            Long.class);
+
+    /**
+     * 取出并清空变化量
+     * <p>
+     * KEYS: 待写回变化量；返回: 图片数量变化、图片大小变化
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> DRAIN_SCRIPT = new DefaultRedisScript<>(
+            "local values = redis.call('HMGET', KEYS[1], 'count', 'size')\n" +
+                    "redis.call('DEL', KEYS[1])\n" +
+                    "return {tonumber(values[1] or '0'), tonumber(values[2] or '0')}",
+            List.class);
+
+    @Resource
+    private SpaceMapper spaceMapper;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private DistributedLockService distributedLockService;
+
+    /**
+     * Redis 不可用时暂存的变化量
+     */
+    private final Map<Long, SpaceUsageDelta> failedMap = new ConcurrentHashMap<>();
+
+    /**
+     * 登记空间有待写回的变化量，须在额度结算脚本把变化量累加到 {@link #getPendingKey} 之后调用
+     *
+     * @param spaceId 空间 id
+     */
+    void markDirty(Long spaceId) {
+        stringRedisTemplate.opsForSet().add(DIRTY_KEY, String.valueOf(spaceId));
+    }
+
+    /**
+     * 获取空间尚未写回数据库的变化量，包括暂存在本节点内存中的变化量
+     *
+     * @param spaceId 空间 id
+     * @return 图片数量变化与图片大小变化
+     */
+    public long[] getPending(Long spaceId) {
+        long[] pending = new long[2];
+        List<Object> values = stringRedisTemplate.opsForHash().multiGet(getPendingKey(spaceId), List.of("count", "size"));
+        pending[0] = parseLong(values.get(0));
+        pending[1] = parseLong(values.get(1));
+        failedMap.computeIfPresent(spaceId, (key, delta) -> {
+            pending[0] += delta.count;
+            pending[1] += delta.size;
+            return delta;
+        });
+        return pending;
+    }
+
+    /**
+     * 在写回锁内执行，期间其他节点不会写回变化量；等待超时抛出异常
+     *
+     * @param supplier 执行的操作
+     * @return 操作结果
+     */
+    public <T> T executeWithFlushLock(Supplier<T> supplier) {
+        return distributedLockService.executeWithLock(FLUSH_LOCK_NAME, supplier);
+    }
+
+    /**
+     * 定时写回变化量，同一时间只有一个节点写回
+     */
+    @Scheduled(initialDelayString = "${space.usage.flush-interval:1000}",
+            fixedDelayString = "${space.usage.flush-interval:1000}")
+    public void flush() {
+        retryFailed();
+        DistributedLock lock = distributedLockService.tryLock(FLUSH_LOCK_NAME, 0, FLUSH_LEASE_MILLIS);
+        if (lock == null) {
+            return;
+        }
+        try (DistributedLock ignored = lock) {
+            flushPending();
+        } catch (Exception e) {
+            log.error("空间已用额度写回失败", e);
+        }
+    }
+
+    /**
+     * 写回所有待写回的变化量，必须在写回锁内调用；写回数据库失败时把变化量放回 Redis，下次重试
+     */
+    public void flushPending() {
+        while (true) {
+            List<String> spaceIdList = stringRedisTemplate.opsForSet().pop(DIRTY_KEY, FLUSH_BATCH_SIZE);
+            if (CollUtil.isEmpty(spaceIdList)) {
+                return;
+            }
+            // 按空间 id 顺序更新，与图片事务之间不会死锁
+            Map<Long, SpaceUsageDelta> deltaMap = new TreeMap<>();
+            for (String spaceIdStr : spaceIdList) {
+                Long spaceId = Long.valueOf(spaceIdStr);
+                List<?> values = stringRedisTemplate.execute(DRAIN_SCRIPT, Collections.singletonList(getPendingKey(spaceId)));
+                SpaceUsageDelta delta = new SpaceUsageDelta();
+                delta.count = values == null ? 0 : parseLong(values.get(0));
+                delta.size = values == null ? 0 : parseLong(values.get(1));
+                if (delta.count != 0 || delta.size != 0) {
+                    deltaMap.put(spaceId, delta);
+                }
+            }
+            if (deltaMap.isEmpty()) {
+                continue;
+            }
+            try {
+                transactionTemplate.execute(transactionStatus -> {
+                    deltaMap.forEach((spaceId, delta) -> spaceMapper.addUsage(spaceId, delta.count, delta.size));
+                    return true;
+                });
+                log.debug("空间已用额度写回完成, spaceCount={}", deltaMap.size());
+            } catch (Exception e) {
+                log.error("空间已用额度写回失败，稍后重试, spaceCount={}", deltaMap.size(), e);
+                deltaMap.forEach((spaceId, delta) -> add(spaceId, delta.count, delta.size));
+                return;
+            }
+        }
+    }
+
+    /**
+     * 节点关闭前把暂存在内存中的变化量累加到 Redis
+     */
+    @PreDestroy
+    public void destroy() {
+        retryFailed();
+        if (!failedMap.isEmpty()) {
+            log.error("空间已用额度变化量未能写入 Redis，将由对账修正, spaceCount={}", failedMap.size());
+        }
+    }
+
+    private void add(Long spaceId, long countDelta, long sizeDelta) {
+        try {
+            stringRedisTemplate.execute(ADD_SCRIPT, Collections.singletonList(getPendingKey(spaceId)),
+                    String.valueOf(countDelta), String.valueOf(sizeDelta));
+        } catch (Exception e) {
+            log.error("空间已用额度变化量写入 Redis 失败，暂存在内存中, spaceId={}", spaceId, e);
+            addFailed(spaceId, countDelta, sizeDelta);
+            return;
+        }
+        try {
+            // 累加后再登记空间：先登记时写回可能在累加前取出空间并清空变化量，之后累加的变化量不会再被写回
+            markDirty(spaceId);
+        } catch (Exception e) {
+            // 变化量已在 Redis 中，只需重新登记空间，暂存一个空的变化量
+            log.error("登记空间待写回失败，稍后重试, spaceId={}", spaceId, e);
+            addFailed(spaceId, 0, 0);
+        }
+    }
+
+    private void addFailed(Long spaceId, long countDelta, long sizeDelta) {
+        failedMap.compute(spaceId, (key, delta) -> {
+            SpaceUsageDelta result = delta == null ? new SpaceUsageDelta() : delta;
+            result.count += countDelta;
+            result.size += sizeDelta;
+            return result;
+        });
+    }
+
+    /**
+     * 把暂存在内存中的变化量重新累加到 Redis
+     */
+    private void retryFailed() {
+        for (Long spaceId : new ArrayList<>(failedMap.keySet())) {
+            SpaceUsageDelta delta = failedMap.remove(spaceId);
+            if (delta != null) {
+                add(spaceId, delta.count, delta.size);
+            }
+        }
+    }
+
+    /**
+     * 待写回变化量 key，与额度 key 使用相同的哈希标签，可以在同一个脚本中更新
+     */
+    static String getPendingKey(Long spaceId) {
+        return PENDING_KEY_PREFIX + "{" + spaceId + "}";
+    }
+
+    private long parseLong(Object value) {
+        return value == null ? 0L : Long.parseLong(value.toString());
+    }
+
+    /**
+     * 单个空间的变化量，只在 ConcurrentHashMap 的 compute 中修改
+     */
+    private static class SpaceUsageDelta {
+
+        private long count;
+
+        private long size;
+    }
+}
@@ -0,0 +1,146 @@
+package com.lcs.lcspicture.manager.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lcs.lcspicture.manager.cache.MultiLevelCacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 按空间懒加载的图片索引
+ * <p>
+ * 空间索引缓存在本节点，长时间未使用的空间会被淘汰；图片变化后在事务提交时增量更新本节点的索引，
+ * 并广播通知其他节点丢弃该空间的索引，下次查询时重新构建
+ *
+ * @param <I> 空间索引类型
+ */
+public abstract class AbstractSpaceIndex<I> {
+
+    /**
+     * 空间索引
+     */
+    private final Cache<Long, I> indexCache = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .expireAfterAccess(30, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * 正在构建的空间索引，构建期间该空间有修改时标记为过期，不缓存构建结果，避免遗漏修改；
+     * 只在 ConcurrentHashMap 的 compute 系列方法中读写集合
+     */
+    private final Map<Long, Set<AtomicBoolean>> buildingMap = new ConcurrentHashMap<>();
+
+    @Resource
+    private MultiLevelCacheManager multiLevelCacheManager;
+
+    @PostConstruct
+    public void init() {
+        multiLevelCacheManager.registerInvalidateListener(getIndexName(), key -> {
+            if (key == null) {
+                buildingMap.replaceAll((k, staleSet) -> {
+                    staleSet.forEach(stale -> stale.set(true));
+                    return staleSet;
+                });
+                indexCache.invalidateAll();
+            } else {
+                markStale(Long.valueOf(key));
+                indexCache.invalidate(Long.valueOf(key));
+            }
+        });
+    }
+
+    /**
+     * 索引名称，用于广播失效通知
+     */
+    protected abstract String getIndexName();
+
+    /**
+     * 从数据库构建空间索引
+     *
+     * @param key 空间索引 key
+     * @return 空间索引
+     */
+    protected abstract I buildIndex(long key);
+
+    /**
+     * 获取空间索引，本节点没有时重新构建
+     *
+     * @param key 空间索引 key
+     * @return 空间索引
+     */
+    protected I getIndex(long key) {
+        I index = indexCache.getIfPresent(key);
+        if (index != null) {
+            return index;
+        }
+        AtomicBoolean stale = new AtomicBoolean();
+        buildingMap.compute(key, (k, staleSet) -> {
+            Set<AtomicBoolean> result = staleSet == null ? new HashSet<>() : staleSet;
+            result.add(stale);
+            return result;
+        });
+        try {
+            index = buildIndex(key);
+            if (!stale.get()) {
+                indexCache.put(key, index);
+                // 放入缓存的同时有修改，丢弃刚放入的索引
+                if (stale.get()) {
+                    indexCache.invalidate(key);
+                }
+            }
+            return index;
+        } finally {
+            buildingMap.computeIfPresent(key, (k, staleSet) -> {
+                staleSet.remove(stale);
+                return staleSet.isEmpty() ? null : staleSet;
+            });
+        }
+    }
+
+    /**
+     * 修改空间索引，存在事务时在提交后执行；本节点没有该空间的索引时只通知其他节点
+     *
+     * @param key     空间索引 key
+     * @param updater 修改操作
+     */
+    protected void update(long key, Consumer<I> updater) {
+        afterCommit(() -> {
+            markStale(key);
+            I index = indexCache.getIfPresent(key);
+            if (index != null) {
+                updater.accept(index);
+            }
+            multiLevelCacheManager.publish(getIndexName(), String.valueOf(key));
+        });
+    }
+
+    private void markStale(long key) {
+        buildingMap.computeIfPresent(key, (k, staleSet) -> {
+            staleSet.forEach(stale -> stale.set(true));
+            return staleSet;
+        });
+    }
+
+    private void afterCommit(Runnable runnable) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    runnable.run();
+                }
+            });
+        } else {
+            runnable.run();
+        }
+    }
+}
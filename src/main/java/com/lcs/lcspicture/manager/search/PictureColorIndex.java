@@ -0,0 +1,109 @@
+package com.lcs.lcspicture.manager.search;
+
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.lcs.lcspicture.mapper.PictureMapper;
+import com.lcs.lcspicture.model.entity.Picture;
+import com.lcs.lcspicture.utils.ColorPaletteUtils;
+import com.lcs.lcspicture.utils.ColorSimilarUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * 图片颜色索引
+ * <p>
+ * 按空间懒加载颜色索引，优先使用图片的调色板，没有调色板时使用对象存储返回的平均色
+ */
+@Slf4j
+@Component
+public class PictureColorIndex extends AbstractSpaceIndex<SpaceColorIndex> {
+
+    private static final String INDEX_NAME = "pictureColorIndex";
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    /**
+     * 查询空间中与目标颜色最相似的图片
+     *
+     * @param spaceId  空间 id
+     * @param hexColor 目标颜色
+     * @param k        数量
+     * @return 图片 id，按相似度从高到低排列
+     */
+    public long[] search(Long spaceId, String hexColor, int k) {
+        int rgb = ColorSimilarUtils.toRgb(hexColor);
+        if (rgb < 0 || k <= 0) {
+            return new long[0];
+        }
+        return getIndex(spaceId).search(rgb, k);
+    }
+
+    /**
+     * 图片保存后更新索引，存在事务时在提交后执行
+     *
+     * @param spaceId   空间 id
+     * @param pictureId 图片 id
+     * @param hexColor  图片主色调
+     * @param palette   图片调色板
+     */
+    public void onPictureSaved(Long spaceId, Long pictureId, String hexColor, String palette) {
+        if (spaceId == null || pictureId == null) {
+            return;
+        }
+        update(spaceId, index -> index.put(pictureId, toPalette(hexColor, palette)));
+    }
+
+    /**
+     * 图片删除后更新索引，存在事务时在提交后执行
+     *
+     * @param spaceId   空间 id
+     * @param pictureId 图片 id
+     */
+    public void onPictureRemoved(Long spaceId, Long pictureId) {
+        if (spaceId == null || pictureId == null) {
+            return;
+        }
+        update(spaceId, index -> index.remove(pictureId));
+    }
+
+    @Override
+    protected String getIndexName() {
+        return INDEX_NAME;
+    }
+
+    @Override
+    protected SpaceColorIndex buildIndex(long spaceId) {
+        long start = System.currentTimeMillis();
+        List<Picture> pictureList = pictureMapper.selectList(new LambdaQueryWrapper<Picture>()
+                .select(Picture::getId, Picture::getPicColor, Picture::getPicPalette)
+                .eq(Picture::getSpaceId, spaceId)
+                .and(qw -> qw.isNotNull(Picture::getPicColor).or().isNotNull(Picture::getPicPalette)));
+        SpaceColorIndex index = new SpaceColorIndex(pictureList.size());
+        for (Picture picture : pictureList) {
+            int[] rgbs = toPalette(picture.getPicColor(), picture.getPicPalette());
+            if (rgbs.length > 0) {
+                index.put(picture.getId(), rgbs);
+            }
+        }
+        log.info("构建空间颜色索引, spaceId={}, size={}, 耗时 {} ms", spaceId, index.size(), System.currentTimeMillis() - start);
+        return index;
+    }
+
+    /**
+     * 解析图片的索引颜色，优先使用调色板，没有时使用平均色
+     */
+    private int[] toPalette(String hexColor, String palette) {
+        if (StrUtil.isNotEmpty(palette)) {
+            int[] rgbs = ColorPaletteUtils.decodePalette(palette);
+            if (rgbs.length > 0) {
+                return rgbs;
+            }
+        }
+        int rgb = ColorSimilarUtils.toRgb(hexColor);
+        return rgb < 0 ? new int[0] : new int[]{rgb};
+    }
+}
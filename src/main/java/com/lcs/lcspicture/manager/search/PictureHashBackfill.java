@@ -0,0 +1,152 @@
+package com.lcs.lcspicture.manager.search;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.lcs.lcspicture.config.PictureProcessConfig;
+import com.lcs.lcspicture.manager.lock.DistributedLock;
+import com.lcs.lcspicture.manager.lock.DistributedLockService;
+import com.lcs.lcspicture.manager.storage.ObjectStorage;
+import com.lcs.lcspicture.mapper.PictureMapper;
+import com.lcs.lcspicture.model.entity.Picture;
+import com.lcs.lcspicture.utils.ImageHashUtils;
+import com.lcs.lcspicture.utils.ImageSampleUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 存量图片感知哈希回填
+ * <p>
+ * 感知哈希上线前上传的图片没有指纹，无法参与以图搜图。定时按 id 顺序分批读取原图采样计算指纹并更新索引，
+ * 处理进度保存在 Redis 中，所有节点共享，同一时间只有一个节点执行；无法解码的图片跳过，不会反复重试
+ */
+@Slf4j
+@Component
+public class PictureHashBackfill {
+
+    /**
+     * 回填锁名称
+     */
+    private static final String LOCK_NAME = "picture:hash:backfill";
+
+    /**
+     * 回填锁租约时间
+     */
+    private static final long LEASE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * 已处理的最大图片 id
+     */
+    private static final String CURSOR_KEY = "picture:hash:backfill:cursor";
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private ObjectStorage objectStorage;
+
+    @Resource
+    private PictureHashIndex pictureHashIndex;
+
+    @Resource
+    private PictureProcessConfig pictureProcessConfig;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private DistributedLockService distributedLockService;
+
+    /**
+     * 定时回填，处理到最后一张图片后只查询新增的图片
+     */
+    @Scheduled(initialDelayString = "${picture.process.hash-backfill-interval:60000}",
+            fixedDelayString = "${picture.process.hash-backfill-interval:60000}")
+    public void backfill() {
+        if (!pictureProcessConfig.isHashBackfillEnabled()) {
+            return;
+        }
+        DistributedLock lock = distributedLockService.tryLock(LOCK_NAME, 0, LEASE_MILLIS);
+        if (lock == null) {
+            return;
+        }
+        try (DistributedLock ignored = lock) {
+            // 租约到期前停止，剩余的图片下次继续
+            boolean hasMore = true;
+            while (hasMore && lock.isLeaseValid()) {
+                hasMore = backfillBatch();
+            }
+        } catch (Exception e) {
+            log.error("感知哈希回填失败", e);
+        }
+    }
+
+    /**
+     * 回填一批图片
+     *
+     * @return 是否还有未处理的图片
+     */
+    private boolean backfillBatch() {
+        String cursor = stringRedisTemplate.opsForValue().get(CURSOR_KEY);
+        long lastId = cursor == null ? 0L : Long.parseLong(cursor);
+        int batchSize = Math.max(1, pictureProcessConfig.getHashBackfillBatchSize());
+        List<Picture> pictureList = pictureMapper.selectList(new LambdaQueryWrapper<Picture>()
+                .select(Picture::getId, Picture::getSpaceId, Picture::getUrl, Picture::getOriginUrl)
+                .gt(Picture::getId, lastId)
+                .isNull(Picture::getPicHash)
+                .orderByAsc(Picture::getId)
+                .last("limit " + batchSize));
+        if (CollUtil.isEmpty(pictureList)) {
+            return false;
+        }
+        int successCount = 0;
+        for (Picture picture : pictureList) {
+            Long hash = computeHash(picture);
+            if (hash != null) {
+                // 只回填仍然没有指纹的图片，不覆盖期间重新上传得到的指纹
+                int rows = pictureMapper.update(null, new LambdaUpdateWrapper<Picture>()
+                        .set(Picture::getPicHash, hash)
+                        .eq(Picture::getId, picture.getId())
+                        .isNull(Picture::getPicHash));
+                if (rows > 0) {
+                    pictureHashIndex.onPictureSaved(picture.getSpaceId(), picture.getId(), hash);
+                    successCount++;
+                }
+            }
+            lastId = picture.getId();
+        }
+        stringRedisTemplate.opsForValue().set(CURSOR_KEY, String.valueOf(lastId));
+        log.info("感知哈希回填, count={}, successCount={}, lastId={}", pictureList.size(), successCount, lastId);
+        return pictureList.size() == batchSize;
+    }
+
+    /**
+     * 读取原图采样计算指纹，优先使用原图，没有原图时使用压缩图
+     *
+     * @param picture 图片
+     * @return 指纹，图片不在当前存储中或无法解码时返回 null
+     */
+    private Long computeHash(Picture picture) {
+        String url = StrUtil.blankToDefault(picture.getOriginUrl(), picture.getUrl());
+        String key = objectStorage.getKey(url);
+        if (key == null) {
+            return null;
+        }
+        try (InputStream inputStream = objectStorage.getObject(key)) {
+            BufferedImage sampleImage = ImageSampleUtils.read(inputStream, ImageSampleUtils.DEFAULT_SAMPLE_SIZE);
+            return sampleImage == null ? null : ImageHashUtils.pHash(sampleImage);
+        } catch (Exception e) {
+            log.warn("感知哈希回填读取图片失败, pictureId={}, key={}", picture.getId(), key, e);
+            return null;
+        }
+    }
+}
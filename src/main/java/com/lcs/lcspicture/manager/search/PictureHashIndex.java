@@ -0,0 +1,108 @@
+package com.lcs.lcspicture.manager.search;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.lcs.lcspicture.mapper.PictureMapper;
+import com.lcs.lcspicture.model.entity.Picture;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * 图片感知哈希索引（以图搜图）
+ * <p>
+ * 按空间懒加载 BK 树索引，公共图库使用空间 id 0
+ */
+@Slf4j
+@Component
+public class PictureHashIndex extends AbstractSpaceIndex<SpaceHashIndex> {
+
+    private static final String INDEX_NAME = "pictureHashIndex";
+
+    /**
+     * 公共图库在索引中的空间 id
+     */
+    private static final long PUBLIC_SPACE_ID = 0L;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    /**
+     * 查询空间中与目标指纹最相似的图片
+     *
+     * @param spaceId     空间 id，为空表示公共图库
+     * @param hash        目标指纹
+     * @param k           数量
+     * @param maxDistance 最大汉明距离
+     * @return 图片 id，按相似度从高到低排列
+     */
+    public long[] search(Long spaceId, long hash, int k, int maxDistance) {
+        if (k <= 0) {
+            return new long[0];
+        }
+        return getIndex(toIndexKey(spaceId)).search(hash, k, maxDistance);
+    }
+
+    /**
+     * 图片保存后更新索引，存在事务时在提交后执行
+     *
+     * @param spaceId   空间 id，为空表示公共图库
+     * @param pictureId 图片 id
+     * @param hash      图片指纹，为空表示无法计算
+     */
+    public void onPictureSaved(Long spaceId, Long pictureId, Long hash) {
+        if (pictureId == null) {
+            return;
+        }
+        update(toIndexKey(spaceId), index -> {
+            if (hash == null) {
+                index.remove(pictureId);
+            } else {
+                index.put(pictureId, hash);
+            }
+        });
+    }
+
+    /**
+     * 图片删除后更新索引，存在事务时在提交后执行
+     *
+     * @param spaceId   空间 id，为空表示公共图库
+     * @param pictureId 图片 id
+     */
+    public void onPictureRemoved(Long spaceId, Long pictureId) {
+        if (pictureId == null) {
+            return;
+        }
+        update(toIndexKey(spaceId), index -> index.remove(pictureId));
+    }
+
+    @Override
+    protected String getIndexName() {
+        return INDEX_NAME;
+    }
+
+    @Override
+    protected SpaceHashIndex buildIndex(long key) {
+        long start = System.currentTimeMillis();
+        LambdaQueryWrapper<Picture> queryWrapper = new LambdaQueryWrapper<Picture>()
+                .select(Picture::getId, Picture::getPicHash)
+                .isNotNull(Picture::getPicHash);
+        if (key == PUBLIC_SPACE_ID) {
+            queryWrapper.isNull(Picture::getSpaceId);
+        } else {
+            queryWrapper.eq(Picture::getSpaceId, key);
+        }
+        List<Picture> pictureList = pictureMapper.selectList(queryWrapper);
+        SpaceHashIndex index = new SpaceHashIndex(pictureList.size());
+        for (Picture picture : pictureList) {
+            index.put(picture.getId(), picture.getPicHash());
+        }
+        log.info("构建空间感知哈希索引, spaceId={}, size={}, 耗时 {} ms", key, index.size(), System.currentTimeMillis() - start);
+        return index;
+    }
+
+    private long toIndexKey(Long spaceId) {
+        return spaceId == null ? PUBLIC_SPACE_ID : spaceId;
+    }
+}
@@ -0,0 +1,221 @@
+package com.lcs.lcspicture.manager.search;
+
+import com.lcs.lcspicture.utils.ColorPaletteUtils;
+import com.lcs.lcspicture.utils.ColorSimilarUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 单个空间的图片颜色索引
+ * <p>
+ * 每张图片保存调色板中最多 {@link ColorPaletteUtils#MAX_PALETTE_SIZE} 个颜色的 Lab 值，全部存放在基本类型数组中；
+ * 查询时线性扫描，取目标颜色与各调色板颜色的最小 CIEDE2000 色差作为距离，并用大小为 k 的大顶堆保留最相似的图片
+ */
+class SpaceColorIndex {
+
+    /**
+     * 每张图片占用的 Lab 分量数
+     */
+    private static final int STRIDE = ColorPaletteUtils.MAX_PALETTE_SIZE * 3;
+
+    private long[] ids;
+
+    /**
+     * 调色板颜色的 Lab 值，第 i 张图片占用 [i * STRIDE, (i + 1) * STRIDE)
+     */
+    private float[] labs;
+
+    /**
+     * 每张图片的调色板颜色数
+     */
+    private byte[] counts;
+
+    private int size;
+
+    /**
+     * 图片 id 到数组下标的映射，仅用于增量更新
+     */
+    private final Map<Long, Integer> positionMap;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    SpaceColorIndex(int capacity) {
+        int initialCapacity = Math.max(16, capacity);
+        this.ids = new long[initialCapacity];
+        this.labs = new float[initialCapacity * STRIDE];
+        this.counts = new byte[initialCapacity];
+        this.positionMap = new HashMap<>(initialCapacity * 2);
+    }
+
+    /**
+     * 新增或更新图片调色板
+     *
+     * @param pictureId 图片 id
+     * @param rgbs      调色板颜色，超出部分忽略
+     */
+    void put(long pictureId, int[] rgbs) {
+        int count = Math.min(rgbs.length, ColorPaletteUtils.MAX_PALETTE_SIZE);
+        if (count == 0) {
+            remove(pictureId);
+            return;
+        }
+        // 在锁外完成颜色转换
+        float[] palette = new float[STRIDE];
+        for (int i = 0; i < count; i++) {
+            ColorSimilarUtils.rgbToLab(rgbs[i], palette, i * 3);
+        }
+        lock.writeLock().lock();
+        try {
+            Integer position = positionMap.get(pictureId);
+            if (position == null) {
+                if (size == ids.length) {
+                    grow();
+                }
+                position = size++;
+                ids[position] = pictureId;
+                positionMap.put(pictureId, position);
+            }
+            System.arraycopy(palette, 0, labs, position * STRIDE, STRIDE);
+            counts[position] = (byte) count;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除图片，用最后一个元素填补空位
+     */
+    void remove(long pictureId) {
+        lock.writeLock().lock();
+        try {
+            Integer position = positionMap.remove(pictureId);
+            if (position == null) {
+                return;
+            }
+            int last = size - 1;
+            if (position != last) {
+                ids[position] = ids[last];
+                counts[position] = counts[last];
+                System.arraycopy(labs, last * STRIDE, labs, position * STRIDE, STRIDE);
+                positionMap.put(ids[position], position);
+            }
+            size--;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 查询与目标颜色最相似的 k 张图片
+     *
+     * @param rgb 目标颜色
+     * @param k   数量
+     * @return 图片 id，按相似度从高到低排列
+     */
+    long[] search(int rgb, int k) {
+        float[] target = new float[3];
+        ColorSimilarUtils.rgbToLab(rgb, target, 0);
+        double l = target[0];
+        double a = target[1];
+        double b = target[2];
+        lock.readLock().lock();
+        try {
+            int limit = Math.min(k, size);
+            // 大顶堆，堆顶为当前保留结果中距离最大的元素
+            double[] heapDistances = new double[limit];
+            long[] heapIds = new long[limit];
+            int heapSize = 0;
+            for (int i = 0; i < size; i++) {
+                // 取与调色板中最接近颜色的色差
+                double distance = Double.MAX_VALUE;
+                int offset = i * STRIDE;
+                for (int j = 0; j < counts[i]; j++, offset += 3) {
+                    double d = ColorSimilarUtils.ciede2000(l, a, b, labs[offset], labs[offset + 1], labs[offset + 2]);
+                    if (d < distance) {
+                        distance = d;
+                    }
+                }
+                if (heapSize < limit) {
+                    heapDistances[heapSize] = distance;
+                    heapIds[heapSize] = ids[i];
+                    siftUp(heapDistances, heapIds, heapSize);
+                    heapSize++;
+                } else if (distance < heapDistances[0]) {
+                    heapDistances[0] = distance;
+                    heapIds[0] = ids[i];
+                    siftDown(heapDistances, heapIds, heapSize);
+                }
+            }
+            // 依次弹出堆顶，倒序填充得到从近到远的结果
+            long[] result = new long[heapSize];
+            for (int i = heapSize - 1; i >= 0; i--) {
+                result[i] = heapIds[0];
+                heapDistances[0] = heapDistances[i];
+                heapIds[0] = heapIds[i];
+                siftDown(heapDistances, heapIds, i);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        long[] newIds = new long[capacity];
+        float[] newLabs = new float[capacity * STRIDE];
+        byte[] newCounts = new byte[capacity];
+        System.arraycopy(ids, 0, newIds, 0, size);
+        System.arraycopy(labs, 0, newLabs, 0, size * STRIDE);
+        System.arraycopy(counts, 0, newCounts, 0, size);
+        ids = newIds;
+        labs = newLabs;
+        counts = newCounts;
+    }
+
+    private static void siftUp(double[] distances, long[] ids, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (distances[parent] >= distances[index]) {
+                return;
+            }
+            swap(distances, ids, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(double[] distances, long[] ids, int heapSize) {
+        int index = 0;
+        while (true) {
+            int left = index * 2 + 1;
+            if (left >= heapSize) {
+                return;
+            }
+            int largest = left;
+            int right = left + 1;
+            if (right < heapSize && distances[right] > distances[left]) {
+                largest = right;
+            }
+            if (distances[index] >= distances[largest]) {
+                return;
+            }
+            swap(distances, ids, index, largest);
+            index = largest;
+        }
+    }
+
+    private static void swap(double[] distances, long[] ids, int i, int j) {
+        double distance = distances[i];
+        distances[i] = distances[j];
+        distances[j] = distance;
+        long id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+    }
+}
@@ -0,0 +1,275 @@
+package com.lcs.lcspicture.manager.search;
+
+import com.lcs.lcspicture.utils.ImageHashUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 单个空间的图片感知哈希索引
+ * <p>
+ * 以汉明距离为度量的 BK 树，节点存放在基本类型数组中，子节点用“首个子节点 + 下一个兄弟节点”链表表示；
+ * 删除时只做标记，标记节点过多时重建整棵树
+ */
+class SpaceHashIndex {
+
+    private static final int NONE = -1;
+
+    private long[] hashes;
+
+    private long[] ids;
+
+    /**
+     * 节点到父节点的距离
+     */
+    private byte[] edges;
+
+    private int[] firstChild;
+
+    private int[] nextSibling;
+
+    private boolean[] removed;
+
+    /**
+     * 节点总数，包含已删除的节点
+     */
+    private int nodeCount;
+
+    private int removedCount;
+
+    /**
+     * 图片 id 到节点下标的映射
+     */
+    private final Map<Long, Integer> positionMap;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    SpaceHashIndex(int capacity) {
+        init(Math.max(16, capacity));
+        this.positionMap = new HashMap<>(Math.max(16, capacity) * 2);
+    }
+
+    /**
+     * 新增或更新图片指纹
+     */
+    void put(long pictureId, long hash) {
+        lock.writeLock().lock();
+        try {
+            Integer position = positionMap.get(pictureId);
+            if (position != null) {
+                if (hashes[position] == hash) {
+                    return;
+                }
+                markRemoved(position);
+            }
+            positionMap.put(pictureId, insert(pictureId, hash));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除图片
+     */
+    void remove(long pictureId) {
+        lock.writeLock().lock();
+        try {
+            Integer position = positionMap.remove(pictureId);
+            if (position != null) {
+                markRemoved(position);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        return positionMap.size();
+    }
+
+    /**
+     * 查询与目标指纹最相似的 k 张图片
+     *
+     * @param hash        目标指纹
+     * @param k           数量
+     * @param maxDistance 最大汉明距离
+     * @return 图片 id，按相似度从高到低排列
+     */
+    long[] search(long hash, int k, int maxDistance) {
+        lock.readLock().lock();
+        try {
+            int limit = Math.min(k, positionMap.size());
+            if (limit <= 0) {
+                return new long[0];
+            }
+            // 大顶堆，堆顶为当前保留结果中距离最大的元素
+            int[] heapDistances = new int[limit];
+            long[] heapIds = new long[limit];
+            int heapSize = 0;
+            int radius = maxDistance;
+            int[] stack = new int[Math.max(16, nodeCount)];
+            int top = 0;
+            stack[top++] = 0;
+            while (top > 0) {
+                int node = stack[--top];
+                int distance = ImageHashUtils.hammingDistance(hash, hashes[node]);
+                if (!removed[node] && distance <= radius) {
+                    if (heapSize < limit) {
+                        heapDistances[heapSize] = distance;
+                        heapIds[heapSize] = ids[node];
+                        siftUp(heapDistances, heapIds, heapSize);
+                        heapSize++;
+                    } else if (distance < heapDistances[0]) {
+                        heapDistances[0] = distance;
+                        heapIds[0] = ids[node];
+                        siftDown(heapDistances, heapIds, heapSize);
+                    }
+                    // 结果已满时，只需继续寻找比当前最远结果更近的图片
+                    if (heapSize == limit) {
+                        radius = Math.min(radius, heapDistances[0] - 1);
+                    }
+                }
+                // 三角不等式：只有与父节点距离在 [distance - radius, distance + radius] 内的子树才可能命中
+                for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                    if (Math.abs(edges[child] - distance) <= radius) {
+                        stack[top++] = child;
+                    }
+                }
+            }
+            // 依次弹出堆顶，倒序填充得到从近到远的结果
+            long[] result = new long[heapSize];
+            for (int i = heapSize - 1; i >= 0; i--) {
+                result[i] = heapIds[0];
+                heapDistances[0] = heapDistances[i];
+                heapIds[0] = heapIds[i];
+                siftDown(heapDistances, heapIds, i);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void init(int capacity) {
+        hashes = new long[capacity];
+        ids = new long[capacity];
+        edges = new byte[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        removed = new boolean[capacity];
+        nodeCount = 0;
+        removedCount = 0;
+    }
+
+    /**
+     * 插入节点
+     *
+     * @return 节点下标
+     */
+    private int insert(long pictureId, long hash) {
+        if (nodeCount == hashes.length) {
+            grow();
+        }
+        int position = nodeCount++;
+        hashes[position] = hash;
+        ids[position] = pictureId;
+        firstChild[position] = NONE;
+        nextSibling[position] = NONE;
+        removed[position] = false;
+        if (position == 0) {
+            return position;
+        }
+        int node = 0;
+        while (true) {
+            int distance = ImageHashUtils.hammingDistance(hash, hashes[node]);
+            int child = firstChild[node];
+            while (child != NONE && edges[child] != distance) {
+                child = nextSibling[child];
+            }
+            if (child == NONE) {
+                edges[position] = (byte) distance;
+                nextSibling[position] = firstChild[node];
+                firstChild[node] = position;
+                return position;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * 标记删除，已删除节点超过一半时重建
+     */
+    private void markRemoved(int position) {
+        removed[position] = true;
+        removedCount++;
+        if (removedCount > 64 && removedCount * 2 > nodeCount) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        long[] oldHashes = hashes;
+        long[] oldIds = ids;
+        boolean[] oldRemoved = removed;
+        int oldCount = nodeCount;
+        init(Math.max(16, oldCount - removedCount));
+        positionMap.clear();
+        for (int i = 0; i < oldCount; i++) {
+            if (!oldRemoved[i]) {
+                positionMap.put(oldIds[i], insert(oldIds[i], oldHashes[i]));
+            }
+        }
+    }
+
+    private void grow() {
+        int capacity = hashes.length * 2;
+        hashes = Arrays.copyOf(hashes, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        edges = Arrays.copyOf(edges, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        removed = Arrays.copyOf(removed, capacity);
+    }
+
+    private static void siftUp(int[] distances, long[] ids, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (distances[parent] >= distances[index]) {
+                return;
+            }
+            swap(distances, ids, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(int[] distances, long[] ids, int heapSize) {
+        int index = 0;
+        while (true) {
+            int left = index * 2 + 1;
+            if (left >= heapSize) {
+                return;
+            }
+            int largest = left;
+            int right = left + 1;
+            if (right < heapSize && distances[right] > distances[left]) {
+                largest = right;
+            }
+            if (distances[index] >= distances[largest]) {
+                return;
+            }
+            swap(distances, ids, index, largest);
+            index = largest;
+        }
+    }
+
+    private static void swap(int[] distances, long[] ids, int i, int j) {
+        int distance = distances[i];
+        distances[i] = distances[j];
+        distances[j] = distance;
+        long id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+    }
+}
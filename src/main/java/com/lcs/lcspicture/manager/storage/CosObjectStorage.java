@@ -0,0 +1,121 @@
+package com.lcs.lcspicture.manager.storage;
+
+import cn.hutool.core.collection.CollUtil;
+import com.lcs.lcspicture.config.CosClientConfig;
+import com.qcloud.cos.COSClient;
+import com.qcloud.cos.exception.CosServiceException;
+import com.qcloud.cos.exception.MultiObjectDeleteException;
+import com.qcloud.cos.model.DeleteObjectsRequest;
+import com.qcloud.cos.model.GetObjectRequest;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.model.PutObjectRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 腾讯云对象存储
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "storage", name = "type", havingValue = "cos", matchIfMissing = true)
+public class CosObjectStorage implements ObjectStorage {
+
+    /**
+     * 单次批量删除的最大对象数
+     */
+    private static final int MAX_DELETE_BATCH_SIZE = 1000;
+
+    @Resource
+    private CosClientConfig cosClientConfig;
+
+    @Resource
+    private COSClient cosClient;
+
+    @Override
+    public void putObject(String key, InputStream inputStream, long size) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(size);
+        cosClient.putObject(new PutObjectRequest(cosClientConfig.getBucket(), ObjectStorage.normalizeKey(key),
+                inputStream, objectMetadata));
+    }
+
+    @Override
+    public InputStream getObject(String key) {
+        GetObjectRequest getObjectRequest = new GetObjectRequest(cosClientConfig.getBucket(), ObjectStorage.normalizeKey(key));
+        return cosClient.getObject(getObjectRequest).getObjectContent();
+    }
+
+    @Override
+    public InputStream getObject(String key, long start, long length) {
+        // 长度为 0 时无法构造合法的闭区间范围
+        if (length <= 0) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        GetObjectRequest getObjectRequest = new GetObjectRequest(cosClientConfig.getBucket(), ObjectStorage.normalizeKey(key));
+        // 范围为闭区间
+        getObjectRequest.setRange(start, start + length - 1);
+        return cosClient.getObject(getObjectRequest).getObjectContent();
+    }
+
+    @Override
+    public StorageObject headObject(String key) {
+        String normalizedKey = ObjectStorage.normalizeKey(key);
+        ObjectMetadata objectMetadata;
+        try {
+            objectMetadata = cosClient.getObjectMetadata(cosClientConfig.getBucket(), normalizedKey);
+        } catch (CosServiceException e) {
+            if (e.getStatusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+        StorageObject storageObject = new StorageObject();
+        storageObject.setKey(normalizedKey);
+        storageObject.setSize(objectMetadata.getContentLength());
+        storageObject.setLastModified(objectMetadata.getLastModified());
+        storageObject.setETag(objectMetadata.getETag());
+        storageObject.setContentType(objectMetadata.getContentType());
+        return storageObject;
+    }
+
+    @Override
+    public void deleteObject(String key) {
+        cosClient.deleteObject(cosClientConfig.getBucket(), ObjectStorage.normalizeKey(key));
+    }
+
+    @Override
+    public void deleteObjects(List<String> keys) {
+        if (CollUtil.isEmpty(keys)) {
+            return;
+        }
+        int errorCount = 0;
+        for (List<String> keyList : CollUtil.split(keys, MAX_DELETE_BATCH_SIZE)) {
+            DeleteObjectsRequest deleteObjectsRequest = new DeleteObjectsRequest(cosClientConfig.getBucket());
+            deleteObjectsRequest.setKeys(keyList.stream()
+                    .map(key -> new DeleteObjectsRequest.KeyVersion(ObjectStorage.normalizeKey(key)))
+                    .collect(Collectors.toList()));
+            try {
+                cosClient.deleteObjects(deleteObjectsRequest);
+            } catch (MultiObjectDeleteException e) {
+                log.error("批量删除对象部分失败, errors={}", e.getErrors().size(), e);
+                errorCount += e.getErrors().size();
+            }
+        }
+        // 其余批次仍会执行，最后统一抛出，由调用方重试
+        if (errorCount > 0) {
+            throw new IllegalStateException("批量删除对象部分失败, errors=" + errorCount);
+        }
+    }
+
+    @Override
+    public String getHost() {
+        return cosClientConfig.getHost();
+    }
+}
@@ -0,0 +1,182 @@
+package com.lcs.lcspicture.manager.storage;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.io.FileUtil;
+import com.lcs.lcspicture.config.StorageConfig;
+import com.lcs.lcspicture.exception.BusinessException;
+import com.lcs.lcspicture.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 本地磁盘存储，用于没有对象存储的环境与单机压测
+ * <p>
+ * 写入时先写同目录下的临时文件再原子改名，读取到一半的对象不会被覆盖；
+ * 下载时通过 FileChannel.transferTo 零拷贝写入目标通道
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "storage", name = "type", havingValue = "local")
+public class LocalObjectStorage implements ObjectStorage {
+
+    @Resource
+    private StorageConfig storageConfig;
+
+    @Override
+    public void putObject(String key, InputStream inputStream, long size) throws IOException {
+        Path path = resolve(key);
+        Files.createDirectories(path.getParent());
+        Path tempPath = Files.createTempFile(path.getParent(), ".upload_", null);
+        try {
+            Files.copy(inputStream, tempPath, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
+    @Override
+    public InputStream getObject(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public InputStream getObject(String key, long start, long length) throws IOException {
+        FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ);
+        try {
+            channel.position(start);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new FilterInputStream(Channels.newInputStream(channel)) {
+            private long remaining = length;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int b = super.read();
+                if (b != -1) {
+                    remaining--;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int read = super.read(b, off, (int) Math.min(len, remaining));
+                if (read > 0) {
+                    remaining -= read;
+                }
+                return read;
+            }
+        };
+    }
+
+    @Override
+    public StorageObject headObject(String key) throws IOException {
+        Path path = resolve(key);
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        StorageObject storageObject = new StorageObject();
+        storageObject.setKey(ObjectStorage.normalizeKey(key));
+        storageObject.setSize(attributes.size());
+        storageObject.setLastModified(new Date(lastModified));
+        // 大小与修改时间不变即认为内容不变，无需读取文件计算摘要
+        storageObject.setETag(Long.toHexString(attributes.size()) + "-" + Long.toHexString(lastModified));
+        storageObject.setContentType(FileUtil.getMimeType(path.getFileName().toString()));
+        return storageObject;
+    }
+
+    @Override
+    public long transferTo(String key, long position, long count, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ)) {
+            long end = Math.min(channel.size(), position + count);
+            long current = position;
+            while (current < end) {
+                long transferred = channel.transferTo(current, end - current, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                current += transferred;
+            }
+            return current - position;
+        }
+    }
+
+    @Override
+    public void deleteObject(String key) {
+        try {
+            Files.deleteIfExists(resolve(key));
+        } catch (IOException e) {
+            log.error("删除本地对象失败, key={}", key, e);
+        }
+    }
+
+    @Override
+    public void deleteObjects(List<String> keys) {
+        if (CollUtil.isEmpty(keys)) {
+            return;
+        }
+        int errorCount = 0;
+        for (String key : keys) {
+            try {
+                Files.deleteIfExists(resolve(key));
+            } catch (IOException e) {
+                log.error("删除本地对象失败, key={}", key, e);
+                errorCount++;
+            }
+        }
+        if (errorCount > 0) {
+            throw new IllegalStateException("批量删除对象部分失败, errors=" + errorCount);
+        }
+    }
+
+    @Override
+    public String getHost() {
+        return storageConfig.getLocalHost();
+    }
+
+    /**
+     * 解析对象键对应的本地路径，禁止访问根目录之外的文件
+     */
+    private Path resolve(String key) {
+        Path root = Paths.get(storageConfig.getLocalRoot()).toAbsolutePath().normalize();
+        Path path = root.resolve(ObjectStorage.normalizeKey(key)).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "非法的对象键");
+        }
+        return path;
+    }
+}
@@ -0,0 +1,130 @@
+package com.lcs.lcspicture.manager.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+/**
+ * 对象存储
+ * <p>
+ * 对象键统一不带开头的 /，传入带 / 的键时由实现去掉
+ */
+public interface ObjectStorage {
+
+    /**
+     * 上传对象
+     *
+     * @param key         对象键
+     * @param inputStream 内容
+     * @param size        内容长度
+     */
+    void putObject(String key, InputStream inputStream, long size) throws IOException;
+
+    /**
+     * 读取整个对象，调用方负责关闭输入流
+     *
+     * @param key 对象键
+     * @return 内容
+     */
+    InputStream getObject(String key) throws IOException;
+
+    /**
+     * 读取对象的一段内容，调用方负责关闭输入流
+     *
+     * @param key    对象键
+     * @param start  起始位置
+     * @param length 读取长度，为 0 时返回空内容
+     * @return 内容
+     */
+    InputStream getObject(String key, long start, long length) throws IOException;
+
+    /**
+     * 查询对象元信息
+     *
+     * @param key 对象键
+     * @return 元信息，对象不存在时为 null
+     */
+    StorageObject headObject(String key) throws IOException;
+
+    /**
+     * 删除对象，对象不存在时忽略
+     *
+     * @param key 对象键
+     */
+    void deleteObject(String key);
+
+    /**
+     * 批量删除对象，对象不存在时忽略；部分对象删除失败时抛出异常，可整批重试
+     *
+     * @param keys 对象键
+     */
+    void deleteObjects(List<String> keys);
+
+    /**
+     * 对象访问地址前缀
+     */
+    String getHost();
+
+    /**
+     * 将对象的一段内容写入目标通道，用于文件下载
+     *
+     * @param key      对象键
+     * @param position 起始位置
+     * @param count    写入长度
+     * @param target   目标通道
+     * @return 实际写入长度
+     */
+    default long transferTo(String key, long position, long count, WritableByteChannel target) throws IOException {
+        long total = 0;
+        try (ReadableByteChannel source = Channels.newChannel(getObject(key, position, count))) {
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    total += target.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 获取对象的访问地址
+     *
+     * @param key 对象键
+     * @return 访问地址
+     */
+    default String getUrl(String key) {
+        return getHost() + "/" + normalizeKey(key);
+    }
+
+    /**
+     * 从访问地址中解析对象键，不是本存储的地址时返回 null
+     *
+     * @param url 访问地址
+     * @return 对象键
+     */
+    default String getKey(String url) {
+        String host = getHost();
+        if (url == null || host == null || !url.startsWith(host)) {
+            return null;
+        }
+        return normalizeKey(url.substring(host.length()));
+    }
+
+    /**
+     * 去掉对象键开头的 /
+     */
+    static String normalizeKey(String key) {
+        int start = 0;
+        while (start < key.length() && key.charAt(start) == '/') {
+            start++;
+        }
+        return key.substring(start);
+    }
+}
@@ -0,0 +1,37 @@
+package com.lcs.lcspicture.manager.storage;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 存储对象的元信息
+ */
+@Data
+public class StorageObject {
+
+    /**
+     * 对象键
+     */
+    private String key;
+
+    /**
+     * 对象大小
+     */
+    private long size;
+
+    /**
+     * 最后修改时间
+     */
+    private Date lastModified;
+
+    /**
+     * 内容标识，内容变化时随之变化（不含引号）
+     */
+    private String eTag;
+
+    /**
+     * 内容类型
+     */
+    private String contentType;
+}
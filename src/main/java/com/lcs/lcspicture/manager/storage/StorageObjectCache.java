@@ -0,0 +1,134 @@
+package com.lcs.lcspicture.manager.storage;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lcs.lcspicture.config.StorageConfig;
+import com.lcs.lcspicture.mapper.PictureMapper;
+import com.lcs.lcspicture.model.entity.Picture;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件下载缓存：对象元信息短时间缓存，热点小文件（主要是缩略图）按总字节数做 LRU 缓存
+ * <p>
+ * 内容缓存以对象键与 ETag 作为键，对象内容变化后自然失效。图片对象的 ETag 使用图片内容哈希加上版本后缀（原图、压缩图、
+ * 各尺寸缩略图），不随存储类型、节点与文件修改时间变化；找不到对应图片的对象（如头像）使用存储返回的 ETag
+ */
+@Component
+public class StorageObjectCache {
+
+    @Resource
+    private ObjectStorage objectStorage;
+
+    @Resource
+    private StorageConfig storageConfig;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    /**
+     * 对象元信息，只缓存存在的对象：对象可能在查询之后才上传完成，缓存不存在的结果会在过期前一直返回 404
+     */
+    private final Cache<String, StorageObject> metaCache = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(60, TimeUnit.SECONDS)
+            .build();
+
+    private Cache<String, byte[]> dataCache;
+
+    @PostConstruct
+    public void init() {
+        dataCache = Caffeine.newBuilder()
+                .maximumWeight(storageConfig.getServeCacheMaxBytes())
+                .weigher((String key, byte[] data) -> data.length)
+                .build();
+    }
+
+    /**
+     * 查询对象元信息
+     *
+     * @param key 对象键
+     * @return 元信息，对象不存在时为 null
+     */
+    public StorageObject head(String key) {
+        // 加载结果为 null 时不缓存
+        return metaCache.get(ObjectStorage.normalizeKey(key), k -> {
+            StorageObject storageObject;
+            try {
+                storageObject = objectStorage.headObject(k);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (storageObject != null) {
+                String eTag = getPictureETag(k);
+                if (eTag != null) {
+                    storageObject.setETag(eTag);
+                }
+            }
+            return storageObject;
+        });
+    }
+
+    /**
+     * 根据图片内容哈希生成 ETag
+     * <p>
+     * 同一张图片的各个对象键为 {目录}/{文件名}{版本后缀}，压缩图为 {文件名}.{格式}，按压缩图地址的前缀找到图片
+     *
+     * @param key 对象键
+     * @return 内容哈希:版本后缀，不是图片对象或图片没有内容哈希时返回 null
+     */
+    private String getPictureETag(String key) {
+        String fileName = FileUtil.getName(key);
+        String baseName = StrUtil.subBefore(FileUtil.mainName(fileName), "_thumbnail", false);
+        if (StrUtil.isBlank(baseName)) {
+            return null;
+        }
+        String urlPrefix = objectStorage.getUrl(key.substring(0, key.length() - fileName.length()) + baseName + ".");
+        Picture picture = pictureMapper.selectOne(new LambdaQueryWrapper<Picture>()
+                .select(Picture::getContentHash)
+                .likeRight(Picture::getUrl, urlPrefix)
+                .isNotNull(Picture::getContentHash)
+                .last("limit 1"));
+        if (picture == null || StrUtil.isBlank(picture.getContentHash())) {
+            return null;
+        }
+        return picture.getContentHash() + ":" + fileName.substring(baseName.length());
+    }
+
+    /**
+     * 获取小文件的完整内容
+     *
+     * @param storageObject 对象元信息
+     * @return 文件内容，超过缓存大小上限的文件返回 null
+     */
+    public byte[] getData(StorageObject storageObject) {
+        if (storageObject.getSize() > storageConfig.getServeCacheMaxObjectSize()) {
+            return null;
+        }
+        return dataCache.get(storageObject.getKey() + "@" + storageObject.getETag(), k -> {
+            try (InputStream inputStream = objectStorage.getObject(storageObject.getKey())) {
+                byte[] data = new byte[(int) storageObject.getSize()];
+                int length = 0;
+                while (length < data.length) {
+                    int read = inputStream.read(data, length, data.length - length);
+                    if (read == -1) {
+                        throw new IOException("对象内容不完整, key=" + storageObject.getKey());
+                    }
+                    length += read;
+                }
+                return data;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
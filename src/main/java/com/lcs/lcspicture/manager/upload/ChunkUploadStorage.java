@@ -0,0 +1,56 @@
+package com.lcs.lcspicture.manager.upload;
+
+import com.lcs.lcspicture.model.dto.file.UploadPictureResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.SortedMap;
+
+/**
+ * 分块上传存储
+ * <p>
+ * 分块直接写入存储，由存储在服务端合并，服务端不持有完整文件
+ */
+public interface ChunkUploadStorage {
+
+    /**
+     * 初始化分块上传
+     *
+     * @param key 对象键
+     * @return 存储的分块上传 id
+     */
+    String initiate(String key);
+
+    /**
+     * 上传分块，同一上传的不同分块可以并发上传
+     *
+     * @param key         对象键
+     * @param uploadId    存储的分块上传 id
+     * @param partNumber  分块编号，从 1 开始
+     * @param inputStream 分块内容
+     * @param size        分块大小
+     * @return 分块的 ETag
+     */
+    String uploadPart(String key, String uploadId, int partNumber, InputStream inputStream, long size) throws IOException;
+
+    /**
+     * 合并分块并解析图片信息
+     *
+     * @param key            对象键
+     * @param uploadId       存储的分块上传 id
+     * @param partETags      分块编号到 ETag 的映射
+     * @param size           文件大小
+     * @param originFileName 原始文件名
+     * @return 上传结果
+     */
+    UploadPictureResult complete(String key, String uploadId, SortedMap<Integer, String> partETags, long size,
+                                 String originFileName) throws IOException;
+
+    /**
+     * 取消分块上传，清理已上传的分块
+     *
+     * @param key      对象键
+     * @param uploadId 存储的分块上传 id
+     */
+    void abort(String key, String uploadId);
+}
@@ -0,0 +1,53 @@
+package com.lcs.lcspicture.manager.upload;
+
+import com.lcs.lcspicture.manager.CosManager;
+import com.lcs.lcspicture.model.dto.file.UploadPictureResult;
+import com.qcloud.cos.model.CompleteMultipartUploadResult;
+import com.qcloud.cos.model.PartETag;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.InputStream;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.stream.Collectors;
+
+/**
+ * 对象存储分块上传，合并时由对象存储完成压缩与缩略图处理；未配置分块存储时跟随 storage.type
+ */
+@Component
+@ConditionalOnExpression("'${picture.chunk.storage:${storage.type:cos}}' == 'cos'")
+public class CosChunkUploadStorage implements ChunkUploadStorage {
+
+    @Resource
+    private CosManager cosManager;
+
+    @Resource
+    private CosPictureProcessor cosPictureProcessor;
+
+    @Override
+    public String initiate(String key) {
+        return cosManager.initiateMultipartUpload(key);
+    }
+
+    @Override
+    public String uploadPart(String key, String uploadId, int partNumber, InputStream inputStream, long size) {
+        return cosManager.uploadPart(key, uploadId, partNumber, inputStream, size);
+    }
+
+    @Override
+    public UploadPictureResult complete(String key, String uploadId, SortedMap<Integer, String> partETags, long size,
+                                        String originFileName) {
+        List<PartETag> partETagList = partETags.entrySet().stream()
+                .map(entry -> new PartETag(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+        CompleteMultipartUploadResult result = cosManager.completePictureMultipartUpload(key, uploadId, partETagList, size);
+        return cosPictureProcessor.buildResult(key, originFileName, size, result.getCiUploadResult());
+    }
+
+    @Override
+    public void abort(String key, String uploadId) {
+        cosManager.abortMultipartUpload(key, uploadId);
+    }
+}
@@ -0,0 +1,154 @@
+package com.lcs.lcspicture.manager.upload;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.ObjUtil;
+import com.lcs.lcspicture.config.CosClientConfig;
+import com.lcs.lcspicture.manager.CosManager;
+import com.lcs.lcspicture.model.dto.file.UploadPictureResult;
+import com.lcs.lcspicture.utils.ColorPaletteUtils;
+import com.lcs.lcspicture.utils.ImageHashUtils;
+import com.lcs.lcspicture.utils.ImageSampleUtils;
+import com.qcloud.cos.model.PutObjectResult;
+import com.qcloud.cos.model.ciModel.persistence.CIObject;
+import com.qcloud.cos.model.ciModel.persistence.CIUploadResult;
+import com.qcloud.cos.model.ciModel.persistence.ImageInfo;
+import com.qcloud.cos.model.ciModel.persistence.ProcessResults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * 对象存储图片处理：上传原图时附带数据万象处理规则，由对象存储生成压缩图与缩略图并返回图片信息
+ * <p>
+ * 主色调调色板与感知哈希仍在本地从采样图中计算
+ */
+@Slf4j
+@Component
+public class CosPictureProcessor implements PictureProcessor {
+
+    @Resource
+    private CosManager cosManager;
+
+    @Resource
+    private CosClientConfig cosClientConfig;
+
+    @Override
+    public UploadPictureResult process(String uploadPath, String originFileName, PictureUploadBuffer buffer) throws Exception {
+        // 本地解码采样图，提取主色调调色板与感知哈希
+        BufferedImage sampleImage = readSampleImage(buffer);
+        String picPalette = sampleImage == null ? null : ColorPaletteUtils.encodePalette(
+                ColorPaletteUtils.extractPalette(sampleImage, ColorPaletteUtils.MAX_PALETTE_SIZE));
+        Long picHash = sampleImage == null ? null : ImageHashUtils.pHash(sampleImage);
+        // 上传到对象存储
+        PutObjectResult putObjectResult;
+        try (InputStream inputStream = buffer.openStream()) {
+            putObjectResult = cosManager.putPictureObject(uploadPath, inputStream, buffer.getSize());
+        }
+        // 封装解析得到的图片信息
+        UploadPictureResult uploadPictureResult = buildResult(uploadPath, originFileName, buffer.getSize(),
+                putObjectResult.getCiUploadResult());
+        uploadPictureResult.setPicPalette(picPalette);
+        uploadPictureResult.setPicHash(picHash);
+        return uploadPictureResult;
+    }
+
+    /**
+     * 根据对象存储返回的图片处理结果构建上传结果，分块上传完成后同样使用
+     *
+     * @param uploadPath     上传路径
+     * @param originFileName 原始文件名
+     * @param size           原图大小
+     * @param ciUploadResult 图片处理结果
+     * @return 上传结果
+     */
+    public UploadPictureResult buildResult(String uploadPath, String originFileName, long size, CIUploadResult ciUploadResult) {
+        ImageInfo imageInfo = ciUploadResult.getOriginalInfo().getImageInfo();
+        // 获取到图片处理结果
+        ProcessResults processResults = ciUploadResult.getProcessResults();
+        // 获得处理转换后的所有图片信息
+        List<CIObject> objectList = processResults == null ? null : processResults.getObjectList();
+        if (CollUtil.isNotEmpty(objectList)) {
+            // 获取压缩之后的文件信息
+            CIObject ciObject = objectList.get(0);
+            // 缩略图默认就等于压缩图
+            CIObject thumbnail = ciObject;
+            if (objectList.size() > 1 && ObjUtil.isNotEmpty(objectList.get(1))) {
+                thumbnail = objectList.get(1);
+            }
+            return buildResult(uploadPath, originFileName, ciObject, thumbnail, imageInfo);
+        }
+        return buildResult(originFileName, size, uploadPath, imageInfo);
+    }
+
+    /**
+     * 从缓冲区中解码采样图，失败时不影响上传
+     *
+     * @param buffer 缓冲区
+     * @return 采样图，无法解码时为 null
+     */
+    private BufferedImage readSampleImage(PictureUploadBuffer buffer) {
+        try (InputStream inputStream = buffer.openStream()) {
+            return ImageSampleUtils.read(inputStream, ImageSampleUtils.DEFAULT_SAMPLE_SIZE);
+        } catch (Exception e) {
+            log.warn("解码图片采样图失败", e);
+            return null;
+        }
+    }
+
+    /**
+     * 构建上传结果
+     *
+     * @param originFileName 原始文件名
+     * @param ciObject       压缩后的文件信息
+     * @return
+     */
+    private UploadPictureResult buildResult(String uploadPath, String originFileName, CIObject ciObject,
+            CIObject thumbnail, ImageInfo imageInfo) {
+        UploadPictureResult uploadPictureResult = new UploadPictureResult();
+        Integer width = ciObject.getWidth();
+        Integer height = ciObject.getHeight();
+        double picScale = NumberUtil.round(width * 1.0 / height, 2).doubleValue();
+        uploadPictureResult.setUrl(cosClientConfig.getHost() + "/" + ciObject.getKey());
+        uploadPictureResult.setOriginUrl(cosClientConfig.getHost() + "/" + uploadPath);
+        uploadPictureResult.setPicName(originFileName);
+        uploadPictureResult.setPicColor(imageInfo.getAve());
+        uploadPictureResult.setPicSize(ciObject.getSize().longValue());
+        uploadPictureResult.setPicWidth(ciObject.getWidth());
+        uploadPictureResult.setPicHeight(ciObject.getHeight());
+        uploadPictureResult.setPicScale(picScale);
+        uploadPictureResult.setPicFormat(ciObject.getFormat());
+        // 缩略图
+        uploadPictureResult.setThumbnailUrl(cosClientConfig.getHost() + "/" + thumbnail.getKey());
+        return uploadPictureResult;
+    }
+
+    /**
+     * 构建上传结果
+     *
+     * @param originFileName 原始文件名
+     * @param picSize        文件大小
+     * @param uploadPath     上传路径
+     * @param imageInfo      图片信息
+     * @return 上传结果
+     */
+    private UploadPictureResult buildResult(String originFileName, long picSize, String uploadPath, ImageInfo imageInfo) {
+        UploadPictureResult uploadPictureResult = new UploadPictureResult();
+        int width = imageInfo.getWidth();
+        int height = imageInfo.getHeight();
+        double picScale = NumberUtil.round(width * 1.0 / height, 2).doubleValue();
+        uploadPictureResult.setUrl(cosClientConfig.getHost() + "/" + uploadPath);
+        uploadPictureResult.setPicName(originFileName);
+        uploadPictureResult.setPicColor(imageInfo.getAve());
+        uploadPictureResult.setPicSize(picSize);
+        uploadPictureResult.setPicWidth(imageInfo.getWidth());
+        uploadPictureResult.setPicHeight(imageInfo.getHeight());
+        uploadPictureResult.setPicScale(picScale);
+        uploadPictureResult.setPicFormat(imageInfo.getFormat());
+        return uploadPictureResult;
+    }
+}
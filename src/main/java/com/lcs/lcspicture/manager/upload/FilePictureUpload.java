@@ -1,22 +1,26 @@
 package com.lcs.lcspicture.manager.upload;
 
 import cn.hutool.core.io.FileUtil;
+import com.lcs.lcspicture.config.PictureUploadConfig;
 import com.lcs.lcspicture.exception.ErrorCode;
 import com.lcs.lcspicture.exception.ThrowUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
+import javax.annotation.Resource;
 import java.util.Arrays;
 import java.util.List;
 
 @Service
 public class FilePictureUpload extends PictureUploadTemplate {
 
+    @Resource
+    private PictureUploadConfig pictureUploadConfig;
+
     @Override
-    protected void processFile(Object inputSource, File file) throws Exception {
+    protected PictureStream openPictureStream(Object inputSource) throws Exception {
         MultipartFile multipartFile = (MultipartFile) inputSource;
-        multipartFile.transferTo(file);
+        return new PictureStream(multipartFile.getInputStream(), multipartFile.getSize());
     }
 
     /**
@@ -40,10 +44,11 @@ public class FilePictureUpload extends PictureUploadTemplate {
     protected void validPicture(Object inputSource) {
         MultipartFile multipartFile = (MultipartFile) inputSource;
         ThrowUtils.throwIf(multipartFile == null, ErrorCode.PARAMS_ERROR, "文件不能为空");
-        //校验文件大小
-        final long ONE_MB = 1024 * 1024;
+        //校验文件大小，与缓冲池读取时的上限一致
+        long maxFileSize = pictureUploadConfig.getMaxFileSize();
         long fileSize = multipartFile.getSize();
-        ThrowUtils.throwIf(fileSize > 2 * ONE_MB, ErrorCode.PARAMS_ERROR, "文件大小不能超过1M");
+        ThrowUtils.throwIf(fileSize > maxFileSize, ErrorCode.PARAMS_ERROR,
+                String.format("文件大小不能超过%sM", maxFileSize / (1024 * 1024)));
         //校验文件格式
         String originalFilename = multipartFile.getOriginalFilename();
         String suffix = FileUtil.getSuffix(originalFilename);
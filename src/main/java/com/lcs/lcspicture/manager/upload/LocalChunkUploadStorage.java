@@ -0,0 +1,156 @@
+package com.lcs.lcspicture.manager.upload;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.crypto.SecureUtil;
+import com.lcs.lcspicture.config.PictureChunkUploadConfig;
+import com.lcs.lcspicture.exception.BusinessException;
+import com.lcs.lcspicture.exception.ErrorCode;
+import com.lcs.lcspicture.manager.storage.ObjectStorage;
+import com.lcs.lcspicture.model.dto.file.UploadPictureResult;
+import com.lcs.lcspicture.utils.ColorPaletteUtils;
+import com.lcs.lcspicture.utils.ImageHashUtils;
+import com.lcs.lcspicture.utils.ImageSampleUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * 本地目录分块上传，开发测试时代替对象存储的分块上传
+ * <p>
+ * 分块写入 parts/{uploadId} 目录，合并时顺序拼接后在本地解析图片信息，再写入当前配置的对象存储；
+ * 未配置分块存储时跟随 storage.type，使用本地磁盘存储时默认使用本地分块
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("'${picture.chunk.storage:${storage.type:cos}}' == 'local'")
+public class LocalChunkUploadStorage implements ChunkUploadStorage {
+
+    @Resource
+    private PictureChunkUploadConfig pictureChunkUploadConfig;
+
+    @Resource
+    private ObjectStorage objectStorage;
+
+    @Override
+    public String initiate(String key) {
+        String uploadId = IdUtil.fastSimpleUUID();
+        FileUtil.mkdir(getPartDir(uploadId));
+        return uploadId;
+    }
+
+    @Override
+    public String uploadPart(String key, String uploadId, int partNumber, InputStream inputStream, long size) throws IOException {
+        File partDir = getPartDir(uploadId);
+        if (!partDir.isDirectory()) {
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "上传不存在或已结束");
+        }
+        // 先写临时文件再改名，同一分块重复上传时不会读到写了一半的内容
+        File tempFile = File.createTempFile("part_" + partNumber + "_", null, partDir);
+        try {
+            Files.copy(inputStream, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            String eTag = SecureUtil.md5(tempFile);
+            Files.move(tempFile.toPath(), new File(partDir, String.valueOf(partNumber)).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return eTag;
+        } finally {
+            FileUtil.del(tempFile);
+        }
+    }
+
+    @Override
+    public UploadPictureResult complete(String key, String uploadId, SortedMap<Integer, String> partETags, long size,
+                                        String originFileName) throws IOException {
+        File partDir = getPartDir(uploadId);
+        File objectFile = new File(partDir, "object");
+        try {
+            try (OutputStream outputStream = Files.newOutputStream(objectFile.toPath())) {
+                for (Map.Entry<Integer, String> entry : partETags.entrySet()) {
+                    File partFile = new File(partDir, String.valueOf(entry.getKey()));
+                    if (!partFile.isFile() || !entry.getValue().equals(SecureUtil.md5(partFile))) {
+                        throw new BusinessException(ErrorCode.PARAMS_ERROR, "分块 " + entry.getKey() + " 不存在或已损坏");
+                    }
+                    Files.copy(partFile.toPath(), outputStream);
+                }
+            }
+            UploadPictureResult uploadPictureResult = buildResult(objectFile, originFileName);
+            // 合并后的文件写入对象存储
+            try (InputStream inputStream = Files.newInputStream(objectFile.toPath())) {
+                objectStorage.putObject(key, inputStream, objectFile.length());
+            }
+            String url = objectStorage.getUrl(key);
+            uploadPictureResult.setUrl(url);
+            uploadPictureResult.setOriginUrl(url);
+            uploadPictureResult.setThumbnailUrl(url);
+            FileUtil.del(partDir);
+            return uploadPictureResult;
+        } finally {
+            FileUtil.del(objectFile);
+        }
+    }
+
+    @Override
+    public void abort(String key, String uploadId) {
+        FileUtil.del(getPartDir(uploadId));
+    }
+
+    private File getPartDir(String uploadId) {
+        return FileUtil.file(pictureChunkUploadConfig.getLocalDir(), "parts", uploadId);
+    }
+
+    /**
+     * 本地解析图片信息，只读取图片头得到宽高，颜色与感知哈希从采样图中计算
+     */
+    private UploadPictureResult buildResult(File objectFile, String originFileName) throws IOException {
+        UploadPictureResult uploadPictureResult = new UploadPictureResult();
+        try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(objectFile)) {
+            Iterator<ImageReader> readers = imageInputStream == null ? null : ImageIO.getImageReaders(imageInputStream);
+            if (readers == null || !readers.hasNext()) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件格式错误");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInputStream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                uploadPictureResult.setPicWidth(width);
+                uploadPictureResult.setPicHeight(height);
+                uploadPictureResult.setPicScale(NumberUtil.round(width * 1.0 / height, 2).doubleValue());
+                uploadPictureResult.setPicFormat(reader.getFormatName().toLowerCase());
+            } finally {
+                reader.dispose();
+            }
+        }
+        BufferedImage sampleImage;
+        try (InputStream inputStream = Files.newInputStream(objectFile.toPath())) {
+            sampleImage = ImageSampleUtils.read(inputStream, ImageSampleUtils.DEFAULT_SAMPLE_SIZE);
+        }
+        if (sampleImage != null) {
+            int[] palette = ColorPaletteUtils.extractPalette(sampleImage, ColorPaletteUtils.MAX_PALETTE_SIZE);
+            uploadPictureResult.setPicPalette(ColorPaletteUtils.encodePalette(palette));
+            if (palette.length > 0) {
+                uploadPictureResult.setPicColor(String.format("0x%06X", palette[0]));
+            }
+            uploadPictureResult.setPicHash(ImageHashUtils.pHash(sampleImage));
+        }
+        uploadPictureResult.setPicName(originFileName);
+        uploadPictureResult.setPicSize(objectFile.length());
+        return uploadPictureResult;
+    }
+}
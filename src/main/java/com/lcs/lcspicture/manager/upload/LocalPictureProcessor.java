@@ -0,0 +1,175 @@
+package com.lcs.lcspicture.manager.upload;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.NumberUtil;
+import com.lcs.lcspicture.config.PictureProcessConfig;
+import com.lcs.lcspicture.exception.BusinessException;
+import com.lcs.lcspicture.exception.ErrorCode;
+import com.lcs.lcspicture.manager.storage.ObjectStorage;
+import com.lcs.lcspicture.model.dto.file.UploadPictureResult;
+import com.lcs.lcspicture.service.ObjectDeleteTaskService;
+import com.lcs.lcspicture.utils.ColorPaletteUtils;
+import com.lcs.lcspicture.utils.ImageHashUtils;
+import com.lcs.lcspicture.utils.ImageProcessUtils;
+import com.lcs.lcspicture.utils.ImageSampleUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 本地图片处理：原图只解码一次，在图片处理线程池中并行编码、上传压缩图与各尺寸缩略图，
+ * 宽高、格式、平均色、调色板与感知哈希都在本地计算，不依赖对象存储的图片处理结果
+ * <p>
+ * 压缩图优先使用配置的格式（默认 webp），当前环境没有对应编码器时使用 jpg；
+ * 缩略图与压缩图同格式，第一个尺寸命名为 {原图名}_thumbnail，其余尺寸命名为 {原图名}_thumbnail_{尺寸}，
+ * 其余尺寸的对象键记录在图片上；解码前按配置检查像素数，拒绝超大图片
+ */
+@Slf4j
+@Component
+public class LocalPictureProcessor implements PictureProcessor {
+
+    /**
+     * 无法编码为配置格式时使用的压缩图格式
+     */
+    private static final String FALLBACK_FORMAT = "jpg";
+
+    @Resource
+    private ObjectStorage objectStorage;
+
+    @Resource
+    private ObjectDeleteTaskService objectDeleteTaskService;
+
+    @Resource
+    private PictureProcessConfig pictureProcessConfig;
+
+    @Resource
+    private ThreadPoolExecutor pictureProcessExecutor;
+
+    @Override
+    public UploadPictureResult process(String uploadPath, String originFileName, PictureUploadBuffer buffer) throws Exception {
+        // 1.解码原图，只解码一次
+        BufferedImage image;
+        String originFormat;
+        try (InputStream inputStream = buffer.openStream();
+             ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+            Iterator<ImageReader> readers = imageInputStream == null ? null : ImageIO.getImageReaders(imageInputStream);
+            if (readers == null || !readers.hasNext()) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "无法解析图片");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInputStream, true, true);
+                originFormat = reader.getFormatName().toLowerCase();
+                // 解码前按文件头中的宽高检查像素数，解码后的图片每像素占 4 字节
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > pictureProcessConfig.getMaxPixels()) {
+                    throw new BusinessException(ErrorCode.PARAMS_ERROR, "图片像素过大");
+                }
+                image = reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+        // 2.在采样图上计算平均色、调色板与感知哈希
+        BufferedImage sampleImage = ImageProcessUtils.resize(image, ImageSampleUtils.DEFAULT_SAMPLE_SIZE);
+        UploadPictureResult uploadPictureResult = new UploadPictureResult();
+        uploadPictureResult.setPicColor(String.format("0x%06X", ImageProcessUtils.averageColor(sampleImage)));
+        uploadPictureResult.setPicPalette(ColorPaletteUtils.encodePalette(
+                ColorPaletteUtils.extractPalette(sampleImage, ColorPaletteUtils.MAX_PALETTE_SIZE)));
+        uploadPictureResult.setPicHash(ImageHashUtils.pHash(sampleImage));
+        // 3.并行生成并上传原图、压缩图与缩略图
+        String format = ImageProcessUtils.canWrite(pictureProcessConfig.getCompressFormat())
+                ? pictureProcessConfig.getCompressFormat() : FALLBACK_FORMAT;
+        String keyPrefix = uploadPath.substring(0, uploadPath.lastIndexOf('/') + 1) + FileUtil.mainName(uploadPath);
+        String compressKey = keyPrefix + "." + format;
+        List<Integer> thumbnailSizes = pictureProcessConfig.getThumbnailSizes();
+        // 其余尺寸缩略图的对象键，记录在图片上，删除时不依赖当前配置
+        List<String> extraKeys = new ArrayList<>();
+        // 已上传的对象，任意一步失败时全部删除
+        Queue<String> uploadedKeys = new ConcurrentLinkedQueue<>();
+        List<Future<Long>> futureList = new ArrayList<>();
+        try {
+            futureList.add(pictureProcessExecutor.submit(() -> {
+                try (InputStream inputStream = buffer.openStream()) {
+                    objectStorage.putObject(uploadPath, inputStream, buffer.getSize());
+                }
+                uploadedKeys.add(uploadPath);
+                return buffer.getSize();
+            }));
+            futureList.add(pictureProcessExecutor.submit(() -> putRendition(compressKey, image, format, uploadedKeys)));
+            String thumbnailKey = compressKey;
+            for (int i = 0; i < thumbnailSizes.size(); i++) {
+                int size = thumbnailSizes.get(i);
+                String key = keyPrefix + "_thumbnail" + (i == 0 ? "" : "_" + size) + "." + format;
+                if (i == 0) {
+                    thumbnailKey = key;
+                } else {
+                    extraKeys.add(key);
+                }
+                futureList.add(pictureProcessExecutor.submit(() ->
+                        putRendition(key, ImageProcessUtils.resize(image, size), format, uploadedKeys)));
+            }
+            // 压缩图大小作为图片大小，与对象存储处理时一致
+            long compressSize = 0;
+            for (int i = 0; i < futureList.size(); i++) {
+                long size = futureList.get(i).get();
+                if (i == 1) {
+                    compressSize = size;
+                }
+            }
+            // 4.封装图片信息
+            int width = image.getWidth();
+            int height = image.getHeight();
+            uploadPictureResult.setUrl(objectStorage.getUrl(compressKey));
+            uploadPictureResult.setOriginUrl(objectStorage.getUrl(uploadPath));
+            uploadPictureResult.setThumbnailUrl(objectStorage.getUrl(thumbnailKey));
+            uploadPictureResult.setPicName(originFileName);
+            uploadPictureResult.setPicSize(compressSize);
+            uploadPictureResult.setPicWidth(width);
+            uploadPictureResult.setPicHeight(height);
+            uploadPictureResult.setPicScale(NumberUtil.round(width * 1.0 / height, 2).doubleValue());
+            uploadPictureResult.setPicFormat(format);
+            uploadPictureResult.setExtraKeys(String.join(",", extraKeys));
+            log.debug("本地处理图片完成, uploadPath={}, originFormat={}, format={}", uploadPath, originFormat, format);
+            return uploadPictureResult;
+        } catch (Exception e) {
+            // 等待处理中的任务结束，再登记删除已上传的对象
+            for (Future<Long> future : futureList) {
+                try {
+                    future.get();
+                } catch (Exception ignored) {
+                    // 已记录第一个异常
+                }
+            }
+            objectDeleteTaskService.enqueueKeys(uploadedKeys);
+            throw e instanceof ExecutionException && e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * 编码并上传衍生图
+     *
+     * @return 衍生图大小
+     */
+    private long putRendition(String key, BufferedImage image, String format, Queue<String> uploadedKeys) throws Exception {
+        byte[] data = ImageProcessUtils.encode(image, format, pictureProcessConfig.getQuality());
+        objectStorage.putObject(key, new ByteArrayInputStream(data), data.length);
+        uploadedKeys.add(key);
+        return data.length;
+    }
+}
@@ -0,0 +1,222 @@
+package com.lcs.lcspicture.manager.upload;
+
+import cn.hutool.core.util.HexUtil;
+import com.lcs.lcspicture.config.PictureUploadConfig;
+import com.lcs.lcspicture.exception.BusinessException;
+import com.lcs.lcspicture.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 图片上传缓冲池
+ * <p>
+ * 输入流直接读入有界的池化缓冲区，读取的同时完成大小统计、校验与内容哈希（SHA-256）计算；
+ * 缓冲区分两级：常规缓冲区按 bufferSize 分配，长度已知且超过 bufferSize 的输入使用按最大文件大小分配的大缓冲区。
+ * 长度未知且超过常规缓冲区大小，或对应的缓冲池耗尽时，降级为临时文件，不为单次上传分配池外的大数组。
+ * 声明了内容长度时，实际读取的字节数必须与其一致，否则拒绝上传
+ */
+@Slf4j
+@Component
+public class PictureBufferPool {
+
+    @Resource
+    private PictureUploadConfig pictureUploadConfig;
+
+    /**
+     * 常规缓冲区
+     */
+    private BufferTier normalTier;
+
+    /**
+     * 大缓冲区，最大文件大小不超过常规缓冲区大小时为 null
+     */
+    private BufferTier largeTier;
+
+    @PostConstruct
+    public void init() {
+        normalTier = new BufferTier(pictureUploadConfig.getBufferSize(), pictureUploadConfig.getBufferCount());
+        long maxFileSize = pictureUploadConfig.getMaxFileSize();
+        if (maxFileSize > normalTier.size) {
+            largeTier = new BufferTier((int) maxFileSize, pictureUploadConfig.getLargeBufferCount());
+        }
+    }
+
+    /**
+     * 读取输入流到缓冲区
+     *
+     * @param inputStream    输入流
+     * @param contentLength  声明的内容长度，未知时为 -1
+     * @param tempFilePrefix 降级时临时文件的前缀
+     * @return 缓冲区
+     */
+    public PictureUploadBuffer read(InputStream inputStream, long contentLength, String tempFilePrefix) throws IOException {
+        long maxFileSize = pictureUploadConfig.getMaxFileSize();
+        checkSize(contentLength, maxFileSize);
+        MessageDigest digest = newDigest();
+        // 长度已知时按长度选择缓冲区，长度已通过最大文件大小校验，大缓冲区一定能容纳
+        BufferTier tier = contentLength > normalTier.size ? largeTier : normalTier;
+        byte[] buffer = tier.acquire(pictureUploadConfig.getAcquireTimeout());
+        if (buffer == null) {
+            // 缓冲池耗尽，降级为临时文件
+            log.warn("picture buffer pool exhausted, fallback to temp file, bufferSize={}", tier.size);
+            return spillToFile(inputStream, new byte[0], 0, digest, tempFilePrefix, maxFileSize, contentLength);
+        }
+        try {
+            // 长度已知时最多读取声明的长度，多出的内容由长度校验发现
+            int limit = contentLength >= 0 ? (int) contentLength : buffer.length;
+            int length = 0;
+            while (length < limit) {
+                int read = inputStream.read(buffer, length, limit - length);
+                if (read == -1) {
+                    break;
+                }
+                digest.update(buffer, length, read);
+                length += read;
+                checkSize(length, maxFileSize);
+            }
+            if (contentLength < 0 && length == buffer.length) {
+                // 长度未知且超过缓冲区大小，降级为临时文件
+                PictureUploadBuffer fileBuffer = spillToFile(inputStream, buffer, length, digest, tempFilePrefix,
+                        maxFileSize, contentLength);
+                release(buffer);
+                return fileBuffer;
+            }
+            checkContentLength(inputStream, length, contentLength);
+            return PictureUploadBuffer.ofBytes(buffer, length, HexUtil.encodeHexStr(digest.digest()), this);
+        } catch (IOException | RuntimeException e) {
+            release(buffer);
+            throw e;
+        }
+    }
+
+    /**
+     * 归还缓冲区，按大小归还到所属的一级
+     *
+     * @param buffer 缓冲区
+     */
+    void release(byte[] buffer) {
+        if (buffer.length == normalTier.size) {
+            normalTier.idleBuffers.offer(buffer);
+        } else if (largeTier != null && buffer.length == largeTier.size) {
+            largeTier.idleBuffers.offer(buffer);
+        }
+    }
+
+    /**
+     * 将已读取的内容与剩余输入流写入临时文件
+     */
+    private PictureUploadBuffer spillToFile(InputStream inputStream, byte[] head, int headLength, MessageDigest digest,
+                                            String tempFilePrefix, long maxFileSize, long contentLength) throws IOException {
+        File file = File.createTempFile(tempFilePrefix, null);
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(head, 0, headLength);
+            long size = headLength;
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = inputStream.read(chunk)) != -1) {
+                size += read;
+                checkSize(size, maxFileSize);
+                digest.update(chunk, 0, read);
+                outputStream.write(chunk, 0, read);
+            }
+            checkContentLength(inputStream, size, contentLength);
+            return PictureUploadBuffer.ofFile(file, size, HexUtil.encodeHexStr(digest.digest()));
+        } catch (IOException | RuntimeException e) {
+            if (!file.delete()) {
+                log.error("file del error={}", file.getAbsolutePath());
+            }
+            throw e;
+        }
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 校验实际读取的长度与声明的长度一致，读满声明的长度后输入流中不能还有内容
+     *
+     * @param inputStream   输入流
+     * @param length        实际读取的长度
+     * @param contentLength 声明的内容长度，未知时为 -1
+     */
+    private void checkContentLength(InputStream inputStream, long length, long contentLength) throws IOException {
+        if (contentLength >= 0 && (length != contentLength || inputStream.read() != -1)) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件内容与声明的长度不一致");
+        }
+    }
+
+    private void checkSize(long size, long maxFileSize) {
+        if (size > maxFileSize) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR,
+                    String.format("文件大小不能超过%sM", maxFileSize / (1024 * 1024)));
+        }
+    }
+
+    /**
+     * 同一大小的一级缓冲区，按需创建，最多创建 count 个
+     */
+    private static class BufferTier {
+
+        private final int size;
+
+        private final int count;
+
+        private final BlockingQueue<byte[]> idleBuffers;
+
+        /**
+         * 已创建的缓冲区数量
+         */
+        private final AtomicInteger createdCount = new AtomicInteger();
+
+        private BufferTier(int size, int count) {
+            this.size = size;
+            this.count = count;
+            this.idleBuffers = new ArrayBlockingQueue<>(Math.max(1, count));
+        }
+
+        /**
+         * 获取缓冲区，没有空闲缓冲区且已达上限时等待，超时返回 null
+         */
+        private byte[] acquire(long timeoutMillis) {
+            byte[] buffer = idleBuffers.poll();
+            if (buffer != null) {
+                return buffer;
+            }
+            // 未达上限时新建缓冲区
+            while (true) {
+                int created = createdCount.get();
+                if (created >= count) {
+                    break;
+                }
+                if (createdCount.compareAndSet(created, created + 1)) {
+                    return new byte[size];
+                }
+            }
+            try {
+                return idleBuffers.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.lcs.lcspicture.manager.upload;
+
+import lombok.Data;
+
+import java.util.SortedMap;
+
+/**
+ * 分块上传会话，保存在 Redis 中
+ */
+@Data
+public class PictureChunkSession {
+
+    /**
+     * 上传 id
+     */
+    private String uploadId;
+
+    /**
+     * 上传用户 id
+     */
+    private Long userId;
+
+    /**
+     * 空间 id，公共图库为 null
+     */
+    private Long spaceId;
+
+    /**
+     * 对象键
+     */
+    private String objectKey;
+
+    /**
+     * 存储的分块上传 id
+     */
+    private String storageUploadId;
+
+    /**
+     * 原始文件名
+     */
+    private String fileName;
+
+    /**
+     * 文件大小
+     */
+    private Long fileSize;
+
+    /**
+     * 分块大小
+     */
+    private Long chunkSize;
+
+    /**
+     * 分块数量
+     */
+    private Integer partCount;
+
+    /**
+     * 已上传的分块编号到 ETag 的映射
+     */
+    private SortedMap<Integer, String> partETags;
+}
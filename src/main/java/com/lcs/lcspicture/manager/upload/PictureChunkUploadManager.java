@@ -0,0 +1,332 @@
+package com.lcs.lcspicture.manager.upload;
+
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.RandomUtil;
+import cn.hutool.core.util.StrUtil;
+import com.lcs.lcspicture.config.PictureChunkUploadConfig;
+import com.lcs.lcspicture.exception.BusinessException;
+import com.lcs.lcspicture.exception.ErrorCode;
+import com.lcs.lcspicture.exception.ThrowUtils;
+import com.lcs.lcspicture.model.dto.file.UploadPictureResult;
+import com.lcs.lcspicture.model.vo.PictureChunkUploadVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.Resource;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分块上传管理
+ * <p>
+ * 上传会话与已上传分块的 ETag 保存在 Redis 哈希中，不同节点、并发上传的分块各自写入自己的字段；
+ * 客户端断线后通过上传 id 查询已上传的分块，只补传缺失的部分。
+ * <p>
+ * 会话过期后存储中的分块（对象存储未完成的分块上传、本地分块目录）不会自动清理：每个上传按过期时间记录在有序集合中，
+ * 存储的对象键与分块上传 id 另存一份不过期的记录，定时任务取出已过期的上传并取消，多个节点同时清理时由 ZREM 决定归属
+ */
+@Slf4j
+@Component
+public class PictureChunkUploadManager {
+
+    /**
+     * 上传会话 key 前缀
+     */
+    private static final String SESSION_KEY_PREFIX = "picture:chunk:";
+
+    /**
+     * 分块 ETag 字段前缀
+     */
+    private static final String PART_FIELD_PREFIX = "part:";
+
+    /**
+     * 合并中标记字段，防止重复合并
+     */
+    private static final String COMPLETING_FIELD = "completing";
+
+    /**
+     * 上传过期时间有序集合：成员为上传 id，分数为过期时间（毫秒时间戳）
+     */
+    private static final String EXPIRE_KEY = "picture:chunk:expire";
+
+    /**
+     * 上传在存储中的位置：字段为上传 id，值为 对象键\n存储的分块上传 id，会话过期后用于取消
+     */
+    private static final String STORAGE_KEY = "picture:chunk:storage";
+
+    /**
+     * 每次清理取出的过期上传数
+     */
+    private static final int SWEEP_BATCH_SIZE = 100;
+
+    /**
+     * 允许上传的文件后缀
+     */
+    private static final List<String> ALLOW_SUFFIX = Arrays.asList("jpeg", "png", "jpg", "webp");
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private ChunkUploadStorage chunkUploadStorage;
+
+    @Resource
+    private PictureChunkUploadConfig pictureChunkUploadConfig;
+
+    /**
+     * 初始化分块上传
+     *
+     * @param userId           上传用户 id
+     * @param spaceId          空间 id
+     * @param fileName         原始文件名
+     * @param fileSize         文件大小
+     * @param uploadPathPrefix 上传路径前缀
+     * @return 上传进度
+     */
+    public PictureChunkUploadVO init(Long userId, Long spaceId, String fileName, long fileSize, String uploadPathPrefix) {
+        //校验文件
+        ThrowUtils.throwIf(StrUtil.isBlank(fileName), ErrorCode.PARAMS_ERROR, "文件名不能为空");
+        String suffix = FileUtil.getSuffix(fileName);
+        ThrowUtils.throwIf(!ALLOW_SUFFIX.contains(StrUtil.nullToEmpty(suffix).toLowerCase()),
+                ErrorCode.PARAMS_ERROR, "文件格式错误");
+        long maxFileSize = pictureChunkUploadConfig.getMaxFileSize();
+        ThrowUtils.throwIf(fileSize <= 0 || fileSize > maxFileSize, ErrorCode.PARAMS_ERROR,
+                String.format("文件大小不能超过%sM", maxFileSize / (1024 * 1024)));
+        long chunkSize = pictureChunkUploadConfig.getChunkSize();
+        int partCount = (int) ((fileSize + chunkSize - 1) / chunkSize);
+        //在存储中初始化分块上传
+        String objectKey = String.format("/%s/%s_%s.%s", uploadPathPrefix, DateUtil.formatDate(new Date()),
+                RandomUtil.randomString(16), suffix);
+        String storageUploadId = chunkUploadStorage.initiate(objectKey);
+        //保存上传会话
+        String uploadId = IdUtil.fastSimpleUUID();
+        Map<String, String> session = new HashMap<>();
+        session.put("userId", String.valueOf(userId));
+        session.put("spaceId", spaceId == null ? "" : String.valueOf(spaceId));
+        session.put("objectKey", objectKey);
+        session.put("storageUploadId", storageUploadId);
+        session.put("fileName", fileName);
+        session.put("fileSize", String.valueOf(fileSize));
+        session.put("chunkSize", String.valueOf(chunkSize));
+        session.put("partCount", String.valueOf(partCount));
+        String key = getSessionKey(uploadId);
+        //先记录存储位置再保存会话，会话存在时一定能清理
+        stringRedisTemplate.opsForHash().put(STORAGE_KEY, uploadId, objectKey + "\n" + storageUploadId);
+        stringRedisTemplate.opsForHash().putAll(key, session);
+        renew(uploadId);
+        PictureChunkUploadVO pictureChunkUploadVO = new PictureChunkUploadVO();
+        pictureChunkUploadVO.setUploadId(uploadId);
+        pictureChunkUploadVO.setChunkSize(chunkSize);
+        pictureChunkUploadVO.setPartCount(partCount);
+        pictureChunkUploadVO.setUploadedParts(new ArrayList<>());
+        return pictureChunkUploadVO;
+    }
+
+    /**
+     * 获取上传会话，仅上传者本人可以操作
+     *
+     * @param uploadId 上传 id
+     * @param userId   当前用户 id
+     * @return 上传会话
+     */
+    public PictureChunkSession getSession(String uploadId, Long userId) {
+        ThrowUtils.throwIf(StrUtil.isBlank(uploadId), ErrorCode.PARAMS_ERROR, "上传 id 不能为空");
+        HashOperations<String, String, String> hashOperations = stringRedisTemplate.opsForHash();
+        Map<String, String> entries = hashOperations.entries(getSessionKey(uploadId));
+        ThrowUtils.throwIf(entries.isEmpty() || !entries.containsKey("objectKey"), ErrorCode.NOT_FOUND_ERROR,
+                "上传不存在或已过期");
+        ThrowUtils.throwIf(!String.valueOf(userId).equals(entries.get("userId")), ErrorCode.NO_AUTH_ERROR);
+        PictureChunkSession session = new PictureChunkSession();
+        session.setUploadId(uploadId);
+        session.setUserId(userId);
+        String spaceId = entries.get("spaceId");
+        session.setSpaceId(StrUtil.isBlank(spaceId) ? null : Long.valueOf(spaceId));
+        session.setObjectKey(entries.get("objectKey"));
+        session.setStorageUploadId(entries.get("storageUploadId"));
+        session.setFileName(entries.get("fileName"));
+        session.setFileSize(Long.valueOf(entries.get("fileSize")));
+        session.setChunkSize(Long.valueOf(entries.get("chunkSize")));
+        session.setPartCount(Integer.valueOf(entries.get("partCount")));
+        TreeMap<Integer, String> partETags = new TreeMap<>();
+        entries.forEach((field, value) -> {
+            if (field.startsWith(PART_FIELD_PREFIX)) {
+                partETags.put(Integer.valueOf(field.substring(PART_FIELD_PREFIX.length())), value);
+            }
+        });
+        session.setPartETags(partETags);
+        return session;
+    }
+
+    /**
+     * 查询上传进度
+     *
+     * @param uploadId 上传 id
+     * @param userId   当前用户 id
+     * @return 上传进度
+     */
+    public PictureChunkUploadVO getProgress(String uploadId, Long userId) {
+        PictureChunkSession session = getSession(uploadId, userId);
+        PictureChunkUploadVO pictureChunkUploadVO = new PictureChunkUploadVO();
+        pictureChunkUploadVO.setUploadId(uploadId);
+        pictureChunkUploadVO.setChunkSize(session.getChunkSize());
+        pictureChunkUploadVO.setPartCount(session.getPartCount());
+        pictureChunkUploadVO.setUploadedParts(new ArrayList<>(session.getPartETags().keySet()));
+        return pictureChunkUploadVO;
+    }
+
+    /**
+     * 上传分块，分块直接写入存储，不在服务端合并
+     *
+     * @param uploadId      上传 id
+     * @param partNumber    分块编号，从 1 开始
+     * @param multipartFile 分块内容
+     * @param userId        当前用户 id
+     */
+    public void uploadPart(String uploadId, Integer partNumber, MultipartFile multipartFile, Long userId) {
+        PictureChunkSession session = getSession(uploadId, userId);
+        ThrowUtils.throwIf(multipartFile == null, ErrorCode.PARAMS_ERROR, "分块不能为空");
+        ThrowUtils.throwIf(partNumber == null || partNumber < 1 || partNumber > session.getPartCount(),
+                ErrorCode.PARAMS_ERROR, "分块编号错误");
+        //除最后一块外每块大小必须等于分块大小
+        long expectSize = partNumber < session.getPartCount() ? session.getChunkSize()
+                : session.getFileSize() - session.getChunkSize() * (session.getPartCount() - 1);
+        ThrowUtils.throwIf(multipartFile.getSize() != expectSize, ErrorCode.PARAMS_ERROR,
+                String.format("分块大小错误，应为%s字节", expectSize));
+        String eTag;
+        try (InputStream inputStream = multipartFile.getInputStream()) {
+            eTag = chunkUploadStorage.uploadPart(session.getObjectKey(), session.getStorageUploadId(), partNumber,
+                    inputStream, expectSize);
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("上传分块失败, uploadId={}, partNumber={}", uploadId, partNumber, e);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "上传分块失败");
+        }
+        stringRedisTemplate.opsForHash().put(getSessionKey(uploadId), PART_FIELD_PREFIX + partNumber, eTag);
+        renew(uploadId);
+    }
+
+    /**
+     * 合并分块，同一上传同时只允许一次合并；合并失败时可以重试
+     *
+     * @param session 上传会话
+     * @return 上传结果
+     */
+    public UploadPictureResult complete(PictureChunkSession session) {
+        ThrowUtils.throwIf(session.getPartETags().size() != session.getPartCount(), ErrorCode.PARAMS_ERROR,
+                String.format("还有%s个分块未上传", session.getPartCount() - session.getPartETags().size()));
+        String key = getSessionKey(session.getUploadId());
+        Boolean locked = stringRedisTemplate.opsForHash().putIfAbsent(key, COMPLETING_FIELD, "1");
+        ThrowUtils.throwIf(!Boolean.TRUE.equals(locked), ErrorCode.OPERATION_ERROR, "正在合并，请勿重复提交");
+        //合并期间会话不会过期被清理
+        renew(session.getUploadId());
+        try {
+            return chunkUploadStorage.complete(session.getObjectKey(), session.getStorageUploadId(),
+                    session.getPartETags(), session.getFileSize(), session.getFileName());
+        } catch (BusinessException e) {
+            stringRedisTemplate.opsForHash().delete(key, COMPLETING_FIELD);
+            throw e;
+        } catch (Exception e) {
+            log.error("合并分块失败, uploadId={}", session.getUploadId(), e);
+            stringRedisTemplate.opsForHash().delete(key, COMPLETING_FIELD);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "合并分块失败");
+        }
+    }
+
+    /**
+     * 取消上传，清理存储中已上传的分块
+     *
+     * @param uploadId 上传 id
+     * @param userId   当前用户 id
+     */
+    public void abort(String uploadId, Long userId) {
+        PictureChunkSession session = getSession(uploadId, userId);
+        chunkUploadStorage.abort(session.getObjectKey(), session.getStorageUploadId());
+        remove(uploadId);
+    }
+
+    /**
+     * 删除上传会话，存储中的分块已合并或已取消
+     *
+     * @param uploadId 上传 id
+     */
+    public void remove(String uploadId) {
+        stringRedisTemplate.delete(getSessionKey(uploadId));
+        stringRedisTemplate.opsForZSet().remove(EXPIRE_KEY, uploadId);
+        stringRedisTemplate.opsForHash().delete(STORAGE_KEY, uploadId);
+    }
+
+    /**
+     * 定时取消已过期的上传，清理存储中已上传的分块
+     * <p>
+     * 会话仍存在（期间续期过）时按剩余时间重新登记；取消失败时重新登记，下次重试
+     */
+    @Scheduled(initialDelayString = "${picture.chunk.sweep-interval:600000}",
+            fixedDelayString = "${picture.chunk.sweep-interval:600000}")
+    public void sweepExpired() {
+        Set<String> uploadIdSet;
+        do {
+            uploadIdSet = stringRedisTemplate.opsForZSet().rangeByScore(EXPIRE_KEY, 0, System.currentTimeMillis(),
+                    0, SWEEP_BATCH_SIZE);
+            if (uploadIdSet == null || uploadIdSet.isEmpty()) {
+                return;
+            }
+            for (String uploadId : uploadIdSet) {
+                Long removed = stringRedisTemplate.opsForZSet().remove(EXPIRE_KEY, uploadId);
+                if (removed != null && removed > 0) {
+                    sweep(uploadId);
+                }
+            }
+        } while (uploadIdSet.size() == SWEEP_BATCH_SIZE);
+    }
+
+    private void sweep(String uploadId) {
+        Long ttl = stringRedisTemplate.getExpire(getSessionKey(uploadId), TimeUnit.MILLISECONDS);
+        if (ttl != null && ttl > 0) {
+            stringRedisTemplate.opsForZSet().add(EXPIRE_KEY, uploadId, System.currentTimeMillis() + ttl);
+            return;
+        }
+        Object location = stringRedisTemplate.opsForHash().get(STORAGE_KEY, uploadId);
+        if (location != null) {
+            String[] parts = location.toString().split("\n", 2);
+            try {
+                chunkUploadStorage.abort(parts[0], parts[1]);
+            } catch (Exception e) {
+                log.warn("取消过期分块上传失败，稍后重试, uploadId={}", uploadId, e);
+                stringRedisTemplate.opsForZSet().add(EXPIRE_KEY, uploadId,
+                        System.currentTimeMillis() + pictureChunkUploadConfig.getSweepInterval());
+                return;
+            }
+            log.info("已取消过期分块上传, uploadId={}, objectKey={}", uploadId, parts[0]);
+        }
+        stringRedisTemplate.opsForHash().delete(STORAGE_KEY, uploadId);
+    }
+
+    /**
+     * 会话续期，并同步更新过期时间
+     */
+    private void renew(String uploadId) {
+        long expireSeconds = pictureChunkUploadConfig.getExpireSeconds();
+        stringRedisTemplate.expire(getSessionKey(uploadId), expireSeconds, TimeUnit.SECONDS);
+        stringRedisTemplate.opsForZSet().add(EXPIRE_KEY, uploadId,
+                System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(expireSeconds));
+    }
+
+    private String getSessionKey(String uploadId) {
+        return SESSION_KEY_PREFIX + uploadId;
+    }
+}
@@ -0,0 +1,19 @@
+package com.lcs.lcspicture.manager.upload;
+
+import com.lcs.lcspicture.model.dto.file.UploadPictureResult;
+
+/**
+ * 图片处理器：保存原图并生成压缩图、缩略图等衍生图，解析图片信息
+ */
+public interface PictureProcessor {
+
+    /**
+     * 处理并保存图片
+     *
+     * @param uploadPath     原图上传路径
+     * @param originFileName 原始文件名
+     * @param buffer         图片内容
+     * @return 上传结果（不含内容哈希）
+     */
+    UploadPictureResult process(String uploadPath, String originFileName, PictureUploadBuffer buffer) throws Exception;
+}
@@ -0,0 +1,24 @@
+package com.lcs.lcspicture.manager.upload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.InputStream;
+
+/**
+ * 图片输入流
+ */
+@Data
+@AllArgsConstructor
+public class PictureStream {
+
+    /**
+     * 输入流
+     */
+    private InputStream inputStream;
+
+    /**
+     * 内容长度，未知时为 -1
+     */
+    private long contentLength;
+}
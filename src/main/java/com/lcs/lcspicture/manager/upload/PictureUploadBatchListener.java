@@ -0,0 +1,35 @@
+package com.lcs.lcspicture.manager.upload;
+
+import com.lcs.lcspicture.model.vo.PictureUploadBatchItemVO;
+
+import java.util.List;
+
+/**
+ * 批量上传过程监听器
+ */
+public interface PictureUploadBatchListener {
+
+    /**
+     * 是否已取消，抓取地址时每翻一页、处理图片时每提交一张都会调用；取消后不再处理新的图片，已在处理中的图片仍会完成
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+
+    /**
+     * 单张图片处理完成：处理或入库失败时直接回调，入库成功时由 {@link #onItemsSaved} 默认逐张回调
+     *
+     * @param item 处理结果
+     */
+    default void onItemFinished(PictureUploadBatchItemVO item) {
+    }
+
+    /**
+     * 一批图片入库，在入库事务中调用；抛出异常时整批回滚，已上传的对象会被清理
+     *
+     * @param itemList 本批入库的图片处理结果
+     */
+    default void onItemsSaved(List<PictureUploadBatchItemVO> itemList) {
+        itemList.forEach(this::onItemFinished);
+    }
+}
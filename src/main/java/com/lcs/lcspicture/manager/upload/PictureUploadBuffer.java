@@ -0,0 +1,110 @@
+package com.lcs.lcspicture.manager.upload;
+
+import cn.hutool.core.io.FileUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 图片上传缓冲区
+ * <p>
+ * 图片内容要么在内存字节数组中，要么在降级后的临时文件中，用完后必须关闭以归还缓冲区或删除临时文件
+ */
+@Slf4j
+public class PictureUploadBuffer implements Closeable {
+
+    /**
+     * 内存中的图片内容
+     */
+    private byte[] data;
+
+    /**
+     * 降级后的临时文件
+     */
+    private final File file;
+
+    /**
+     * 图片大小
+     */
+    private final long size;
+
+    /**
+     * 内容哈希（SHA-256 十六进制）
+     */
+    private final String contentHash;
+
+    /**
+     * 所属缓冲池，非池化缓冲区为 null
+     */
+    private final PictureBufferPool pool;
+
+    private PictureUploadBuffer(byte[] data, File file, long size, String contentHash, PictureBufferPool pool) {
+        this.data = data;
+        this.file = file;
+        this.size = size;
+        this.contentHash = contentHash;
+        this.pool = pool;
+    }
+
+    static PictureUploadBuffer ofBytes(byte[] data, int length, String contentHash, PictureBufferPool pool) {
+        return new PictureUploadBuffer(data, null, length, contentHash, pool);
+    }
+
+    static PictureUploadBuffer ofFile(File file, long size, String contentHash) {
+        return new PictureUploadBuffer(null, file, size, contentHash, null);
+    }
+
+    /**
+     * 图片大小
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * 内容哈希（SHA-256 十六进制）
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * 是否已降级为临时文件
+     */
+    public boolean isFileBacked() {
+        return file != null;
+    }
+
+    /**
+     * 打开一个新的输入流，可多次调用
+     */
+    public InputStream openStream() throws IOException {
+        if (file != null) {
+            return new FileInputStream(file);
+        }
+        return new ByteArrayInputStream(data, 0, (int) size);
+    }
+
+    /**
+     * 归还缓冲区或删除临时文件
+     */
+    @Override
+    public void close() {
+        if (file != null) {
+            boolean del = FileUtil.del(file);
+            if (!del) {
+                log.error("file del error={}", file.getAbsolutePath());
+            }
+            return;
+        }
+        if (data != null && pool != null) {
+            pool.release(data);
+        }
+        data = null;
+    }
+}
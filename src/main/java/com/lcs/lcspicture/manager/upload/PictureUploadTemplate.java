@@ -1,40 +1,43 @@
 package com.lcs.lcspicture.manager.upload;
 
-import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.io.FileUtil;
-import cn.hutool.core.util.NumberUtil;
-import cn.hutool.core.util.ObjUtil;
 import cn.hutool.core.util.RandomUtil;
-import com.lcs.lcspicture.config.CosClientConfig;
+import com.lcs.lcspicture.config.PictureProcessConfig;
+import com.lcs.lcspicture.config.StorageConfig;
 import com.lcs.lcspicture.exception.BusinessException;
 import com.lcs.lcspicture.exception.ErrorCode;
-import com.lcs.lcspicture.manager.CosManager;
 import com.lcs.lcspicture.model.dto.file.UploadPictureResult;
-import com.qcloud.cos.model.PutObjectResult;
-import com.qcloud.cos.model.ciModel.persistence.CIObject;
-import com.qcloud.cos.model.ciModel.persistence.ImageInfo;
-import com.qcloud.cos.model.ciModel.persistence.ProcessResults;
+import com.lcs.lcspicture.model.entity.Picture;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.annotation.Resource;
-import java.io.File;
-import java.io.IOException;
-import java.util.Arrays;
+import java.io.InputStream;
 import java.util.Date;
-import java.util.List;
+import java.util.function.Function;
 
 @Slf4j
 public abstract class PictureUploadTemplate {
     @Resource
-    private CosManager cosManager;
+    private PictureBufferPool pictureBufferPool;
     @Resource
-    private CosClientConfig cosClientConfig;
+    private CosPictureProcessor cosPictureProcessor;
+    @Resource
+    private LocalPictureProcessor localPictureProcessor;
+    @Resource
+    private PictureProcessConfig pictureProcessConfig;
+    @Resource
+    private StorageConfig storageConfig;
 
     /**
      * 定义模版方法
+     *
+     * @param inputSource      输入源
+     * @param uploadFilePrefix   上传路径前缀
+     * @param existPictureLookup 按内容哈希查询可复用对象的已存在图片，由调用方限定查询范围（如同一空间），为 null 时不复用
      */
-    public final UploadPictureResult uploadPicture(Object inputSource, String uploadFilePrefix) {
+    public final UploadPictureResult uploadPicture(Object inputSource, String uploadFilePrefix,
+                                                   Function<String, Picture> existPictureLookup) {
         // 1.文件校验
         validPicture(inputSource);
         // 2.获取上传地址
@@ -43,77 +46,100 @@ public abstract class PictureUploadTemplate {
         String uploadFileName = String.format("%s_%s.%s", DateUtil.formatDate(new Date()),
                 uuid, FileUtil.getSuffix(originFileName));
         String uploadPath = String.format("/%s/%s", uploadFilePrefix, uploadFileName);
-        // 3.获取本地文件
-        File file = null;
+        // 3.读取输入源到缓冲区，读取的同时完成大小统计、校验与内容哈希计算
+        PictureUploadBuffer buffer = null;
         try {
-            // 创建临时文件
-            file = File.createTempFile(uploadFileName, null);
-            // 处理文件来源
-            processFile(inputSource, file);
-            // 4.上传到对象存储
-            PutObjectResult putObjectResult = cosManager.putPictureObject(uploadPath, file);
-            ImageInfo imageInfo = putObjectResult.getCiUploadResult().getOriginalInfo().getImageInfo();
-            // 获取到图片处理结果
-            ProcessResults processResults = putObjectResult.getCiUploadResult().getProcessResults();
-            // 获得处理转换后的所有图片信息
-            List<CIObject> objectList = processResults.getObjectList();
-            if (CollUtil.isNotEmpty(objectList)) {
-                // 获取压缩之后的文件信息
-                CIObject ciObject = objectList.get(0);
-                // 缩略图默认就等于压缩图
-                CIObject thumbnail = ciObject;
-                if (objectList.size() > 1 && ObjUtil.isNotEmpty(objectList.get(1))) {
-                    thumbnail = objectList.get(1);
-                }
-                // 5.封装解析得到的图片信息
-                return buildResult(uploadPath, originFileName, ciObject, thumbnail, imageInfo);
+            buffer = readToBuffer(inputSource, uploadFileName);
+            // 内容相同的图片已存在时直接复用其对象，不再重复上传
+            Picture existPicture = existPictureLookup == null || buffer.getContentHash() == null ? null
+                    : existPictureLookup.apply(buffer.getContentHash());
+            if (existPicture != null) {
+                log.info("图片内容已存在，复用对象, contentHash={}, pictureId={}", buffer.getContentHash(), existPicture.getId());
+                return buildResult(originFileName, existPicture);
             }
-            // 5.封装解析得到的图片信息
-            return buildResult(originFileName, file, uploadPath, imageInfo);
+            // 4.上传原图并生成衍生图，5.封装解析得到的图片信息
+            UploadPictureResult uploadPictureResult = getPictureProcessor().process(uploadPath, originFileName, buffer);
+            uploadPictureResult.setContentHash(buffer.getContentHash());
+            return uploadPictureResult;
         } catch (Exception e) {
             log.error("图片上传失败, inputSource={}", inputSource, e);
             throw new BusinessException(ErrorCode.OPERATION_ERROR, "图片上传失败: " + e.getMessage());
         } finally {
-            // 6.删除临时文件
-            deleteTempFile(file);
+            // 6.归还缓冲区或删除临时文件
+            if (buffer != null) {
+                buffer.close();
+            }
         }
     }
 
     /**
-     * 构建上传结果
+     * 校验输入源，多文件上传时在上传前统一校验所有文件
+     *
+     * @param inputSource 输入源
+     */
+    public final void checkPicture(Object inputSource) {
+        validPicture(inputSource);
+    }
+
+    /**
+     * 按配置选择图片处理器，使用本地磁盘存储时没有数据万象，只能本地处理
+     */
+    private PictureProcessor getPictureProcessor() {
+        if ("local".equals(pictureProcessConfig.getEngine()) || "local".equals(storageConfig.getType())) {
+            return localPictureProcessor;
+        }
+        return cosPictureProcessor;
+    }
+
+    /**
+     * 读取输入源到缓冲区
+     *
+     * @param inputSource    输入源
+     * @param uploadFileName 上传文件名，降级为临时文件时作为前缀
+     * @return 缓冲区
+     */
+    private PictureUploadBuffer readToBuffer(Object inputSource, String uploadFileName) throws Exception {
+        PictureStream pictureStream = openPictureStream(inputSource);
+        try (InputStream inputStream = pictureStream.getInputStream()) {
+            return pictureBufferPool.read(inputStream, pictureStream.getContentLength(), uploadFileName);
+        }
+    }
+
+    /**
+     * 根据已存在的图片构建上传结果，复用其对象地址与图片信息
      *
      * @param originFileName 原始文件名
-     * @param ciObject       压缩后的文件信息
-     * @return
+     * @param existPicture   内容相同的已存在图片
+     * @return 上传结果
      */
-    private UploadPictureResult buildResult(String uploadPath, String originFileName, CIObject ciObject,
-            CIObject thumbnail, ImageInfo imageInfo) {
+    private UploadPictureResult buildResult(String originFileName, Picture existPicture) {
         UploadPictureResult uploadPictureResult = new UploadPictureResult();
-        Integer width = ciObject.getWidth();
-        Integer height = ciObject.getHeight();
-        double picScale = NumberUtil.round(width * 1.0 / height, 2).doubleValue();
-        uploadPictureResult.setUrl(cosClientConfig.getHost() + "/" + ciObject.getKey());
-        uploadPictureResult.setOriginUrl(cosClientConfig.getHost() + "/" + uploadPath);
+        uploadPictureResult.setOriginUrl(existPicture.getOriginUrl());
+        uploadPictureResult.setUrl(existPicture.getUrl());
+        uploadPictureResult.setThumbnailUrl(existPicture.getThumbnailUrl());
         uploadPictureResult.setPicName(originFileName);
-        uploadPictureResult.setPicColor(imageInfo.getAve());
-        uploadPictureResult.setPicSize(ciObject.getSize().longValue());
-        uploadPictureResult.setPicWidth(ciObject.getWidth());
-        uploadPictureResult.setPicHeight(ciObject.getHeight());
-        uploadPictureResult.setPicScale(picScale);
-        uploadPictureResult.setPicFormat(ciObject.getFormat());
-        // 缩略图
-        uploadPictureResult.setThumbnailUrl(cosClientConfig.getHost() + "/" + thumbnail.getKey());
+        uploadPictureResult.setPicColor(existPicture.getPicColor());
+        uploadPictureResult.setPicSize(existPicture.getPicSize());
+        uploadPictureResult.setPicWidth(existPicture.getPicWidth() == null ? 0 : existPicture.getPicWidth());
+        uploadPictureResult.setPicHeight(existPicture.getPicHeight() == null ? 0 : existPicture.getPicHeight());
+        uploadPictureResult.setPicScale(existPicture.getPicScale());
+        uploadPictureResult.setPicFormat(existPicture.getPicFormat());
+        uploadPictureResult.setContentHash(existPicture.getContentHash());
+        uploadPictureResult.setPicPalette(existPicture.getPicPalette());
+        uploadPictureResult.setPicHash(existPicture.getPicHash());
+        uploadPictureResult.setExtraKeys(existPicture.getExtraKeys());
+        uploadPictureResult.setObjectReused(true);
         return uploadPictureResult;
     }
 
     /**
-     * 处理输入源并生成本地文件
+     * 打开输入源的输入流
      *
      * @param inputSource 输入源
-     * @param file        文件
-     * @throws IOException 输入源处理异常
+     * @return 输入流及其内容长度
+     * @throws Exception 输入源处理异常
      */
-    protected abstract void processFile(Object inputSource, File file) throws Exception;
+    protected abstract PictureStream openPictureStream(Object inputSource) throws Exception;
 
     /**
      * 获取原始文件名
@@ -130,44 +156,4 @@ public abstract class PictureUploadTemplate {
      */
     protected abstract void validPicture(Object inputSource);
 
-    /**
-     * 构建上传结果
-     *
-     * @param originFileName 原始文件名
-     * @param file           文件
-     * @param uploadPath     上传路径
-     * @param imageInfo      图片信息
-     * @return 上传结果
-     */
-    private UploadPictureResult buildResult(String originFileName, File file, String uploadPath, ImageInfo imageInfo) {
-        UploadPictureResult uploadPictureResult = new UploadPictureResult();
-        int width = imageInfo.getWidth();
-        int height = imageInfo.getHeight();
-        double picScale = NumberUtil.round(width * 1.0 / height, 2).doubleValue();
-        uploadPictureResult.setUrl(cosClientConfig.getHost() + "/" + uploadPath);
-        uploadPictureResult.setPicName(originFileName);
-        uploadPictureResult.setPicColor(imageInfo.getAve());
-        uploadPictureResult.setPicSize(FileUtil.size(file));
-        uploadPictureResult.setPicWidth(imageInfo.getWidth());
-        uploadPictureResult.setPicHeight(imageInfo.getHeight());
-        uploadPictureResult.setPicScale(picScale);
-        uploadPictureResult.setPicFormat(imageInfo.getFormat());
-        return uploadPictureResult;
-    }
-
-    /**
-     * 删除临时文件
-     *
-     * @param file 文件
-     */
-    private void deleteTempFile(File file) {
-        if (file == null) {
-            return;
-        }
-        boolean del = FileUtil.del(file);
-        if (!del) {
-            log.error("file del error={}", file.getAbsolutePath());
-        }
-    }
-
 }
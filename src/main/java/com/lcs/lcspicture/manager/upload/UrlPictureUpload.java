@@ -4,13 +4,14 @@ import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.http.HttpResponse;
 import cn.hutool.http.HttpUtil;
-import cn.hutool.http.Method;
 import com.lcs.lcspicture.exception.BusinessException;
 import com.lcs.lcspicture.exception.ErrorCode;
 import com.lcs.lcspicture.exception.ThrowUtils;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Arrays;
@@ -19,11 +20,41 @@ import java.util.List;
 @Service
 public class UrlPictureUpload extends PictureUploadTemplate {
 
+    /**
+     * 允许上传的文件格式
+     */
+    private static final List<String> ALLOW_TYPES = Arrays.asList("image/jpeg", "image/png", "image/jpg", "image/webp");
+
     @Override
-    protected void processFile(Object inputSource, File file) throws Exception {
+    protected PictureStream openPictureStream(Object inputSource) throws Exception {
         String fileUrl = (String) inputSource;
-        // 下载文件到临时目录
-        HttpUtil.downloadFile(fileUrl, file);
+        // 只发送一次 GET 请求，直接读取响应流，不再下载到临时目录
+        HttpResponse response = HttpUtil.createGet(fileUrl, true).executeAsync();
+        try {
+            ThrowUtils.throwIf(!response.isOk(), ErrorCode.OPERATION_ERROR, "文件下载失败");
+            // 响应头的类型不为空时才校验，这样校验规则相对宽松
+            String contentType = response.header("Content-Type");
+            if (StrUtil.isNotBlank(contentType)) {
+                String mimeType = StrUtil.subBefore(contentType, ";", false).trim().toLowerCase();
+                ThrowUtils.throwIf(!ALLOW_TYPES.contains(mimeType), ErrorCode.PARAMS_ERROR, "文件类型不支持");
+            }
+        } catch (RuntimeException e) {
+            response.close();
+            throw e;
+        }
+        // 关闭输入流时一并释放连接
+        InputStream inputStream = new FilterInputStream(response.bodyStream()) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    response.close();
+                }
+            }
+        };
+        // 压缩或分块传输的响应中 Content-Length 与解码后读到的字节数不一致，按长度未知处理，以实际读取的字节数校验大小
+        return new PictureStream(inputStream, -1);
     }
 
     @Override
@@ -46,44 +77,5 @@ public class UrlPictureUpload extends PictureUploadTemplate {
         } catch (MalformedURLException e) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR);
         }
-        // 发送HEAD请求验证文件是否存在
-        HttpResponse response = null;
-        try {
-            response = HttpUtil.createRequest(Method.HEAD, fileUrl).execute();
-            // 未正常返回，无需执行其他判断
-            if (!response.isOk()) {
-                return;
-            }
-            // 文件存在 验证文件格式
-            String contentType = response.header("Content-Type");
-            // 不为空，才校验是否合法，这样校验规则相对宽松
-            if (StrUtil.isNotBlank(contentType)) {
-                // 允许上传的文件格式
-                final List<String> ALLOW_TYPES = Arrays.asList("image/jpeg", "image/png", "image/jpg", "image/webp");
-                ThrowUtils.throwIf(!ALLOW_TYPES.contains(contentType.toLowerCase()),
-                        ErrorCode.PARAMS_ERROR, "文件类型不支持");
-            }
-            // 文件存在验证文件大小
-            String contentLengthStr = response.header("Content-Length");
-            if (StrUtil.isNotBlank(contentLengthStr)) {
-                try {
-                    long parseLong = Long.parseLong(contentLengthStr);
-                    // 允许最大文件大小
-                    final long ONE_MB = 1024 * 1024;
-                    ThrowUtils.throwIf(parseLong > 2 * ONE_MB, ErrorCode.PARAMS_ERROR, "文件大小不能超过2M");
-                } catch (NumberFormatException e) {
-                    throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件大小错误");
-                }
-            }
-        } catch (Exception e) {
-            throw new BusinessException(ErrorCode.PARAMS_ERROR);
-        } finally {
-            // 关闭response释放资源
-            if (response != null) {
-                response.close();
-            }
-
-        }
-
     }
 }
@@ -0,0 +1,28 @@
+package com.lcs.lcspicture.mapper;
+
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * @author lcs
+ * @description 针对表【lock_fence(分布式锁令牌)】的数据库操作Mapper
+ */
+public interface LockFenceMapper {
+
+    /**
+     * 将锁的令牌推进到更大的值，令牌不大于已记录的值时不更新
+     *
+     * @param name  锁名称
+     * @param token 令牌
+     * @return 更新行数
+     */
+    int advance(@Param("name") String name, @Param("token") long token);
+
+    /**
+     * 首次使用该锁时写入令牌，记录已存在时忽略
+     *
+     * @param name  锁名称
+     * @param token 令牌
+     * @return 写入行数
+     */
+    int insertIgnore(@Param("name") String name, @Param("token") long token);
+}
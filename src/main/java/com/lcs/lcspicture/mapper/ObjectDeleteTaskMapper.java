@@ -0,0 +1,13 @@
+package com.lcs.lcspicture.mapper;
+
+import com.lcs.lcspicture.model.entity.ObjectDeleteTask;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+/**
+ * @author lcs
+ * @description 针对表【object_delete_task(对象删除任务)】的数据库操作Mapper
+ * @Entity com.lcs.lcspicture.model.entity.ObjectDeleteTask
+ */
+public interface ObjectDeleteTaskMapper extends BaseMapper<ObjectDeleteTask> {
+
+}
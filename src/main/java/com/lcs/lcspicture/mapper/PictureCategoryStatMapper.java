@@ -0,0 +1,53 @@
+package com.lcs.lcspicture.mapper;
+
+import com.lcs.lcspicture.model.entity.PictureCategoryStat;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author lcs
+ * @description 针对表【picture_category_stat(图片分类日统计)】的数据库操作Mapper
+ * @Entity com.lcs.lcspicture.model.entity.PictureCategoryStat
+ */
+public interface PictureCategoryStatMapper extends BaseMapper<PictureCategoryStat> {
+
+    /**
+     * 增量更新统计，不存在时插入；统计日期由数据库按 createTime 计算，与对账时按 DATE(createTime) 分组一致
+     *
+     * @param spaceId    空间 id（0 表示公共图库）
+     * @param createTime 图片创建时间
+     * @param category   分类
+     * @param countDelta 图片数量变化
+     * @param sizeDelta  图片大小变化
+     */
+    int upsertDelta(@Param("spaceId") long spaceId, @Param("createTime") Date createTime, @Param("category") String category,
+                    @Param("countDelta") long countDelta, @Param("sizeDelta") long sizeDelta);
+
+    /**
+     * 按统计日期写回对账修正，不存在时插入
+     *
+     * @param spaceId    空间 id（0 表示公共图库）
+     * @param statDate   统计日期
+     * @param category   分类
+     * @param countDelta 图片数量变化
+     * @param sizeDelta  图片大小变化
+     */
+    int upsertDrift(@Param("spaceId") long spaceId, @Param("statDate") LocalDate statDate, @Param("category") String category,
+                    @Param("countDelta") long countDelta, @Param("sizeDelta") long sizeDelta);
+
+    /**
+     * 按图片表统计，不加锁
+     *
+     * @return 统计结果，不含 id
+     */
+    List<PictureCategoryStat> listFromPicture();
+
+    /**
+     * 删除数量与大小都为 0 的统计
+     */
+    int deleteEmpty();
+}
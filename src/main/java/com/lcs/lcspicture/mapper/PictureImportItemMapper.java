@@ -0,0 +1,13 @@
+package com.lcs.lcspicture.mapper;
+
+import com.lcs.lcspicture.model.entity.PictureImportItem;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+/**
+ * @author lcs
+ * @description 针对表【picture_import_item(图片导入明细)】的数据库操作Mapper
+ * @Entity com.lcs.lcspicture.model.entity.PictureImportItem
+ */
+public interface PictureImportItemMapper extends BaseMapper<PictureImportItem> {
+
+}
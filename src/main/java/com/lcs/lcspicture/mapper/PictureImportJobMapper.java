@@ -0,0 +1,13 @@
+package com.lcs.lcspicture.mapper;
+
+import com.lcs.lcspicture.model.entity.PictureImportJob;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+/**
+ * @author lcs
+ * @description 针对表【picture_import_job(图片导入任务)】的数据库操作Mapper
+ * @Entity com.lcs.lcspicture.model.entity.PictureImportJob
+ */
+public interface PictureImportJobMapper extends BaseMapper<PictureImportJob> {
+
+}
@@ -1,7 +1,11 @@
 package com.lcs.lcspicture.mapper;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
 import com.lcs.lcspicture.model.entity.Picture;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 /**
  * @author lcs
@@ -11,6 +15,13 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
  */
 public interface PictureMapper extends BaseMapper<Picture> {
 
+    /**
+     * 流式读取图片标签，逐行交给 resultHandler 处理，不在内存中保留结果集
+     *
+     * @param queryWrapper  查询条件
+     * @param resultHandler 行处理器
+     */
+    void streamTags(@Param(Constants.WRAPPER) Wrapper<Picture> queryWrapper, ResultHandler<String> resultHandler);
 }
 
 
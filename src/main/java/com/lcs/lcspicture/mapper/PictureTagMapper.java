@@ -0,0 +1,13 @@
+package com.lcs.lcspicture.mapper;
+
+import com.lcs.lcspicture.model.entity.PictureTag;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+/**
+ * @author lcs
+ * @description 针对表【picture_tag(图片标签关联)】的数据库操作Mapper
+ * @Entity com.lcs.lcspicture.model.entity.PictureTag
+ */
+public interface PictureTagMapper extends BaseMapper<PictureTag> {
+
+}
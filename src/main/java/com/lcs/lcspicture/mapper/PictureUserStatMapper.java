@@ -0,0 +1,51 @@
+package com.lcs.lcspicture.mapper;
+
+import com.lcs.lcspicture.model.entity.PictureUserStat;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author lcs
+ * @description 针对表【picture_user_stat(图片用户日统计)】的数据库操作Mapper
+ * @Entity com.lcs.lcspicture.model.entity.PictureUserStat
+ */
+public interface PictureUserStatMapper extends BaseMapper<PictureUserStat> {
+
+    /**
+     * 增量更新统计，不存在时插入；统计日期由数据库按 createTime 计算，与对账时按 DATE(createTime) 分组一致
+     *
+     * @param spaceId    空间 id（0 表示公共图库）
+     * @param createTime 图片创建时间
+     * @param userId     用户 id
+     * @param countDelta 图片数量变化
+     */
+    int upsertDelta(@Param("spaceId") long spaceId, @Param("createTime") Date createTime, @Param("userId") Long userId,
+                    @Param("countDelta") long countDelta);
+
+    /**
+     * 按统计日期写回对账修正，不存在时插入
+     *
+     * @param spaceId    空间 id（0 表示公共图库）
+     * @param statDate   统计日期
+     * @param userId     用户 id
+     * @param countDelta 图片数量变化
+     */
+    int upsertDrift(@Param("spaceId") long spaceId, @Param("statDate") LocalDate statDate, @Param("userId") Long userId,
+                    @Param("countDelta") long countDelta);
+
+    /**
+     * 按图片表统计，不加锁
+     *
+     * @return 统计结果，不含 id
+     */
+    List<PictureUserStat> listFromPicture();
+
+    /**
+     * 删除数量为 0 的统计
+     */
+    int deleteEmpty();
+}
@@ -1,7 +1,11 @@
 package com.lcs.lcspicture.mapper;
 
+import com.lcs.lcspicture.model.dto.space.SpaceUsageDrift;
 import com.lcs.lcspicture.model.entity.Space;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
  * @author lcs
@@ -11,6 +15,30 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
  */
 public interface SpaceMapper extends BaseMapper<Space> {
 
+    /**
+     * 增量更新空间已用额度
+     *
+     * @param spaceId    空间 id
+     * @param countDelta 图片数量变化
+     * @param sizeDelta  图片大小变化
+     */
+    int addUsage(@Param("spaceId") long spaceId, @Param("countDelta") long countDelta, @Param("sizeDelta") long sizeDelta);
+
+    /**
+     * 按 id 顺序分批查询空间的已用额度记录值与按图片表统计的实际值
+     *
+     * @param minId 上一批最后一个空间 id，不包含
+     * @param limit 每批数量
+     * @return 记录值与按图片表统计的实际值
+     */
+    List<SpaceUsageDrift> listUsage(@Param("minId") long minId, @Param("limit") int limit);
+
+    /**
+     * 修正空间已用额度，记录值在查询后发生变化时不更新
+     *
+     * @param drift 不一致的空间
+     */
+    int fixUsage(@Param("drift") SpaceUsageDrift drift);
 }
 
 
@@ -52,4 +52,29 @@ public class UploadPictureResult {
      */
     private String picColor;
 
+    /**
+     * 图片主色调调色板，每个颜色 6 位十六进制依次拼接
+     */
+    private String picPalette;
+
+    /**
+     * 图片感知哈希（pHash）
+     */
+    private Long picHash;
+
+    /**
+     * 图片内容哈希（SHA-256）
+     */
+    private String contentHash;
+
+    /**
+     * 是否复用了内容相同的已存在图片的对象
+     */
+    private Boolean objectReused;
+
+    /**
+     * 本地处理时生成的其余对象键（其余尺寸的缩略图），逗号分隔，删除图片时一并删除
+     */
+    private String extraKeys;
+
 }
@@ -0,0 +1,19 @@
+package com.lcs.lcspicture.model.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 取消分块上传请求
+ */
+@Data
+public class PictureChunkAbortRequest implements Serializable {
+
+    /**
+     * 上传 id
+     */
+    private String uploadId;
+
+    private static final long serialVersionUID = 1L;
+}
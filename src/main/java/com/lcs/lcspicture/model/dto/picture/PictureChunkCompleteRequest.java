@@ -0,0 +1,24 @@
+package com.lcs.lcspicture.model.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 完成分块上传请求
+ */
+@Data
+public class PictureChunkCompleteRequest implements Serializable {
+
+    /**
+     * 上传 id
+     */
+    private String uploadId;
+
+    /**
+     * 图片名称，为空时使用原始文件名
+     */
+    private String prefixName;
+
+    private static final long serialVersionUID = 1L;
+}
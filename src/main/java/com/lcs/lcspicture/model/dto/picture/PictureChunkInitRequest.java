@@ -0,0 +1,29 @@
+package com.lcs.lcspicture.model.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 初始化分块上传请求
+ */
+@Data
+public class PictureChunkInitRequest implements Serializable {
+
+    /**
+     * 空间 id
+     */
+    private Long spaceId;
+
+    /**
+     * 原始文件名
+     */
+    private String fileName;
+
+    /**
+     * 文件大小
+     */
+    private Long fileSize;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,24 @@
+package com.lcs.lcspicture.model.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 上传分块请求
+ */
+@Data
+public class PictureChunkPartRequest implements Serializable {
+
+    /**
+     * 上传 id
+     */
+    private String uploadId;
+
+    /**
+     * 分块编号，从 1 开始
+     */
+    private Integer partNumber;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,34 @@
+package com.lcs.lcspicture.model.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 图片分页游标，编码后作为不透明的 nextCursor 返回给前端
+ */
+@Data
+public class PictureCursor implements Serializable {
+
+    /**
+     * 排序字段
+     */
+    private String sortField;
+
+    /**
+     * 排序顺序
+     */
+    private String sortOrder;
+
+    /**
+     * 上一页最后一条记录的排序字段值
+     */
+    private String sortValue;
+
+    /**
+     * 上一页最后一条记录的 id
+     */
+    private Long id;
+
+    private static final long serialVersionUID = 1L;
+}
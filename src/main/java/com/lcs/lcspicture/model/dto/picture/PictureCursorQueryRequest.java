@@ -0,0 +1,28 @@
+package com.lcs.lcspicture.model.dto.picture;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serializable;
+
+/**
+ * 图片游标分页查询请求
+ * <p>
+ * 每页大小使用 pageSize，current 不生效；排序字段为空时按创建时间排序
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class PictureCursorQueryRequest extends PictureQueryRequest implements Serializable {
+
+    /**
+     * 游标，为空表示查询第一页，后续传入上一页返回的 nextCursor
+     */
+    private String cursor;
+
+    /**
+     * 是否需要返回总数，默认不统计
+     */
+    private boolean needTotal;
+
+    private static final long serialVersionUID = 1L;
+}
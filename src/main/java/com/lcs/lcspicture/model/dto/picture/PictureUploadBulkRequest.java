@@ -0,0 +1,24 @@
+package com.lcs.lcspicture.model.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 多文件上传请求
+ */
+@Data
+public class PictureUploadBulkRequest implements Serializable {
+
+    /**
+     * 空间 id
+     */
+    private Long spaceId;
+
+    /**
+     * 图片名称前缀，为空时使用原始文件名
+     */
+    private String prefixName;
+
+    private static final long serialVersionUID = 1L;
+}
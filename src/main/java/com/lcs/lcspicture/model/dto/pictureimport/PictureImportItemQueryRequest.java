@@ -0,0 +1,27 @@
+package com.lcs.lcspicture.model.dto.pictureimport;
+
+import com.lcs.lcspicture.common.PageRequest;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serializable;
+
+/**
+ * 图片导入明细查询请求
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class PictureImportItemQueryRequest extends PageRequest implements Serializable {
+
+    /**
+     * 导入任务 id
+     */
+    private Long jobId;
+
+    /**
+     * 是否成功：0-失败 1-成功
+     */
+    private Integer success;
+
+    private static final long serialVersionUID = 1L;
+}
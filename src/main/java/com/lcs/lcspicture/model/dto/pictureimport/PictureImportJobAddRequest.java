@@ -0,0 +1,29 @@
+package com.lcs.lcspicture.model.dto.pictureimport;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 创建图片导入任务请求
+ */
+@Data
+public class PictureImportJobAddRequest implements Serializable {
+
+    /**
+     * 搜索关键字
+     */
+    private String searchText;
+
+    /**
+     * 需要导入的数量
+     */
+    private Integer fetchCount = 10;
+
+    /**
+     * 图片名称前缀
+     */
+    private String prefixName;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,19 @@
+package com.lcs.lcspicture.model.dto.pictureimport;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 取消图片导入任务请求
+ */
+@Data
+public class PictureImportJobCancelRequest implements Serializable {
+
+    /**
+     * 任务 id
+     */
+    private Long id;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,27 @@
+package com.lcs.lcspicture.model.dto.pictureimport;
+
+import com.lcs.lcspicture.common.PageRequest;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serializable;
+
+/**
+ * 图片导入任务查询请求
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class PictureImportJobQueryRequest extends PageRequest implements Serializable {
+
+    /**
+     * 创建用户 id
+     */
+    private Long userId;
+
+    /**
+     * 状态：0-等待中 1-执行中 2-已完成 3-失败 4-已取消
+     */
+    private Integer status;
+
+    private static final long serialVersionUID = 1L;
+}
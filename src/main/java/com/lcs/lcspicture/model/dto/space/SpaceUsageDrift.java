@@ -0,0 +1,35 @@
+package com.lcs.lcspicture.model.dto.space;
+
+import lombok.Data;
+
+/**
+ * 空间已用额度与图片表的差异
+ */
+@Data
+public class SpaceUsageDrift {
+
+    /**
+     * 空间 id
+     */
+    private Long spaceId;
+
+    /**
+     * 空间记录的图片数量
+     */
+    private Long recordedCount;
+
+    /**
+     * 空间记录的图片总大小
+     */
+    private Long recordedSize;
+
+    /**
+     * 按图片表统计的图片数量
+     */
+    private Long actualCount;
+
+    /**
+     * 按图片表统计的图片总大小
+     */
+    private Long actualSize;
+}
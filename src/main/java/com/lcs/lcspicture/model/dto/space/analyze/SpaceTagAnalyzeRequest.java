@@ -5,4 +5,8 @@ import lombok.Data;
 @Data
 public class SpaceTagAnalyzeRequest extends SpaceAnalyzeRequest {
 
+    /**
+     * 只返回使用次数最多的前 N 个标签，为空时返回全部
+     */
+    private Integer topN;
 }
@@ -0,0 +1,74 @@
+package com.lcs.lcspicture.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import lombok.Data;
+
+/**
+ * 对象删除任务
+ *
+ * @TableName object_delete_task
+ */
+@TableName(value = "object_delete_task")
+@Data
+public class ObjectDeleteTask implements Serializable {
+    /**
+     * id
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 图片 id，仅删除对象时为空
+     */
+    private Long pictureId;
+
+    /**
+     * 图片内容哈希
+     */
+    private String contentHash;
+
+    /**
+     * 图片地址
+     */
+    private String pictureUrl;
+
+    /**
+     * 待删除的对象键，逗号分隔
+     */
+    private String objectKeys;
+
+    /**
+     * 已重试次数
+     */
+    private Integer retryCount;
+
+    /**
+     * 下次执行时间
+     */
+    private Date nextRetryTime;
+
+    /**
+     * 最近一次失败原因
+     */
+    private String errorMessage;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+
+    /**
+     * 更新时间
+     */
+    private Date updateTime;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
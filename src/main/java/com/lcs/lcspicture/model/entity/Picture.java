@@ -89,6 +89,26 @@ public class Picture implements Serializable {
      */
     private String picColor;
 
+    /**
+     * 图片主色调调色板，每个颜色 6 位十六进制依次拼接
+     */
+    private String picPalette;
+
+    /**
+     * 图片感知哈希（pHash）
+     */
+    private Long picHash;
+
+    /**
+     * 图片内容哈希（SHA-256）
+     */
+    private String contentHash;
+
+    /**
+     * 本地处理时生成的其余对象键（其余尺寸的缩略图），逗号分隔，删除图片时一并删除
+     */
+    private String extraKeys;
+
     /**
      * 创建用户 id
      */
@@ -139,6 +159,12 @@ public class Picture implements Serializable {
      */
     private Date reviewTime;
 
+    /**
+     * 上传时是否复用了内容相同的已存在图片的对象，不入库
+     */
+    @TableField(exist = false)
+    private Boolean objectReused;
+
     @TableField(exist = false)
     private static final long serialVersionUID = 1L;
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.lcs.lcspicture.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import lombok.Data;
+
+/**
+ * 图片导入明细
+ *
+ * @TableName picture_import_item
+ */
+@TableName(value = "picture_import_item")
+@Data
+public class PictureImportItem implements Serializable {
+    /**
+     * id
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 导入任务 id
+     */
+    private Long jobId;
+
+    /**
+     * 图片来源地址
+     */
+    private String fileUrl;
+
+    /**
+     * 是否成功：0-失败 1-成功
+     */
+    private Integer success;
+
+    /**
+     * 图片 id
+     */
+    private Long pictureId;
+
+    /**
+     * 图片名称
+     */
+    private String picName;
+
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+
+    /**
+     * 处理耗时（毫秒）
+     */
+    private Long costMillis;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
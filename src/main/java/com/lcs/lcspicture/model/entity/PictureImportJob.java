@@ -0,0 +1,94 @@
+package com.lcs.lcspicture.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import lombok.Data;
+
+/**
+ * 图片导入任务
+ *
+ * @TableName picture_import_job
+ */
+@TableName(value = "picture_import_job")
+@Data
+public class PictureImportJob implements Serializable {
+    /**
+     * id
+     */
+    @TableId(type = IdType.ASSIGN_ID)
+    private Long id;
+
+    /**
+     * 创建用户 id
+     */
+    private Long userId;
+
+    /**
+     * 搜索关键字
+     */
+    private String searchText;
+
+    /**
+     * 图片名称前缀
+     */
+    private String prefixName;
+
+    /**
+     * 需要导入的数量
+     */
+    private Integer fetchCount;
+
+    /**
+     * 状态：0-等待中 1-执行中 2-已完成 3-失败 4-已取消
+     */
+    private Integer status;
+
+    /**
+     * 执行令牌，每次抢占任务时重新生成，进度与结果只允许持有当前令牌的执行者写入
+     */
+    private String runToken;
+
+    /**
+     * 成功数量
+     */
+    private Integer successCount;
+
+    /**
+     * 失败数量
+     */
+    private Integer failCount;
+
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+
+    /**
+     * 开始时间
+     */
+    private Date startTime;
+
+    /**
+     * 结束时间
+     */
+    private Date finishTime;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+
+    /**
+     * 更新时间，执行中的任务抓取地址、处理图片时定期更新，用于判断任务是否中断
+     */
+    private Date updateTime;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
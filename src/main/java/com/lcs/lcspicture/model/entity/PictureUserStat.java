@@ -0,0 +1,55 @@
+package com.lcs.lcspicture.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Date;
+
+import lombok.Data;
+
+/**
+ * 图片用户日统计
+ *
+ * @TableName picture_user_stat
+ */
+@TableName(value = "picture_user_stat")
+@Data
+public class PictureUserStat implements Serializable {
+    /**
+     * id
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 空间 id（0 表示公共图库）
+     */
+    private Long spaceId;
+
+    /**
+     * 统计日期（图片创建日期）
+     */
+    private LocalDate statDate;
+
+    /**
+     * 用户 id
+     */
+    private Long userId;
+
+    /**
+     * 图片数量
+     */
+    private Long pictureCount;
+
+    /**
+     * 更新时间
+     */
+    private Date updateTime;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,42 @@
+package com.lcs.lcspicture.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 图片导入任务状态枚举
+ */
+@Getter
+public enum PictureImportJobStatusEnum {
+    WAITING("等待中", 0),
+    RUNNING("执行中", 1),
+    SUCCEED("已完成", 2),
+    FAILED("失败", 3),
+    CANCELLED("已取消", 4);
+
+    private final String text;
+    private final int value;
+
+    PictureImportJobStatusEnum(String text, int value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 值
+     * @return 枚举，不存在时为 null
+     */
+    public static PictureImportJobStatusEnum getEnumByValue(Integer value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (PictureImportJobStatusEnum item : PictureImportJobStatusEnum.values()) {
+            if (item.getValue() == value) {
+                return item;
+            }
+        }
+        return null;
+    }
+}
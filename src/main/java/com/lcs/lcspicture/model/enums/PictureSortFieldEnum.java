@@ -0,0 +1,44 @@
+package com.lcs.lcspicture.model.enums;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.Getter;
+
+/**
+ * 图片游标分页排序字段枚举
+ * <p>
+ * 游标分页按 (排序字段, id) 定位，排序字段必须非空，且要有 (spaceId, 排序字段) 索引，
+ * 否则每一页都要扫描并排序所有符合条件的记录，游标分页失去意义；新增排序字段时需要同时添加索引
+ */
+@Getter
+public enum PictureSortFieldEnum {
+    ID("id", "id"),
+    CREATE_TIME("创建时间", "createTime"),
+    EDIT_TIME("编辑时间", "editTime");
+
+    private final String text;
+
+    private final String value;
+
+    PictureSortFieldEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据值获取排序字段枚举
+     *
+     * @param value 值
+     * @return 排序字段枚举，不支持的字段返回 null
+     */
+    public static PictureSortFieldEnum getEnumByValue(String value) {
+        if (StrUtil.isEmpty(value)) {
+            return null;
+        }
+        for (PictureSortFieldEnum pictureSortFieldEnum : PictureSortFieldEnum.values()) {
+            if (pictureSortFieldEnum.value.equals(value)) {
+                return pictureSortFieldEnum;
+            }
+        }
+        return null;
+    }
+}
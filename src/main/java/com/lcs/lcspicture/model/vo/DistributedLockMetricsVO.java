@@ -0,0 +1,44 @@
+package com.lcs.lcspicture.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 分布式锁统计信息（本节点启动以来）
+ */
+@Data
+public class DistributedLockMetricsVO implements Serializable {
+
+    /**
+     * 锁实现
+     */
+    private String type;
+
+    /**
+     * 获取成功次数
+     */
+    private Long acquiredCount;
+
+    /**
+     * 等待超时未获取到的次数
+     */
+    private Long timeoutCount;
+
+    /**
+     * 获取成功时的平均等待时间（毫秒）
+     */
+    private Double avgWaitMillis;
+
+    /**
+     * 最长等待时间（毫秒）
+     */
+    private Long maxWaitMillis;
+
+    /**
+     * 释放时租约已过期的次数，出现时应调大租约时间
+     */
+    private Long expiredReleaseCount;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,60 @@
+package com.lcs.lcspicture.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 对象删除队列状态
+ */
+@Data
+public class ObjectDeleteQueueVO implements Serializable {
+
+    /**
+     * 等待执行（含等待重试）的任务数
+     */
+    private Long pendingCount;
+
+    /**
+     * 超过最大重试次数、等待人工处理的任务数
+     */
+    private Long deadCount;
+
+    /**
+     * 最早的等待任务创建时间
+     */
+    private Date oldestPendingTime;
+
+    /**
+     * 本节点启动以来完成的任务数
+     */
+    private Long finishedTaskCount;
+
+    /**
+     * 本节点启动以来删除的对象数
+     */
+    private Long deletedObjectCount;
+
+    /**
+     * 本节点启动以来因仍被引用而跳过的任务数
+     */
+    private Long skippedTaskCount;
+
+    /**
+     * 本节点启动以来失败的批次数
+     */
+    private Long failedBatchCount;
+
+    /**
+     * 最近一批的任务数
+     */
+    private Integer lastBatchSize;
+
+    /**
+     * 最近一批的耗时（毫秒）
+     */
+    private Long lastBatchCostMillis;
+
+    private static final long serialVersionUID = 1L;
+}
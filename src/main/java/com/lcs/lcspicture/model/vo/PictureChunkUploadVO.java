@@ -0,0 +1,35 @@
+package com.lcs.lcspicture.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 分块上传进度
+ */
+@Data
+public class PictureChunkUploadVO implements Serializable {
+
+    /**
+     * 上传 id
+     */
+    private String uploadId;
+
+    /**
+     * 分块大小，除最后一块外每块大小必须相同
+     */
+    private Long chunkSize;
+
+    /**
+     * 分块数量，分块编号从 1 开始
+     */
+    private Integer partCount;
+
+    /**
+     * 已上传的分块编号，断点续传时跳过
+     */
+    private List<Integer> uploadedParts;
+
+    private static final long serialVersionUID = 1L;
+}
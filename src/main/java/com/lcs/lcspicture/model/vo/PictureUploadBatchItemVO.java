@@ -0,0 +1,44 @@
+package com.lcs.lcspicture.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 批量上传单张图片结果
+ */
+@Data
+public class PictureUploadBatchItemVO implements Serializable {
+
+    /**
+     * 图片来源地址
+     */
+    private String fileUrl;
+
+    /**
+     * 是否成功
+     */
+    private Boolean success;
+
+    /**
+     * 图片 id
+     */
+    private Long pictureId;
+
+    /**
+     * 图片名称
+     */
+    private String picName;
+
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+
+    /**
+     * 下载并上传到对象存储的耗时（毫秒）
+     */
+    private Long costMillis;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,45 @@
+package com.lcs.lcspicture.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 批量上传结果
+ */
+@Data
+public class PictureUploadBatchVO implements Serializable {
+
+    /**
+     * 成功数量
+     */
+    private Integer successCount;
+
+    /**
+     * 失败数量
+     */
+    private Integer failCount;
+
+    /**
+     * 总耗时（毫秒）
+     */
+    private Long costMillis;
+
+    /**
+     * 单张图片最长耗时（毫秒）
+     */
+    private Long maxItemCostMillis;
+
+    /**
+     * 吞吐量（张/秒）
+     */
+    private Double throughput;
+
+    /**
+     * 每张图片的处理结果
+     */
+    private List<PictureUploadBatchItemVO> items;
+
+    private static final long serialVersionUID = 1L;
+}
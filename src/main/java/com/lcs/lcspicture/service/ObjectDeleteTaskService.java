@@ -0,0 +1,42 @@
+package com.lcs.lcspicture.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.lcs.lcspicture.model.entity.ObjectDeleteTask;
+import com.lcs.lcspicture.model.entity.Picture;
+import com.lcs.lcspicture.model.vo.ObjectDeleteQueueVO;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * @author lcs
+ * @description 针对表【object_delete_task(对象删除任务)】的数据库操作Service
+ */
+public interface ObjectDeleteTaskService extends IService<ObjectDeleteTask> {
+
+    /**
+     * 登记图片对象的删除任务，在调用方事务中写入，事务提交后才会执行；执行前会重新检查对象是否仍被其他图片引用
+     *
+     * @param pictureList 要清理对象的图片
+     */
+    void enqueue(List<Picture> pictureList);
+
+    /**
+     * 登记对象的删除任务，不检查引用，用于清理处理失败时已上传的对象
+     *
+     * @param keys 对象键
+     */
+    void enqueueKeys(Collection<String> keys);
+
+    /**
+     * 批量执行到期的删除任务，直到没有到期任务为止
+     */
+    void processDueTasks();
+
+    /**
+     * 获取删除队列状态
+     *
+     * @return 删除队列状态
+     */
+    ObjectDeleteQueueVO getQueueStatus();
+}
@@ -0,0 +1,51 @@
+package com.lcs.lcspicture.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.lcs.lcspicture.model.dto.pictureimport.PictureImportItemQueryRequest;
+import com.lcs.lcspicture.model.dto.pictureimport.PictureImportJobAddRequest;
+import com.lcs.lcspicture.model.dto.pictureimport.PictureImportJobQueryRequest;
+import com.lcs.lcspicture.model.entity.PictureImportItem;
+import com.lcs.lcspicture.model.entity.PictureImportJob;
+import com.lcs.lcspicture.model.entity.User;
+
+/**
+ * @author lcs
+ * @description 针对表【picture_import_job(图片导入任务)】的数据库操作Service
+ */
+public interface PictureImportJobService extends IService<PictureImportJob> {
+
+    /**
+     * 创建导入任务，立即返回任务 id，任务在后台执行
+     *
+     * @param pictureImportJobAddRequest 创建导入任务请求
+     * @param loginUser                  登录用户
+     * @return 任务 id
+     */
+    Long addImportJob(PictureImportJobAddRequest pictureImportJobAddRequest, User loginUser);
+
+    /**
+     * 取消导入任务，已在处理中的图片仍会完成
+     *
+     * @param id        任务 id
+     * @param loginUser 登录用户
+     * @return 是否取消成功
+     */
+    boolean cancelImportJob(Long id, User loginUser);
+
+    /**
+     * 获取查询条件
+     */
+    QueryWrapper<PictureImportJob> getQueryWrapper(PictureImportJobQueryRequest pictureImportJobQueryRequest);
+
+    /**
+     * 分页查询导入明细
+     */
+    Page<PictureImportItem> listImportItemByPage(PictureImportItemQueryRequest pictureImportItemQueryRequest);
+
+    /**
+     * 恢复中断的任务并分发等待中的任务
+     */
+    void recoverImportJobs();
+}
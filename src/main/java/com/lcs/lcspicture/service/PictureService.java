@@ -3,13 +3,19 @@ package com.lcs.lcspicture.service;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.lcs.lcspicture.api.aliyunai.model.CreateOutPaintingTaskResponse;
+import com.lcs.lcspicture.common.CursorPage;
 import com.lcs.lcspicture.common.DeleteRequest;
+import com.lcs.lcspicture.manager.upload.PictureUploadBatchListener;
 import com.lcs.lcspicture.model.dto.picture.*;
 import com.lcs.lcspicture.model.entity.Picture;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.lcs.lcspicture.model.entity.User;
+import com.lcs.lcspicture.model.vo.PictureChunkUploadVO;
+import com.lcs.lcspicture.model.vo.PictureUploadBatchVO;
 import com.lcs.lcspicture.model.vo.PictureVO;
 
+import org.springframework.web.multipart.MultipartFile;
+
 import javax.servlet.http.HttpServletRequest;
 import java.util.List;
 
@@ -28,6 +34,35 @@ public interface PictureService extends IService<Picture> {
      */
     PictureVO uploadPicture(Object inputSource, PictureUploadRequest pictureUploadRequest, User loginUser);
 
+    /**
+     * 多文件上传图片，全部成功或全部失败
+     *
+     * @param multipartFileList        图片文件
+     * @param pictureUploadBulkRequest 多文件上传请求参数
+     * @param loginUser                登录用户
+     * @return 上传后的图片
+     */
+    List<PictureVO> uploadPictureByBulk(List<MultipartFile> multipartFileList, PictureUploadBulkRequest pictureUploadBulkRequest,
+                                        User loginUser);
+
+    /**
+     * 初始化分块上传
+     *
+     * @param pictureChunkInitRequest 初始化分块上传请求
+     * @param loginUser               登录用户
+     * @return 上传进度
+     */
+    PictureChunkUploadVO initChunkUpload(PictureChunkInitRequest pictureChunkInitRequest, User loginUser);
+
+    /**
+     * 完成分块上传
+     *
+     * @param pictureChunkCompleteRequest 完成分块上传请求
+     * @param loginUser                   登录用户
+     * @return 上传后的图片
+     */
+    PictureVO completeChunkUpload(PictureChunkCompleteRequest pictureChunkCompleteRequest, User loginUser);
+
     /**
      * 获取图片查询条件
      */
@@ -43,6 +78,24 @@ public interface PictureService extends IService<Picture> {
      */
     Page<PictureVO> getPictureVOList(Page<Picture> picturePage, HttpServletRequest request);
 
+    /**
+     * 分页获取公共图库图片列表封装类（多级缓存）
+     */
+    Page<PictureVO> listPictureVOByPageWithCache(PictureQueryRequest pictureQueryRequest, HttpServletRequest request);
+
+    /**
+     * 游标分页获取图片列表封装类
+     */
+    CursorPage<PictureVO> listPictureVOByCursor(PictureCursorQueryRequest pictureCursorQueryRequest, HttpServletRequest request);
+
+    /**
+     * 清理图片相关缓存，图片新增、修改、删除、审核后调用
+     *
+     * @param oldPicture 变化前的图片，新增时为 null
+     * @param newPicture 变化后的图片，删除时为 null
+     */
+    void evictPictureCache(Picture oldPicture, Picture newPicture);
+
     /*
      图片数据校验
      */
@@ -61,10 +114,21 @@ public interface PictureService extends IService<Picture> {
     /*
     批量上传图片
      */
-    Integer uploadPictureByBatch(PictureUploadByBachRequest pictureUploadByBachRequest, User loginUser);
+    PictureUploadBatchVO uploadPictureByBatch(PictureUploadByBachRequest pictureUploadByBachRequest, User loginUser);
+
+    /**
+     * 按地址批量上传图片到公共图库
+     */
+    PictureUploadBatchVO uploadPictureByUrls(List<String> fileUrlList, int fetchCount, String prefixName, int nameOffset,
+                                             User loginUser, PictureUploadBatchListener listener);
+
+    /**
+     * 从必应图片搜索中抓取图片地址，每翻一页检查一次监听器是否已取消
+     */
+    List<String> crawlImageUrls(String searchText, int maxCount, PictureUploadBatchListener listener);
 
     /**
-     * 清理图片文件
+     * 清理图片文件，在当前事务中登记删除任务，事务提交后异步批量删除
      *
      * @param oldPicture 旧图片
      */
@@ -80,6 +144,15 @@ public interface PictureService extends IService<Picture> {
      */
     boolean editPicture(PictureEditRequest pictureEditRequest, User loginUser);
 
+    /**
+     * 更新图片（仅管理员可用），在一个事务中更新图片并同步统计汇总与标签索引，提交后清理缓存
+     *
+     * @param pictureUpdateRequest 更新图片请求
+     * @param loginUser            登录用户
+     * @return 是否成功
+     */
+    boolean updatePicture(PictureUpdateRequest pictureUpdateRequest, User loginUser);
+
     /**
      * 校验空间图片的权限
      */
@@ -90,6 +163,11 @@ public interface PictureService extends IService<Picture> {
      */
     List<PictureVO> colorSearch(Long spaceId, String piColor, User loginUser);
 
+    /**
+     * 以图搜图（本地感知哈希索引）
+     */
+    List<PictureVO> searchPictureByPicture(SearchPictureByPictureRequest searchPictureByPictureRequest, User loginUser);
+
     /**
      * 批量编辑图片
      */
@@ -0,0 +1,46 @@
+package com.lcs.lcspicture.service;
+
+import com.lcs.lcspicture.model.entity.Picture;
+
+/**
+ * 图片统计汇总服务
+ * <p>
+ * 维护按 (空间, 日期, 分类) 与 (空间, 日期, 用户) 汇总的统计表，需在修改图片的事务中调用
+ */
+public interface PictureStatService {
+
+    /**
+     * 新增图片
+     *
+     * @param picture 新增的图片
+     */
+    void onPictureAdd(Picture picture);
+
+    /**
+     * 删除图片
+     *
+     * @param picture 删除的图片
+     */
+    void onPictureDelete(Picture picture);
+
+    /**
+     * 图片大小变化（重新上传图片）
+     *
+     * @param oldPicture 修改前的图片
+     * @param newPicSize 新的图片大小
+     */
+    void onPictureSizeChange(Picture oldPicture, Long newPicSize);
+
+    /**
+     * 图片分类变化
+     *
+     * @param oldPicture  修改前的图片
+     * @param newCategory 新的分类，为空表示分类未修改
+     */
+    void onPictureCategoryChange(Picture oldPicture, String newCategory);
+
+    /**
+     * 从图片表重建统计，修正增量维护产生的偏差
+     */
+    void reconcile();
+}
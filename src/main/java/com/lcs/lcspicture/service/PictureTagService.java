@@ -0,0 +1,49 @@
+package com.lcs.lcspicture.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.lcs.lcspicture.model.entity.Picture;
+import com.lcs.lcspicture.model.entity.PictureTag;
+
+import java.util.List;
+
+/**
+ * @author lcs
+ * @description 针对表【picture_tag(图片标签关联)】的数据库操作Service
+ */
+public interface PictureTagService extends IService<PictureTag> {
+
+    /**
+     * 同步单张图片的标签
+     *
+     * @param pictureId 图片 id
+     * @param spaceId   空间 id
+     * @param tags      图片的全部标签
+     */
+    void syncPictureTags(Long pictureId, Long spaceId, List<String> tags);
+
+    /**
+     * 将多张图片的标签替换为同一组标签
+     *
+     * @param pictureIdList 图片 id 列表
+     * @param spaceId       空间 id
+     * @param tags          标签
+     */
+    void replacePictureTags(List<Long> pictureIdList, Long spaceId, List<String> tags);
+
+    /**
+     * 删除图片的全部标签
+     *
+     * @param pictureId 图片 id
+     */
+    void removeByPictureId(Long pictureId);
+
+    /**
+     * 为图片查询条件补充标签过滤
+     *
+     * @param queryWrapper 图片查询条件
+     * @param tags         标签
+     * @param matchAll     true 表示需要包含全部标签，false 表示包含任一标签
+     */
+    void fillTagQueryWrapper(QueryWrapper<Picture> queryWrapper, List<String> tags, boolean matchAll);
+}
@@ -57,4 +57,9 @@ public interface SpaceService extends IService<Space> {
      * 检查空间权限
      */
     void checkSpaceAuth(User loginUser, Space space);
+
+    /**
+     * 按图片表对账修正空间已用额度
+     */
+    void reconcileSpaceUsage();
 }
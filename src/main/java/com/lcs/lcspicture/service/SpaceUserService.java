@@ -39,6 +39,22 @@ public interface SpaceUserService extends IService<SpaceUser> {
      */
     Long addSpaceUser(SpaceUserAddRequest spaceUserAddRequest);
 
+    /**
+     * 移除空间成员，并清理该成员的权限缓存
+     *
+     * @param id 空间成员 id
+     * @return 是否移除成功
+     */
+    boolean deleteSpaceUser(Long id);
+
+    /**
+     * 编辑空间成员角色，并清理该成员的权限缓存
+     *
+     * @param spaceUser 空间成员，需包含 id
+     * @return 是否编辑成功
+     */
+    boolean editSpaceUser(SpaceUser spaceUser);
+
     /**
      * 获取空间成员查询条件
      */
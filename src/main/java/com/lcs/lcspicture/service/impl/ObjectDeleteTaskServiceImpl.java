@@ -0,0 +1,333 @@
+package com.lcs.lcspicture.service.impl;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.ObjUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.lcs.lcspicture.config.ObjectDeleteConfig;
+import com.lcs.lcspicture.config.PictureProcessConfig;
+import com.lcs.lcspicture.manager.storage.ObjectStorage;
+import com.lcs.lcspicture.mapper.ObjectDeleteTaskMapper;
+import com.lcs.lcspicture.mapper.PictureMapper;
+import com.lcs.lcspicture.model.entity.ObjectDeleteTask;
+import com.lcs.lcspicture.model.entity.Picture;
+import com.lcs.lcspicture.model.vo.ObjectDeleteQueueVO;
+import com.lcs.lcspicture.service.ObjectDeleteTaskService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * @author lcs
+ * @description 针对表【object_delete_task(对象删除任务)】的数据库操作Service实现
+ * <p>
+ * 删除任务与图片记录的变更在同一事务中写入，事务回滚时任务一并回滚，提交后才会被执行；
+ * 后台按批拉取到期任务，在事务中锁定并重新检查引用后，把整批对象合并为一次批量删除，失败时按指数退避重试。
+ * 删除操作是幂等的，多个节点同时处理同一任务不会产生问题
+ */
+@Slf4j
+@Service
+public class ObjectDeleteTaskServiceImpl extends ServiceImpl<ObjectDeleteTaskMapper, ObjectDeleteTask>
+        implements ObjectDeleteTaskService {
+
+    /**
+     * 失败原因最大长度
+     */
+    private static final int MAX_ERROR_MESSAGE_LENGTH = 500;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private ObjectStorage objectStorage;
+
+    @Resource
+    private ObjectDeleteConfig objectDeleteConfig;
+
+    @Resource
+    private PictureProcessConfig pictureProcessConfig;
+
+    @Resource
+    private ThreadPoolExecutor objectDeleteExecutor;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 本节点是否正在处理删除任务
+     */
+    private final AtomicBoolean processing = new AtomicBoolean();
+
+    private final AtomicLong finishedTaskCount = new AtomicLong();
+
+    private final AtomicLong deletedObjectCount = new AtomicLong();
+
+    private final AtomicLong skippedTaskCount = new AtomicLong();
+
+    private final AtomicLong failedBatchCount = new AtomicLong();
+
+    private volatile int lastBatchSize;
+
+    private volatile long lastBatchCostMillis;
+
+    @Override
+    public void enqueue(List<Picture> pictureList) {
+        if (CollUtil.isEmpty(pictureList)) {
+            return;
+        }
+        List<ObjectDeleteTask> taskList = new ArrayList<>();
+        for (Picture picture : pictureList) {
+            if (picture == null) {
+                continue;
+            }
+            Set<String> keySet = getObjectKeys(picture);
+            if (keySet.isEmpty()) {
+                continue;
+            }
+            ObjectDeleteTask task = new ObjectDeleteTask();
+            task.setPictureId(picture.getId());
+            task.setContentHash(StrUtil.emptyToNull(picture.getContentHash()));
+            task.setPictureUrl(picture.getUrl());
+            task.setObjectKeys(String.join(",", keySet));
+            taskList.add(task);
+        }
+        saveTasks(taskList);
+    }
+
+    @Override
+    public void enqueueKeys(Collection<String> keys) {
+        Set<String> keySet = keys == null ? new LinkedHashSet<>() : keys.stream()
+                .filter(StrUtil::isNotBlank)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (keySet.isEmpty()) {
+            return;
+        }
+        ObjectDeleteTask task = new ObjectDeleteTask();
+        task.setObjectKeys(String.join(",", keySet));
+        saveTasks(CollUtil.newArrayList(task));
+    }
+
+    /**
+     * 定时执行到期任务，兜底事务提交后的唤醒与失败重试
+     */
+    @Scheduled(initialDelayString = "${storage.delete.poll-interval:5000}",
+            fixedDelayString = "${storage.delete.poll-interval:5000}")
+    @Override
+    public void processDueTasks() {
+        if (!processing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int batchSize = Math.max(1, objectDeleteConfig.getBatchSize());
+            // 拉满一批说明可能还有到期任务，继续处理
+            while (processBatch(batchSize) >= batchSize) {
+                log.debug("继续处理下一批对象删除任务");
+            }
+        } catch (Exception e) {
+            log.error("处理对象删除任务失败", e);
+        } finally {
+            processing.set(false);
+        }
+    }
+
+    @Override
+    public ObjectDeleteQueueVO getQueueStatus() {
+        int maxRetryCount = objectDeleteConfig.getMaxRetryCount();
+        ObjectDeleteQueueVO objectDeleteQueueVO = new ObjectDeleteQueueVO();
+        objectDeleteQueueVO.setPendingCount(this.lambdaQuery().lt(ObjectDeleteTask::getRetryCount, maxRetryCount).count());
+        objectDeleteQueueVO.setDeadCount(this.lambdaQuery().ge(ObjectDeleteTask::getRetryCount, maxRetryCount).count());
+        ObjectDeleteTask oldestTask = this.lambdaQuery()
+                .select(ObjectDeleteTask::getCreateTime)
+                .lt(ObjectDeleteTask::getRetryCount, maxRetryCount)
+                .orderByAsc(ObjectDeleteTask::getId)
+                .last("limit 1")
+                .one();
+        objectDeleteQueueVO.setOldestPendingTime(oldestTask == null ? null : oldestTask.getCreateTime());
+        objectDeleteQueueVO.setFinishedTaskCount(finishedTaskCount.get());
+        objectDeleteQueueVO.setDeletedObjectCount(deletedObjectCount.get());
+        objectDeleteQueueVO.setSkippedTaskCount(skippedTaskCount.get());
+        objectDeleteQueueVO.setFailedBatchCount(failedBatchCount.get());
+        objectDeleteQueueVO.setLastBatchSize(lastBatchSize);
+        objectDeleteQueueVO.setLastBatchCostMillis(lastBatchCostMillis);
+        return objectDeleteQueueVO;
+    }
+
+    /**
+     * 处理一批到期任务
+     *
+     * @param batchSize 每批任务数
+     * @return 本批拉取到的任务数
+     */
+    private int processBatch(int batchSize) {
+        long startTime = System.currentTimeMillis();
+        List<ObjectDeleteTask> taskList = this.lambdaQuery()
+                .lt(ObjectDeleteTask::getRetryCount, objectDeleteConfig.getMaxRetryCount())
+                .le(ObjectDeleteTask::getNextRetryTime, new Date())
+                .orderByAsc(ObjectDeleteTask::getId)
+                .last("limit " + batchSize)
+                .list();
+        if (taskList.isEmpty()) {
+            return 0;
+        }
+        // 仍被其他图片引用的对象不删除，任务直接完成；检查在事务中锁定读，对象存储的删除在事务外进行，不长时间持有行锁
+        Set<Long> referencedTaskIds = transactionTemplate.execute(transactionStatus -> {
+            Set<Long> taskIds = getReferencedTaskIds(taskList);
+            if (!taskIds.isEmpty()) {
+                this.removeByIds(taskIds);
+            }
+            return taskIds;
+        });
+        skippedTaskCount.addAndGet(referencedTaskIds.size());
+        List<ObjectDeleteTask> deleteTaskList = taskList.stream()
+                .filter(task -> !referencedTaskIds.contains(task.getId()))
+                .collect(Collectors.toList());
+        if (deleteTaskList.isEmpty()) {
+            return taskList.size();
+        }
+        Set<String> keySet = new LinkedHashSet<>();
+        deleteTaskList.forEach(task -> keySet.addAll(StrUtil.split(task.getObjectKeys(), ',', true, true)));
+        try {
+            objectStorage.deleteObjects(new ArrayList<>(keySet));
+        } catch (Exception e) {
+            log.error("批量删除对象失败，稍后重试, taskCount={}, keyCount={}", deleteTaskList.size(), keySet.size(), e);
+            failedBatchCount.incrementAndGet();
+            retryLater(deleteTaskList, e);
+            return taskList.size();
+        }
+        this.removeByIds(deleteTaskList.stream().map(ObjectDeleteTask::getId).collect(Collectors.toList()));
+        finishedTaskCount.addAndGet(deleteTaskList.size());
+        deletedObjectCount.addAndGet(keySet.size());
+        lastBatchSize = taskList.size();
+        lastBatchCostMillis = System.currentTimeMillis() - startTime;
+        log.info("批量删除对象完成, taskCount={}, keyCount={}, skipCount={}, costMillis={}",
+                taskList.size(), keySet.size(), referencedTaskIds.size(), lastBatchCostMillis);
+        return taskList.size();
+    }
+
+    /**
+     * 查询对象仍被其他图片引用的任务：存在地址相同且不是任务自身的图片记录时，对象仍在使用。
+     * 内容相同的图片只在同一空间内复用对象，不同空间内容相同的图片各自持有对象，不能按内容哈希判断。
+     * <p>
+     * 使用锁定读，与入库时复用对象的检查互斥：没有图片引用的对象不会再被复用（复用前须锁定到仍引用对象的图片），
+     * 因此检查提交后在事务外删除对象是安全的
+     */
+    private Set<Long> getReferencedTaskIds(List<ObjectDeleteTask> taskList) {
+        Set<Long> referencedTaskIds = new HashSet<>();
+        Set<String> urlSet = taskList.stream().map(ObjectDeleteTask::getPictureUrl)
+                .filter(StrUtil::isNotBlank).collect(Collectors.toSet());
+        if (urlSet.isEmpty()) {
+            return referencedTaskIds;
+        }
+        List<Picture> pictureList = pictureMapper.selectList(new LambdaQueryWrapper<Picture>()
+                .select(Picture::getId, Picture::getUrl)
+                .in(Picture::getUrl, urlSet)
+                .last("for update"));
+        Map<String, List<Long>> pictureIdMap = pictureList.stream()
+                .collect(Collectors.groupingBy(Picture::getUrl, Collectors.mapping(Picture::getId, Collectors.toList())));
+        for (ObjectDeleteTask task : taskList) {
+            List<Long> pictureIdList = pictureIdMap.get(task.getPictureUrl());
+            if (pictureIdList != null && pictureIdList.stream().anyMatch(id -> ObjUtil.notEqual(id, task.getPictureId()))) {
+                referencedTaskIds.add(task.getId());
+            }
+        }
+        return referencedTaskIds;
+    }
+
+    /**
+     * 更新重试次数与下次执行时间，等待时间按重试次数指数增长
+     */
+    private void retryLater(List<ObjectDeleteTask> taskList, Exception e) {
+        if (taskList.isEmpty()) {
+            return;
+        }
+        String errorMessage = StrUtil.maxLength(StrUtil.blankToDefault(e.getMessage(), e.getClass().getSimpleName()),
+                MAX_ERROR_MESSAGE_LENGTH);
+        long now = System.currentTimeMillis();
+        List<ObjectDeleteTask> updateList = new ArrayList<>();
+        for (ObjectDeleteTask task : taskList) {
+            int retryCount = task.getRetryCount() == null ? 0 : task.getRetryCount();
+            long delaySeconds = Math.min(objectDeleteConfig.getRetryBaseSeconds() << Math.min(retryCount, 20),
+                    objectDeleteConfig.getRetryMaxSeconds());
+            ObjectDeleteTask updateTask = new ObjectDeleteTask();
+            updateTask.setId(task.getId());
+            updateTask.setRetryCount(retryCount + 1);
+            updateTask.setNextRetryTime(new Date(now + TimeUnit.SECONDS.toMillis(delaySeconds)));
+            updateTask.setErrorMessage(errorMessage);
+            updateList.add(updateTask);
+            if (retryCount + 1 >= objectDeleteConfig.getMaxRetryCount()) {
+                log.error("对象删除任务超过最大重试次数，需人工处理, taskId={}, objectKeys={}", task.getId(), task.getObjectKeys());
+            }
+        }
+        this.updateBatchById(updateList);
+    }
+
+    /**
+     * 图片对应的全部对象键：压缩图、缩略图、原图，以及本地处理时生成并记录在图片上的其余尺寸缩略图
+     */
+    private Set<String> getObjectKeys(Picture picture) {
+        Set<String> keySet = new LinkedHashSet<>();
+        for (String url : Arrays.asList(picture.getUrl(), picture.getThumbnailUrl(), picture.getOriginUrl())) {
+            String key = objectStorage.getKey(url);
+            if (StrUtil.isNotBlank(key)) {
+                keySet.add(key);
+            }
+        }
+        if (picture.getExtraKeys() != null) {
+            keySet.addAll(StrUtil.split(picture.getExtraKeys(), ',', true, true));
+            return keySet;
+        }
+        // 记录对象键之前上传的图片，按当前配置的缩略图尺寸推算
+        String thumbnailKey = objectStorage.getKey(picture.getThumbnailUrl());
+        if (thumbnailKey != null && thumbnailKey.contains("_thumbnail.")) {
+            List<Integer> thumbnailSizes = pictureProcessConfig.getThumbnailSizes();
+            for (int i = 1; i < thumbnailSizes.size(); i++) {
+                keySet.add(thumbnailKey.replace("_thumbnail.", "_thumbnail_" + thumbnailSizes.get(i) + "."));
+            }
+        }
+        return keySet;
+    }
+
+    /**
+     * 保存任务，并在事务提交后唤醒删除线程
+     */
+    private void saveTasks(List<ObjectDeleteTask> taskList) {
+        if (taskList.isEmpty()) {
+            return;
+        }
+        this.saveBatch(taskList);
+        afterCommit(() -> objectDeleteExecutor.execute(this::processDueTasks));
+    }
+
+    private void afterCommit(Runnable runnable) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    runnable.run();
+                }
+            });
+        } else {
+            runnable.run();
+        }
+    }
+}
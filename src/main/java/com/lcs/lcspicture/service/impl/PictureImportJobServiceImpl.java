@@ -0,0 +1,370 @@
+package com.lcs.lcspicture.service.impl;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.ObjUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.conditions.update.LambdaUpdateChainWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.lcs.lcspicture.config.PictureImportConfig;
+import com.lcs.lcspicture.exception.BusinessException;
+import com.lcs.lcspicture.exception.ErrorCode;
+import com.lcs.lcspicture.exception.ThrowUtils;
+import com.lcs.lcspicture.manager.upload.PictureUploadBatchListener;
+import com.lcs.lcspicture.mapper.PictureImportItemMapper;
+import com.lcs.lcspicture.mapper.PictureImportJobMapper;
+import com.lcs.lcspicture.model.dto.pictureimport.PictureImportItemQueryRequest;
+import com.lcs.lcspicture.model.dto.pictureimport.PictureImportJobAddRequest;
+import com.lcs.lcspicture.model.dto.pictureimport.PictureImportJobQueryRequest;
+import com.lcs.lcspicture.model.entity.PictureImportItem;
+import com.lcs.lcspicture.model.entity.PictureImportJob;
+import com.lcs.lcspicture.model.entity.User;
+import com.lcs.lcspicture.model.enums.PictureImportJobStatusEnum;
+import com.lcs.lcspicture.model.vo.PictureUploadBatchItemVO;
+import com.lcs.lcspicture.service.PictureImportJobService;
+import com.lcs.lcspicture.service.PictureService;
+import com.lcs.lcspicture.service.UserService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * @author lcs
+ * @description 针对表【picture_import_job(图片导入任务)】的数据库操作Service实现
+ * <p>
+ * 任务与每张图片的处理结果都保存在数据库中：任务通过状态的条件更新抢占执行，抢占时生成执行令牌，
+ * 心跳、进度与结果都只允许持有当前令牌的执行者写入，入库成功的图片与其处理结果在同一事务中记录；
+ * 节点重启或宕机后，长时间没有心跳的任务会被重置为等待状态并重新执行，已处理过的图片地址会被跳过；
+ * 原执行者此后的写入都会因令牌不匹配而失败，并停止执行
+ */
+@Slf4j
+@Service
+public class PictureImportJobServiceImpl extends ServiceImpl<PictureImportJobMapper, PictureImportJob>
+        implements PictureImportJobService {
+
+    /**
+     * 失败原因最大长度
+     */
+    private static final int MAX_ERROR_MESSAGE_LENGTH = 500;
+
+    @Resource
+    private PictureService pictureService;
+
+    @Resource
+    private UserService userService;
+
+    @Resource
+    private PictureImportItemMapper pictureImportItemMapper;
+
+    @Resource
+    private PictureImportConfig pictureImportConfig;
+
+    @Resource
+    private ThreadPoolExecutor pictureImportExecutor;
+
+    /**
+     * 本节点已分发（排队或执行中）的任务
+     */
+    private final Set<Long> dispatchedJobIds = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public Long addImportJob(PictureImportJobAddRequest pictureImportJobAddRequest, User loginUser) {
+        //参数校验
+        ThrowUtils.throwIf(pictureImportJobAddRequest == null, ErrorCode.PARAMS_ERROR);
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR);
+        String searchText = pictureImportJobAddRequest.getSearchText();
+        Integer fetchCount = pictureImportJobAddRequest.getFetchCount();
+        ThrowUtils.throwIf(StrUtil.isBlank(searchText), ErrorCode.PARAMS_ERROR, "搜索关键字不能为空");
+        int maxFetchCount = pictureImportConfig.getMaxFetchCount();
+        ThrowUtils.throwIf(fetchCount == null || fetchCount <= 0 || fetchCount > maxFetchCount,
+                ErrorCode.PARAMS_ERROR, String.format("最多导入%s张图片", maxFetchCount));
+        String prefixName = pictureImportJobAddRequest.getPrefixName();
+        if (StrUtil.isBlank(prefixName)) {
+            prefixName = searchText;
+        }
+        //保存任务
+        PictureImportJob pictureImportJob = new PictureImportJob();
+        pictureImportJob.setUserId(loginUser.getId());
+        pictureImportJob.setSearchText(searchText);
+        pictureImportJob.setPrefixName(prefixName);
+        pictureImportJob.setFetchCount(fetchCount);
+        pictureImportJob.setStatus(PictureImportJobStatusEnum.WAITING.getValue());
+        pictureImportJob.setSuccessCount(0);
+        pictureImportJob.setFailCount(0);
+        boolean result = this.save(pictureImportJob);
+        ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "创建导入任务失败");
+        //分发到后台执行
+        dispatch(pictureImportJob.getId());
+        return pictureImportJob.getId();
+    }
+
+    @Override
+    public boolean cancelImportJob(Long id, User loginUser) {
+        ThrowUtils.throwIf(id == null || id <= 0, ErrorCode.PARAMS_ERROR);
+        PictureImportJob pictureImportJob = this.getById(id);
+        ThrowUtils.throwIf(pictureImportJob == null, ErrorCode.NOT_FOUND_ERROR, "导入任务不存在");
+        boolean result = this.lambdaUpdate()
+                .eq(PictureImportJob::getId, id)
+                .in(PictureImportJob::getStatus, PictureImportJobStatusEnum.WAITING.getValue(),
+                        PictureImportJobStatusEnum.RUNNING.getValue())
+                .set(PictureImportJob::getStatus, PictureImportJobStatusEnum.CANCELLED.getValue())
+                .set(PictureImportJob::getFinishTime, new Date())
+                .update();
+        ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "任务已结束，无法取消");
+        return true;
+    }
+
+    @Override
+    public QueryWrapper<PictureImportJob> getQueryWrapper(PictureImportJobQueryRequest pictureImportJobQueryRequest) {
+        ThrowUtils.throwIf(pictureImportJobQueryRequest == null, ErrorCode.PARAMS_ERROR);
+        QueryWrapper<PictureImportJob> queryWrapper = new QueryWrapper<>();
+        Long userId = pictureImportJobQueryRequest.getUserId();
+        Integer status = pictureImportJobQueryRequest.getStatus();
+        String sortField = pictureImportJobQueryRequest.getSortField();
+        String sortOrder = pictureImportJobQueryRequest.getSortOrder();
+        queryWrapper.eq(ObjUtil.isNotNull(userId), "userId", userId);
+        queryWrapper.eq(ObjUtil.isNotNull(status), "status", status);
+        queryWrapper.orderBy(StrUtil.isNotEmpty(sortField), "ascend".equals(sortOrder), sortField);
+        queryWrapper.orderByDesc(StrUtil.isEmpty(sortField), "createTime");
+        return queryWrapper;
+    }
+
+    @Override
+    public Page<PictureImportItem> listImportItemByPage(PictureImportItemQueryRequest pictureImportItemQueryRequest) {
+        ThrowUtils.throwIf(pictureImportItemQueryRequest == null || pictureImportItemQueryRequest.getJobId() == null,
+                ErrorCode.PARAMS_ERROR);
+        Integer success = pictureImportItemQueryRequest.getSuccess();
+        LambdaQueryWrapper<PictureImportItem> queryWrapper = new LambdaQueryWrapper<PictureImportItem>()
+                .eq(PictureImportItem::getJobId, pictureImportItemQueryRequest.getJobId())
+                .eq(ObjUtil.isNotNull(success), PictureImportItem::getSuccess, success)
+                .orderByAsc(PictureImportItem::getId);
+        return pictureImportItemMapper.selectPage(new Page<>(pictureImportItemQueryRequest.getCurrent(),
+                pictureImportItemQueryRequest.getPageSize()), queryWrapper);
+    }
+
+    /**
+     * 定时恢复中断的任务，并把等待中的任务（包括节点重启前未执行的任务）分发到本节点
+     */
+    @Scheduled(initialDelayString = "${picture.import.recover-initial-delay:10000}",
+            fixedDelayString = "${picture.import.recover-interval:60000}")
+    @Override
+    public void recoverImportJobs() {
+        //执行中但长时间没有心跳的任务，重置为等待，原执行者的令牌随之失效
+        Date staleTime = new Date(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(pictureImportConfig.getStaleSeconds()));
+        List<PictureImportJob> staleJobList = this.lambdaQuery()
+                .select(PictureImportJob::getId, PictureImportJob::getUpdateTime)
+                .eq(PictureImportJob::getStatus, PictureImportJobStatusEnum.RUNNING.getValue())
+                .lt(PictureImportJob::getUpdateTime, staleTime)
+                .list();
+        for (PictureImportJob staleJob : staleJobList) {
+            if (dispatchedJobIds.contains(staleJob.getId())) {
+                continue;
+            }
+            boolean reset = this.lambdaUpdate()
+                    .eq(PictureImportJob::getId, staleJob.getId())
+                    .eq(PictureImportJob::getStatus, PictureImportJobStatusEnum.RUNNING.getValue())
+                    .eq(PictureImportJob::getUpdateTime, staleJob.getUpdateTime())
+                    .set(PictureImportJob::getStatus, PictureImportJobStatusEnum.WAITING.getValue())
+                    .set(PictureImportJob::getRunToken, null)
+                    .update();
+            if (reset) {
+                log.warn("导入任务长时间没有进度，重新执行, jobId={}", staleJob.getId());
+            }
+        }
+        //分发等待中的任务，多个节点同时分发时只有一个节点能抢占成功
+        List<PictureImportJob> waitingJobList = this.lambdaQuery()
+                .select(PictureImportJob::getId)
+                .eq(PictureImportJob::getStatus, PictureImportJobStatusEnum.WAITING.getValue())
+                .orderByAsc(PictureImportJob::getCreateTime)
+                .last("limit " + Math.max(1, pictureImportConfig.getQueueCapacity()))
+                .list();
+        waitingJobList.forEach(job -> dispatch(job.getId()));
+    }
+
+    /**
+     * 将任务提交到导入线程池，队列满时任务保持等待状态
+     */
+    private void dispatch(Long jobId) {
+        if (!dispatchedJobIds.add(jobId)) {
+            return;
+        }
+        try {
+            pictureImportExecutor.execute(() -> {
+                try {
+                    runJob(jobId);
+                } finally {
+                    dispatchedJobIds.remove(jobId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            dispatchedJobIds.remove(jobId);
+            log.warn("导入任务队列已满，稍后重试, jobId={}", jobId);
+        }
+    }
+
+    /**
+     * 执行导入任务
+     */
+    private void runJob(Long jobId) {
+        //抢占任务并生成执行令牌，已被其他节点执行或已取消时直接返回
+        String runToken = IdUtil.fastSimpleUUID();
+        Date now = new Date();
+        boolean claimed = this.lambdaUpdate()
+                .eq(PictureImportJob::getId, jobId)
+                .eq(PictureImportJob::getStatus, PictureImportJobStatusEnum.WAITING.getValue())
+                .set(PictureImportJob::getStatus, PictureImportJobStatusEnum.RUNNING.getValue())
+                .set(PictureImportJob::getRunToken, runToken)
+                .set(PictureImportJob::getStartTime, now)
+                .set(PictureImportJob::getUpdateTime, now)
+                .update();
+        if (!claimed) {
+            return;
+        }
+        PictureImportJob pictureImportJob = this.getById(jobId);
+        log.info("开始执行导入任务, jobId={}, searchText={}, fetchCount={}", jobId,
+                pictureImportJob.getSearchText(), pictureImportJob.getFetchCount());
+        try {
+            User loginUser = userService.getById(pictureImportJob.getUserId());
+            ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_FOUND_ERROR, "用户不存在");
+            //已处理过的地址，任务中断后重新执行时跳过
+            Set<String> finishedUrlSet = pictureImportItemMapper.selectList(new LambdaQueryWrapper<PictureImportItem>()
+                            .select(PictureImportItem::getFileUrl)
+                            .eq(PictureImportItem::getJobId, jobId))
+                    .stream()
+                    .map(PictureImportItem::getFileUrl)
+                    .collect(Collectors.toSet());
+            int successCount = pictureImportJob.getSuccessCount() == null ? 0 : pictureImportJob.getSuccessCount();
+            int remainCount = pictureImportJob.getFetchCount() - successCount;
+            ImportJobListener listener = new ImportJobListener(jobId, runToken);
+            if (remainCount > 0) {
+                List<String> fileUrlList = pictureService.crawlImageUrls(pictureImportJob.getSearchText(),
+                                remainCount * 2 + finishedUrlSet.size(), listener)
+                        .stream()
+                        .filter(fileUrl -> !finishedUrlSet.contains(fileUrl))
+                        .collect(Collectors.toList());
+                pictureService.uploadPictureByUrls(fileUrlList, remainCount, pictureImportJob.getPrefixName(),
+                        successCount, loginUser, listener);
+            }
+            if (finishJob(jobId, runToken, PictureImportJobStatusEnum.SUCCEED, null)) {
+                log.info("导入任务执行完成, jobId={}", jobId);
+            }
+        } catch (Exception e) {
+            log.error("导入任务执行失败, jobId={}", jobId, e);
+            finishJob(jobId, runToken, PictureImportJobStatusEnum.FAILED, StrUtil.maxLength(e.getMessage(), MAX_ERROR_MESSAGE_LENGTH));
+        }
+    }
+
+    /**
+     * 结束任务，仅更新仍由本次执行持有的任务，已取消或已被重置的任务保持原状态
+     *
+     * @return 是否更新成功
+     */
+    private boolean finishJob(Long jobId, String runToken, PictureImportJobStatusEnum status, String errorMessage) {
+        return this.lambdaUpdate()
+                .eq(PictureImportJob::getId, jobId)
+                .eq(PictureImportJob::getStatus, PictureImportJobStatusEnum.RUNNING.getValue())
+                .eq(PictureImportJob::getRunToken, runToken)
+                .set(PictureImportJob::getStatus, status.getValue())
+                .set(PictureImportJob::getFinishTime, new Date())
+                .set(errorMessage != null, PictureImportJob::getErrorMessage, errorMessage)
+                .update();
+    }
+
+    /**
+     * 任务仍由本次执行持有时的更新条件
+     */
+    private LambdaUpdateChainWrapper<PictureImportJob> updateOwnedJob(Long jobId, String runToken) {
+        return this.lambdaUpdate()
+                .eq(PictureImportJob::getId, jobId)
+                .eq(PictureImportJob::getStatus, PictureImportJobStatusEnum.RUNNING.getValue())
+                .eq(PictureImportJob::getRunToken, runToken);
+    }
+
+    /**
+     * 导入任务监听器：定期写入心跳并检查任务是否仍由本次执行持有，记录每张图片的处理结果并更新进度
+     */
+    private class ImportJobListener implements PictureUploadBatchListener {
+
+        private final Long jobId;
+
+        private final String runToken;
+
+        private long lastCheckTime;
+
+        private boolean cancelled;
+
+        ImportJobListener(Long jobId, String runToken) {
+            this.jobId = jobId;
+            this.runToken = runToken;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            long now = System.currentTimeMillis();
+            if (cancelled || now - lastCheckTime < pictureImportConfig.getCancelCheckInterval()) {
+                return cancelled;
+            }
+            lastCheckTime = now;
+            //写入心跳，任务被取消、被判定为中断后重置或已由其他执行者持有时更新失败，不再继续
+            cancelled = !updateOwnedJob(jobId, runToken)
+                    .set(PictureImportJob::getUpdateTime, new Date(now))
+                    .update();
+            if (cancelled) {
+                log.info("导入任务已取消或已由其他执行者持有, jobId={}", jobId);
+            }
+            return cancelled;
+        }
+
+        @Override
+        public void onItemFinished(PictureUploadBatchItemVO item) {
+            //只记录失败的图片，入库成功的图片在入库事务中记录
+            boolean updated = updateOwnedJob(jobId, runToken)
+                    .setSql("failCount = failCount + 1")
+                    .set(PictureImportJob::getUpdateTime, new Date())
+                    .update();
+            if (!updated) {
+                cancelled = true;
+                return;
+            }
+            pictureImportItemMapper.insert(toImportItem(item));
+        }
+
+        @Override
+        public void onItemsSaved(List<PictureUploadBatchItemVO> itemList) {
+            //在图片入库事务中执行，任务已不再由本次执行持有时抛出异常使整批回滚
+            boolean updated = updateOwnedJob(jobId, runToken)
+                    .setSql("successCount = successCount + " + itemList.size())
+                    .set(PictureImportJob::getUpdateTime, new Date())
+                    .update();
+            if (!updated) {
+                cancelled = true;
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "导入任务已取消或已由其他执行者持有");
+            }
+            itemList.forEach(item -> pictureImportItemMapper.insert(toImportItem(item)));
+        }
+
+        private PictureImportItem toImportItem(PictureUploadBatchItemVO item) {
+            PictureImportItem pictureImportItem = new PictureImportItem();
+            pictureImportItem.setJobId(jobId);
+            pictureImportItem.setFileUrl(item.getFileUrl());
+            pictureImportItem.setSuccess(Boolean.TRUE.equals(item.getSuccess()) ? 1 : 0);
+            pictureImportItem.setPictureId(item.getPictureId());
+            pictureImportItem.setPicName(item.getPicName());
+            pictureImportItem.setErrorMessage(StrUtil.maxLength(item.getErrorMessage(), MAX_ERROR_MESSAGE_LENGTH));
+            pictureImportItem.setCostMillis(item.getCostMillis());
+            return pictureImportItem;
+        }
+    }
+}
@@ -1,23 +1,40 @@
 package com.lcs.lcspicture.service.impl;
 
 import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.codec.Base64;
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.date.DatePattern;
+import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.lang.Pair;
+import cn.hutool.core.lang.TypeReference;
+import cn.hutool.core.util.NumberUtil;
 import cn.hutool.core.util.ObjUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.lcs.lcspicture.api.aliyunai.AliYunAiApi;
 import com.lcs.lcspicture.api.aliyunai.model.CreateOutPaintingTaskRequest;
 import com.lcs.lcspicture.api.aliyunai.model.CreateOutPaintingTaskResponse;
+import com.lcs.lcspicture.common.CursorPage;
 import com.lcs.lcspicture.common.DeleteRequest;
-import com.lcs.lcspicture.config.CosClientConfig;
+import com.lcs.lcspicture.config.PictureUploadConfig;
 import com.lcs.lcspicture.exception.BusinessException;
 import com.lcs.lcspicture.exception.ErrorCode;
 import com.lcs.lcspicture.exception.ThrowUtils;
-import com.lcs.lcspicture.manager.CosManager;
+import com.lcs.lcspicture.manager.cache.MultiLevelCache;
+import com.lcs.lcspicture.manager.cache.MultiLevelCacheManager;
+import com.lcs.lcspicture.manager.quota.SpaceQuotaManager;
+import com.lcs.lcspicture.manager.quota.SpaceQuotaReservation;
+import com.lcs.lcspicture.manager.search.PictureColorIndex;
+import com.lcs.lcspicture.manager.search.PictureHashIndex;
 import com.lcs.lcspicture.manager.upload.FilePictureUpload;
+import com.lcs.lcspicture.manager.upload.PictureChunkSession;
+import com.lcs.lcspicture.manager.upload.PictureChunkUploadManager;
+import com.lcs.lcspicture.manager.upload.PictureUploadBatchListener;
 import com.lcs.lcspicture.manager.upload.PictureUploadTemplate;
 import com.lcs.lcspicture.manager.upload.UrlPictureUpload;
 import com.lcs.lcspicture.model.dto.file.UploadPictureResult;
@@ -26,28 +43,41 @@ import com.lcs.lcspicture.model.entity.Picture;
 import com.lcs.lcspicture.model.entity.Space;
 import com.lcs.lcspicture.model.entity.User;
 import com.lcs.lcspicture.model.enums.PictureReviewStatusEnum;
+import com.lcs.lcspicture.model.enums.PictureSortFieldEnum;
+import com.lcs.lcspicture.model.vo.PictureChunkUploadVO;
+import com.lcs.lcspicture.model.vo.PictureUploadBatchItemVO;
+import com.lcs.lcspicture.model.vo.PictureUploadBatchVO;
 import com.lcs.lcspicture.model.vo.PictureVO;
 import com.lcs.lcspicture.model.vo.UserVO;
+import com.lcs.lcspicture.service.ObjectDeleteTaskService;
 import com.lcs.lcspicture.service.PictureService;
+import com.lcs.lcspicture.service.PictureStatService;
+import com.lcs.lcspicture.service.PictureTagService;
 import com.lcs.lcspicture.mapper.PictureMapper;
 import com.lcs.lcspicture.service.SpaceService;
 import com.lcs.lcspicture.service.UserService;
-import com.lcs.lcspicture.utils.ColorSimilarUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
-import java.awt.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 /**
@@ -65,15 +95,58 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> impl
     @Resource
     private UrlPictureUpload urlPictureUpload;
     @Resource
-    private CosManager cosManager;
+    private ObjectDeleteTaskService objectDeleteTaskService;
     @Resource
     private SpaceService spaceService;
     @Resource
     private TransactionTemplate transactionTemplate;
     @Resource
-    private CosClientConfig cosClientConfig;
-    @Resource
     private AliYunAiApi aliYunAiApi;
+    @Resource
+    private MultiLevelCacheManager multiLevelCacheManager;
+    @Resource
+    private PictureTagService pictureTagService;
+    @Resource
+    private PictureStatService pictureStatService;
+    @Resource
+    private PictureColorIndex pictureColorIndex;
+    @Resource
+    private PictureHashIndex pictureHashIndex;
+    @Resource
+    private PictureUploadConfig pictureUploadConfig;
+    @Resource
+    private ThreadPoolExecutor pictureUploadExecutor;
+    @Resource
+    private PictureChunkUploadManager pictureChunkUploadManager;
+    @Resource
+    private SpaceQuotaManager spaceQuotaManager;
+
+    /**
+     * 以图搜图返回的图片数量
+     */
+    private static final int SEARCH_BY_PICTURE_SIZE = 20;
+
+    /**
+     * 以图搜图允许的最大汉明距离
+     */
+    private static final int SEARCH_BY_PICTURE_MAX_DISTANCE = 12;
+
+    /**
+     * 公共图库分页缓存名称
+     */
+    private static final String PICTURE_PAGE_CACHE = "picturePage";
+
+    /**
+     * 公共图库分页缓存
+     */
+    private MultiLevelCache<Page<PictureVO>> picturePageCache;
+
+    @PostConstruct
+    public void initCache() {
+        picturePageCache = multiLevelCacheManager.getCache(PICTURE_PAGE_CACHE, new TypeReference<Page<PictureVO>>() {
+        });
+    }
+
     /**
      * 上传图片
      *
@@ -87,20 +160,14 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> impl
         ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR, "未登录");
         Long spaceId = pictureUploadRequest.getSpaceId();
         //校验空间是否存在
+        Space space = null;
         if (spaceId != null) {
-            Space space = spaceService.getById(spaceId);
+            space = spaceService.getById(spaceId);
             ThrowUtils.throwIf(space == null, ErrorCode.NOT_FOUND_ERROR, "空间不存在");
             //校验是否空间权限，已经改为使用注解鉴权
             /*if (!space.getUserId().equals(loginUser.getId())) {
                 throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无空间权限");
             }*/
-            //校验空间额度
-            if (space.getTotalCount() >= space.getMaxCount()) {
-                throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间条数不足");
-            }
-            if (space.getTotalSize() >= space.getMaxSize()) {
-                throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间容量不足");
-            }
         }
         // 判断是新增图片还是更新图片
         Long pictureId = null;
@@ -128,6 +195,26 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> impl
                 }
             }
         }
+        //预留空间额度，在写入对象存储之前原子地检查并占用，并发上传不会超出额度
+        if (spaceId != null && space == null) {
+            space = spaceService.getById(spaceId);
+            ThrowUtils.throwIf(space == null, ErrorCode.NOT_FOUND_ERROR, "空间不存在");
+        }
+        SpaceQuotaReservation reservation = spaceQuotaManager.reserve(space, pictureId == null ? 1 : 0,
+                getReserveSize(inputSource));
+        try {
+            return uploadAndSavePicture(inputSource, pictureUploadRequest, loginUser, spaceId, pictureId, reservation);
+        } catch (RuntimeException e) {
+            spaceQuotaManager.release(reservation);
+            throw e;
+        }
+    }
+
+    /**
+     * 上传图片并入库，空间额度已预留
+     */
+    private PictureVO uploadAndSavePicture(Object inputSource, PictureUploadRequest pictureUploadRequest, User loginUser,
+                                           Long spaceId, Long pictureId, SpaceQuotaReservation reservation) {
         //上传图片,得到信息
         //按照用户id划分目录
         String uploadPathPrefix;
@@ -142,32 +229,15 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> impl
         if (inputSource instanceof String) {
             pictureUploadTemplate = urlPictureUpload;
         }
-        UploadPictureResult uploadPictureResult = pictureUploadTemplate.uploadPicture(inputSource, uploadPathPrefix);
+        UploadPictureResult uploadPictureResult = pictureUploadTemplate.uploadPicture(inputSource, uploadPathPrefix,
+                contentHash -> getPictureByContentHash(contentHash, spaceId));
         //构造要入库的图片信息
-        Picture picture = new Picture();
-        //设置空间 id
-        picture.setSpaceId(spaceId);
-        //设置原图url
-        picture.setOriginUrl(uploadPictureResult.getOriginUrl());
-        //设置压缩图片url
-        picture.setUrl(uploadPictureResult.getUrl());
-        //设置缩略图
-        picture.setThumbnailUrl(uploadPictureResult.getThumbnailUrl());
         //支持外层传递图片名
         String picName = uploadPictureResult.getPicName();
         if (pictureUploadRequest != null && StrUtil.isNotBlank(pictureUploadRequest.getPrefixName())) {
             picName = pictureUploadRequest.getPrefixName();
         }
-        picture.setName(picName);
-        picture.setPicColor(uploadPictureResult.getPicColor());
-        picture.setPicSize(uploadPictureResult.getPicSize());
-        picture.setPicWidth(uploadPictureResult.getPicWidth());
-        picture.setPicHeight(uploadPictureResult.getPicHeight());
-        picture.setPicScale(uploadPictureResult.getPicScale());
-        picture.setPicFormat(uploadPictureResult.getPicFormat());
-        picture.setUserId(loginUser.getId());
-        //填充审核参数
-        fillReviewParams(picture, loginUser);
+        Picture picture = buildPicture(uploadPictureResult, spaceId, picName, loginUser);
         //如果picture不为空，表示更新，否则是新增
         Picture oldPicture = null;
         if (pictureId != null) {
@@ -176,46 +246,397 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> impl
             //通过设置picture.setId(pictureId)，MyBatis-Plus能够识别这是更新而非插入操作因为如果要新增的话相同的id会报错
             picture.setId(pictureId);
             picture.setEditTime(new Date());
+            //更新时保留原创建时间
+            picture.setCreateTime(oldPicture.getCreateTime());
         }
         //开启事务
         Long finalSpaceId = spaceId;
         Long finalPictureId = pictureId;
         Picture finalOldPicture = oldPicture;
-        transactionTemplate.execute(transactionStatus -> {
-            try {
-                //操作数据库
-                boolean result = this.saveOrUpdate(picture);
-                ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "图片上传失败，数据库操作失败");
-                //更新空间额度
-                if (finalSpaceId != null) {
+        try {
+            transactionTemplate.execute(transactionStatus -> {
+                try {
+                    lockReusedObjects(Collections.singletonList(picture));
+                    //操作数据库
+                    boolean result = this.saveOrUpdate(picture);
+                    ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "图片上传失败，数据库操作失败");
+                    //事务提交后预留的空间额度转为已用额度并累加待写回数据库的变化量，回滚时释放
+                    //新增时条数 + 1，更新时容量 = 原容量 + (新大小 - 旧大小)
+                    long oldPicSize = finalOldPicture == null || finalOldPicture.getPicSize() == null ? 0L : finalOldPicture.getPicSize();
+                    spaceQuotaManager.commitWithTransaction(reservation, finalPictureId == null ? 1 : 0,
+                            picture.getPicSize() - oldPicSize);
+                    //更新颜色索引
+                    pictureColorIndex.onPictureSaved(finalSpaceId, picture.getId(), picture.getPicColor(), picture.getPicPalette());
+                    pictureHashIndex.onPictureSaved(finalSpaceId, picture.getId(), picture.getPicHash());
+                    //更新统计汇总
                     if (finalPictureId == null) {
-                        //新增
-                        boolean update = spaceService.lambdaUpdate().eq(Space::getId, finalSpaceId).setSql("totalCount = totalCount + 1").setSql("totalSize = totalSize + " + picture.getPicSize()).update();
-                        ThrowUtils.throwIf(!update, ErrorCode.OPERATION_ERROR, "额度更新失败");
+                        pictureStatService.onPictureAdd(picture);
                     } else {
-                        //更新
-                        // 更新：容量 = 原容量 + (新大小 - 旧大小)，条数不变
-                        long oldPicSize = finalOldPicture.getPicSize() == null ? 0L : finalOldPicture.getPicSize();
-                        long newPicSize = picture.getPicSize();
-                        long spaceSize = newPicSize - oldPicSize;
-                        boolean update = spaceService.lambdaUpdate().eq(Space::getId, finalSpaceId).setSql("totalSize = totalSize + " + spaceSize).update();
-                        ThrowUtils.throwIf(!update, ErrorCode.OPERATION_ERROR, "额度更新失败");
+                        pictureStatService.onPictureSizeChange(finalOldPicture, picture.getPicSize());
+                    }
+                    // 新旧图片内容相同时复用的是同一对象，无需清理
+                    if (finalSpaceId != null && finalPictureId != null && ObjUtil.notEqual(finalOldPicture.getUrl(), picture.getUrl())) {
                         this.clearPictureFile(finalOldPicture);
                     }
+                } catch (BusinessException e) {
+                    // 业务异常原样抛出，如复用的对象所属图片已被删除时提示重新上传
+                    throw e;
+                } catch (Exception e) {
+                    log.error("图片入库失败, pictureId={}", finalPictureId, e);
+                    transactionStatus.setRollbackOnly(); // 手动回滚事务
+                    throw new BusinessException(ErrorCode.OPERATION_ERROR, "图片上传失败，数据库操作失败");
                 }
-            } catch (Exception e) {
-                transactionStatus.setRollbackOnly(); // 手动回滚事务
-                throw new BusinessException(ErrorCode.OPERATION_ERROR, "图片上传失败，数据库操作失败");
+                return true;
+            });
+        } catch (RuntimeException e) {
+            // 事务已回滚，清理本次新上传的对象；复用的对象仍属于已存在的图片，不清理
+            if (!Boolean.TRUE.equals(picture.getObjectReused())) {
+                objectDeleteTaskService.enqueue(Collections.singletonList(picture));
             }
-            return true;
-        });
+            throw e;
+        }
         //如果是更新，需要删除对象存储中的图片
         /*if (pictureId != null && oldPicture != null) {
             this.clearPictureFile(oldPicture);
         }*/
+        this.evictPictureCache(oldPicture, picture);
+        return PictureVO.objToVo(picture);
+    }
+
+    /**
+     * 根据内容哈希查询同一空间已上传的图片，用于复用对象；私有空间的对象不会被其他空间复用
+     *
+     * @param contentHash 内容哈希
+     * @param spaceId     空间 id，公共图库为 null
+     * @return 已存在的图片，不存在时为 null
+     */
+    private Picture getPictureByContentHash(String contentHash, Long spaceId) {
+        return this.lambdaQuery()
+                .eq(Picture::getContentHash, contentHash)
+                .eq(spaceId != null, Picture::getSpaceId, spaceId)
+                .isNull(spaceId == null, Picture::getSpaceId)
+                .isNotNull(Picture::getUrl)
+                .last("limit 1")
+                .one();
+    }
+
+    /**
+     * 根据上传结果构造要入库的图片信息，并填充审核参数
+     *
+     * @param uploadPictureResult 上传结果
+     * @param spaceId             空间 id
+     * @param picName             图片名称
+     * @param loginUser           登录用户
+     * @return 图片信息
+     */
+    private Picture buildPicture(UploadPictureResult uploadPictureResult, Long spaceId, String picName, User loginUser) {
+        Picture picture = new Picture();
+        //设置空间 id
+        picture.setSpaceId(spaceId);
+        //设置原图url
+        picture.setOriginUrl(uploadPictureResult.getOriginUrl());
+        //设置压缩图片url
+        picture.setUrl(uploadPictureResult.getUrl());
+        //设置缩略图
+        picture.setThumbnailUrl(uploadPictureResult.getThumbnailUrl());
+        picture.setName(picName);
+        picture.setPicColor(uploadPictureResult.getPicColor());
+        picture.setPicPalette(uploadPictureResult.getPicPalette());
+        picture.setPicHash(uploadPictureResult.getPicHash());
+        picture.setPicSize(uploadPictureResult.getPicSize());
+        picture.setPicWidth(uploadPictureResult.getPicWidth());
+        picture.setPicHeight(uploadPictureResult.getPicHeight());
+        picture.setPicScale(uploadPictureResult.getPicScale());
+        picture.setPicFormat(uploadPictureResult.getPicFormat());
+        picture.setContentHash(uploadPictureResult.getContentHash());
+        //更新图片时覆盖原图片记录的对象键，没有其余对象时置为空串
+        picture.setExtraKeys(StrUtil.nullToEmpty(uploadPictureResult.getExtraKeys()));
+        picture.setObjectReused(uploadPictureResult.getObjectReused());
+        picture.setUserId(loginUser.getId());
+        //创建时间由应用写入，统计汇总按同一时间计算统计日期
+        picture.setCreateTime(new Date());
+        //填充审核参数
+        fillReviewParams(picture, loginUser);
+        return picture;
+    }
+
+    /**
+     * 入库前锁定复用对象的来源图片，并确认对象仍被图片引用，在入库事务中调用
+     * <p>
+     * 与对象删除任务的引用检查都使用锁定读：来源图片删除后这里发现对象已无图片引用而失败，不会复用即将删除的对象；
+     * 这里先锁定时，删除任务等待本事务提交后能看到新图片的引用，不会删除对象
+     *
+     * @param pictureList 待入库的图片
+     */
+    private void lockReusedObjects(List<Picture> pictureList) {
+        Set<String> hashSet = pictureList.stream()
+                .filter(picture -> Boolean.TRUE.equals(picture.getObjectReused()))
+                .map(Picture::getContentHash)
+                .collect(Collectors.toSet());
+        if (hashSet.isEmpty()) {
+            return;
+        }
+        Set<String> urlSet = this.getBaseMapper().selectList(new LambdaQueryWrapper<Picture>()
+                        .select(Picture::getId, Picture::getUrl)
+                        .in(Picture::getContentHash, hashSet)
+                        .last("for update"))
+                .stream().map(Picture::getUrl).collect(Collectors.toSet());
+        for (Picture picture : pictureList) {
+            ThrowUtils.throwIf(Boolean.TRUE.equals(picture.getObjectReused()) && !urlSet.contains(picture.getUrl()),
+                    ErrorCode.OPERATION_ERROR, "相同内容的图片已被删除，请重新上传");
+        }
+    }
+
+    /**
+     * 多文件上传图片
+     * <p>
+     * 先校验所有文件并按整批预检空间额度，再以有限的并发上传到对象存储，最后在一个事务中批量入库并一次性更新空间额度；
+     * 任意一张失败则整批失败，并清理本批已上传的对象
+     *
+     * @param multipartFileList        图片文件
+     * @param pictureUploadBulkRequest 多文件上传请求参数
+     * @param loginUser                登录用户
+     * @return 上传后的图片
+     */
+    @Override
+    public List<PictureVO> uploadPictureByBulk(List<MultipartFile> multipartFileList, PictureUploadBulkRequest pictureUploadBulkRequest,
+                                               User loginUser) {
+        //1.参数校验
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR, "未登录");
+        ThrowUtils.throwIf(CollUtil.isEmpty(multipartFileList), ErrorCode.PARAMS_ERROR, "文件不能为空");
+        int bulkMaxCount = pictureUploadConfig.getBulkMaxCount();
+        ThrowUtils.throwIf(multipartFileList.size() > bulkMaxCount, ErrorCode.PARAMS_ERROR,
+                String.format("最多上传%s张图片", bulkMaxCount));
+        multipartFileList.forEach(filePictureUpload::checkPicture);
+        Long spaceId = pictureUploadBulkRequest == null ? null : pictureUploadBulkRequest.getSpaceId();
+        String prefixName = pictureUploadBulkRequest == null ? null : pictureUploadBulkRequest.getPrefixName();
+        //2.按整批预留空间额度
+        long totalFileSize = multipartFileList.stream().mapToLong(MultipartFile::getSize).sum();
+        SpaceQuotaReservation reservation = reserveSpaceQuota(spaceId, multipartFileList.size(), totalFileSize);
+        String uploadPathPrefix = spaceId == null ? String.format("public/%s", loginUser.getId())
+                : String.format("space/%s", spaceId);
+        List<Picture> pictureList;
+        try {
+            //3.并发上传到对象存储
+            List<UploadPictureResult> uploadPictureResultList = uploadBulkFiles(multipartFileList, uploadPathPrefix, spaceId);
+            pictureList = new ArrayList<>(uploadPictureResultList.size());
+            for (int i = 0; i < uploadPictureResultList.size(); i++) {
+                UploadPictureResult uploadPictureResult = uploadPictureResultList.get(i);
+                String picName = StrUtil.isBlank(prefixName) ? uploadPictureResult.getPicName() : prefixName + (i + 1);
+                pictureList.add(buildPicture(uploadPictureResult, spaceId, picName, loginUser));
+            }
+            //4.一个事务中批量入库，空间额度只更新一次
+            saveNewPictures(pictureList, spaceId, reservation);
+        } catch (RuntimeException e) {
+            spaceQuotaManager.release(reservation);
+            throw e;
+        }
+        //上传到私有空间或待审核的图片不会出现在公共图库分页中
+        if (pictureList.stream().anyMatch(picture -> isInPublicPage(picture, spaceId))) {
+            picturePageCache.evictAll();
+        }
+        return pictureList.stream().map(PictureVO::objToVo).collect(Collectors.toList());
+    }
+
+    /**
+     * 在一个事务中保存新上传的图片并更新索引、统计，空间额度只更新一次；失败时清理已上传的对象
+     *
+     * @param pictureList 新上传的图片
+     * @param spaceId     空间 id
+     * @param reservation 已预留的空间额度，公共图库为 null
+     */
+    private void saveNewPictures(List<Picture> pictureList, Long spaceId, SpaceQuotaReservation reservation) {
+        long totalPicSize = pictureList.stream().mapToLong(Picture::getPicSize).sum();
+        try {
+            transactionTemplate.execute(transactionStatus -> {
+                lockReusedObjects(pictureList);
+                boolean result = this.saveBatch(pictureList);
+                ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "图片上传失败，数据库操作失败");
+                //事务提交后预留转为已用额度，同时累加待写回数据库的变化量
+                spaceQuotaManager.commitWithTransaction(reservation, pictureList.size(), totalPicSize);
+                for (Picture picture : pictureList) {
+                    pictureColorIndex.onPictureSaved(spaceId, picture.getId(), picture.getPicColor(), picture.getPicPalette());
+                    pictureHashIndex.onPictureSaved(spaceId, picture.getId(), picture.getPicHash());
+                    pictureStatService.onPictureAdd(picture);
+                }
+                return true;
+            });
+        } catch (Exception e) {
+            log.error("图片入库失败, spaceId={}, count={}", spaceId, pictureList.size(), e);
+            objectDeleteTaskService.enqueue(pictureList);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "图片上传失败，数据库操作失败");
+        }
+    }
+
+    /**
+     * 初始化分块上传，按声明的文件大小预检空间额度
+     *
+     * @param pictureChunkInitRequest 初始化分块上传请求
+     * @param loginUser               登录用户
+     * @return 上传进度
+     */
+    @Override
+    public PictureChunkUploadVO initChunkUpload(PictureChunkInitRequest pictureChunkInitRequest, User loginUser) {
+        ThrowUtils.throwIf(pictureChunkInitRequest == null, ErrorCode.PARAMS_ERROR);
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR, "未登录");
+        Long fileSize = pictureChunkInitRequest.getFileSize();
+        ThrowUtils.throwIf(fileSize == null || fileSize <= 0, ErrorCode.PARAMS_ERROR, "文件大小错误");
+        Long spaceId = pictureChunkInitRequest.getSpaceId();
+        checkSpaceQuota(spaceId, 1, fileSize);
+        String uploadPathPrefix = spaceId == null ? String.format("public/%s", loginUser.getId())
+                : String.format("space/%s", spaceId);
+        return pictureChunkUploadManager.init(loginUser.getId(), spaceId, pictureChunkInitRequest.getFileName(),
+                fileSize, uploadPathPrefix);
+    }
+
+    /**
+     * 完成分块上传：由存储在服务端合并分块，再按普通上传的方式入库并更新空间额度
+     * <p>
+     * 合并后的对象不经过应用读取，不计算内容哈希，也不提取色板与感知哈希，因此不参与相同内容去重与以图搜图
+     *
+     * @param pictureChunkCompleteRequest 完成分块上传请求
+     * @param loginUser                   登录用户
+     * @return 上传后的图片
+     */
+    @Override
+    public PictureVO completeChunkUpload(PictureChunkCompleteRequest pictureChunkCompleteRequest, User loginUser) {
+        ThrowUtils.throwIf(pictureChunkCompleteRequest == null, ErrorCode.PARAMS_ERROR);
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR, "未登录");
+        PictureChunkSession session = pictureChunkUploadManager.getSession(pictureChunkCompleteRequest.getUploadId(),
+                loginUser.getId());
+        Long spaceId = session.getSpaceId();
+        //合并分块前预留空间额度
+        SpaceQuotaReservation reservation = reserveSpaceQuota(spaceId, 1, session.getFileSize());
+        Picture picture;
+        boolean merged = false;
+        try {
+            UploadPictureResult uploadPictureResult = pictureChunkUploadManager.complete(session);
+            merged = true;
+            String picName = uploadPictureResult.getPicName();
+            if (StrUtil.isNotBlank(pictureChunkCompleteRequest.getPrefixName())) {
+                picName = pictureChunkCompleteRequest.getPrefixName();
+            }
+            picture = buildPicture(uploadPictureResult, spaceId, picName, loginUser);
+            saveNewPictures(Collections.singletonList(picture), spaceId, reservation);
+        } catch (RuntimeException e) {
+            spaceQuotaManager.release(reservation);
+            throw e;
+        } finally {
+            //分块已在存储中合并，入库失败时对象也已清理，会话不再可用；合并失败时保留会话，可以重试，过期后由定时任务取消
+            if (merged) {
+                pictureChunkUploadManager.remove(session.getUploadId());
+            }
+        }
+        this.evictPictureCache(null, picture);
         return PictureVO.objToVo(picture);
     }
 
+    /**
+     * 预留空间额度
+     *
+     * @param spaceId  空间 id，公共图库不预留
+     * @param addCount 新增图片数
+     * @param addSize  新增图片大小
+     * @return 预留，公共图库为 null
+     */
+    private SpaceQuotaReservation reserveSpaceQuota(Long spaceId, int addCount, long addSize) {
+        if (spaceId == null) {
+            return null;
+        }
+        Space space = spaceService.getById(spaceId);
+        ThrowUtils.throwIf(space == null, ErrorCode.NOT_FOUND_ERROR, "空间不存在");
+        return spaceQuotaManager.reserve(space, addCount, addSize);
+    }
+
+    /**
+     * 获取上传前需要预留的大小：文件上传按文件大小，URL 上传时大小未知，按允许的最大文件大小预留，结算时按实际大小计入已用额度
+     */
+    private long getReserveSize(Object inputSource) {
+        if (inputSource instanceof MultipartFile) {
+            return ((MultipartFile) inputSource).getSize();
+        }
+        return pictureUploadConfig.getMaxFileSize();
+    }
+
+    /**
+     * 预检空间额度，用于分块上传开始前尽早拒绝，实际占用在合并分块前预留
+     *
+     * @param spaceId  空间 id，公共图库不校验
+     * @param addCount 新增图片数
+     * @param addSize  新增图片大小
+     */
+    private void checkSpaceQuota(Long spaceId, int addCount, long addSize) {
+        if (spaceId == null) {
+            return;
+        }
+        Space space = spaceService.getById(spaceId);
+        ThrowUtils.throwIf(space == null, ErrorCode.NOT_FOUND_ERROR, "空间不存在");
+        if (space.getTotalCount() + addCount > space.getMaxCount()) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间条数不足");
+        }
+        if (space.getTotalSize() + addSize > space.getMaxSize()) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间容量不足");
+        }
+    }
+
+    /**
+     * 以有限的并发把文件上传到对象存储，结果与文件顺序一致；任意一张失败时不再提交新的文件，
+     * 等待处理中的文件结束后清理本批已上传的对象
+     *
+     * @param multipartFileList 图片文件
+     * @param uploadPathPrefix  上传路径前缀
+     * @param spaceId           空间 id，公共图库为 null
+     * @return 上传结果
+     */
+    private List<UploadPictureResult> uploadBulkFiles(List<MultipartFile> multipartFileList, String uploadPathPrefix, Long spaceId) {
+        int concurrency = Math.max(1, pictureUploadConfig.getBatchConcurrency());
+        CompletionService<Pair<Integer, UploadPictureResult>> completionService =
+                new ExecutorCompletionService<>(pictureUploadExecutor);
+        UploadPictureResult[] uploadPictureResults = new UploadPictureResult[multipartFileList.size()];
+        int next = 0;
+        int running = 0;
+        BusinessException failure = null;
+        while (true) {
+            while (failure == null && running < concurrency && next < multipartFileList.size()) {
+                int index = next++;
+                MultipartFile multipartFile = multipartFileList.get(index);
+                completionService.submit(() -> new Pair<>(index, filePictureUpload.uploadPicture(multipartFile, uploadPathPrefix,
+                        contentHash -> getPictureByContentHash(contentHash, spaceId))));
+                running++;
+            }
+            if (running == 0) {
+                break;
+            }
+            try {
+                Pair<Integer, UploadPictureResult> pair = completionService.take().get();
+                uploadPictureResults[pair.getKey()] = pair.getValue();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = new BusinessException(ErrorCode.OPERATION_ERROR, "上传被中断");
+            } catch (ExecutionException e) {
+                log.error("多文件上传图片失败", e.getCause());
+                if (failure == null) {
+                    failure = e.getCause() instanceof BusinessException ? (BusinessException) e.getCause()
+                            : new BusinessException(ErrorCode.OPERATION_ERROR, "图片上传失败");
+                }
+            }
+            running--;
+        }
+        if (failure != null) {
+            List<Picture> uploadedPictureList = new ArrayList<>();
+            for (UploadPictureResult uploadPictureResult : uploadPictureResults) {
+                if (uploadPictureResult != null) {
+                    Picture picture = new Picture();
+                    BeanUtil.copyProperties(uploadPictureResult, picture);
+                    uploadedPictureList.add(picture);
+                }
+            }
+            objectDeleteTaskService.enqueue(uploadedPictureList);
+            throw failure;
+        }
+        return Arrays.asList(uploadPictureResults);
+    }
+
     /**
      * 获取查询包装类
      *
@@ -230,6 +651,7 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> impl
         String introduction = pictureQueryRequest.getIntroduction();
         String category = pictureQueryRequest.getCategory();
         List<String> tags = pictureQueryRequest.getTags();
+        String tagMode = pictureQueryRequest.getTagMode();
         Long picSize = pictureQueryRequest.getPicSize();
         Integer picWidth = pictureQueryRequest.getPicWidth();
         Integer picHeight = pictureQueryRequest.getPicHeight();
@@ -271,10 +693,9 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> impl
         queryWrapper.ge(ObjUtil.isNotNull(startEditTime), "editTime", startEditTime);
         //<endEditTime
         queryWrapper.lt(ObjUtil.isNotNull(endEditTime), "editTime", endEditTime);
+        //通过标签索引表过滤
         if (CollUtil.isNotEmpty(tags)) {
-            for (String tag : tags) {
-                queryWrapper.eq("tags", "\"" + tag + "\"");
-            }
+            pictureTagService.fillTagQueryWrapper(queryWrapper, tags, !"or".equals(tagMode));
         }
         queryWrapper.orderBy(StrUtil.isNotEmpty(sortField), sortOrder.equals("ascend"), sortField);
         return queryWrapper;
@@ -333,6 +754,178 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> impl
         return pictureVOPage;
     }
 
+    /**
+     * 分页获取公共图库图片列表封装类（多级缓存）
+     *
+     * @param pictureQueryRequest 查询条件
+     * @param request             请求
+     * @return 图片列表封装类
+     */
+    @Override
+    public Page<PictureVO> listPictureVOByPageWithCache(PictureQueryRequest pictureQueryRequest, HttpServletRequest request) {
+        //缓存仅用于公共图库，空间图片需要鉴权，不走缓存
+        ThrowUtils.throwIf(pictureQueryRequest.getSpaceId() != null, ErrorCode.PARAMS_ERROR, "缓存接口仅支持公共图库");
+        //普通用户默认显示审核通过的图片
+        pictureQueryRequest.setReviewStatus(PictureReviewStatusEnum.PASS.getValue());
+        pictureQueryRequest.setNullSpaceId(true);
+        //构建缓存key
+        String queryCondition = JSONUtil.toJsonStr(pictureQueryRequest);
+        String cacheKey = DigestUtils.md5DigestAsHex(queryCondition.getBytes());
+        return picturePageCache.get(cacheKey, () -> {
+            Page<Picture> page = this.page(new Page<>(pictureQueryRequest.getCurrent(), pictureQueryRequest.getPageSize()),
+                    this.getQueryWrapper(pictureQueryRequest));
+            return this.getPictureVOList(page, request);
+        });
+    }
+
+    /**
+     * 游标分页获取图片列表封装类
+     * <p>
+     * 按 (排序字段, id) 定位下一页，不使用 OFFSET，深翻页与首页开销一致；默认不统计总数
+     *
+     * @param pictureCursorQueryRequest 查询条件
+     * @param request                   请求
+     * @return 游标分页结果
+     */
+    @Override
+    public CursorPage<PictureVO> listPictureVOByCursor(PictureCursorQueryRequest pictureCursorQueryRequest, HttpServletRequest request) {
+        ThrowUtils.throwIf(pictureCursorQueryRequest == null, ErrorCode.PARAMS_ERROR);
+        int pageSize = pictureCursorQueryRequest.getPageSize();
+        ThrowUtils.throwIf(pageSize <= 0 || pageSize > 20, ErrorCode.PARAMS_ERROR);
+        //排序字段只允许白名单中有索引的非空字段
+        String sortField = StrUtil.blankToDefault(pictureCursorQueryRequest.getSortField(), PictureSortFieldEnum.CREATE_TIME.getValue());
+        PictureSortFieldEnum sortFieldEnum = PictureSortFieldEnum.getEnumByValue(sortField);
+        ThrowUtils.throwIf(sortFieldEnum == null, ErrorCode.PARAMS_ERROR, "不支持的排序字段");
+        boolean isAsc = "ascend".equals(pictureCursorQueryRequest.getSortOrder());
+        String sortOrder = isAsc ? "ascend" : "descend";
+        PictureCursor cursor = decodeCursor(pictureCursorQueryRequest.getCursor());
+        if (cursor != null) {
+            ThrowUtils.throwIf(!sortField.equals(cursor.getSortField()) || !sortOrder.equals(cursor.getSortOrder()),
+                    ErrorCode.PARAMS_ERROR, "游标与排序条件不一致");
+        }
+        //排序由本方法控制，不使用通用查询条件中的排序
+        pictureCursorQueryRequest.setSortField(null);
+        QueryWrapper<Picture> queryWrapper = this.getQueryWrapper(pictureCursorQueryRequest);
+        CursorPage<PictureVO> cursorPage = new CursorPage<>();
+        if (pictureCursorQueryRequest.isNeedTotal()) {
+            cursorPage.setTotal(this.count(queryWrapper));
+        }
+        //排序字段为空的记录无法定位，不参与游标分页
+        queryWrapper.isNotNull(sortFieldEnum != PictureSortFieldEnum.ID, sortField);
+        //定位到上一页最后一条记录之后
+        if (cursor != null) {
+            Object sortValue = parseSortValue(sortFieldEnum, cursor.getSortValue());
+            Long lastId = cursor.getId();
+            if (sortFieldEnum == PictureSortFieldEnum.ID) {
+                queryWrapper.gt(isAsc, "id", lastId).lt(!isAsc, "id", lastId);
+            } else if (isAsc) {
+                queryWrapper.and(qw -> qw.gt(sortField, sortValue).or(w -> w.eq(sortField, sortValue).gt("id", lastId)));
+            } else {
+                queryWrapper.and(qw -> qw.lt(sortField, sortValue).or(w -> w.eq(sortField, sortValue).lt("id", lastId)));
+            }
+        }
+        if (sortFieldEnum != PictureSortFieldEnum.ID) {
+            queryWrapper.orderBy(true, isAsc, sortField);
+        }
+        queryWrapper.orderBy(true, isAsc, "id");
+        //多查一条用于判断是否还有下一页
+        queryWrapper.last("limit " + (pageSize + 1));
+        List<Picture> pictureList = this.list(queryWrapper);
+        boolean hasMore = pictureList.size() > pageSize;
+        if (hasMore) {
+            pictureList = pictureList.subList(0, pageSize);
+            Picture lastPicture = pictureList.get(pictureList.size() - 1);
+            cursorPage.setNextCursor(encodeCursor(sortFieldEnum, sortOrder, lastPicture));
+        }
+        cursorPage.setHasMore(hasMore);
+        Page<Picture> picturePage = new Page<>(1, pageSize, false);
+        picturePage.setRecords(pictureList);
+        cursorPage.setRecords(this.getPictureVOList(picturePage, request).getRecords());
+        return cursorPage;
+    }
+
+    /**
+     * 编码游标
+     */
+    private String encodeCursor(PictureSortFieldEnum sortFieldEnum, String sortOrder, Picture lastPicture) {
+        PictureCursor cursor = new PictureCursor();
+        cursor.setSortField(sortFieldEnum.getValue());
+        cursor.setSortOrder(sortOrder);
+        cursor.setId(lastPicture.getId());
+        Object sortValue = BeanUtil.getFieldValue(lastPicture, sortFieldEnum.getValue());
+        if (sortValue instanceof Date) {
+            cursor.setSortValue(DateUtil.format((Date) sortValue, DatePattern.NORM_DATETIME_MS_PATTERN));
+        } else {
+            cursor.setSortValue(StrUtil.toStringOrNull(sortValue));
+        }
+        return Base64.encodeUrlSafe(JSONUtil.toJsonStr(cursor));
+    }
+
+    /**
+     * 解码游标
+     */
+    private PictureCursor decodeCursor(String cursorStr) {
+        if (StrUtil.isBlank(cursorStr)) {
+            return null;
+        }
+        PictureCursor cursor;
+        try {
+            cursor = JSONUtil.toBean(Base64.decodeStr(cursorStr), PictureCursor.class);
+        } catch (Exception e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标无效");
+        }
+        ThrowUtils.throwIf(cursor == null || cursor.getId() == null || cursor.getSortValue() == null,
+                ErrorCode.PARAMS_ERROR, "游标无效");
+        return cursor;
+    }
+
+    /**
+     * 将游标中的排序字段值转换为字段类型
+     */
+    private Object parseSortValue(PictureSortFieldEnum sortFieldEnum, String sortValue) {
+        try {
+            switch (sortFieldEnum) {
+                case CREATE_TIME:
+                case EDIT_TIME:
+                    return DateUtil.parse(sortValue, DatePattern.NORM_DATETIME_MS_PATTERN);
+                default:
+                    return Convert.toLong(sortValue);
+            }
+        } catch (Exception e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标无效");
+        }
+    }
+
+    /**
+     * 清理图片相关缓存
+     * <p>
+     * 分页缓存只包含公共图库中审核通过的图片，变化前后都不在其中的图片（私有空间、待审核、被拒绝）不影响缓存
+     *
+     * @param oldPicture 变化前的图片，新增时为 null
+     * @param newPicture 变化后的图片（可以只包含修改的字段），删除时为 null
+     */
+    @Override
+    public void evictPictureCache(Picture oldPicture, Picture newPicture) {
+        //图片所属空间不会变化，修改时以原图片的空间为准
+        Long spaceId = oldPicture != null ? oldPicture.getSpaceId() : newPicture == null ? null : newPicture.getSpaceId();
+        if (!isInPublicPage(oldPicture, spaceId) && !isInPublicPage(newPicture, spaceId)) {
+            return;
+        }
+        //分页缓存的 key 由查询条件生成，无法定位受影响的条目，整体失效
+        picturePageCache.evictAll();
+    }
+
+    /**
+     * 图片是否会出现在公共图库分页缓存中
+     *
+     * @param picture 图片
+     * @param spaceId 图片所属空间 id
+     */
+    private boolean isInPublicPage(Picture picture, Long spaceId) {
+        return picture != null && spaceId == null
+                && ObjUtil.equals(picture.getReviewStatus(), PictureReviewStatusEnum.PASS.getValue());
+    }
+
     /**
      * 图片数据校验
      *
@@ -380,6 +973,7 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> impl
         //操作数据库
         boolean result = this.updateById(picture);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "图片审核失败");
+        this.evictPictureCache(oldPicture, picture);
     }
 
     /**
@@ -407,128 +1001,353 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> impl
      *
      * @param pictureUploadByBachRequest 图片上传批量请求
      * @param loginUser                  登录用户
-     * @return 图片数量
+     * @return 批量上传结果
      */
     @Override
-    public Integer uploadPictureByBatch(PictureUploadByBachRequest pictureUploadByBachRequest, User loginUser) {
+    public PictureUploadBatchVO uploadPictureByBatch(PictureUploadByBachRequest pictureUploadByBachRequest, User loginUser) {
         //参数校验
+        ThrowUtils.throwIf(pictureUploadByBachRequest == null, ErrorCode.PARAMS_ERROR);
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR);
         String searchText = pictureUploadByBachRequest.getSearchText();
         Integer fetchCount = pictureUploadByBachRequest.getFetchCount();
-        ThrowUtils.throwIf(fetchCount > 20, ErrorCode.PARAMS_ERROR, "最多上传20张图片");
+        ThrowUtils.throwIf(StrUtil.isBlank(searchText), ErrorCode.PARAMS_ERROR, "搜索关键字不能为空");
+        int maxFetchCount = pictureUploadConfig.getBatchMaxFetchCount();
+        ThrowUtils.throwIf(fetchCount == null || fetchCount <= 0 || fetchCount > maxFetchCount,
+                ErrorCode.PARAMS_ERROR, String.format("最多上传%s张图片", maxFetchCount));
         String prefixName = pictureUploadByBachRequest.getPrefixName();
         if (StrUtil.isBlank(prefixName)) {
             prefixName = searchText;
         }
-        String fetchUrl = String.format("https://cn.bing.com/images/async?q=%s&mmasync=1", searchText);
-        Document elements = null;
+        //1.抓取图片地址，多抓取一些备用，部分图片下载失败时用后面的补上
+        PictureUploadBatchListener listener = new PictureUploadBatchListener() {
+        };
+        List<String> fileUrlList = crawlImageUrls(searchText, fetchCount * 2, listener);
+        //2.并发下载并上传到对象存储，3.分批入库
+        PictureUploadBatchVO pictureUploadBatchVO = uploadPictureByUrls(fileUrlList, fetchCount, prefixName, 0,
+                loginUser, listener);
+        log.info("批量上传图片完成, searchText={}, success={}, fail={}, 耗时 {} ms, 单张最长 {} ms",
+                searchText, pictureUploadBatchVO.getSuccessCount(), pictureUploadBatchVO.getFailCount(),
+                pictureUploadBatchVO.getCostMillis(), pictureUploadBatchVO.getMaxItemCostMillis());
+        return pictureUploadBatchVO;
+    }
+
+    /**
+     * 按地址批量上传图片到公共图库
+     * <p>
+     * 并发下载并上传到对象存储，成功的图片攒够一批后在一个事务中入库；同时处理的图片数有上限，
+     * 且成功、待入库、处理中的图片总数不会超过需要的数量，失败时依次用后面的地址补上
+     *
+     * @param fileUrlList 图片地址
+     * @param fetchCount  需要成功上传的数量
+     * @param prefixName  图片名称前缀
+     * @param nameOffset  图片名称序号的起始偏移
+     * @param loginUser   登录用户
+     * @param listener    处理过程监听器
+     * @return 批量上传结果
+     */
+    @Override
+    public PictureUploadBatchVO uploadPictureByUrls(List<String> fileUrlList, int fetchCount, String prefixName, int nameOffset,
+                                                    User loginUser, PictureUploadBatchListener listener) {
+        long startTime = System.currentTimeMillis();
+        String uploadPathPrefix = String.format("public/%s", loginUser.getId());
+        int concurrency = Math.max(1, pictureUploadConfig.getBatchConcurrency());
+        int batchInsertSize = Math.max(1, pictureUploadConfig.getBatchInsertSize());
+        CompletionService<Pair<PictureUploadBatchItemVO, UploadPictureResult>> completionService =
+                new ExecutorCompletionService<>(pictureUploadExecutor);
+        Iterator<String> iterator = fileUrlList.iterator();
+        List<PictureUploadBatchItemVO> itemList = new ArrayList<>();
+        List<Pair<PictureUploadBatchItemVO, Picture>> pendingList = new ArrayList<>();
+        //处理中的图片，以及已取出但还没有加入待入库列表的上传结果，中途失败时据此清理已上传的对象
+        Set<Future<Pair<PictureUploadBatchItemVO, UploadPictureResult>>> runningSet = new HashSet<>();
+        UploadPictureResult takenResult = null;
+        AtomicBoolean aborted = new AtomicBoolean();
+        int successCount = 0;
         try {
-            //抓取内容
-            elements = Jsoup.connect(fetchUrl).get();
-        } catch (Exception e) {
-            log.error("获取页面失败", e);
-            throw new BusinessException(ErrorCode.PARAMS_ERROR, "获取页面失败");
-        }
-        //解析内容
-        Element dgControl = elements.getElementsByClass("dgControl").first();
-        if (ObjUtil.isEmpty(dgControl)) {
-            throw new BusinessException(ErrorCode.PARAMS_ERROR, "获取元素失败");
-        }
-        Elements select = dgControl.select("img.mimg");
-        Integer count = 0;
-        for (Element element : select) {
-            String fileUrl = element.attr("src");
-            if (StrUtil.isBlank(fileUrl)) {
-                log.info("获取元素失败{}", element);
-                continue;
+            while (true) {
+                //同时处理的图片数不超过并发数，且成功、待入库、处理中的图片总数不超过需要的数量
+                while (runningSet.size() < concurrency && iterator.hasNext() && !listener.isCancelled()
+                        && successCount + pendingList.size() + runningSet.size() < fetchCount) {
+                    String fileUrl = iterator.next();
+                    runningSet.add(completionService.submit(() -> uploadBatchItem(fileUrl, uploadPathPrefix, aborted)));
+                }
+                if (runningSet.isEmpty()) {
+                    break;
+                }
+                Future<Pair<PictureUploadBatchItemVO, UploadPictureResult>> future = takeBatchFuture(completionService);
+                runningSet.remove(future);
+                Pair<PictureUploadBatchItemVO, UploadPictureResult> pair = getBatchItem(future);
+                takenResult = pair.getValue();
+                PictureUploadBatchItemVO item = pair.getKey();
+                itemList.add(item);
+                if (Boolean.TRUE.equals(item.getSuccess())) {
+                    String picName = prefixName + (nameOffset + successCount + pendingList.size() + 1);
+                    item.setPicName(picName);
+                    pendingList.add(new Pair<>(item, buildPicture(takenResult, null, picName, loginUser)));
+                    takenResult = null;
+                } else {
+                    listener.onItemFinished(item);
+                }
+                //攒够一批后入库
+                if (pendingList.size() >= batchInsertSize) {
+                    successCount += savePictureBatch(pendingList, listener);
+                }
             }
-            int questionMark = fileUrl.indexOf("?");
-            if (questionMark != -1) {
-                fileUrl = fileUrl.substring(0, questionMark);
+            successCount += savePictureBatch(pendingList, listener);
+        } catch (RuntimeException e) {
+            aborted.set(true);
+            discardBatchItems(runningSet, takenResult, pendingList, loginUser);
+            throw e;
+        }
+        //非管理员导入的图片待审核，不会出现在公共图库分页中
+        if (successCount > 0 && userService.isAdmin(loginUser)) {
+            picturePageCache.evictAll();
+        }
+        //统计结果
+        long costMillis = System.currentTimeMillis() - startTime;
+        PictureUploadBatchVO pictureUploadBatchVO = new PictureUploadBatchVO();
+        pictureUploadBatchVO.setSuccessCount(successCount);
+        pictureUploadBatchVO.setFailCount(itemList.size() - successCount);
+        pictureUploadBatchVO.setCostMillis(costMillis);
+        pictureUploadBatchVO.setMaxItemCostMillis(itemList.stream()
+                .mapToLong(PictureUploadBatchItemVO::getCostMillis).max().orElse(0L));
+        pictureUploadBatchVO.setThroughput(NumberUtil.round(successCount * 1000.0 / Math.max(1, costMillis), 2).doubleValue());
+        pictureUploadBatchVO.setItems(itemList);
+        return pictureUploadBatchVO;
+    }
+
+    /**
+     * 从必应图片搜索中抓取图片地址，逐页抓取直到数量足够、没有新的图片、达到最大页数或任务被取消
+     *
+     * @param searchText 搜索关键字
+     * @param maxCount   最多抓取数量
+     * @param listener   处理过程监听器，每翻一页检查一次是否已取消
+     * @return 去重后的图片地址
+     */
+    @Override
+    public List<String> crawlImageUrls(String searchText, int maxCount, PictureUploadBatchListener listener) {
+        Set<String> fileUrlSet = new LinkedHashSet<>();
+        int first = 0;
+        int maxPages = Math.max(1, pictureUploadConfig.getCrawlMaxPages());
+        for (int page = 0; page < maxPages && fileUrlSet.size() < maxCount; page++) {
+            if (page > 0 && listener.isCancelled()) {
+                break;
             }
-            //上传图片
-            PictureUploadRequest pictureUploadRequest = new PictureUploadRequest();
-            pictureUploadRequest.setFileUrl(fileUrl);
-            pictureUploadRequest.setPrefixName(prefixName + (count + 1));
+            String fetchUrl = String.format("https://cn.bing.com/images/async?q=%s&mmasync=1&first=%s", searchText, first);
+            Document document;
             try {
-                PictureVO pictureVO = uploadPicture(fileUrl, pictureUploadRequest, loginUser);
-                log.info("上传图片成功{}", pictureVO);
-                count++;
+                //抓取内容
+                document = Jsoup.connect(fetchUrl).get();
             } catch (Exception e) {
-                log.error("上传图片失败{}", e);
-                continue;
+                log.error("获取页面失败", e);
+                if (page == 0) {
+                    throw new BusinessException(ErrorCode.PARAMS_ERROR, "获取页面失败");
+                }
+                break;
             }
-            if (count >= fetchCount) {
+            //解析内容
+            Element dgControl = document.getElementsByClass("dgControl").first();
+            if (ObjUtil.isEmpty(dgControl)) {
+                if (page == 0) {
+                    throw new BusinessException(ErrorCode.PARAMS_ERROR, "获取元素失败");
+                }
                 break;
             }
+            Elements select = dgControl.select("img.mimg");
+            int before = fileUrlSet.size();
+            for (Element element : select) {
+                String fileUrl = element.attr("src");
+                if (StrUtil.isBlank(fileUrl)) {
+                    log.info("获取元素失败{}", element);
+                    continue;
+                }
+                int questionMark = fileUrl.indexOf("?");
+                if (questionMark != -1) {
+                    fileUrl = fileUrl.substring(0, questionMark);
+                }
+                fileUrlSet.add(fileUrl);
+            }
+            //没有新的图片，不再翻页
+            if (fileUrlSet.size() == before) {
+                break;
+            }
+            first += select.size();
         }
-        return count;
-
+        return fileUrlSet.stream().limit(maxCount).collect(Collectors.toList());
     }
 
     /**
-     * 清理图片
+     * 下载单张图片并上传到对象存储，在图片上传线程池中执行
      *
-     * @param picture
+     * @param fileUrl          图片地址
+     * @param uploadPathPrefix 上传路径前缀
+     * @param aborted          批量上传是否已中止，中止后尚未开始的图片不再处理
+     * @return 处理结果与上传结果，失败时上传结果为 null
      */
-    @Async
-    @Override
-    public void clearPictureFile(Picture picture) {
-        if (picture == null) {
-            return;
+    private Pair<PictureUploadBatchItemVO, UploadPictureResult> uploadBatchItem(String fileUrl, String uploadPathPrefix,
+                                                                               AtomicBoolean aborted) {
+        PictureUploadBatchItemVO item = new PictureUploadBatchItemVO();
+        item.setFileUrl(fileUrl);
+        long startTime = System.currentTimeMillis();
+        UploadPictureResult uploadPictureResult = null;
+        if (aborted.get()) {
+            item.setSuccess(false);
+            item.setErrorMessage("批量上传已中止");
+            item.setCostMillis(0L);
+            return new Pair<>(item, null);
+        }
+        try {
+            //批量导入的图片都在公共图库
+            uploadPictureResult = urlPictureUpload.uploadPicture(fileUrl, uploadPathPrefix,
+                    contentHash -> getPictureByContentHash(contentHash, null));
+            item.setSuccess(true);
+        } catch (Exception e) {
+            log.error("上传图片失败, fileUrl={}", fileUrl, e);
+            item.setSuccess(false);
+            item.setErrorMessage(e.getMessage());
         }
+        item.setCostMillis(System.currentTimeMillis() - startTime);
+        return new Pair<>(item, uploadPictureResult);
+    }
 
-        String pictureUrl = picture.getUrl();
-        String thumbnailUrl = picture.getThumbnailUrl();
-        String originUrl = picture.getOriginUrl();
-        String host = cosClientConfig.getHost();
+    /**
+     * 等待下一张处理完成的图片
+     */
+    private Future<Pair<PictureUploadBatchItemVO, UploadPictureResult>> takeBatchFuture(
+            CompletionService<Pair<PictureUploadBatchItemVO, UploadPictureResult>> completionService) {
+        try {
+            return completionService.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "批量上传被中断");
+        }
+    }
 
-        // 判断该图片URL是否被其他记录使用
-        long count = this.lambdaQuery().eq(Picture::getUrl, pictureUrl).count();
-        // 如果被多条记录使用，则不删除
-        if (count > 1) {
-            return;
+    /**
+     * 获取已完成图片的处理结果
+     */
+    private Pair<PictureUploadBatchItemVO, UploadPictureResult> getBatchItem(
+            Future<Pair<PictureUploadBatchItemVO, UploadPictureResult>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "批量上传被中断");
+        } catch (ExecutionException e) {
+            log.error("批量上传图片异常", e.getCause());
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "批量上传图片异常");
         }
+    }
 
-        // 清理压缩图
-        if (StrUtil.isNotBlank(pictureUrl)) {
-            String pictureUrlKey = extractKey(pictureUrl, host);
-            if (StrUtil.isNotBlank(pictureUrlKey)) {
-                cosManager.deleteObject(pictureUrlKey);
-            }
+    /**
+     * 批量上传中途失败时清理：等待仍在处理的图片结束，删除已上传但没有入库的对象
+     * <p>
+     * 中止标记已设置，尚未开始的图片会直接跳过；调用线程被中断时仍然等待，结束后恢复中断状态
+     *
+     * @param runningSet  处理中的图片
+     * @param takenResult 已取出但没有加入待入库列表的上传结果
+     * @param pendingList 待入库的图片，处理后清空
+     * @param loginUser   登录用户
+     */
+    private void discardBatchItems(Collection<Future<Pair<PictureUploadBatchItemVO, UploadPictureResult>>> runningSet,
+                                   UploadPictureResult takenResult, List<Pair<PictureUploadBatchItemVO, Picture>> pendingList,
+                                   User loginUser) {
+        List<UploadPictureResult> resultList = new ArrayList<>();
+        if (takenResult != null) {
+            resultList.add(takenResult);
         }
-        // 清理缩略图
-        if (StrUtil.isNotBlank(thumbnailUrl)) {
-            String thumbnailUrlKey = extractKey(thumbnailUrl, host);
-            if (StrUtil.isNotBlank(thumbnailUrlKey)) {
-                cosManager.deleteObject(thumbnailUrlKey);
+        boolean interrupted = Thread.interrupted();
+        try {
+            for (Future<Pair<PictureUploadBatchItemVO, UploadPictureResult>> future : runningSet) {
+                while (true) {
+                    try {
+                        UploadPictureResult uploadPictureResult = future.get().getValue();
+                        if (uploadPictureResult != null) {
+                            resultList.add(uploadPictureResult);
+                        }
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        break;
+                    }
+                }
             }
-        }
-
-        // 清理原图
-        if (StrUtil.isNotBlank(originUrl)) {
-            String originUrlKey = extractKey(originUrl, host);
-            if (StrUtil.isNotBlank(originUrlKey)) {
-                cosManager.deleteObject(originUrlKey);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
             }
         }
+        List<Picture> discardList = pendingList.stream().map(Pair::getValue).collect(Collectors.toList());
+        for (UploadPictureResult uploadPictureResult : resultList) {
+            discardList.add(buildPicture(uploadPictureResult, null, null, loginUser));
+        }
+        pendingList.clear();
+        if (!discardList.isEmpty()) {
+            log.warn("批量上传中止，清理已上传的对象, count={}", discardList.size());
+            //复用的对象在删除前会检查引用，不会误删
+            objectDeleteTaskService.enqueue(discardList);
+        }
     }
 
     /**
-     * 从URL中提取对象Key
+     * 批量保存图片，入库失败时清理已上传的对象
+     *
+     * @param pendingList 待入库的图片，处理后清空
+     * @param listener    处理过程监听器
+     * @return 成功入库的数量
      */
-    private String extractKey(String url, String host) {
-        if (StrUtil.isBlank(url) || StrUtil.isBlank(host)) {
-            return url;
+    private int savePictureBatch(List<Pair<PictureUploadBatchItemVO, Picture>> pendingList, PictureUploadBatchListener listener) {
+        if (pendingList.isEmpty()) {
+            return 0;
         }
-        if (url.startsWith(host)) {
-            String key = url.substring(host.length());
-            if (key.startsWith("/")) {
-                key = key.substring(1);
+        List<Picture> pictureList = pendingList.stream().map(Pair::getValue).collect(Collectors.toList());
+        try {
+            transactionTemplate.execute(transactionStatus -> {
+                lockReusedObjects(pictureList);
+                boolean result = this.saveBatch(pictureList);
+                ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "图片上传失败，数据库操作失败");
+                for (Picture picture : pictureList) {
+                    pictureColorIndex.onPictureSaved(picture.getSpaceId(), picture.getId(), picture.getPicColor(), picture.getPicPalette());
+                    pictureHashIndex.onPictureSaved(picture.getSpaceId(), picture.getId(), picture.getPicHash());
+                    pictureStatService.onPictureAdd(picture);
+                }
+                //处理结果与图片在同一事务中记录，避免提交后宕机导致断点续传时重复导入
+                List<PictureUploadBatchItemVO> savedItemList = new ArrayList<>(pendingList.size());
+                for (Pair<PictureUploadBatchItemVO, Picture> pair : pendingList) {
+                    pair.getKey().setPictureId(pair.getValue().getId());
+                    savedItemList.add(pair.getKey());
+                }
+                listener.onItemsSaved(savedItemList);
+                return true;
+            });
+        } catch (Exception e) {
+            log.error("批量保存图片失败", e);
+            for (Pair<PictureUploadBatchItemVO, Picture> pair : pendingList) {
+                pair.getKey().setSuccess(false);
+                pair.getKey().setPictureId(null);
+                pair.getKey().setErrorMessage("数据库操作失败");
+                listener.onItemFinished(pair.getKey());
             }
-            return key;
+            objectDeleteTaskService.enqueue(pictureList);
+            pendingList.clear();
+            return 0;
         }
-        return url;
+        int count = pendingList.size();
+        pendingList.clear();
+        return count;
+    }
 
+    /**
+     * 清理图片文件，在调用方事务中登记删除任务，事务提交后由删除队列批量删除
+     *
+     * @param picture
+     */
+    @Override
+    public void clearPictureFile(Picture picture) {
+        if (picture == null) {
+            return;
+        }
+        objectDeleteTaskService.enqueue(Collections.singletonList(picture));
     }
 
     /**
@@ -551,13 +1370,16 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> impl
                 // 4.1 删除数据库中的图片记录
                 boolean deleteResult = this.removeById(deleteRequestId);
                 ThrowUtils.throwIf(!deleteResult, ErrorCode.OPERATION_ERROR, "图片删除失败，数据库操作异常");
+                pictureTagService.removeByPictureId(deleteRequestId);
+                pictureStatService.onPictureDelete(oldPicture);
+                pictureColorIndex.onPictureRemoved(oldPicture.getSpaceId(), deleteRequestId);
+                pictureHashIndex.onPictureRemoved(oldPicture.getSpaceId(), deleteRequestId);
                 // 4.2 更新空间额度（仅当图片归属空间时）
                 Long spaceId = oldPicture.getSpaceId();
                 if (spaceId != null) {
-                    // 空值兜底：防止picSize为null导致SQL拼接异常
+                    // 空值兜底：防止picSize为null
                     long picSize = oldPicture.getPicSize() == null ? 0L : oldPicture.getPicSize();
-                    boolean updateResult = spaceService.lambdaUpdate().eq(Space::getId, spaceId).setSql("totalCount = totalCount - 1").setSql("totalSize = totalSize - " + picSize).update();
-                    ThrowUtils.throwIf(!updateResult, ErrorCode.OPERATION_ERROR, "空间额度更新失败");
+                    spaceQuotaManager.releaseUsedWithTransaction(spaceId, 1, picSize);
                 }
 
                 // 4.3 清除对象存储中的图片文件
@@ -570,6 +1392,7 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> impl
                 throw new BusinessException(ErrorCode.OPERATION_ERROR, "图片删除失败，系统异常");
             }
         });
+        this.evictPictureCache(oldPicture, null);
     }
 
     /**
@@ -596,10 +1419,53 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> impl
         this.fillReviewParams(picture, loginUser);
         //判断图片权限,已经改为使用注解鉴权
         //this.checkPictureAuth(loginUser, oldPicture);
-        //操作数据库
-        boolean result = this.updateById(picture);
-        ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
-        return result;
+        //操作数据库，同时同步标签索引
+        transactionTemplate.execute(transactionStatus -> {
+            boolean result = this.updateById(picture);
+            ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+            pictureStatService.onPictureCategoryChange(oldPicture, picture.getCategory());
+            if (pictureEditRequest.getTags() != null) {
+                pictureTagService.syncPictureTags(id, oldPicture.getSpaceId(), pictureEditRequest.getTags());
+            }
+            return true;
+        });
+        this.evictPictureCache(oldPicture, picture);
+        return true;
+    }
+
+    /**
+     * 更新图片（仅管理员可用）
+     *
+     * @param pictureUpdateRequest 更新图片请求
+     * @param loginUser            登录用户
+     */
+    @Override
+    public boolean updatePicture(PictureUpdateRequest pictureUpdateRequest, User loginUser) {
+        Picture picture = new Picture();
+        BeanUtil.copyProperties(pictureUpdateRequest, picture);
+        //将tags转为json
+        picture.setTags(JSONUtil.toJsonStr(pictureUpdateRequest.getTags()));
+        //校验图片
+        this.validPicture(picture);
+        //判断图片是否存在
+        Long id = pictureUpdateRequest.getId();
+        Picture oldPicture = this.getById(id);
+        ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR);
+        //填充审核参数
+        this.fillReviewParams(picture, loginUser);
+        //操作数据库，同时同步统计汇总与标签索引
+        transactionTemplate.execute(transactionStatus -> {
+            boolean result = this.updateById(picture);
+            ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+            pictureStatService.onPictureCategoryChange(oldPicture, picture.getCategory());
+            if (pictureUpdateRequest.getTags() != null) {
+                pictureTagService.syncPictureTags(id, oldPicture.getSpaceId(), pictureUpdateRequest.getTags());
+            }
+            return true;
+        });
+        //事务提交后再清理缓存，避免提交前被并发查询重新写入旧数据
+        this.evictPictureCache(oldPicture, picture);
+        return true;
     }
 
     /**
@@ -646,28 +1512,58 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> impl
         if (!space.getUserId().equals(loginUser.getId())) {
             throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无空间权限");
         }
-        //查询图片
-        List<Picture> pictureList = this.lambdaQuery().eq(Picture::getSpaceId, spaceId).isNotNull(Picture::getPicColor).list();
+        //从空间颜色索引中查询最相似的图片
+        long[] similarIds = pictureColorIndex.search(spaceId, piColor, 12);
         //如果为空返回空列表
-        if (CollUtil.isEmpty(pictureList)) {
+        if (similarIds.length == 0) {
             return Collections.emptyList();
         }
-        //将目标颜色转为Color对象
-        Color decode = Color.decode(piColor);
-        //计算相似度
-        List<Picture> similarPictureList = pictureList.stream().sorted(Comparator.comparingDouble(picture -> {
-                    //提取主色调
-                    String hexColor = picture.getPicColor();
-                    if (StrUtil.isEmpty(hexColor)) {
-                        return Double.MAX_VALUE;
-                    }
-                    Color picColor = Color.decode(hexColor);
-                    return -ColorSimilarUtils.calculateSimilarity(decode, picColor);
-                }))
-                .limit(12)
+        List<Long> idList = Arrays.stream(similarIds).boxed().collect(Collectors.toList());
+        Map<Long, Picture> pictureMap = this.listByIds(idList).stream()
+                .collect(Collectors.toMap(Picture::getId, picture -> picture));
+        //按相似度顺序返回
+        return idList.stream()
+                .map(pictureMap::get)
+                .filter(Objects::nonNull)
+                .map(PictureVO::objToVo)
                 .collect(Collectors.toList());
+    }
 
-        return similarPictureList.stream()
+    /**
+     * 以图搜图，在图片所在空间（或公共图库）的感知哈希索引中查询相似图片
+     *
+     * @param searchPictureByPictureRequest 以图搜图参数
+     * @param loginUser                     登录用户
+     * @return 相似图片列表，按相似度从高到低排列
+     */
+    @Override
+    public List<PictureVO> searchPictureByPicture(SearchPictureByPictureRequest searchPictureByPictureRequest, User loginUser) {
+        //校验参数
+        ThrowUtils.throwIf(searchPictureByPictureRequest == null || searchPictureByPictureRequest.getPictureId() == null,
+                ErrorCode.PARAMS_ERROR);
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR);
+        Picture picture = this.getById(searchPictureByPictureRequest.getPictureId());
+        ThrowUtils.throwIf(picture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
+        ThrowUtils.throwIf(picture.getPicHash() == null, ErrorCode.OPERATION_ERROR, "该图片暂不支持以图搜图");
+        Long spaceId = picture.getSpaceId();
+        //多查一张，去掉图片本身
+        long[] similarIds = pictureHashIndex.search(spaceId, picture.getPicHash(),
+                SEARCH_BY_PICTURE_SIZE + 1, SEARCH_BY_PICTURE_MAX_DISTANCE);
+        List<Long> idList = Arrays.stream(similarIds).boxed()
+                .filter(id -> !id.equals(picture.getId()))
+                .limit(SEARCH_BY_PICTURE_SIZE)
+                .collect(Collectors.toList());
+        if (idList.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, Picture> pictureMap = this.listByIds(idList).stream()
+                //公共图库只返回审核通过的图片
+                .filter(item -> spaceId != null || ObjUtil.equal(item.getReviewStatus(), PictureReviewStatusEnum.PASS.getValue()))
+                .collect(Collectors.toMap(Picture::getId, item -> item));
+        //按相似度顺序返回
+        return idList.stream()
+                .map(pictureMap::get)
+                .filter(Objects::nonNull)
                 .map(PictureVO::objToVo)
                 .collect(Collectors.toList());
     }
@@ -696,13 +1592,17 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> impl
         }
         //查询指定图片，进选择需要的字段
         List<Picture> pictureList = this.lambdaQuery()
-                .select(Picture::getId, Picture::getSpaceId)
+                .select(Picture::getId, Picture::getSpaceId, Picture::getCategory, Picture::getPicSize, Picture::getCreateTime)
                 .eq(Picture::getSpaceId, spaceId)
                 .in(Picture::getId, pictureIdList)
                 .list();
         if (CollUtil.isEmpty(pictureList)) {
             return;
         }
+        //修改分类时同步统计汇总
+        if (StrUtil.isNotEmpty(category)) {
+            pictureList.forEach(picture -> pictureStatService.onPictureCategoryChange(picture, category));
+        }
         //批量更新分类和标签
         pictureList.forEach(picture -> {
             if (StrUtil.isNotEmpty(category)) {
@@ -720,6 +1620,11 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture> impl
         //批量更新
         boolean result = this.updateBatchById(pictureList);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        //同步标签索引
+        if (CollUtil.isNotEmpty(tags)) {
+            List<Long> idList = pictureList.stream().map(Picture::getId).collect(Collectors.toList());
+            pictureTagService.replacePictureTags(idList, spaceId, tags);
+        }
     }
 
     /**
@@ -0,0 +1,209 @@
+package com.lcs.lcspicture.service.impl;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.ObjUtil;
+import cn.hutool.core.util.StrUtil;
+import com.lcs.lcspicture.exception.ErrorCode;
+import com.lcs.lcspicture.exception.ThrowUtils;
+import com.lcs.lcspicture.manager.lock.DistributedLock;
+import com.lcs.lcspicture.manager.lock.DistributedLockService;
+import com.lcs.lcspicture.mapper.PictureCategoryStatMapper;
+import com.lcs.lcspicture.mapper.PictureUserStatMapper;
+import com.lcs.lcspicture.model.entity.Picture;
+import com.lcs.lcspicture.model.entity.PictureCategoryStat;
+import com.lcs.lcspicture.model.entity.PictureUserStat;
+import com.lcs.lcspicture.service.PictureStatService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.Resource;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 图片统计汇总服务实现
+ */
+@Slf4j
+@Service
+public class PictureStatServiceImpl implements PictureStatService {
+
+    /**
+     * 公共图库在统计表中的空间 id
+     */
+    private static final long PUBLIC_SPACE_ID = 0L;
+
+    /**
+     * 统计重建锁名称
+     */
+    private static final String RECONCILE_LOCK_NAME = "picture:stat:reconcile";
+
+    /**
+     * 对账时每个事务写回的修正条数
+     */
+    private static final int RECONCILE_BATCH_SIZE = 500;
+
+    @Resource
+    private PictureCategoryStatMapper pictureCategoryStatMapper;
+    @Resource
+    private PictureUserStatMapper pictureUserStatMapper;
+    @Resource
+    private TransactionTemplate transactionTemplate;
+    @Resource
+    private DistributedLockService distributedLockService;
+
+    @Override
+    public void onPictureAdd(Picture picture) {
+        long spaceId = getStatSpaceId(picture);
+        Date createTime = getCreateTime(picture);
+        pictureCategoryStatMapper.upsertDelta(spaceId, createTime, getStatCategory(picture.getCategory()), 1, getPicSize(picture));
+        pictureUserStatMapper.upsertDelta(spaceId, createTime, picture.getUserId(), 1);
+    }
+
+    @Override
+    public void onPictureDelete(Picture picture) {
+        long spaceId = getStatSpaceId(picture);
+        Date createTime = getCreateTime(picture);
+        pictureCategoryStatMapper.upsertDelta(spaceId, createTime, getStatCategory(picture.getCategory()), -1, -getPicSize(picture));
+        pictureUserStatMapper.upsertDelta(spaceId, createTime, picture.getUserId(), -1);
+    }
+
+    @Override
+    public void onPictureSizeChange(Picture oldPicture, Long newPicSize) {
+        long sizeDelta = (newPicSize == null ? 0L : newPicSize) - getPicSize(oldPicture);
+        if (sizeDelta == 0) {
+            return;
+        }
+        pictureCategoryStatMapper.upsertDelta(getStatSpaceId(oldPicture), getCreateTime(oldPicture),
+                getStatCategory(oldPicture.getCategory()), 0, sizeDelta);
+    }
+
+    @Override
+    public void onPictureCategoryChange(Picture oldPicture, String newCategory) {
+        if (newCategory == null) {
+            return;
+        }
+        String oldStatCategory = getStatCategory(oldPicture.getCategory());
+        String newStatCategory = getStatCategory(newCategory);
+        if (ObjUtil.equals(oldStatCategory, newStatCategory)) {
+            return;
+        }
+        long spaceId = getStatSpaceId(oldPicture);
+        Date createTime = getCreateTime(oldPicture);
+        long picSize = getPicSize(oldPicture);
+        pictureCategoryStatMapper.upsertDelta(spaceId, createTime, oldStatCategory, -1, -picSize);
+        pictureCategoryStatMapper.upsertDelta(spaceId, createTime, newStatCategory, 1, picSize);
+    }
+
+    /**
+     * 定时按图片表对账统计，默认每天凌晨 3 点执行
+     */
+    @Scheduled(cron = "${analyze.reconcile-cron:0 0 3 * * ?}")
+    @Override
+    public void reconcile() {
+        //多个节点同时触发时只由一个节点执行
+        DistributedLock lock = distributedLockService.tryLock(RECONCILE_LOCK_NAME, 0, TimeUnit.MINUTES.toMillis(30));
+        if (lock == null) {
+            return;
+        }
+        try (DistributedLock ignored = lock) {
+            doReconcile();
+        }
+    }
+
+    /**
+     * 在同一个一致性读快照中读取图片表统计与当前统计表，二者之差就是漂移：增量更新与图片写入在同一事务中，
+     * 快照之后的增量不在差值中。差值按增量分批写回，不锁图片表，也不会覆盖并发的增量更新
+     */
+    private void doReconcile() {
+        long start = System.currentTimeMillis();
+        TransactionTemplate snapshotTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshotTemplate.setReadOnly(true);
+        Map<String, long[]> categoryDriftMap = new LinkedHashMap<>();
+        Map<String, long[]> userDriftMap = new LinkedHashMap<>();
+        Map<String, PictureCategoryStat> categoryKeyMap = new HashMap<>();
+        Map<String, PictureUserStat> userKeyMap = new HashMap<>();
+        snapshotTemplate.executeWithoutResult(transactionStatus -> {
+            for (PictureCategoryStat stat : pictureCategoryStatMapper.listFromPicture()) {
+                addDrift(categoryDriftMap, categoryKeyMap, getCategoryKey(stat), stat, stat.getPictureCount(), stat.getTotalSize());
+            }
+            for (PictureCategoryStat stat : pictureCategoryStatMapper.selectList(null)) {
+                addDrift(categoryDriftMap, categoryKeyMap, getCategoryKey(stat), stat, -stat.getPictureCount(), -stat.getTotalSize());
+            }
+            for (PictureUserStat stat : pictureUserStatMapper.listFromPicture()) {
+                addDrift(userDriftMap, userKeyMap, getUserKey(stat), stat, stat.getPictureCount(), 0);
+            }
+            for (PictureUserStat stat : pictureUserStatMapper.selectList(null)) {
+                addDrift(userDriftMap, userKeyMap, getUserKey(stat), stat, -stat.getPictureCount(), 0);
+            }
+        });
+        List<Map.Entry<String, long[]>> categoryDriftList = categoryDriftMap.entrySet().stream()
+                .filter(entry -> entry.getValue()[0] != 0 || entry.getValue()[1] != 0)
+                .collect(Collectors.toList());
+        for (List<Map.Entry<String, long[]>> batch : CollUtil.split(categoryDriftList, RECONCILE_BATCH_SIZE)) {
+            transactionTemplate.executeWithoutResult(transactionStatus -> batch.forEach(entry -> {
+                PictureCategoryStat stat = categoryKeyMap.get(entry.getKey());
+                pictureCategoryStatMapper.upsertDrift(stat.getSpaceId(), stat.getStatDate(), stat.getCategory(),
+                        entry.getValue()[0], entry.getValue()[1]);
+            }));
+        }
+        List<Map.Entry<String, long[]>> userDriftList = userDriftMap.entrySet().stream()
+                .filter(entry -> entry.getValue()[0] != 0)
+                .collect(Collectors.toList());
+        for (List<Map.Entry<String, long[]>> batch : CollUtil.split(userDriftList, RECONCILE_BATCH_SIZE)) {
+            transactionTemplate.executeWithoutResult(transactionStatus -> batch.forEach(entry -> {
+                PictureUserStat stat = userKeyMap.get(entry.getKey());
+                pictureUserStatMapper.upsertDrift(stat.getSpaceId(), stat.getStatDate(), stat.getUserId(), entry.getValue()[0]);
+            }));
+        }
+        pictureCategoryStatMapper.deleteEmpty();
+        pictureUserStatMapper.deleteEmpty();
+        log.info("图片统计对账完成, 分类统计修正 {} 条, 用户统计修正 {} 条, 耗时 {} ms",
+                categoryDriftList.size(), userDriftList.size(), System.currentTimeMillis() - start);
+    }
+
+    private <T> void addDrift(Map<String, long[]> driftMap, Map<String, T> keyMap, String key, T stat,
+                              long countDelta, long sizeDelta) {
+        keyMap.putIfAbsent(key, stat);
+        long[] drift = driftMap.computeIfAbsent(key, k -> new long[2]);
+        drift[0] += countDelta;
+        drift[1] += sizeDelta;
+    }
+
+    private String getCategoryKey(PictureCategoryStat stat) {
+        return stat.getSpaceId() + ":" + stat.getStatDate() + ":" + stat.getCategory();
+    }
+
+    private String getUserKey(PictureUserStat stat) {
+        return stat.getSpaceId() + ":" + stat.getStatDate() + ":" + stat.getUserId();
+    }
+
+    private long getStatSpaceId(Picture picture) {
+        return picture.getSpaceId() == null ? PUBLIC_SPACE_ID : picture.getSpaceId();
+    }
+
+    /**
+     * 统计日期为图片创建日期，只在数据库中按 createTime 计算，与对账时按 DATE(createTime) 分组使用同一换算，
+     * 不受应用与数据库时区不同的影响；创建时间由入库前的代码写入，不能为空
+     */
+    private Date getCreateTime(Picture picture) {
+        ThrowUtils.throwIf(picture.getCreateTime() == null, ErrorCode.SYSTEM_ERROR, "图片创建时间为空，无法更新统计");
+        return picture.getCreateTime();
+    }
+
+    private String getStatCategory(String category) {
+        return StrUtil.nullToEmpty(category);
+    }
+
+    private long getPicSize(Picture picture) {
+        return picture.getPicSize() == null ? 0L : picture.getPicSize();
+    }
+}
@@ -0,0 +1,169 @@
+package com.lcs.lcspicture.service.impl;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.lcs.lcspicture.exception.ErrorCode;
+import com.lcs.lcspicture.exception.ThrowUtils;
+import com.lcs.lcspicture.mapper.PictureTagMapper;
+import com.lcs.lcspicture.model.entity.Picture;
+import com.lcs.lcspicture.model.entity.PictureTag;
+import com.lcs.lcspicture.service.PictureTagService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * @author lcs
+ * @description 针对表【picture_tag(图片标签关联)】的数据库操作Service实现
+ */
+@Service
+public class PictureTagServiceImpl extends ServiceImpl<PictureTagMapper, PictureTag> implements PictureTagService {
+
+    /**
+     * 标签最大长度
+     */
+    private static final int MAX_TAG_LENGTH = 128;
+
+    /**
+     * 同步单张图片的标签，只增删有变化的标签
+     *
+     * @param pictureId 图片 id
+     * @param spaceId   空间 id
+     * @param tags      图片的全部标签
+     */
+    @Transactional(rollbackFor = Exception.class)
+    @Override
+    public void syncPictureTags(Long pictureId, Long spaceId, List<String> tags) {
+        ThrowUtils.throwIf(pictureId == null, ErrorCode.PARAMS_ERROR);
+        Set<String> newTags = normalizeTags(tags);
+        validTags(newTags);
+        List<PictureTag> oldPictureTagList = this.lambdaQuery().eq(PictureTag::getPictureId, pictureId).list();
+        Set<String> oldTags = newTagSet();
+        oldPictureTagList.forEach(pictureTag -> oldTags.add(pictureTag.getTag()));
+        //删除不再使用的标签
+        List<Long> removeIdList = oldPictureTagList.stream()
+                .filter(pictureTag -> !newTags.contains(pictureTag.getTag()))
+                .map(PictureTag::getId)
+                .collect(Collectors.toList());
+        if (CollUtil.isNotEmpty(removeIdList)) {
+            this.removeByIds(removeIdList);
+        }
+        //新增标签
+        List<PictureTag> addList = newTags.stream()
+                .filter(tag -> !oldTags.contains(tag))
+                .map(tag -> buildPictureTag(pictureId, spaceId, tag))
+                .collect(Collectors.toList());
+        if (CollUtil.isNotEmpty(addList)) {
+            this.saveBatch(addList);
+        }
+    }
+
+    /**
+     * 将多张图片的标签替换为同一组标签
+     *
+     * @param pictureIdList 图片 id 列表
+     * @param spaceId       空间 id
+     * @param tags          标签
+     */
+    @Transactional(rollbackFor = Exception.class)
+    @Override
+    public void replacePictureTags(List<Long> pictureIdList, Long spaceId, List<String> tags) {
+        if (CollUtil.isEmpty(pictureIdList)) {
+            return;
+        }
+        Set<String> newTags = normalizeTags(tags);
+        validTags(newTags);
+        this.lambdaUpdate().in(PictureTag::getPictureId, pictureIdList).remove();
+        List<PictureTag> addList = new ArrayList<>(pictureIdList.size() * newTags.size());
+        for (Long pictureId : pictureIdList) {
+            for (String tag : newTags) {
+                addList.add(buildPictureTag(pictureId, spaceId, tag));
+            }
+        }
+        if (CollUtil.isNotEmpty(addList)) {
+            this.saveBatch(addList);
+        }
+    }
+
+    /**
+     * 删除图片的全部标签
+     *
+     * @param pictureId 图片 id
+     */
+    @Override
+    public void removeByPictureId(Long pictureId) {
+        if (pictureId == null) {
+            return;
+        }
+        this.lambdaUpdate().eq(PictureTag::getPictureId, pictureId).remove();
+    }
+
+    /**
+     * 为图片查询条件补充标签过滤，通过标签索引子查询定位图片 id
+     *
+     * @param queryWrapper 图片查询条件
+     * @param tags         标签
+     * @param matchAll     true 表示需要包含全部标签，false 表示包含任一标签
+     */
+    @Override
+    public void fillTagQueryWrapper(QueryWrapper<Picture> queryWrapper, List<String> tags, boolean matchAll) {
+        Set<String> tagSet = normalizeTags(tags);
+        if (tagSet.isEmpty()) {
+            return;
+        }
+        Object[] params = tagSet.toArray();
+        String placeholders = IntStream.range(0, params.length)
+                .mapToObj(i -> "{" + i + "}")
+                .collect(Collectors.joining(","));
+        StringBuilder sql = new StringBuilder("id IN (SELECT pictureId FROM picture_tag WHERE tag IN (")
+                .append(placeholders).append(")");
+        if (matchAll && params.length > 1) {
+            //包含全部标签
+            sql.append(" GROUP BY pictureId HAVING COUNT(DISTINCT tag) = ").append(params.length);
+        }
+        sql.append(")");
+        queryWrapper.apply(sql.toString(), params);
+    }
+
+    private PictureTag buildPictureTag(Long pictureId, Long spaceId, String tag) {
+        PictureTag pictureTag = new PictureTag();
+        pictureTag.setPictureId(pictureId);
+        pictureTag.setSpaceId(spaceId);
+        pictureTag.setTag(tag);
+        return pictureTag;
+    }
+
+    /**
+     * 去除空白标签并去重，与数据库排序规则一致按忽略大小写去重
+     */
+    private Set<String> normalizeTags(List<String> tags) {
+        Set<String> tagSet = newTagSet();
+        if (CollUtil.isEmpty(tags)) {
+            return tagSet;
+        }
+        for (String tag : tags) {
+            if (StrUtil.isNotBlank(tag)) {
+                tagSet.add(tag.trim());
+            }
+        }
+        return tagSet;
+    }
+
+    private Set<String> newTagSet() {
+        return new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    }
+
+    private void validTags(Set<String> tags) {
+        for (String tag : tags) {
+            ThrowUtils.throwIf(tag.length() > MAX_TAG_LENGTH, ErrorCode.PARAMS_ERROR, "标签过长");
+        }
+    }
+}
@@ -1,25 +1,38 @@
 package com.lcs.lcspicture.service.impl;
 
+import cn.hutool.core.lang.TypeReference;
 import cn.hutool.core.util.NumberUtil;
 import cn.hutool.core.util.ObjUtil;
-import cn.hutool.json.JSONUtil;
+import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.lcs.lcspicture.exception.BusinessException;
 import com.lcs.lcspicture.exception.ErrorCode;
 import com.lcs.lcspicture.exception.ThrowUtils;
+import com.lcs.lcspicture.config.SpaceAnalyzeConfig;
+import com.lcs.lcspicture.manager.cache.MultiLevelCache;
+import com.lcs.lcspicture.manager.cache.MultiLevelCacheManager;
+import com.lcs.lcspicture.mapper.PictureCategoryStatMapper;
+import com.lcs.lcspicture.mapper.PictureMapper;
+import com.lcs.lcspicture.mapper.PictureUserStatMapper;
 import com.lcs.lcspicture.mapper.SpaceMapper;
 import com.lcs.lcspicture.model.dto.space.analyze.*;
 import com.lcs.lcspicture.model.vo.space.analyze.*;
 import com.lcs.lcspicture.model.entity.Picture;
+import com.lcs.lcspicture.model.entity.PictureCategoryStat;
+import com.lcs.lcspicture.model.entity.PictureUserStat;
+import com.lcs.lcspicture.model.entity.PictureTag;
 import com.lcs.lcspicture.model.entity.Space;
 import com.lcs.lcspicture.model.entity.User;
 import com.lcs.lcspicture.service.PictureService;
+import com.lcs.lcspicture.service.PictureTagService;
 import com.lcs.lcspicture.service.SpaceAnalyzeService;
 import com.lcs.lcspicture.service.SpaceService;
 import com.lcs.lcspicture.service.UserService;
+import com.lcs.lcspicture.utils.TagCounter;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -36,6 +49,36 @@ public class SpaceAnalyzeServiceImpl extends ServiceImpl<SpaceMapper, Space> imp
     private SpaceService spaceService;
     @Resource
     private PictureService pictureService;
+    @Resource
+    private PictureTagService pictureTagService;
+    @Resource
+    private PictureMapper pictureMapper;
+    @Resource
+    private PictureCategoryStatMapper pictureCategoryStatMapper;
+    @Resource
+    private PictureUserStatMapper pictureUserStatMapper;
+    @Resource
+    private SpaceAnalyzeConfig spaceAnalyzeConfig;
+    @Resource
+    private MultiLevelCacheManager multiLevelCacheManager;
+
+    /**
+     * 使用情况分析缓存
+     */
+    private MultiLevelCache<SpaceUsageAnalyzeResponse> usageAnalyzeCache;
+
+    /**
+     * 大小分布分析缓存
+     */
+    private MultiLevelCache<List<SpaceSizeAnalyzeResponse>> sizeAnalyzeCache;
+
+    @PostConstruct
+    public void initCache() {
+        usageAnalyzeCache = multiLevelCacheManager.getCache("spaceUsageAnalyze", new TypeReference<SpaceUsageAnalyzeResponse>() {
+        });
+        sizeAnalyzeCache = multiLevelCacheManager.getCache("spaceSizeAnalyze", new TypeReference<List<SpaceSizeAnalyzeResponse>>() {
+        });
+    }
 
     /**
      * 获取空间使用情况分析
@@ -52,24 +95,24 @@ public class SpaceAnalyzeServiceImpl extends ServiceImpl<SpaceMapper, Space> imp
         if (spaceAnalyzeRequest.isQueryPublic() || spaceAnalyzeRequest.isQueryAll()) {
             //权限校验仅管理员可以访问
             checkSpaceAnalyzeAuth(spaceAnalyzeRequest, loginUser);
-            //统计公共图库的使用情况
-            QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
-            queryWrapper.select("picSize");
-            //补充查询条件
-            fillAnalyzeRequestQueryWrapper(spaceAnalyzeRequest, queryWrapper);
-            List<Object> pictureObjList = pictureService.getBaseMapper().selectObjs(queryWrapper);
-            long totalSize = pictureObjList.stream().mapToLong(obj -> obj instanceof Long ? (Long) obj : 0).sum();
-            long usedCount = pictureObjList.size();
-            //封装返回结果
-            SpaceUsageAnalyzeResponse spaceUsageAnalyzeResponse = new SpaceUsageAnalyzeResponse();
-            spaceUsageAnalyzeResponse.setUsedSize(totalSize);
-            spaceUsageAnalyzeResponse.setUsedCount(usedCount);
-            //公共图库无上限，无比例，使用情况
-            spaceUsageAnalyzeResponse.setMaxSize(null);
-            spaceUsageAnalyzeResponse.setSizeUsageRatio(null);
-            spaceUsageAnalyzeResponse.setMaxCount(null);
-            spaceUsageAnalyzeResponse.setCountUsageRatio(null);
-            return spaceUsageAnalyzeResponse;
+            //统计公共图库的使用情况，在数据库中聚合，结果短时间缓存
+            return usageAnalyzeCache.get(getAnalyzeScopeKey(spaceAnalyzeRequest), () -> {
+                QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+                queryWrapper.select("COUNT(*) AS usedCount", "IFNULL(SUM(picSize), 0) AS usedSize");
+                //补充查询条件
+                fillAnalyzeRequestQueryWrapper(spaceAnalyzeRequest, queryWrapper);
+                Map<String, Object> result = pictureService.getBaseMapper().selectMaps(queryWrapper).get(0);
+                //封装返回结果
+                SpaceUsageAnalyzeResponse spaceUsageAnalyzeResponse = new SpaceUsageAnalyzeResponse();
+                spaceUsageAnalyzeResponse.setUsedSize(((Number) result.get("usedSize")).longValue());
+                spaceUsageAnalyzeResponse.setUsedCount(((Number) result.get("usedCount")).longValue());
+                //公共图库无上限，无比例，使用情况
+                spaceUsageAnalyzeResponse.setMaxSize(null);
+                spaceUsageAnalyzeResponse.setSizeUsageRatio(null);
+                spaceUsageAnalyzeResponse.setMaxCount(null);
+                spaceUsageAnalyzeResponse.setCountUsageRatio(null);
+                return spaceUsageAnalyzeResponse;
+            });
         } else {
             //指定空间，需要从Space表查询
             Long spaceId = spaceAnalyzeRequest.getSpaceId();
@@ -110,15 +153,16 @@ public class SpaceAnalyzeServiceImpl extends ServiceImpl<SpaceMapper, Space> imp
         ThrowUtils.throwIf(spaceCategoryAnalyzeRequest == null, ErrorCode.PARAMS_ERROR);
         //权限校验
         checkSpaceAnalyzeAuth(spaceCategoryAnalyzeRequest, loginUser);
-        //查询条件构造
-        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        //查询条件构造，从分类日统计表汇总
+        QueryWrapper<PictureCategoryStat> queryWrapper = new QueryWrapper<>();
         //补充查询条件
-        fillAnalyzeRequestQueryWrapper(spaceCategoryAnalyzeRequest, queryWrapper);
-        queryWrapper.select("category as category", "COUNT(*) as count", "SUM(picSize) as totalSize")
-                .groupBy("category");
-        List<Map<String, Object>> maps = pictureService.getBaseMapper().selectMaps(queryWrapper);
+        fillStatQueryWrapper(spaceCategoryAnalyzeRequest, queryWrapper);
+        queryWrapper.select("category as category", "SUM(pictureCount) as count", "SUM(totalSize) as totalSize")
+                .groupBy("category")
+                .having("SUM(pictureCount) > 0");
+        List<Map<String, Object>> maps = pictureCategoryStatMapper.selectMaps(queryWrapper);
         return maps.stream().map(result -> {
-            String category = result.get("category") != null ? result.get("category").toString() : "未分类";
+            String category = StrUtil.isNotEmpty((String) result.get("category")) ? result.get("category").toString() : "未分类";
             Long count = ((Number) (result.get("count"))).longValue();
             Long totalSize = ((Number) (result.get("totalSize"))).longValue();
             return new SpaceCategoryAnalyzeResponse(category, count, totalSize);
@@ -138,23 +182,42 @@ public class SpaceAnalyzeServiceImpl extends ServiceImpl<SpaceMapper, Space> imp
         ThrowUtils.throwIf(spaceTagAnalyzeRequest == null, ErrorCode.PARAMS_ERROR);
         //权限校验
         checkSpaceAnalyzeAuth(spaceTagAnalyzeRequest, loginUser);
-        //构造查询条件
-        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        Integer topN = spaceTagAnalyzeRequest.getTopN();
+        if ("scan".equals(spaceAnalyzeConfig.getTagSource())) {
+            return getTagsAnalyzeByScan(spaceTagAnalyzeRequest, topN);
+        }
+        //构造查询条件，直接在标签索引表上分组统计
+        QueryWrapper<PictureTag> queryWrapper = new QueryWrapper<>();
         //补充查询条件
         fillAnalyzeRequestQueryWrapper(spaceTagAnalyzeRequest, queryWrapper);
-        queryWrapper.select("tags");
-        //查询所有符合条件的标签
-        List<String> tagsList = pictureService.getBaseMapper().selectObjs(queryWrapper)
+        queryWrapper.select("tag AS tag", "COUNT(*) AS count")
+                .groupBy("tag")
+                .orderByDesc("count")
+                .last(topN != null && topN > 0, "LIMIT " + topN);
+        //按使用次数排序
+        return pictureTagService.getBaseMapper().selectMaps(queryWrapper)
                 .stream()
-                .filter(ObjUtil::isNotNull)
-                .map(Object::toString)
+                .map(result -> new SpaceTagAnalyzeResponse(result.get("tag").toString(),
+                        ((Number) result.get("count")).longValue()))
                 .collect(Collectors.toList());
-        //统计每个标签的使用次数
-        Map<String, Long> stringLongMap = tagsList.stream().flatMap(tag -> JSONUtil.toList(tag, String.class).stream())
-                .collect(Collectors.groupingBy(tag -> tag, Collectors.counting()));
-        //按使用次数排序
-        return stringLongMap.entrySet().stream().sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue()))
-                .map(entry -> new SpaceTagAnalyzeResponse(entry.getKey(), entry.getValue()))
+    }
+
+    /**
+     * 流式扫描图片表的 tags 字段统计标签，逐行计数，内存只与不同标签的数量有关
+     *
+     * @param spaceTagAnalyzeRequest 标签分析请求
+     * @param topN                   前 N 个标签，为空时返回全部
+     * @return 标签使用情况
+     */
+    private List<SpaceTagAnalyzeResponse> getTagsAnalyzeByScan(SpaceTagAnalyzeRequest spaceTagAnalyzeRequest, Integer topN) {
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        fillAnalyzeRequestQueryWrapper(spaceTagAnalyzeRequest, queryWrapper);
+        queryWrapper.eq("isDelete", 0).isNotNull("tags");
+        TagCounter tagCounter = new TagCounter();
+        pictureMapper.streamTags(queryWrapper, resultContext -> tagCounter.addJsonArray(resultContext.getResultObject()));
+        return tagCounter.topN(topN)
+                .stream()
+                .map(tagCount -> new SpaceTagAnalyzeResponse(tagCount.getTag(), tagCount.getCount()))
                 .collect(Collectors.toList());
     }
 
@@ -171,25 +234,26 @@ public class SpaceAnalyzeServiceImpl extends ServiceImpl<SpaceMapper, Space> imp
         ThrowUtils.throwIf(spaceSizeAnalyzeRequest == null, ErrorCode.PARAMS_ERROR);
         //权限校验
         checkSpaceAnalyzeAuth(spaceSizeAnalyzeRequest, loginUser);
-        //构造查询条件
-        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
-        //补充查询条件
-        fillAnalyzeRequestQueryWrapper(spaceSizeAnalyzeRequest, queryWrapper);
-        queryWrapper.select("picSize");
-        // 定义大小范围
-        List<Long> sizeRange = Arrays.asList(100L * 1024, 500L * 1024, 1024L * 1024);
-        Map<String, Long> collect = pictureService.getBaseMapper().selectObjs(queryWrapper)
-                .stream()
-                .map(size -> ((Number) size).longValue())
-                .collect(Collectors.groupingBy(
-                        size -> size < sizeRange.get(0) ? "<100KB" :
-                                size < sizeRange.get(1) ? "100KB-500KB" :
-                                        size < sizeRange.get(2) ? "500KB-1MB" : ">1MB",
-                        Collectors.counting()));
-        return collect.entrySet()
-                .stream()
-                .map(stringLongEntry -> new SpaceSizeAnalyzeResponse(stringLongEntry.getKey(), stringLongEntry.getValue()))
-                .collect(Collectors.toList());
+        //在数据库中一次聚合出所有大小范围，结果短时间缓存
+        return sizeAnalyzeCache.get(getAnalyzeScopeKey(spaceSizeAnalyzeRequest), () -> {
+            //构造查询条件
+            QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+            //补充查询条件
+            fillAnalyzeRequestQueryWrapper(spaceSizeAnalyzeRequest, queryWrapper);
+            // 定义大小范围
+            queryWrapper.select(
+                    "IFNULL(SUM(CASE WHEN picSize < 102400 THEN 1 ELSE 0 END), 0) AS lt100KB",
+                    "IFNULL(SUM(CASE WHEN picSize >= 102400 AND picSize < 512000 THEN 1 ELSE 0 END), 0) AS lt500KB",
+                    "IFNULL(SUM(CASE WHEN picSize >= 512000 AND picSize < 1048576 THEN 1 ELSE 0 END), 0) AS lt1MB",
+                    "IFNULL(SUM(CASE WHEN picSize >= 1048576 THEN 1 ELSE 0 END), 0) AS gt1MB");
+            Map<String, Object> result = pictureService.getBaseMapper().selectMaps(queryWrapper).get(0);
+            List<SpaceSizeAnalyzeResponse> responseList = new ArrayList<>();
+            responseList.add(new SpaceSizeAnalyzeResponse("<100KB", ((Number) result.get("lt100KB")).longValue()));
+            responseList.add(new SpaceSizeAnalyzeResponse("100KB-500KB", ((Number) result.get("lt500KB")).longValue()));
+            responseList.add(new SpaceSizeAnalyzeResponse("500KB-1MB", ((Number) result.get("lt1MB")).longValue()));
+            responseList.add(new SpaceSizeAnalyzeResponse(">1MB", ((Number) result.get("gt1MB")).longValue()));
+            return responseList;
+        });
     }
 
     /**
@@ -205,29 +269,30 @@ public class SpaceAnalyzeServiceImpl extends ServiceImpl<SpaceMapper, Space> imp
         ThrowUtils.throwIf(spaceUserAnalyzeRequest == null, ErrorCode.PARAMS_ERROR);
         //权限校验
         checkSpaceAnalyzeAuth(spaceUserAnalyzeRequest, loginUser);
-        //构造查询条件
-        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        //构造查询条件，从用户日统计表汇总
+        QueryWrapper<PictureUserStat> queryWrapper = new QueryWrapper<>();
         Long userId = spaceUserAnalyzeRequest.getUserId();
         queryWrapper.eq(ObjUtil.isNotNull(userId), "userId", userId);
         //补充查询条件
-        fillAnalyzeRequestQueryWrapper(spaceUserAnalyzeRequest, queryWrapper);
+        fillStatQueryWrapper(spaceUserAnalyzeRequest, queryWrapper);
         //分析维度：每日，每周，每月
         String timeDimension = spaceUserAnalyzeRequest.getTimeDimension();
+        ThrowUtils.throwIf(timeDimension == null, ErrorCode.PARAMS_ERROR, "不支持的时间维度");
         switch (timeDimension) {
             case "day":
-                queryWrapper.select("DATE_FORMAT(createTime, '%Y-%m-%d') AS period", "COUNT(*) AS count");
+                queryWrapper.select("DATE_FORMAT(statDate, '%Y-%m-%d') AS period", "SUM(pictureCount) AS count");
                 break;
             case "week":
-                queryWrapper.select("YEARWEEK(createTime) AS period", "COUNT(*) AS count");
+                queryWrapper.select("YEARWEEK(statDate) AS period", "SUM(pictureCount) AS count");
                 break;
             case "month":
-                queryWrapper.select("DATE_FORMAT(createTime, '%Y-%m') AS period", "COUNT(*) AS count");
+                queryWrapper.select("DATE_FORMAT(statDate, '%Y-%m') AS period", "SUM(pictureCount) AS count");
                 break;
             default:
                 throw new BusinessException(ErrorCode.PARAMS_ERROR, "不支持的时间维度");
         }
-        queryWrapper.groupBy("period").orderByAsc("period");
-        return pictureService.getBaseMapper().selectMaps(queryWrapper)
+        queryWrapper.groupBy("period").having("SUM(pictureCount) > 0").orderByAsc("period");
+        return pictureUserStatMapper.selectMaps(queryWrapper)
                 .stream()
                 .map(result -> {
                     String period = result.get("period").toString();
@@ -277,7 +342,39 @@ public class SpaceAnalyzeServiceImpl extends ServiceImpl<SpaceMapper, Space> imp
         }
     }
 
-    private void fillAnalyzeRequestQueryWrapper(SpaceAnalyzeRequest spaceAnalyzeRequest, QueryWrapper<Picture> queryWrapper) {
+    /**
+     * 获取分析范围对应的缓存 key
+     */
+    private String getAnalyzeScopeKey(SpaceAnalyzeRequest spaceAnalyzeRequest) {
+        if (spaceAnalyzeRequest.isQueryAll()) {
+            return "all";
+        }
+        if (spaceAnalyzeRequest.isQueryPublic()) {
+            return "public";
+        }
+        return "space:" + spaceAnalyzeRequest.getSpaceId();
+    }
+
+    /**
+     * 补充统计表的查询范围，统计表中公共图库的空间 id 为 0
+     */
+    private <T> void fillStatQueryWrapper(SpaceAnalyzeRequest spaceAnalyzeRequest, QueryWrapper<T> queryWrapper) {
+        if (spaceAnalyzeRequest.isQueryAll()) {
+            return;
+        }
+        if (spaceAnalyzeRequest.isQueryPublic()) {
+            queryWrapper.eq("spaceId", 0L);
+            return;
+        }
+        Long spaceId = spaceAnalyzeRequest.getSpaceId();
+        if (spaceId != null) {
+            queryWrapper.eq("spaceId", spaceId);
+            return;
+        }
+        throw new BusinessException(ErrorCode.PARAMS_ERROR, "未指定查询范围");
+    }
+
+    private <T> void fillAnalyzeRequestQueryWrapper(SpaceAnalyzeRequest spaceAnalyzeRequest, QueryWrapper<T> queryWrapper) {
         //所有空间
         boolean queryAll = spaceAnalyzeRequest.isQueryAll();
         if (queryAll) {
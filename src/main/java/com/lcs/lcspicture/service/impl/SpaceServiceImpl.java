@@ -10,9 +10,14 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.lcs.lcspicture.exception.BusinessException;
 import com.lcs.lcspicture.exception.ErrorCode;
 import com.lcs.lcspicture.exception.ThrowUtils;
+import com.lcs.lcspicture.manager.lock.DistributedLock;
+import com.lcs.lcspicture.manager.lock.DistributedLockService;
+import com.lcs.lcspicture.manager.quota.SpaceQuotaManager;
+import com.lcs.lcspicture.manager.quota.SpaceUsageAccumulator;
 import com.lcs.lcspicture.mapper.SpaceMapper;
 import com.lcs.lcspicture.model.dto.space.SpaceAddRequest;
 import com.lcs.lcspicture.model.dto.space.SpaceQueryRequest;
+import com.lcs.lcspicture.model.dto.space.SpaceUsageDrift;
 import com.lcs.lcspicture.model.entity.Space;
 import com.lcs.lcspicture.model.entity.SpaceUser;
 import com.lcs.lcspicture.model.entity.User;
@@ -24,15 +29,16 @@ import com.lcs.lcspicture.model.vo.UserVO;
 import com.lcs.lcspicture.service.SpaceService;
 import com.lcs.lcspicture.service.SpaceUserService;
 import com.lcs.lcspicture.service.UserService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -40,16 +46,36 @@ import java.util.stream.Collectors;
  * @description 针对表【space(空间)】的数据库操作Service实现
  * @createDate 2026-01-27 09:10:10
  */
+@Slf4j
 @Service
 public class SpaceServiceImpl extends ServiceImpl<SpaceMapper, Space>
         implements SpaceService {
 
+    /**
+     * 创建空间锁名称前缀
+     */
+    private static final String ADD_SPACE_LOCK_PREFIX = "space:add:";
+
+    /**
+     * 空间已用额度对账锁名称
+     */
+    private static final String RECONCILE_LOCK_NAME = "space:usage:reconcile";
+
+    /**
+     * 空间已用额度对账每批空间数
+     */
+    private static final int RECONCILE_BATCH_SIZE = 500;
+
     @Resource
     private UserService userService;
     @Resource
-    private TransactionTemplate transactionTemplate;
-    @Resource
     private SpaceUserService spaceUserService;
+    @Resource
+    private SpaceUsageAccumulator spaceUsageAccumulator;
+    @Resource
+    private SpaceQuotaManager spaceQuotaManager;
+    @Resource
+    private DistributedLockService distributedLockService;
 
 
     /**
@@ -205,10 +231,6 @@ public class SpaceServiceImpl extends ServiceImpl<SpaceMapper, Space>
         return spaceVOPage;
     }
 
-
-    // 1. 类级别定义线程安全的锁池（全局唯一）
-    private static final ConcurrentHashMap<Long, Object> LOCK_MAP = new ConcurrentHashMap<>();
-
     /**
      * 创建空间
      *
@@ -240,11 +262,9 @@ public class SpaceServiceImpl extends ServiceImpl<SpaceMapper, Space>
         this.fillSpaceBySpaceLevel(space);
         Long userId = loginUser.getId();
         space.setUserId(userId);
-        //针对用户进行枷锁
-        //String lock = String.valueOf(userId).intern();
-        //控制同一用户只能创建一个私有空间，以及一个团队空间
-        Object lock = LOCK_MAP.computeIfAbsent(userId, k -> new Object());
-        synchronized (lock) {
+        //针对用户加分布式锁，控制同一用户只能创建一个私有空间，以及一个团队空间
+        //事务在锁内提交，释放锁后其他请求一定能查到已创建的空间；提交前租约已过期时回滚
+        return distributedLockService.executeInTransactionWithLock(ADD_SPACE_LOCK_PREFIX + userId, () -> {
             boolean exists = this.lambdaQuery()
                     .eq(Space::getUserId, space.getUserId())
                     .eq(Space::getSpaceType, space.getSpaceType())
@@ -266,7 +286,7 @@ public class SpaceServiceImpl extends ServiceImpl<SpaceMapper, Space>
             }
             //返回新写入的数据id
             return space.getId();
-        }
+        });
     }
 
     /**
@@ -282,4 +302,77 @@ public class SpaceServiceImpl extends ServiceImpl<SpaceMapper, Space>
         }
     }
 
+    /**
+     * 定时按图片表对账修正空间已用额度，默认每天凌晨 3 点半执行
+     * <p>
+     * 按空间 id 分批，每批在写回锁内先写回所有节点的待写回变化量，再按图片表统计实际值：
+     * 数据库记录值不一致时修正，Redis 中的已用额度在读取后没有变化时按实际值重置；统计后又有新变化量的空间留到下次对账
+     */
+    @Scheduled(cron = "${space.usage.reconcile-cron:0 30 3 * * ?}")
+    @Override
+    public void reconcileSpaceUsage() {
+        //多个节点同时触发时只由一个节点执行
+        DistributedLock lock = distributedLockService.tryLock(RECONCILE_LOCK_NAME, 0, TimeUnit.MINUTES.toMillis(30));
+        if (lock == null) {
+            return;
+        }
+        try (DistributedLock ignored = lock) {
+            doReconcileSpaceUsage();
+        }
+    }
+
+    private void doReconcileSpaceUsage() {
+        long start = System.currentTimeMillis();
+        //依次为：修正数、跳过数
+        int[] stats = new int[2];
+        long lastId = 0;
+        while (true) {
+            long minId = lastId;
+            List<SpaceUsageDrift> usageList = spaceUsageAccumulator.executeWithFlushLock(
+                    () -> reconcileSpaceUsageBatch(minId, stats));
+            if (usageList.isEmpty()) {
+                break;
+            }
+            lastId = usageList.get(usageList.size() - 1).getSpaceId();
+        }
+        log.info("空间已用额度对账完成, 修正 {} 个, 跳过 {} 个, 耗时 {} ms", stats[0], stats[1],
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 对账一批空间，在写回锁内执行
+     *
+     * @param minId 上一批最后一个空间 id
+     * @param stats 修正数、跳过数
+     * @return 本批空间
+     */
+    private List<SpaceUsageDrift> reconcileSpaceUsageBatch(long minId, int[] stats) {
+        spaceUsageAccumulator.flushPending();
+        List<SpaceUsageDrift> usageList = this.baseMapper.listUsage(minId, RECONCILE_BATCH_SIZE);
+        for (SpaceUsageDrift usage : usageList) {
+            Long spaceId = usage.getSpaceId();
+            //结算不持有写回锁，先读取 Redis 中的已用额度，重置时与其比较，期间有结算则不覆盖
+            long[] used = spaceQuotaManager.getUsed(spaceId);
+            //统计期间刚提交的变化量可能已计入实际值，写回后会重复累加，留到下次对账
+            long[] pending = spaceUsageAccumulator.getPending(spaceId);
+            if (pending[0] != 0 || pending[1] != 0) {
+                stats[1]++;
+                continue;
+            }
+            if (ObjUtil.notEqual(usage.getRecordedCount(), usage.getActualCount())
+                    || ObjUtil.notEqual(usage.getRecordedSize(), usage.getActualSize())) {
+                if (this.baseMapper.fixUsage(usage) == 0) {
+                    stats[1]++;
+                    continue;
+                }
+                stats[0]++;
+                log.warn("空间已用额度与图片表不一致，已修正, spaceId={}, recordedCount={}, actualCount={}, recordedSize={}, actualSize={}",
+                        spaceId, usage.getRecordedCount(), usage.getActualCount(), usage.getRecordedSize(), usage.getActualSize());
+            }
+            if (used != null && !spaceQuotaManager.reseedUsed(spaceId, used, usage.getActualCount(), usage.getActualSize())) {
+                log.info("对账期间空间额度有变化，留到下次重置, spaceId={}", spaceId);
+            }
+        }
+        return usageList;
+    }
 }
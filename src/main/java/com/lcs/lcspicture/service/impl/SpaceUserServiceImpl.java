@@ -8,6 +8,8 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.lcs.lcspicture.exception.BusinessException;
 import com.lcs.lcspicture.exception.ErrorCode;
 import com.lcs.lcspicture.exception.ThrowUtils;
+import com.lcs.lcspicture.manager.auth.SpacePermissionCache;
+import com.lcs.lcspicture.manager.lock.DistributedLockService;
 import com.lcs.lcspicture.model.dto.spaceuser.SpaceUserAddRequest;
 import com.lcs.lcspicture.model.dto.spaceuser.SpaceUserQueryRequest;
 import com.lcs.lcspicture.model.entity.Space;
@@ -40,11 +42,20 @@ import java.util.stream.Collectors;
 public class SpaceUserServiceImpl extends ServiceImpl<SpaceUserMapper, SpaceUser>
         implements SpaceUserService {
 
+    /**
+     * 添加空间成员锁名称前缀
+     */
+    private static final String ADD_SPACE_USER_LOCK_PREFIX = "space:user:add:";
+
     @Resource
     @Lazy
     private SpaceService spaceService;
     @Resource
     private UserService userService;
+    @Resource
+    private DistributedLockService distributedLockService;
+    @Resource
+    private SpacePermissionCache spacePermissionCache;
 
     /**
      * 创建空间成员
@@ -55,12 +66,49 @@ public class SpaceUserServiceImpl extends ServiceImpl<SpaceUserMapper, SpaceUser
         ThrowUtils.throwIf(spaceUserAddRequest == null, ErrorCode.PARAMS_ERROR, "参数为空");
         SpaceUser spaceUser = new SpaceUser();
         BeanUtil.copyProperties(spaceUserAddRequest, spaceUser);
-        //校验参数
-        validSpaceUser(spaceUser, true);
-        //操作数据库
-        boolean save = this.save(spaceUser);
-        ThrowUtils.throwIf(!save, ErrorCode.OPERATION_ERROR, "创建空间成员失败");
-        return spaceUser.getId();
+        ThrowUtils.throwIf(ObjUtil.hasEmpty(spaceUser.getSpaceId(), spaceUser.getUserId()), ErrorCode.PARAMS_ERROR);
+        //同一成员的校验与写入加分布式锁，避免并发添加时重复校验通过；提交前租约已过期时回滚
+        String lockName = ADD_SPACE_USER_LOCK_PREFIX + spaceUser.getSpaceId() + ":" + spaceUser.getUserId();
+        Long spaceUserId = distributedLockService.executeInTransactionWithLock(lockName, () -> {
+            //校验参数
+            validSpaceUser(spaceUser, true);
+            //操作数据库
+            boolean save = this.save(spaceUser);
+            ThrowUtils.throwIf(!save, ErrorCode.OPERATION_ERROR, "创建空间成员失败");
+            return spaceUser.getId();
+        });
+        //新成员此前可能缓存了无权限的决策，提交后清理
+        spacePermissionCache.evictSpaceUser(spaceUser.getSpaceId(), spaceUser.getUserId());
+        return spaceUserId;
+    }
+
+    /**
+     * 移除空间成员
+     */
+    @Override
+    public boolean deleteSpaceUser(Long id) {
+        SpaceUser oldSpaceUser = this.getById(id);
+        ThrowUtils.throwIf(oldSpaceUser == null, ErrorCode.NOT_FOUND_ERROR);
+        boolean result = this.removeById(id);
+        if (result) {
+            spacePermissionCache.evictSpaceUser(id, oldSpaceUser.getSpaceId(), oldSpaceUser.getUserId());
+        }
+        return result;
+    }
+
+    /**
+     * 编辑空间成员角色
+     */
+    @Override
+    public boolean editSpaceUser(SpaceUser spaceUser) {
+        ThrowUtils.throwIf(spaceUser == null || spaceUser.getId() == null, ErrorCode.PARAMS_ERROR);
+        SpaceUser oldSpaceUser = this.getById(spaceUser.getId());
+        ThrowUtils.throwIf(oldSpaceUser == null, ErrorCode.NOT_FOUND_ERROR);
+        boolean result = this.updateById(spaceUser);
+        if (result) {
+            spacePermissionCache.evictSpaceUser(oldSpaceUser.getSpaceId(), oldSpaceUser.getUserId());
+        }
+        return result;
     }
 
     /**
@@ -0,0 +1,136 @@
+package com.lcs.lcspicture.utils;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * 工具类：提取图片主色调调色板
+ * <p>
+ * 将采样后图片的像素量化到 4096 个颜色桶中统计，依次取像素最多且彼此差异足够大的颜色
+ */
+public class ColorPaletteUtils {
+
+    /**
+     * 调色板最多颜色数
+     */
+    public static final int MAX_PALETTE_SIZE = 5;
+
+    /**
+     * 调色板中颜色之间的最小 CIEDE2000 色差
+     */
+    private static final double MIN_COLOR_DISTANCE = 10;
+
+    /**
+     * 每个分量量化为 4 位
+     */
+    private static final int BUCKET_COUNT = 1 << 12;
+
+    private ColorPaletteUtils() {
+        // 工具类不需要实例化
+    }
+
+    /**
+     * 从图片中提取调色板
+     *
+     * @param image     图片
+     * @param maxColors 最多颜色数
+     * @return RGB 颜色，按占比从高到低排列
+     */
+    public static int[] extractPalette(BufferedImage image, int maxColors) {
+        int[] counts = new int[BUCKET_COUNT];
+        long[] sumR = new long[BUCKET_COUNT];
+        long[] sumG = new long[BUCKET_COUNT];
+        long[] sumB = new long[BUCKET_COUNT];
+        int width = image.getWidth();
+        int height = image.getHeight();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int argb = image.getRGB(x, y);
+                // 忽略透明像素
+                if ((argb >>> 24) < 128) {
+                    continue;
+                }
+                int r = (argb >> 16) & 0xFF;
+                int g = (argb >> 8) & 0xFF;
+                int b = argb & 0xFF;
+                int bucket = ((r >> 4) << 8) | ((g >> 4) << 4) | (b >> 4);
+                counts[bucket]++;
+                sumR[bucket] += r;
+                sumG[bucket] += g;
+                sumB[bucket] += b;
+            }
+        }
+        int[] palette = new int[maxColors];
+        float[] paletteLab = new float[maxColors * 3];
+        int paletteSize = 0;
+        float[] lab = new float[3];
+        while (paletteSize < maxColors) {
+            int maxBucket = -1;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                if (counts[i] > 0 && (maxBucket < 0 || counts[i] > counts[maxBucket])) {
+                    maxBucket = i;
+                }
+            }
+            if (maxBucket < 0) {
+                break;
+            }
+            int count = counts[maxBucket];
+            counts[maxBucket] = 0;
+            int rgb = (int) (sumR[maxBucket] / count) << 16 | (int) (sumG[maxBucket] / count) << 8 | (int) (sumB[maxBucket] / count);
+            ColorSimilarUtils.rgbToLab(rgb, lab, 0);
+            // 与已选颜色太接近的颜色跳过
+            boolean similar = false;
+            for (int i = 0; i < paletteSize && !similar; i++) {
+                similar = ColorSimilarUtils.ciede2000(lab[0], lab[1], lab[2],
+                        paletteLab[i * 3], paletteLab[i * 3 + 1], paletteLab[i * 3 + 2]) < MIN_COLOR_DISTANCE;
+            }
+            if (similar) {
+                continue;
+            }
+            palette[paletteSize] = rgb;
+            System.arraycopy(lab, 0, paletteLab, paletteSize * 3, 3);
+            paletteSize++;
+        }
+        int[] result = new int[paletteSize];
+        System.arraycopy(palette, 0, result, 0, paletteSize);
+        return result;
+    }
+
+    /**
+     * 将调色板编码为紧凑字符串，每个颜色 6 位十六进制，例如 FF0000A0B0C0
+     *
+     * @param palette RGB 颜色
+     * @return 编码后的字符串，调色板为空时返回 null
+     */
+    public static String encodePalette(int[] palette) {
+        if (palette == null || palette.length == 0) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(palette.length * 6);
+        for (int rgb : palette) {
+            sb.append(String.format("%06X", rgb & 0xFFFFFF));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 解析调色板字符串
+     *
+     * @param palette 编码后的调色板
+     * @return RGB 颜色，无法解析时返回空数组
+     */
+    public static int[] decodePalette(String palette) {
+        if (palette == null || palette.length() < 6) {
+            return new int[0];
+        }
+        int size = Math.min(palette.length() / 6, MAX_PALETTE_SIZE);
+        int[] result = new int[size];
+        try {
+            for (int i = 0; i < size; i++) {
+                result[i] = Integer.parseInt(palette, i * 6, i * 6 + 6, 16);
+            }
+        } catch (NumberFormatException e) {
+            return new int[0];
+        }
+        return result;
+    }
+}
@@ -7,6 +7,28 @@ import java.awt.*;
  */
 public class ColorSimilarUtils {
 
+    /**
+     * RGB 空间最大欧氏距离
+     */
+    private static final double MAX_RGB_DISTANCE = Math.sqrt(3 * 255 * 255);
+
+    /**
+     * 25 的 7 次方，CIEDE2000 公式常量
+     */
+    private static final double POW25_7 = 6103515625.0;
+
+    /**
+     * sRGB 分量到线性分量的查找表
+     */
+    private static final double[] SRGB_TO_LINEAR = new double[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            double c = i / 255.0;
+            SRGB_TO_LINEAR[i] = c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+        }
+    }
+
     private ColorSimilarUtils() {
         // 工具类不需要实例化
     }
@@ -28,10 +50,13 @@ public class ColorSimilarUtils {
         int b2 = color2.getBlue();
 
         // 计算欧氏距离
-        double distance = Math.sqrt(Math.pow(r1 - r2, 2) + Math.pow(g1 - g2, 2) + Math.pow(b1 - b2, 2));
+        int dr = r1 - r2;
+        int dg = g1 - g2;
+        int db = b1 - b2;
+        double distance = Math.sqrt(dr * dr + dg * dg + db * db);
 
         // 计算相似度
-        return 1 - distance / Math.sqrt(3 * Math.pow(255, 2));
+        return 1 - distance / MAX_RGB_DISTANCE;
     }
 
     /**
@@ -47,6 +72,137 @@ public class ColorSimilarUtils {
         return calculateSimilarity(color1, color2);
     }
 
+    /**
+     * 将十六进制颜色代码解析为 RGB 整数
+     *
+     * @param hexColor 十六进制颜色代码（如 0xFF0000、#FF0000）
+     * @return RGB 整数，无法解析时返回 -1
+     */
+    public static int toRgb(String hexColor) {
+        if (hexColor == null || hexColor.isEmpty()) {
+            return -1;
+        }
+        try {
+            return Integer.decode(hexColor.trim()) & 0xFFFFFF;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 计算两个 RGB 整数颜色的欧氏距离平方
+     *
+     * @param rgb1 第一个颜色
+     * @param rgb2 第二个颜色
+     * @return 距离平方
+     */
+    public static int distanceSquare(int rgb1, int rgb2) {
+        int dr = ((rgb1 >> 16) & 0xFF) - ((rgb2 >> 16) & 0xFF);
+        int dg = ((rgb1 >> 8) & 0xFF) - ((rgb2 >> 8) & 0xFF);
+        int db = (rgb1 & 0xFF) - (rgb2 & 0xFF);
+        return dr * dr + dg * dg + db * db;
+    }
+
+    /**
+     * 将 RGB 颜色转换为 CIE Lab（D65），结果依次写入 out[offset]、out[offset + 1]、out[offset + 2]
+     *
+     * @param rgb    RGB 整数
+     * @param out    输出数组
+     * @param offset 写入位置
+     */
+    public static void rgbToLab(int rgb, float[] out, int offset) {
+        double r = SRGB_TO_LINEAR[(rgb >> 16) & 0xFF];
+        double g = SRGB_TO_LINEAR[(rgb >> 8) & 0xFF];
+        double b = SRGB_TO_LINEAR[rgb & 0xFF];
+        double fx = labF((r * 0.4124564 + g * 0.3575761 + b * 0.1804375) / 0.95047);
+        double fy = labF(r * 0.2126729 + g * 0.7151522 + b * 0.0721750);
+        double fz = labF((r * 0.0193339 + g * 0.1191920 + b * 0.9503041) / 1.08883);
+        out[offset] = (float) (116 * fy - 16);
+        out[offset + 1] = (float) (500 * (fx - fy));
+        out[offset + 2] = (float) (200 * (fy - fz));
+    }
+
+    /**
+     * 计算两个 Lab 颜色的 CIEDE2000 色差，全部使用基本类型运算，不分配对象
+     *
+     * @return 色差，0 表示完全相同，数值越小越相似
+     */
+    public static double ciede2000(double l1, double a1, double b1, double l2, double a2, double b2) {
+        double c1 = Math.sqrt(a1 * a1 + b1 * b1);
+        double c2 = Math.sqrt(a2 * a2 + b2 * b2);
+        double cMean7 = pow7((c1 + c2) / 2);
+        double g = 0.5 * (1 - Math.sqrt(cMean7 / (cMean7 + POW25_7)));
+        double a1p = a1 * (1 + g);
+        double a2p = a2 * (1 + g);
+        double c1p = Math.sqrt(a1p * a1p + b1 * b1);
+        double c2p = Math.sqrt(a2p * a2p + b2 * b2);
+        double h1p = hueAngle(b1, a1p);
+        double h2p = hueAngle(b2, a2p);
+        double cProduct = c1p * c2p;
+
+        double deltaLp = l2 - l1;
+        double deltaCp = c2p - c1p;
+        double deltahp = 0;
+        if (cProduct != 0) {
+            deltahp = h2p - h1p;
+            if (deltahp > 180) {
+                deltahp -= 360;
+            } else if (deltahp < -180) {
+                deltahp += 360;
+            }
+        }
+        double deltaHp = 2 * Math.sqrt(cProduct) * Math.sin(Math.toRadians(deltahp / 2));
+
+        double lpMean = (l1 + l2) / 2;
+        double cpMean = (c1p + c2p) / 2;
+        double hpMean;
+        if (cProduct == 0) {
+            hpMean = h1p + h2p;
+        } else if (Math.abs(h1p - h2p) <= 180) {
+            hpMean = (h1p + h2p) / 2;
+        } else if (h1p + h2p < 360) {
+            hpMean = (h1p + h2p + 360) / 2;
+        } else {
+            hpMean = (h1p + h2p - 360) / 2;
+        }
+        double t = 1 - 0.17 * Math.cos(Math.toRadians(hpMean - 30))
+                + 0.24 * Math.cos(Math.toRadians(2 * hpMean))
+                + 0.32 * Math.cos(Math.toRadians(3 * hpMean + 6))
+                - 0.20 * Math.cos(Math.toRadians(4 * hpMean - 63));
+        double hueOffset = (hpMean - 275) / 25;
+        double deltaTheta = 30 * Math.exp(-hueOffset * hueOffset);
+        double cpMean7 = pow7(cpMean);
+        double rc = 2 * Math.sqrt(cpMean7 / (cpMean7 + POW25_7));
+        double lpOffset = (lpMean - 50) * (lpMean - 50);
+        double sl = 1 + 0.015 * lpOffset / Math.sqrt(20 + lpOffset);
+        double sc = 1 + 0.045 * cpMean;
+        double sh = 1 + 0.015 * cpMean * t;
+        double rt = -Math.sin(Math.toRadians(2 * deltaTheta)) * rc;
+
+        double dl = deltaLp / sl;
+        double dc = deltaCp / sc;
+        double dh = deltaHp / sh;
+        return Math.sqrt(dl * dl + dc * dc + dh * dh + rt * dc * dh);
+    }
+
+    private static double labF(double t) {
+        return t > 216.0 / 24389.0 ? Math.cbrt(t) : (24389.0 / 27.0 * t + 16) / 116;
+    }
+
+    private static double hueAngle(double b, double a) {
+        if (a == 0 && b == 0) {
+            return 0;
+        }
+        double h = Math.toDegrees(Math.atan2(b, a));
+        return h < 0 ? h + 360 : h;
+    }
+
+    private static double pow7(double x) {
+        double x2 = x * x;
+        double x3 = x2 * x;
+        return x3 * x3 * x;
+    }
+
     // 示例代码
     public static void main(String[] args) {
         // 测试颜色
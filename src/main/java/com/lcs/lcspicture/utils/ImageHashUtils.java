@@ -0,0 +1,113 @@
+package com.lcs.lcspicture.utils;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * 工具类：计算图片感知哈希
+ * <p>
+ * pHash：将图片缩小为 32x32 灰度图，做二维 DCT 后取左上角 8x8 低频系数，与中位数比较得到 64 位指纹。
+ * 两张图片指纹的汉明距离越小越相似
+ */
+public class ImageHashUtils {
+
+    private static final int DCT_SIZE = 32;
+
+    private static final int HASH_SIZE = 8;
+
+    /**
+     * DCT 系数表，COS_TABLE[u][x] = cos((2x + 1) * u * PI / 64)
+     */
+    private static final double[][] COS_TABLE = new double[HASH_SIZE][DCT_SIZE];
+
+    static {
+        for (int u = 0; u < HASH_SIZE; u++) {
+            for (int x = 0; x < DCT_SIZE; x++) {
+                COS_TABLE[u][x] = Math.cos((2 * x + 1) * u * Math.PI / (2 * DCT_SIZE));
+            }
+        }
+    }
+
+    private ImageHashUtils() {
+        // 工具类不需要实例化
+    }
+
+    /**
+     * 计算 pHash
+     *
+     * @param image 图片
+     * @return 64 位指纹
+     */
+    public static long pHash(BufferedImage image) {
+        double[] gray = toGray(image, DCT_SIZE, DCT_SIZE);
+        // 只需要低频部分，先按行再按列计算 8x8 个系数
+        double[] rows = new double[DCT_SIZE * HASH_SIZE];
+        for (int y = 0; y < DCT_SIZE; y++) {
+            for (int u = 0; u < HASH_SIZE; u++) {
+                double sum = 0;
+                for (int x = 0; x < DCT_SIZE; x++) {
+                    sum += gray[y * DCT_SIZE + x] * COS_TABLE[u][x];
+                }
+                rows[y * HASH_SIZE + u] = sum;
+            }
+        }
+        double[] coefficients = new double[HASH_SIZE * HASH_SIZE];
+        for (int v = 0; v < HASH_SIZE; v++) {
+            for (int u = 0; u < HASH_SIZE; u++) {
+                double sum = 0;
+                for (int y = 0; y < DCT_SIZE; y++) {
+                    sum += rows[y * HASH_SIZE + u] * COS_TABLE[v][y];
+                }
+                coefficients[v * HASH_SIZE + u] = sum;
+            }
+        }
+        // 直流分量只反映整体亮度，不参与中位数计算
+        double[] sorted = Arrays.copyOfRange(coefficients, 1, coefficients.length);
+        Arrays.sort(sorted);
+        double median = sorted[sorted.length / 2];
+        long hash = 0;
+        for (int i = 0; i < coefficients.length; i++) {
+            if (coefficients[i] > median) {
+                hash |= 1L << i;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * 计算两个指纹的汉明距离
+     */
+    public static int hammingDistance(long hash1, long hash2) {
+        return Long.bitCount(hash1 ^ hash2);
+    }
+
+    /**
+     * 按区域平均将图片缩小为指定大小的灰度图
+     */
+    private static double[] toGray(BufferedImage image, int width, int height) {
+        int srcWidth = image.getWidth();
+        int srcHeight = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, srcWidth, srcHeight, null, 0, srcWidth);
+        double[] sums = new double[width * height];
+        int[] counts = new int[width * height];
+        for (int y = 0; y < srcHeight; y++) {
+            int row = (int) ((long) y * height / srcHeight) * width;
+            for (int x = 0; x < srcWidth; x++) {
+                int argb = pixels[y * srcWidth + x];
+                int index = row + (int) ((long) x * width / srcWidth);
+                sums[index] += 0.299 * ((argb >> 16) & 0xFF) + 0.587 * ((argb >> 8) & 0xFF) + 0.114 * (argb & 0xFF);
+                counts[index]++;
+            }
+        }
+        for (int i = 0; i < sums.length; i++) {
+            if (counts[i] > 0) {
+                sums[i] /= counts[i];
+                continue;
+            }
+            // 原图比目标尺寸小时，取最近的像素
+            int argb = pixels[(i / width) * srcHeight / height * srcWidth + (i % width) * srcWidth / width];
+            sums[i] = 0.299 * ((argb >> 16) & 0xFF) + 0.587 * ((argb >> 8) & 0xFF) + 0.114 * (argb & 0xFF);
+        }
+        return sums;
+    }
+}
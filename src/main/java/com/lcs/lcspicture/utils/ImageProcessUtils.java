@@ -0,0 +1,141 @@
+package com.lcs.lcspicture.utils;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * 工具类：本地图片处理（缩放、编码、平均色）
+ */
+public class ImageProcessUtils {
+
+    private ImageProcessUtils() {
+        // 工具类不需要实例化
+    }
+
+    /**
+     * 等比缩放到最长边不超过指定大小，图片本身更小时原样返回
+     * <p>
+     * 缩小超过一半时逐级减半，避免一次双线性插值丢失过多细节
+     *
+     * @param image   原图
+     * @param maxSize 最长边
+     * @return 缩放后的图片
+     */
+    public static BufferedImage resize(BufferedImage image, int maxSize) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (Math.max(width, height) <= maxSize) {
+            return image;
+        }
+        double scale = maxSize * 1.0 / Math.max(width, height);
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = image;
+        while (width != targetWidth || height != targetHeight) {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage scaled = new BufferedImage(width, height, type);
+            Graphics2D graphics = scaled.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = scaled;
+        }
+        return current;
+    }
+
+    /**
+     * 当前环境是否支持编码为指定格式
+     *
+     * @param format 格式名，如 webp、jpg
+     */
+    public static boolean canWrite(String format) {
+        return ImageIO.getImageWritersByFormatName(format).hasNext();
+    }
+
+    /**
+     * 编码图片，支持有损压缩的格式按指定质量压缩；不支持透明通道的格式（如 jpg）以白色填充透明区域
+     *
+     * @param image   图片
+     * @param format  格式名
+     * @param quality 压缩质量，0 到 1
+     * @return 编码后的内容
+     */
+    public static byte[] encode(BufferedImage image, String format, float quality) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("不支持的图片格式: " + format);
+        }
+        ImageWriter writer = writers.next();
+        BufferedImage target = image;
+        if (image.getColorModel().hasAlpha() && isOpaqueFormat(format)) {
+            target = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = target.createGraphics();
+            try {
+                graphics.drawImage(image, 0, 0, Color.WHITE, null);
+            } finally {
+                graphics.dispose();
+            }
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(outputStream)) {
+            writer.setOutput(imageOutputStream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                String[] compressionTypes = param.getCompressionTypes();
+                if (compressionTypes != null && compressionTypes.length > 0 && param.getCompressionType() == null) {
+                    param.setCompressionType(compressionTypes[0]);
+                }
+                param.setCompressionQuality(quality);
+            }
+            writer.write(null, new IIOImage(target, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * 计算图片平均色
+     *
+     * @param image 图片，建议传入采样后的小图
+     * @return RGB 整数
+     */
+    public static int averageColor(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        long r = 0;
+        long g = 0;
+        long b = 0;
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int rgb : row) {
+                r += (rgb >> 16) & 0xFF;
+                g += (rgb >> 8) & 0xFF;
+                b += rgb & 0xFF;
+            }
+        }
+        long count = Math.max(1L, (long) width * height);
+        return (int) (r / count) << 16 | (int) (g / count) << 8 | (int) (b / count);
+    }
+
+    private static boolean isOpaqueFormat(String format) {
+        return "jpg".equalsIgnoreCase(format) || "jpeg".equalsIgnoreCase(format) || "bmp".equalsIgnoreCase(format);
+    }
+}
@@ -0,0 +1,56 @@
+package com.lcs.lcspicture.utils;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * 工具类：按采样步长解码图片
+ * <p>
+ * 解码时直接跳过多余的像素，只得到边长不超过指定大小的缩略图，用于提取颜色、计算感知哈希等本地分析
+ */
+public class ImageSampleUtils {
+
+    /**
+     * 默认采样后图片的最大边长
+     */
+    public static final int DEFAULT_SAMPLE_SIZE = 128;
+
+    private ImageSampleUtils() {
+        // 工具类不需要实例化
+    }
+
+    /**
+     * 按采样步长解码图片
+     *
+     * @param inputStream 图片输入流
+     * @param sampleSize  采样后图片的最大边长
+     * @return 采样后的图片，不支持的图片格式返回 null
+     */
+    public static BufferedImage read(InputStream inputStream, int sampleSize) throws IOException {
+        try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+            if (imageInputStream == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInputStream, true, true);
+                int step = Math.max(1, Math.max(reader.getWidth(0), reader.getHeight(0)) / sampleSize);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.lcs.lcspicture.utils;
+
+import cn.hutool.json.JSONUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 标签计数器
+ * <p>
+ * 直接在 JSON 数组字符串上扫描标签，按字符区间查找开放寻址哈希表计数，
+ * 只有首次出现的标签才会创建字符串，逐行统计时内存只与不同标签的数量有关
+ */
+public class TagCounter {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private String[] keys = new String[INITIAL_CAPACITY];
+
+    private int[] hashes = new int[INITIAL_CAPACITY];
+
+    private long[] counts = new long[INITIAL_CAPACITY];
+
+    private int size;
+
+    /**
+     * 统计一行标签（JSON 字符串数组，例如 ["风景","人物"]）
+     *
+     * @param tagsJson 标签 JSON
+     */
+    public void addJsonArray(String tagsJson) {
+        if (tagsJson == null) {
+            return;
+        }
+        int length = tagsJson.length();
+        int i = 0;
+        while (i < length) {
+            if (tagsJson.charAt(i) != '"') {
+                i++;
+                continue;
+            }
+            int start = i + 1;
+            int end = start;
+            boolean escaped = false;
+            while (end < length && tagsJson.charAt(end) != '"') {
+                if (tagsJson.charAt(end) == '\\') {
+                    escaped = true;
+                    end++;
+                }
+                end++;
+            }
+            if (end >= length) {
+                return;
+            }
+            if (escaped) {
+                // 含转义字符的标签很少见，交给 JSON 解析
+                String tag = JSONUtil.parseArray("[" + tagsJson.substring(start - 1, end + 1) + "]").getStr(0);
+                add(tag, 0, tag.length());
+            } else {
+                add(tagsJson, start, end);
+            }
+            i = end + 1;
+        }
+    }
+
+    /**
+     * 标签计数加一
+     *
+     * @param source 标签所在字符串
+     * @param start  标签起始位置（包含）
+     * @param end    标签结束位置（不包含）
+     */
+    public void add(CharSequence source, int start, int end) {
+        if (start >= end) {
+            return;
+        }
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        int mask = keys.length - 1;
+        int index = mix(hash) & mask;
+        while (keys[index] != null) {
+            if (hashes[index] == hash && regionEquals(keys[index], source, start, end)) {
+                counts[index]++;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = source.subSequence(start, end).toString();
+        hashes[index] = hash;
+        counts[index] = 1;
+        if (++size * 2 > keys.length) {
+            resize();
+        }
+    }
+
+    /**
+     * 不同标签的数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 获取使用次数最多的前 N 个标签，按次数降序
+     *
+     * @param topN 数量，为空或不大于 0 时返回全部
+     * @return 标签及次数
+     */
+    public List<TagCount> topN(Integer topN) {
+        int limit = topN == null || topN <= 0 ? size : Math.min(topN, size);
+        if (limit == 0) {
+            return new ArrayList<>();
+        }
+        // 小顶堆只保留 limit 个元素
+        PriorityQueue<Integer> heap = new PriorityQueue<>(limit, (a, b) -> Long.compare(counts[a], counts[b]));
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == null) {
+                continue;
+            }
+            if (heap.size() < limit) {
+                heap.offer(i);
+            } else if (counts[i] > counts[heap.peek()]) {
+                heap.poll();
+                heap.offer(i);
+            }
+        }
+        TagCount[] result = new TagCount[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            int index = heap.poll();
+            result[i] = new TagCount(keys[index], counts[index]);
+        }
+        return new ArrayList<>(Arrays.asList(result));
+    }
+
+    private void resize() {
+        String[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        long[] oldCounts = counts;
+        int capacity = oldKeys.length * 2;
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        counts = new long[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) {
+                continue;
+            }
+            int index = mix(oldHashes[i]) & mask;
+            while (keys[index] != null) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = oldKeys[i];
+            hashes[index] = oldHashes[i];
+            counts[index] = oldCounts[i];
+        }
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean regionEquals(String key, CharSequence source, int start, int end) {
+        if (key.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) != source.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 标签及其使用次数
+     */
+    public static class TagCount {
+
+        private final String tag;
+
+        private final long count;
+
+        public TagCount(String tag, long count) {
+            this.tag = tag;
+            this.count = count;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
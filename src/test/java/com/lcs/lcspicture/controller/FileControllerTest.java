@@ -0,0 +1,38 @@
+package com.lcs.lcspicture.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FileControllerTest {
+
+    @Test
+    void parseRange() {
+        assertArrayEquals(new long[]{0, 99}, FileController.parseRange("bytes=0-99", 1000));
+        assertArrayEquals(new long[]{500, 999}, FileController.parseRange("bytes=500-", 1000));
+        // 结束位置超出文件大小时截断
+        assertArrayEquals(new long[]{900, 999}, FileController.parseRange("bytes=900-2000", 1000));
+    }
+
+    @Test
+    void parseSuffixRange() {
+        assertArrayEquals(new long[]{900, 999}, FileController.parseRange("bytes=-100", 1000));
+        assertArrayEquals(new long[]{0, 999}, FileController.parseRange("bytes=-2000", 1000));
+        assertNull(FileController.parseRange("bytes=-0", 1000));
+    }
+
+    @Test
+    void parseUnsatisfiableRange() {
+        assertNull(FileController.parseRange("bytes=1000-", 1000));
+        assertNull(FileController.parseRange("bytes=200-100", 1000));
+    }
+
+    @Test
+    void parseUnsupportedRange() {
+        assertArrayEquals(new long[0], FileController.parseRange("bytes=0-1,5-9", 1000));
+        assertArrayEquals(new long[0], FileController.parseRange("items=0-1", 1000));
+        assertArrayEquals(new long[0], FileController.parseRange("bytes=abc", 1000));
+        assertArrayEquals(new long[0], FileController.parseRange("bytes=a-b", 1000));
+    }
+}
@@ -0,0 +1,65 @@
+package com.lcs.lcspicture.manager.auth;
+
+import com.lcs.lcspicture.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StpInterfaceImplTest {
+
+    @Test
+    void parseNumberIds() {
+        SpaceUserAuthContext authContext = parse("{\"id\":1,\"pictureId\":2,\"spaceId\":3,\"spaceUserId\":4}");
+        assertEquals(1L, authContext.getId());
+        assertEquals(2L, authContext.getPictureId());
+        assertEquals(3L, authContext.getSpaceId());
+        assertEquals(4L, authContext.getSpaceUserId());
+    }
+
+    @Test
+    void parseStringIds() {
+        SpaceUserAuthContext authContext = parse("{\"id\":\"1876543210987654321\",\"spaceId\":\" 3 \",\"pictureId\":\"\"}");
+        assertEquals(1876543210987654321L, authContext.getId());
+        assertEquals(3L, authContext.getSpaceId());
+        assertNull(authContext.getPictureId());
+    }
+
+    @Test
+    void ignoreNestedIds() {
+        SpaceUserAuthContext authContext = parse("{\"picture\":{\"id\":9,\"spaceId\":8},\"tags\":[{\"id\":7}],"
+                + "\"spaceId\":{\"id\":6},\"pictureId\":[5],\"id\":1}");
+        assertEquals(1L, authContext.getId());
+        assertNull(authContext.getSpaceId());
+        assertNull(authContext.getPictureId());
+    }
+
+    @Test
+    void parseMissingIds() {
+        SpaceUserAuthContext authContext = parse("{\"name\":\"test\",\"id\":null}");
+        assertNull(authContext.getId());
+        assertNull(authContext.getPictureId());
+        assertNull(authContext.getSpaceId());
+        assertNull(authContext.getSpaceUserId());
+    }
+
+    @Test
+    void parseEmptyBody() {
+        assertNull(StpInterfaceImpl.parseAuthContext(null).getId());
+        assertNull(StpInterfaceImpl.parseAuthContext(new byte[0]).getId());
+        assertNull(parse("[{\"id\":1}]").getId());
+    }
+
+    @Test
+    void rejectInvalidBody() {
+        assertThrows(BusinessException.class, () -> parse("{\"id\":\"abc\"}"));
+        assertThrows(BusinessException.class, () -> parse("{\"id\":1,"));
+    }
+
+    private SpaceUserAuthContext parse(String body) {
+        return StpInterfaceImpl.parseAuthContext(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
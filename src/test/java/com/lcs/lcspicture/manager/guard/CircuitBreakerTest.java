@@ -0,0 +1,84 @@
+package com.lcs.lcspicture.manager.guard;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    @Test
+    void closedAllowsUntilThreshold() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 3, 60_000);
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        assertTrue(circuitBreaker.allowRequest());
+        circuitBreaker.onFailure();
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    void successResetsFailureCount() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 2, 60_000);
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    void halfOpenAllowsSingleProbe() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 1, 0);
+        circuitBreaker.onFailure();
+        assertTrue(circuitBreaker.allowRequest());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    void probeSuccessCloses() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 1, 0);
+        circuitBreaker.onFailure();
+        assertTrue(circuitBreaker.allowRequest());
+        circuitBreaker.onSuccess();
+        assertTrue(circuitBreaker.allowRequest());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    void probeFailureReopens() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 3, 0);
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        assertTrue(circuitBreaker.allowRequest());
+        // 半开状态下一次失败即重新打开，不需要再次达到阈值
+        circuitBreaker.onFailure();
+        assertTrue(circuitBreaker.allowRequest());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    void probeFailureKeepsOpenUntilTimeout() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 1, 60_000);
+        circuitBreaker.onFailure();
+        assertFalse(circuitBreaker.allowRequest());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    void releaseAllowsNextProbe() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 1, 0);
+        circuitBreaker.onFailure();
+        assertTrue(circuitBreaker.allowRequest());
+        circuitBreaker.release();
+        assertTrue(circuitBreaker.allowRequest());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    void releaseWhenClosedHasNoEffect() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 1, 60_000);
+        circuitBreaker.release();
+        assertTrue(circuitBreaker.allowRequest());
+    }
+}
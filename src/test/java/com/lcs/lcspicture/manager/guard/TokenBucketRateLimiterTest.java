@@ -0,0 +1,42 @@
+package com.lcs.lcspicture.manager.guard;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketRateLimiterTest {
+
+    @Test
+    void burstLimitsImmediateRequests() {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(0.001, 3);
+        assertTrue(rateLimiter.tryAcquire());
+        assertTrue(rateLimiter.tryAcquire());
+        assertTrue(rateLimiter.tryAcquire());
+        assertFalse(rateLimiter.tryAcquire());
+    }
+
+    @Test
+    void nonPositiveBurstAllowsOne() {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(0.001, 0);
+        assertTrue(rateLimiter.tryAcquire());
+        assertFalse(rateLimiter.tryAcquire());
+    }
+
+    @Test
+    void refillsOverTime() throws InterruptedException {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(100, 1);
+        assertTrue(rateLimiter.tryAcquire());
+        Thread.sleep(50);
+        assertTrue(rateLimiter.tryAcquire());
+    }
+
+    @Test
+    void refillDoesNotExceedBurst() throws InterruptedException {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(10, 2);
+        Thread.sleep(500);
+        assertTrue(rateLimiter.tryAcquire());
+        assertTrue(rateLimiter.tryAcquire());
+        assertFalse(rateLimiter.tryAcquire());
+    }
+}
@@ -0,0 +1,138 @@
+package com.lcs.lcspicture.manager.lock;
+
+import com.lcs.lcspicture.config.DistributedLockConfig;
+import com.lcs.lcspicture.exception.BusinessException;
+import com.lcs.lcspicture.mapper.LockFenceMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LocalDistributedLockServiceTest {
+
+    @Spy
+    private DistributedLockConfig distributedLockConfig = new DistributedLockConfig();
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private LockFenceMapper lockFenceMapper;
+
+    @InjectMocks
+    private LocalDistributedLockService localDistributedLockService;
+
+    @Test
+    void tryLockExcludesOthers() {
+        DistributedLock lock = localDistributedLockService.tryLock("a", 0, 10_000);
+        assertNotNull(lock);
+        assertNull(localDistributedLockService.tryLock("a", 0, 10_000));
+        // 不同名称的锁互不影响
+        assertNotNull(localDistributedLockService.tryLock("b", 0, 10_000));
+
+        lock.close();
+        assertNotNull(localDistributedLockService.tryLock("a", 0, 10_000));
+        assertEquals(3, localDistributedLockService.getMetrics().getAcquiredCount());
+        assertEquals(1, localDistributedLockService.getMetrics().getTimeoutCount());
+    }
+
+    @Test
+    void tryLockWaitsForLeaseExpire() {
+        assertNotNull(localDistributedLockService.tryLock("a", 0, 50));
+        DistributedLock lock = localDistributedLockService.tryLock("a", 1_000, 10_000);
+        assertNotNull(lock);
+        assertTrue(lock.isLeaseValid());
+    }
+
+    @Test
+    void expiredOwnerCannotReleaseNewOwner() throws InterruptedException {
+        DistributedLock expiredLock = localDistributedLockService.tryLock("a", 0, 20);
+        Thread.sleep(50);
+        assertFalse(expiredLock.isLeaseValid());
+        DistributedLock lock = localDistributedLockService.tryLock("a", 0, 10_000);
+        assertNotNull(lock);
+
+        expiredLock.close();
+
+        assertNull(localDistributedLockService.tryLock("a", 0, 10_000));
+        assertEquals(1, localDistributedLockService.getMetrics().getExpiredReleaseCount());
+    }
+
+    @Test
+    void releaseAfterLeaseExpireCounted() throws InterruptedException {
+        DistributedLock lock = localDistributedLockService.tryLock("a", 0, 20);
+        Thread.sleep(50);
+        lock.close();
+
+        assertEquals(1, localDistributedLockService.getMetrics().getExpiredReleaseCount());
+        assertNotNull(localDistributedLockService.tryLock("a", 0, 10_000));
+    }
+
+    @Test
+    void executeWithLockThrowsWhenBusy() {
+        distributedLockConfig.setWaitMillis(0);
+        assertNotNull(localDistributedLockService.tryLock("a", 0, 10_000));
+
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> localDistributedLockService.executeWithLock("a", () -> true));
+        assertEquals("操作太频繁，请稍后重试", exception.getMessage());
+        assertTrue(localDistributedLockService.executeWithLock("b", () -> true));
+    }
+
+    @Test
+    void fencingTokenIncreases() {
+        DistributedLock first = localDistributedLockService.tryLock("a", 0, 10_000);
+        DistributedLock second = localDistributedLockService.tryLock("b", 0, 10_000);
+        first.close();
+        DistributedLock third = localDistributedLockService.tryLock("a", 0, 10_000);
+
+        assertTrue(first.getFencingToken() >= System.currentTimeMillis() - 10_000);
+        assertTrue(second.getFencingToken() > first.getFencingToken());
+        assertTrue(third.getFencingToken() > second.getFencingToken());
+    }
+
+    @Test
+    void executeInTransactionWithLockAdvancesFencingToken() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        when(lockFenceMapper.advance(eq("a"), anyLong())).thenReturn(0);
+        when(lockFenceMapper.insertIgnore(eq("a"), anyLong())).thenReturn(1);
+
+        assertTrue(localDistributedLockService.executeInTransactionWithLock("a", () -> true));
+        verify(lockFenceMapper).insertIgnore(eq("a"), anyLong());
+    }
+
+    @Test
+    void executeInTransactionWithLockRejectsStaleFencingToken() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        // 令牌记录已被更大的令牌推进
+        when(lockFenceMapper.advance(eq("a"), anyLong())).thenReturn(0);
+        when(lockFenceMapper.insertIgnore(eq("a"), anyLong())).thenReturn(0);
+        boolean[] executed = new boolean[1];
+
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> localDistributedLockService.executeInTransactionWithLock("a", () -> executed[0] = true));
+        assertEquals("操作超时，请稍后重试", exception.getMessage());
+        assertFalse(executed[0]);
+        // 回滚后锁已释放
+        assertNotNull(localDistributedLockService.tryLock("a", 0, 10_000));
+    }
+}
@@ -0,0 +1,254 @@
+package com.lcs.lcspicture.manager.quota;
+
+import com.lcs.lcspicture.config.PictureUploadConfig;
+import com.lcs.lcspicture.exception.BusinessException;
+import com.lcs.lcspicture.mapper.SpaceMapper;
+import com.lcs.lcspicture.model.entity.Space;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SpaceQuotaManagerTest {
+
+    private static final Long SPACE_ID = 1L;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Spy
+    private PictureUploadConfig pictureUploadConfig = new PictureUploadConfig();
+
+    @Mock
+    private SpaceUsageAccumulator spaceUsageAccumulator;
+
+    @Mock
+    private SpaceMapper spaceMapper;
+
+    @InjectMocks
+    private SpaceQuotaManager spaceQuotaManager;
+
+    /**
+     * 依次执行的脚本的 key 与参数
+     */
+    private final List<List<String>> keysList = new ArrayList<>();
+
+    private final List<List<Object>> argsList = new ArrayList<>();
+
+    /**
+     * 依次返回的脚本结果，为空时返回 0，为异常时抛出
+     */
+    private final Queue<Object> resultQueue = new LinkedList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        lenient().when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any())).thenAnswer(invocation -> {
+            Object[] arguments = invocation.getArguments();
+            keysList.add(invocation.getArgument(1));
+            argsList.add(Arrays.asList(arguments).subList(2, arguments.length));
+            Object result = resultQueue.isEmpty() ? 0L : resultQueue.poll();
+            if (result instanceof RuntimeException) {
+                throw (RuntimeException) result;
+            }
+            return result;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void reservePublicSpace() {
+        assertNull(spaceQuotaManager.reserve(null, 1, 100));
+        verifyNoInteractions(stringRedisTemplate);
+    }
+
+    @Test
+    void reserve() {
+        SpaceQuotaReservation reservation = spaceQuotaManager.reserve(createSpace(), 1, 100);
+
+        assertNotNull(reservation.getId());
+        assertEquals(SPACE_ID, reservation.getSpaceId());
+        assertEquals(1, reservation.getCount());
+        assertEquals(100, reservation.getSize());
+        assertEquals(1, argsList.size());
+        assertEquals(Arrays.asList(reservation.getId(), "1", "100", "10", "1000"), argsList.get(0).subList(0, 5));
+        verifyNoInteractions(spaceMapper);
+    }
+
+    @Test
+    void reserveSeedsUsedWithPending() {
+        resultQueue.add(3L);
+        when(spaceUsageAccumulator.executeWithFlushLock(any())).thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(0)).get());
+        Space dbSpace = createSpace();
+        dbSpace.setTotalCount(5L);
+        dbSpace.setTotalSize(500L);
+        when(spaceMapper.selectById(SPACE_ID)).thenReturn(dbSpace);
+        when(spaceUsageAccumulator.getPending(SPACE_ID)).thenReturn(new long[]{2, 200});
+
+        SpaceQuotaReservation reservation = spaceQuotaManager.reserve(createSpace(), 1, 100);
+
+        assertNotNull(reservation);
+        // 预留、初始化、重新预留
+        assertEquals(3, argsList.size());
+        assertEquals(1, keysList.get(1).size());
+        assertEquals(Arrays.asList("7", "700"), argsList.get(1).subList(0, 2));
+        assertEquals(argsList.get(0).subList(0, 5), argsList.get(2).subList(0, 5));
+    }
+
+    @Test
+    void reserveCountExceeded() {
+        resultQueue.add(1L);
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> spaceQuotaManager.reserve(createSpace(), 1, 100));
+        assertEquals("空间条数不足", exception.getMessage());
+    }
+
+    @Test
+    void reserveSizeExceeded() {
+        resultQueue.add(2L);
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> spaceQuotaManager.reserve(createSpace(), 1, 100));
+        assertEquals("空间容量不足", exception.getMessage());
+    }
+
+    @Test
+    void settleAfterCommit() {
+        SpaceQuotaReservation reservation = new SpaceQuotaReservation("r1", SPACE_ID, 1, 100);
+        TransactionSynchronizationManager.initSynchronization();
+
+        spaceQuotaManager.commitWithTransaction(reservation, 1, 80);
+        assertTrue(argsList.isEmpty());
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(1, argsList.size());
+        assertEquals(3, keysList.get(0).size());
+        assertEquals(SpaceUsageAccumulator.getPendingKey(SPACE_ID), keysList.get(0).get(2));
+        assertEquals(Arrays.asList("r1", "1", "80"), argsList.get(0));
+        verify(spaceUsageAccumulator).markDirty(SPACE_ID);
+    }
+
+    @Test
+    void releaseAfterRollback() {
+        SpaceQuotaReservation reservation = new SpaceQuotaReservation("r1", SPACE_ID, 1, 100);
+        TransactionSynchronizationManager.initSynchronization();
+
+        spaceQuotaManager.commitWithTransaction(reservation, 1, 80);
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertEquals(1, argsList.size());
+        assertEquals(Arrays.asList("r1", "0", "0"), argsList.get(0));
+        verify(spaceUsageAccumulator, never()).markDirty(any());
+    }
+
+    @Test
+    void releaseUsedWithoutTransaction() {
+        spaceQuotaManager.releaseUsedWithTransaction(SPACE_ID, 2, 300);
+
+        assertEquals(1, argsList.size());
+        assertEquals(Arrays.asList("", "-2", "-300"), argsList.get(0));
+        verify(spaceUsageAccumulator).markDirty(SPACE_ID);
+    }
+
+    @Test
+    void retryFailedSettle() {
+        resultQueue.add(new IllegalStateException("redis unavailable"));
+        spaceQuotaManager.release(new SpaceQuotaReservation("r1", SPACE_ID, 1, 100));
+        assertEquals(1, argsList.size());
+
+        spaceQuotaManager.retryFailedSettles();
+        assertEquals(2, argsList.size());
+        assertEquals(argsList.get(0), argsList.get(1));
+
+        // 重试成功后不再重复结算
+        spaceQuotaManager.retryFailedSettles();
+        assertEquals(2, argsList.size());
+    }
+
+    @Test
+    void markDirtyAfterSettle() {
+        doAnswer(invocation -> {
+            // 登记空间时变化量已累加
+            assertEquals(1, argsList.size());
+            return null;
+        }).when(spaceUsageAccumulator).markDirty(SPACE_ID);
+
+        spaceQuotaManager.releaseUsedWithTransaction(SPACE_ID, 1, 100);
+
+        verify(spaceUsageAccumulator).markDirty(SPACE_ID);
+    }
+
+    @Test
+    void retryMarkDirtyWithoutSettlingAgain() {
+        doThrow(new IllegalStateException("redis unavailable")).doNothing()
+                .when(spaceUsageAccumulator).markDirty(SPACE_ID);
+
+        spaceQuotaManager.releaseUsedWithTransaction(SPACE_ID, 1, 100);
+        spaceQuotaManager.retryFailedSettles();
+
+        assertEquals(1, argsList.size());
+        verify(spaceUsageAccumulator, times(2)).markDirty(SPACE_ID);
+    }
+
+    @Test
+    void reseedUsedComparesReadValue() {
+        resultQueue.add(1L);
+        resultQueue.add(0L);
+
+        assertTrue(spaceQuotaManager.reseedUsed(SPACE_ID, new long[]{5, 500}, 6, 600));
+        assertFalse(spaceQuotaManager.reseedUsed(SPACE_ID, new long[]{5, 500}, 6, 600));
+        assertEquals(Arrays.asList("5", "500", "6", "600"), argsList.get(0));
+    }
+
+    private Space createSpace() {
+        Space space = new Space();
+        space.setId(SPACE_ID);
+        space.setMaxCount(10L);
+        space.setMaxSize(1000L);
+        return space;
+    }
+
+    private void completeTransaction(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}
@@ -0,0 +1,187 @@
+package com.lcs.lcspicture.manager.quota;
+
+import com.lcs.lcspicture.manager.lock.DistributedLockService;
+import com.lcs.lcspicture.mapper.SpaceMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SpaceUsageAccumulatorTest {
+
+    private static final String DIRTY_KEY = "space:usage:dirty";
+
+    @Mock
+    private SpaceMapper spaceMapper;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private DistributedLockService distributedLockService;
+
+    @Mock
+    private SetOperations<String, String> setOperations;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @InjectMocks
+    private SpaceUsageAccumulator spaceUsageAccumulator;
+
+    /**
+     * Redis 中各空间待写回的变化量，取出时清空
+     */
+    private final Map<String, List<Long>> pendingMap = new HashMap<>();
+
+    /**
+     * 累加脚本的参数
+     */
+    private final List<List<Object>> addArgsList = new ArrayList<>();
+
+    /**
+     * 累加脚本是否失败
+     */
+    private boolean addFailed;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        lenient().when(stringRedisTemplate.opsForSet()).thenReturn(setOperations);
+        lenient().when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any())).thenAnswer(invocation -> {
+            Object[] arguments = invocation.getArguments();
+            String key = ((List<String>) invocation.getArgument(1)).get(0);
+            if (arguments.length == 2) {
+                // 取出并清空变化量
+                List<Long> values = pendingMap.remove(key);
+                return values == null ? Arrays.asList(0L, 0L) : values;
+            }
+            if (addFailed) {
+                throw new IllegalStateException("redis unavailable");
+            }
+            addArgsList.add(Arrays.asList(key, arguments[2], arguments[3]));
+            return 1L;
+        });
+    }
+
+    @Test
+    void getPending() {
+        when(stringRedisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.multiGet(SpaceUsageAccumulator.getPendingKey(2L), List.of("count", "size")))
+                .thenReturn(Arrays.asList("3", null));
+
+        assertArrayEquals(new long[]{3, 0}, spaceUsageAccumulator.getPending(2L));
+    }
+
+    @Test
+    void flushPending() {
+        mockTransaction();
+        pendingMap.put(SpaceUsageAccumulator.getPendingKey(2L), Arrays.asList(3L, 300L));
+        pendingMap.put(SpaceUsageAccumulator.getPendingKey(1L), Arrays.asList(-1L, -100L));
+        when(setOperations.pop(DIRTY_KEY, 500))
+                .thenReturn(Arrays.asList("2", "1", "3"))
+                .thenReturn(Collections.emptyList());
+
+        spaceUsageAccumulator.flushPending();
+
+        verify(spaceMapper).addUsage(2L, 3L, 300L);
+        verify(spaceMapper).addUsage(1L, -1L, -100L);
+        // 没有变化的空间不更新
+        verify(spaceMapper, never()).addUsage(eq(3L), anyLong(), anyLong());
+        assertTrue(pendingMap.isEmpty());
+    }
+
+    @Test
+    void flushPendingPutsBackOnDbFailure() {
+        when(transactionTemplate.execute(any())).thenThrow(new IllegalStateException("db unavailable"));
+        pendingMap.put(SpaceUsageAccumulator.getPendingKey(2L), Arrays.asList(3L, 300L));
+        when(setOperations.pop(DIRTY_KEY, 500)).thenReturn(Collections.singletonList("2"));
+
+        spaceUsageAccumulator.flushPending();
+
+        // 写回失败后本次不再继续取出
+        verify(setOperations, times(1)).pop(DIRTY_KEY, 500);
+        verify(setOperations).add(DIRTY_KEY, "2");
+        assertEquals(1, addArgsList.size());
+        assertEquals(Arrays.asList(SpaceUsageAccumulator.getPendingKey(2L), "3", "300"), addArgsList.get(0));
+    }
+
+    @Test
+    void keepDeltaInMemoryWhenRedisUnavailable() {
+        when(transactionTemplate.execute(any())).thenThrow(new IllegalStateException("db unavailable"));
+        pendingMap.put(SpaceUsageAccumulator.getPendingKey(2L), Arrays.asList(3L, 300L));
+        when(setOperations.pop(DIRTY_KEY, 500)).thenReturn(Collections.singletonList("2"));
+        when(stringRedisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.multiGet(SpaceUsageAccumulator.getPendingKey(2L), List.of("count", "size")))
+                .thenReturn(Arrays.asList("1", "100"));
+        addFailed = true;
+
+        spaceUsageAccumulator.flushPending();
+
+        // 内存中暂存的变化量计入待写回的变化量
+        assertArrayEquals(new long[]{4, 400}, spaceUsageAccumulator.getPending(2L));
+
+        // Redis 恢复后下次写回前重新累加到 Redis
+        addFailed = false;
+        spaceUsageAccumulator.flush();
+
+        assertEquals(Collections.singletonList(Arrays.asList(SpaceUsageAccumulator.getPendingKey(2L), "3", "300")), addArgsList);
+        assertArrayEquals(new long[]{1, 100}, spaceUsageAccumulator.getPending(2L));
+    }
+
+    @Test
+    void retryMarkDirtyAfterPendingAdded() {
+        when(transactionTemplate.execute(any())).thenThrow(new IllegalStateException("db unavailable"));
+        pendingMap.put(SpaceUsageAccumulator.getPendingKey(2L), Arrays.asList(3L, 300L));
+        when(setOperations.pop(DIRTY_KEY, 500)).thenReturn(Collections.singletonList("2"));
+        when(setOperations.add(DIRTY_KEY, "2"))
+                .thenThrow(new IllegalStateException("redis unavailable"))
+                .thenReturn(1L);
+
+        spaceUsageAccumulator.flushPending();
+        spaceUsageAccumulator.flush();
+
+        // 变化量只累加一次，重试时只重新登记空间
+        assertEquals(Arrays.asList(
+                Arrays.asList(SpaceUsageAccumulator.getPendingKey(2L), "3", "300"),
+                Arrays.asList(SpaceUsageAccumulator.getPendingKey(2L), "0", "0")), addArgsList);
+        verify(setOperations, times(2)).add(DIRTY_KEY, "2");
+    }
+
+    private void mockTransaction() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+    }
+}
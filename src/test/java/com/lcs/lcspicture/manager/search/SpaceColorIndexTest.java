@@ -0,0 +1,105 @@
+package com.lcs.lcspicture.manager.search;
+
+import com.lcs.lcspicture.utils.ColorPaletteUtils;
+import com.lcs.lcspicture.utils.ColorSimilarUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SpaceColorIndexTest {
+
+    @Test
+    void searchMatchesBruteForce() {
+        Random random = new Random(42);
+        SpaceColorIndex index = new SpaceColorIndex(0);
+        Map<Long, int[]> paletteMap = new HashMap<>();
+        for (long id = 1; id <= 300; id++) {
+            int[] palette = randomPalette(random);
+            index.put(id, palette);
+            paletteMap.put(id, palette);
+        }
+        for (int i = 0; i < 20; i++) {
+            int rgb = random.nextInt(0x1000000);
+            assertArrayEquals(bruteForce(paletteMap, rgb, 10), index.search(rgb, 10));
+        }
+    }
+
+    @Test
+    void distanceIsNearestPaletteColor() {
+        SpaceColorIndex index = new SpaceColorIndex(0);
+        index.put(1, new int[]{0xFF0000, 0x0000FF});
+        index.put(2, new int[]{0x00FF00});
+        index.put(3, new int[]{0x0000F0});
+
+        // 调色板中任意一个颜色接近即可命中
+        assertArrayEquals(new long[]{1, 3, 2}, index.search(0x0000FF, 3));
+        assertArrayEquals(new long[]{1}, index.search(0xFF0000, 1));
+        // 数量大于索引大小时返回全部图片
+        assertEquals(3, index.search(0x00FF00, 10).length);
+    }
+
+    @Test
+    void searchAfterUpdateAndRemove() {
+        Random random = new Random(7);
+        SpaceColorIndex index = new SpaceColorIndex(0);
+        Map<Long, int[]> paletteMap = new HashMap<>();
+        for (long id = 1; id <= 100; id++) {
+            int[] palette = randomPalette(random);
+            index.put(id, palette);
+            paletteMap.put(id, palette);
+        }
+        for (long id = 1; id <= 100; id += 3) {
+            index.remove(id);
+            paletteMap.remove(id);
+        }
+        for (long id = 2; id <= 100; id += 5) {
+            int[] palette = randomPalette(random);
+            index.put(id, palette);
+            paletteMap.put(id, palette);
+        }
+        // 空调色板视为删除
+        index.put(2, new int[0]);
+        paletteMap.remove(2L);
+
+        assertEquals(paletteMap.size(), index.size());
+        for (int i = 0; i < 10; i++) {
+            int rgb = random.nextInt(0x1000000);
+            assertArrayEquals(bruteForce(paletteMap, rgb, 8), index.search(rgb, 8));
+        }
+    }
+
+    private static int[] randomPalette(Random random) {
+        int[] palette = new int[1 + random.nextInt(ColorPaletteUtils.MAX_PALETTE_SIZE)];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = random.nextInt(0x1000000);
+        }
+        return palette;
+    }
+
+    private static long[] bruteForce(Map<Long, int[]> paletteMap, int rgb, int k) {
+        float[] target = new float[3];
+        ColorSimilarUtils.rgbToLab(rgb, target, 0);
+        Map<Long, Double> distanceMap = new HashMap<>();
+        float[] lab = new float[3];
+        paletteMap.forEach((id, palette) -> {
+            double distance = Double.MAX_VALUE;
+            for (int color : palette) {
+                ColorSimilarUtils.rgbToLab(color, lab, 0);
+                distance = Math.min(distance, ColorSimilarUtils.ciede2000(target[0], target[1], target[2],
+                        lab[0], lab[1], lab[2]));
+            }
+            distanceMap.put(id, distance);
+        });
+        return distanceMap.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue(Comparator.naturalOrder()))
+                .limit(k)
+                .mapToLong(Map.Entry::getKey)
+                .toArray();
+    }
+}
@@ -0,0 +1,112 @@
+package com.lcs.lcspicture.manager.search;
+
+import com.lcs.lcspicture.utils.ImageHashUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceHashIndexTest {
+
+    @Test
+    void searchMatchesBruteForce() {
+        Random random = new Random(42);
+        SpaceHashIndex index = new SpaceHashIndex(0);
+        Map<Long, Long> hashMap = new HashMap<>();
+        long[] bases = randomBases(random, 10);
+        for (long id = 1; id <= 1000; id++) {
+            long hash = flipBits(random, bases[random.nextInt(bases.length)], random.nextInt(12));
+            index.put(id, hash);
+            hashMap.put(id, hash);
+        }
+        for (int i = 0; i < 30; i++) {
+            long target = flipBits(random, bases[random.nextInt(bases.length)], random.nextInt(8));
+            assertSearchResult(hashMap, index, target, 10, 10);
+            assertSearchResult(hashMap, index, target, 3, 64);
+        }
+    }
+
+    @Test
+    void findsEveryPictureWithSameHash() {
+        SpaceHashIndex index = new SpaceHashIndex(0);
+        index.put(1, 0xF0F0L);
+        index.put(2, 0xF0F0L);
+        index.put(3, 0xF0F0L);
+        index.put(4, 0xF0F1L);
+
+        long[] result = index.search(0xF0F0L, 10, 0);
+        Arrays.sort(result);
+        assertArrayEquals(new long[]{1, 2, 3}, result);
+        assertEquals(4, index.search(0xF0F0L, 10, 1).length);
+        assertEquals(0, index.search(0L, 10, 3).length);
+    }
+
+    @Test
+    void searchAfterUpdateRemoveAndRebuild() {
+        Random random = new Random(7);
+        SpaceHashIndex index = new SpaceHashIndex(0);
+        Map<Long, Long> hashMap = new HashMap<>();
+        long[] bases = randomBases(random, 5);
+        for (long id = 1; id <= 400; id++) {
+            long hash = flipBits(random, bases[random.nextInt(bases.length)], random.nextInt(10));
+            index.put(id, hash);
+            hashMap.put(id, hash);
+        }
+        // 删除超过一半的节点触发重建，其中包含根节点
+        for (long id = 1; id <= 250; id++) {
+            index.remove(id);
+            hashMap.remove(id);
+        }
+        for (long id = 251; id <= 400; id += 4) {
+            long hash = flipBits(random, bases[random.nextInt(bases.length)], random.nextInt(10));
+            index.put(id, hash);
+            hashMap.put(id, hash);
+        }
+
+        assertEquals(hashMap.size(), index.size());
+        for (int i = 0; i < 20; i++) {
+            long target = flipBits(random, bases[random.nextInt(bases.length)], random.nextInt(6));
+            assertSearchResult(hashMap, index, target, 8, 12);
+        }
+    }
+
+    /**
+     * 汉明距离相同的图片顺序不确定，按距离序列与命中图片的实际距离校验
+     */
+    private static void assertSearchResult(Map<Long, Long> hashMap, SpaceHashIndex index, long target, int k, int maxDistance) {
+        int[] expected = hashMap.values().stream()
+                .mapToInt(hash -> ImageHashUtils.hammingDistance(target, hash))
+                .filter(distance -> distance <= maxDistance)
+                .sorted()
+                .limit(k)
+                .toArray();
+        long[] result = index.search(target, k, maxDistance);
+        int[] actual = Arrays.stream(result)
+                .mapToInt(id -> ImageHashUtils.hammingDistance(target, hashMap.get(id)))
+                .toArray();
+        assertArrayEquals(expected, actual);
+        assertEquals(result.length, Arrays.stream(result).distinct().count());
+        assertTrue(Arrays.stream(result).allMatch(hashMap::containsKey));
+    }
+
+    private static long[] randomBases(Random random, int count) {
+        long[] bases = new long[count];
+        for (int i = 0; i < count; i++) {
+            bases[i] = random.nextLong();
+        }
+        return bases;
+    }
+
+    private static long flipBits(Random random, long hash, int count) {
+        for (int i = 0; i < count; i++) {
+            hash ^= 1L << random.nextInt(64);
+        }
+        return hash;
+    }
+}
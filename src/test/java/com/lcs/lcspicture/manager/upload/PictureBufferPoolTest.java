@@ -0,0 +1,80 @@
+package com.lcs.lcspicture.manager.upload;
+
+import com.lcs.lcspicture.config.PictureUploadConfig;
+import com.lcs.lcspicture.exception.BusinessException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+class PictureBufferPoolTest {
+
+    @Spy
+    private PictureUploadConfig pictureUploadConfig = new PictureUploadConfig();
+
+    @InjectMocks
+    private PictureBufferPool pictureBufferPool;
+
+    @BeforeEach
+    void setUp() {
+        pictureUploadConfig.setBufferSize(16);
+        pictureUploadConfig.setMaxFileSize(64);
+        pictureUploadConfig.setBufferCount(1);
+        pictureUploadConfig.setLargeBufferCount(1);
+        pictureUploadConfig.setAcquireTimeout(0);
+        pictureBufferPool.init();
+    }
+
+    @Test
+    void knownLengthAboveBufferSizeStaysInMemory() throws IOException {
+        try (PictureUploadBuffer buffer = pictureBufferPool.read(new ByteArrayInputStream(new byte[40]), 40, "test")) {
+            assertFalse(buffer.isFileBacked());
+            assertEquals(40, buffer.getSize());
+        }
+    }
+
+    @Test
+    void unknownLengthAboveBufferSizeSpillsToFile() throws IOException {
+        try (PictureUploadBuffer buffer = pictureBufferPool.read(new ByteArrayInputStream(new byte[40]), -1, "test")) {
+            assertTrue(buffer.isFileBacked());
+            assertEquals(40, buffer.getSize());
+        }
+        try (PictureUploadBuffer buffer = pictureBufferPool.read(new ByteArrayInputStream(new byte[10]), -1, "test")) {
+            assertFalse(buffer.isFileBacked());
+        }
+    }
+
+    @Test
+    void exhaustedTierSpillsToFile() throws IOException {
+        try (PictureUploadBuffer first = pictureBufferPool.read(new ByteArrayInputStream(new byte[40]), 40, "test");
+             PictureUploadBuffer second = pictureBufferPool.read(new ByteArrayInputStream(new byte[40]), 40, "test")) {
+            assertFalse(first.isFileBacked());
+            assertTrue(second.isFileBacked());
+        }
+        // 归还后可以再次使用
+        try (PictureUploadBuffer buffer = pictureBufferPool.read(new ByteArrayInputStream(new byte[40]), 40, "test")) {
+            assertFalse(buffer.isFileBacked());
+        }
+    }
+
+    @Test
+    void rejectsLengthMismatchAndOversize() {
+        assertThrows(BusinessException.class,
+                () -> pictureBufferPool.read(new ByteArrayInputStream(new byte[30]), 40, "test"));
+        assertThrows(BusinessException.class,
+                () -> pictureBufferPool.read(new ByteArrayInputStream(new byte[80]), -1, "test"));
+        assertThrows(BusinessException.class,
+                () -> pictureBufferPool.read(new ByteArrayInputStream(new byte[80]), 80, "test"));
+    }
+}
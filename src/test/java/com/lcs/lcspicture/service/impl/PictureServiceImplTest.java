@@ -0,0 +1,208 @@
+package com.lcs.lcspicture.service.impl;
+
+import cn.hutool.core.codec.Base64;
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.lcs.lcspicture.common.CursorPage;
+import com.lcs.lcspicture.exception.BusinessException;
+import com.lcs.lcspicture.mapper.PictureMapper;
+import com.lcs.lcspicture.model.dto.picture.PictureCursor;
+import com.lcs.lcspicture.model.dto.picture.PictureCursorQueryRequest;
+import com.lcs.lcspicture.model.entity.Picture;
+import com.lcs.lcspicture.model.vo.PictureVO;
+import com.lcs.lcspicture.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PictureServiceImplTest {
+
+    private static final int PAGE_SIZE = 4;
+
+    @Mock
+    private PictureMapper pictureMapper;
+
+    @Mock
+    private UserService userService;
+
+    @InjectMocks
+    private PictureServiceImpl pictureService;
+
+    /**
+     * 模拟的图片表，多张图片的创建时间与编辑时间相同，只能按 id 区分先后
+     */
+    private final List<Picture> pictureTable = new ArrayList<>();
+
+    private final List<String> sqlSegments = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        long base = 1_760_000_000_123L;
+        for (long id = 1; id <= 13; id++) {
+            Picture picture = new Picture();
+            picture.setId(id);
+            // 毫秒部分不为 0，校验游标保留毫秒精度
+            picture.setCreateTime(new Date(base + (id - 1) / 5 * 1001));
+            picture.setEditTime(new Date(base + id % 3 * 7));
+            pictureTable.add(picture);
+        }
+        when(userService.listByIds(any())).thenReturn(Collections.emptyList());
+    }
+
+    @Test
+    void pagesThroughTiesByCreateTimeDescending() {
+        assertVisitAll("createTime", "descend");
+    }
+
+    @Test
+    void pagesThroughTiesByEditTimeAscending() {
+        assertVisitAll("editTime", "ascend");
+    }
+
+    @Test
+    void pagesByIdDescending() {
+        assertVisitAll("id", "descend");
+    }
+
+    @Test
+    void pagesByIdAscending() {
+        assertVisitAll("id", "ascend");
+    }
+
+    @Test
+    void cursorRoundTripsSortValueAndId() {
+        stubSelect("createTime", "descend");
+        CursorPage<PictureVO> firstPage = pictureService.listPictureVOByCursor(newRequest("createTime", "descend", null), null);
+
+        PictureCursor cursor = JSONUtil.toBean(Base64.decodeStr(firstPage.getNextCursor()), PictureCursor.class);
+        assertEquals("createTime", cursor.getSortField());
+        assertEquals("descend", cursor.getSortOrder());
+        assertEquals(10L, cursor.getId());
+
+        pictureService.listPictureVOByCursor(newRequest("createTime", "descend", firstPage.getNextCursor()), null);
+        String sqlSegment = sqlSegments.get(sqlSegments.size() - 1);
+        // 排序字段相同时按 id 定位
+        assertTrue(sqlSegment.contains("(createTime < #{ew.paramNameValuePairs.MPGENVAL1} OR (createTime = #{ew.paramNameValuePairs.MPGENVAL2} AND id < #{ew.paramNameValuePairs.MPGENVAL3}))"));
+        assertTrue(sqlSegment.contains("ORDER BY createTime DESC,id DESC"));
+    }
+
+    @Test
+    void rejectsMismatchedOrInvalidCursor() {
+        stubSelect("createTime", "descend");
+        String nextCursor = pictureService.listPictureVOByCursor(newRequest("createTime", "descend", null), null).getNextCursor();
+
+        assertThrows(BusinessException.class,
+                () -> pictureService.listPictureVOByCursor(newRequest("createTime", "ascend", nextCursor), null));
+        assertThrows(BusinessException.class,
+                () -> pictureService.listPictureVOByCursor(newRequest("editTime", "descend", nextCursor), null));
+        assertThrows(BusinessException.class,
+                () -> pictureService.listPictureVOByCursor(newRequest("createTime", "descend", "not-a-cursor"), null));
+        assertThrows(BusinessException.class,
+                () -> pictureService.listPictureVOByCursor(newRequest("picSize", "descend", null), null));
+    }
+
+    /**
+     * 按游标翻到最后一页，每张图片恰好返回一次且顺序与 (排序字段, id) 排序一致
+     */
+    private void assertVisitAll(String sortField, String sortOrder) {
+        stubSelect(sortField, sortOrder);
+        List<Long> visitedIds = new ArrayList<>();
+        String cursor = null;
+        int pageCount = 0;
+        do {
+            CursorPage<PictureVO> cursorPage = pictureService.listPictureVOByCursor(newRequest(sortField, sortOrder, cursor), null);
+            cursorPage.getRecords().forEach(pictureVO -> visitedIds.add(pictureVO.getId()));
+            assertEquals(cursorPage.isHasMore(), cursorPage.getNextCursor() != null);
+            cursor = cursorPage.getNextCursor();
+            pageCount++;
+        } while (cursor != null);
+
+        List<Long> expectedIds = pictureTable.stream()
+                .sorted(getComparator(sortField, sortOrder))
+                .map(Picture::getId)
+                .collect(Collectors.toList());
+        assertEquals(expectedIds, visitedIds);
+        assertEquals((pictureTable.size() + PAGE_SIZE - 1) / PAGE_SIZE, pageCount);
+    }
+
+    /**
+     * 按查询条件中的游标参数在模拟表中定位，返回下一页及多查的一条
+     */
+    private void stubSelect(String sortField, String sortOrder) {
+        Comparator<Picture> comparator = getComparator(sortField, sortOrder);
+        when(pictureMapper.selectList(any())).thenAnswer(invocation -> {
+            QueryWrapper<Picture> queryWrapper = invocation.getArgument(0);
+            sqlSegments.add(queryWrapper.getSqlSegment());
+            List<Object> params = getParams(queryWrapper);
+            Picture last = null;
+            if (!params.isEmpty()) {
+                last = new Picture();
+                last.setId((Long) params.get(params.size() - 1));
+                if (!"id".equals(sortField)) {
+                    assertEquals(params.get(0), params.get(1));
+                    setSortValue(last, sortField, (Date) params.get(0));
+                }
+            }
+            Picture finalLast = last;
+            return pictureTable.stream()
+                    .filter(picture -> finalLast == null || comparator.compare(picture, finalLast) > 0)
+                    .sorted(comparator)
+                    .limit(PAGE_SIZE + 1)
+                    .collect(Collectors.toList());
+        });
+    }
+
+    private Comparator<Picture> getComparator(String sortField, String sortOrder) {
+        Comparator<Picture> comparator = Comparator.comparing(Picture::getId);
+        if ("createTime".equals(sortField)) {
+            comparator = Comparator.comparing(Picture::getCreateTime).thenComparing(comparator);
+        } else if ("editTime".equals(sortField)) {
+            comparator = Comparator.comparing(Picture::getEditTime).thenComparing(comparator);
+        }
+        return "ascend".equals(sortOrder) ? comparator : comparator.reversed();
+    }
+
+    private void setSortValue(Picture picture, String sortField, Date sortValue) {
+        if ("createTime".equals(sortField)) {
+            picture.setCreateTime(sortValue);
+        } else {
+            picture.setEditTime(sortValue);
+        }
+    }
+
+    private PictureCursorQueryRequest newRequest(String sortField, String sortOrder, String cursor) {
+        PictureCursorQueryRequest pictureCursorQueryRequest = new PictureCursorQueryRequest();
+        pictureCursorQueryRequest.setPageSize(PAGE_SIZE);
+        pictureCursorQueryRequest.setSortField(sortField);
+        pictureCursorQueryRequest.setSortOrder(sortOrder);
+        pictureCursorQueryRequest.setCursor(cursor);
+        return pictureCursorQueryRequest;
+    }
+
+    private List<Object> getParams(QueryWrapper<Picture> queryWrapper) {
+        // 参数名按生成顺序编号，按编号数值排序
+        Map<Integer, Object> paramMap = new TreeMap<>();
+        queryWrapper.getParamNameValuePairs().forEach((name, value) ->
+                paramMap.put(Integer.parseInt(name.replaceAll("\\D", "")), value));
+        return new ArrayList<>(paramMap.values());
+    }
+}
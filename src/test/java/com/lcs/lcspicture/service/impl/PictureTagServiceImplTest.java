@@ -0,0 +1,63 @@
+package com.lcs.lcspicture.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.lcs.lcspicture.model.entity.Picture;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PictureTagServiceImplTest {
+
+    private final PictureTagServiceImpl pictureTagService = new PictureTagServiceImpl();
+
+    @Test
+    void ignoreBlankTags() {
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        pictureTagService.fillTagQueryWrapper(queryWrapper, Arrays.asList(" ", ""), true);
+        pictureTagService.fillTagQueryWrapper(queryWrapper, null, true);
+        assertEquals("", queryWrapper.getSqlSegment());
+    }
+
+    @Test
+    void matchAllTags() {
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        pictureTagService.fillTagQueryWrapper(queryWrapper, Arrays.asList("Cat", "cat ", " dog", " "), true);
+
+        String sqlSegment = queryWrapper.getSqlSegment();
+        assertTrue(sqlSegment.contains("id IN (SELECT pictureId FROM picture_tag WHERE tag IN ("));
+        assertTrue(sqlSegment.contains("GROUP BY pictureId HAVING COUNT(DISTINCT tag) = 2"));
+        // 忽略大小写去重，保留第一次出现的写法
+        assertEquals(Arrays.asList("Cat", "dog"), getParams(queryWrapper));
+    }
+
+    @Test
+    void matchAnyTag() {
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        pictureTagService.fillTagQueryWrapper(queryWrapper, Arrays.asList("cat", "dog"), false);
+
+        assertFalse(queryWrapper.getSqlSegment().contains("GROUP BY"));
+        assertEquals(Arrays.asList("cat", "dog"), getParams(queryWrapper));
+    }
+
+    @Test
+    void matchSingleTagWithoutGroup() {
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        pictureTagService.fillTagQueryWrapper(queryWrapper, Collections.singletonList("cat"), true);
+
+        assertFalse(queryWrapper.getSqlSegment().contains("GROUP BY"));
+        assertEquals(Collections.singletonList("cat"), getParams(queryWrapper));
+    }
+
+    private List<Object> getParams(QueryWrapper<Picture> queryWrapper) {
+        // 参数名按生成顺序编号
+        return new ArrayList<>(new TreeMap<>(queryWrapper.getParamNameValuePairs()).values());
+    }
+}